@@ -0,0 +1,110 @@
+package desempenho;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * Converte uma data/hora local (em segundos desde 1970-01-01T00:00, sem timezone) para o valor do Unix Epoch, usando as regras de um timezone.
+ *
+ * O offset usado na última conversão fica guardado, junto com o intervalo em que ele não muda (o período entre duas transições de horário de verão). Como
+ * os valores de um arquivo ou de uma consulta costumam estar próximos uns dos outros, a maioria das conversões é só uma comparação e uma subtração, sem
+ * consultar o {@link ZoneRules}.
+ *
+ * Horários que caem em um gap são ajustados para depois da transição (usa-se o offset anterior a ela), como fazem {@link java.time.ZonedDateTime} e
+ * {@link java.text.SimpleDateFormat}. Nos overlaps, o offset usado depende de <code>offsetPosteriorNoOverlap</code>: o anterior à transição é o mesmo
+ * de {@link java.time.ZonedDateTime#of(java.time.LocalDateTime, ZoneId)} e de um {@link java.time.format.DateTimeFormatter} com timezone, e o
+ * posterior é o mesmo de {@link java.text.SimpleDateFormat} e {@link java.util.Calendar} (ver
+ * {@link exemplos.part1.Capitulos1a6#inicioHorarioDeVeraoSP()}).
+ *
+ * Não é thread-safe: cada thread deve ter sua própria instância.
+ */
+final class CacheOffset {
+
+    private final ZoneRules regras;
+
+    private final boolean offsetPosteriorNoOverlap;
+
+    // intervalo de horários locais [inicio, fim) em que o offset é único
+    private long inicio = 1;
+
+    private long fim = 0;
+
+    private int offset;
+
+    /**
+     * @param offsetPosteriorNoOverlap
+     *            se <code>true</code>, os horários que estão em um overlap usam o offset posterior à transição (como {@link java.text.SimpleDateFormat});
+     *            se <code>false</code>, usam o anterior (como {@link java.time.ZonedDateTime})
+     */
+    CacheOffset(ZoneId zona, boolean offsetPosteriorNoOverlap) {
+        this.regras = zona.getRules();
+        this.offsetPosteriorNoOverlap = offsetPosteriorNoOverlap;
+    }
+
+    /**
+     * @param segundosLocais
+     *            data/hora local, em segundos desde 1970-01-01T00:00
+     * @return a quantidade de segundos desde o Unix Epoch
+     */
+    long epochSecond(long segundosLocais) {
+        if (segundosLocais >= inicio && segundosLocais < fim) {
+            return segundosLocais - offset;
+        }
+        return atualizar(segundosLocais);
+    }
+
+    private long atualizar(long segundosLocais) {
+        if (regras.isFixedOffset()) {
+            offset = regras.getOffset(Instant.EPOCH).getTotalSeconds();
+            inicio = Long.MIN_VALUE;
+            fim = Long.MAX_VALUE;
+            return segundosLocais - offset;
+        }
+        // o offset "padrão" do instante aproximado serve para encontrar as transições mais próximas
+        Instant aproximado = Instant.ofEpochSecond(segundosLocais - regras.getOffset(Instant.ofEpochSecond(segundosLocais)).getTotalSeconds());
+        ZoneOffsetTransition anterior = regras.previousTransition(aproximado.plusSeconds(1));
+        ZoneOffsetTransition proxima = regras.nextTransition(aproximado);
+        // verifica se o horário local cai no gap ou overlap de alguma das transições
+        ZoneOffsetTransition transicao = contem(anterior, segundosLocais) ? anterior : contem(proxima, segundosLocais) ? proxima : null;
+        if (transicao != null) {
+            // gap: usa o offset anterior (o horário é ajustado para depois da transição); overlap: depende da configuração
+            boolean posterior = transicao.isOverlap() && offsetPosteriorNoOverlap;
+            int offsetUsado = posterior ? transicao.getOffsetAfter().getTotalSeconds() : transicao.getOffsetBefore().getTotalSeconds();
+            return segundosLocais - offsetUsado;
+        }
+        if (anterior != null && segundosLocais < inicioDepois(anterior)) {
+            // está antes da transição anterior ao instante aproximado
+            proxima = anterior;
+            anterior = regras.previousTransition(anterior.getInstant());
+        } else if (proxima != null && segundosLocais >= inicioDepois(proxima)) {
+            anterior = proxima;
+            proxima = regras.nextTransition(proxima.getInstant());
+        }
+        if (anterior != null) {
+            offset = anterior.getOffsetAfter().getTotalSeconds();
+        } else if (proxima != null) {
+            offset = proxima.getOffsetBefore().getTotalSeconds();
+        } else {
+            offset = regras.getOffset(aproximado).getTotalSeconds();
+        }
+        inicio = anterior != null ? inicioDepois(anterior) : Long.MIN_VALUE;
+        fim = proxima != null ? fimAntes(proxima) : Long.MAX_VALUE;
+        return segundosLocais - offset;
+    }
+
+    // primeiro horário local depois da transição que não é ambíguo nem inexistente
+    private static long inicioDepois(ZoneOffsetTransition t) {
+        return t.toEpochSecond() + Math.max(t.getOffsetBefore().getTotalSeconds(), t.getOffsetAfter().getTotalSeconds());
+    }
+
+    // primeiro horário local afetado pela transição (início do gap ou do overlap)
+    private static long fimAntes(ZoneOffsetTransition t) {
+        return t.toEpochSecond() + Math.min(t.getOffsetBefore().getTotalSeconds(), t.getOffsetAfter().getTotalSeconds());
+    }
+
+    private static boolean contem(ZoneOffsetTransition t, long segundosLocais) {
+        return t != null && segundosLocais >= fimAntes(t) && segundosLocais < inicioDepois(t);
+    }
+}
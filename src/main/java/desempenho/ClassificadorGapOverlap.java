@@ -0,0 +1,250 @@
+package desempenho;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+import exemplos.part3.Cap14ZonesOffsets;
+import exemplos.part3.Cap19TestesOutrosCasos;
+
+/**
+ * Verifica, para muitas datas/horas locais de uma vez, quais estão em um gap ou overlap de um timezone, e converte cada uma para o Unix Epoch de
+ * acordo com uma {@link Politica}.
+ *
+ * Nos exemplos do livro ({@link Cap14ZonesOffsets#gaps()}, {@link Cap14ZonesOffsets#overlaps()} e
+ * {@link Cap19TestesOutrosCasos#obterInformacoesTimezone2()}), cada data/hora é verificada separadamente, e {@link ZoneRules#getValidOffsets(LocalDateTime)}
+ * cria uma lista a cada chamada. Aqui, as datas/horas são valores <code>long</code> (segundos desde 1970-01-01T00:00, sem timezone, ou seja,
+ * {@link LocalDateTime#toEpochSecond(ZoneOffset)} com {@link ZoneOffset#UTC}), e as transições do timezone são as de {@link RegrasCompiladas},
+ * convertidas para o horário local: cada transição afeta um intervalo de horários locais (o gap ou overlap). Se os valores estiverem em ordem
+ * crescente, eles são comparados com as transições em uma única passada, como na junção de duas listas ordenadas; quando um valor é menor que o
+ * anterior, a transição é procurada com busca binária. Nenhum objeto é criado.
+ *
+ * Para horários posteriores a {@link RegrasCompiladas#ANO_LIMITE_PADRAO}, são usadas as regras do JDK. As instâncias são imutáveis e podem ser usadas
+ * por várias threads.
+ */
+public final class ClassificadorGapOverlap {
+
+    /**
+     * Horário que existe uma única vez no timezone
+     */
+    public static final byte NORMAL = 0;
+
+    /**
+     * Horário que não existe no timezone (foi "pulado" no início do horário de verão, por exemplo)
+     */
+    public static final byte GAP = 1;
+
+    /**
+     * Horário que existe duas vezes no timezone (no final do horário de verão, por exemplo)
+     */
+    public static final byte OVERLAP = 2;
+
+    /**
+     * Valor resolvido dos horários em gaps e overlaps, com a política {@link Politica#REJEITAR}
+     */
+    public static final long REJEITADO = Long.MIN_VALUE;
+
+    /**
+     * Como converter os horários que estão em um gap ou overlap. Os horários normais são sempre convertidos com o único offset válido.
+     */
+    public enum Politica {
+        /**
+         * Overlap: primeira ocorrência (offset anterior à transição). Gap: o horário é ajustado para depois da transição, somando a duração do gap
+         * (02:10 em um gap de 1 hora vira 03:10). É o mesmo resultado de {@link ZonedDateTime#of(LocalDateTime, ZoneId)}.
+         */
+        ANTERIOR,
+
+        /**
+         * Overlap: segunda ocorrência (offset posterior à transição). Gap: igual a {@link #ANTERIOR}. É o mesmo resultado de
+         * {@link ZonedDateTime#withLaterOffsetAtOverlap()}, e também de {@link java.text.SimpleDateFormat} e {@link java.util.Calendar}.
+         */
+        POSTERIOR,
+
+        /**
+         * Gaps e overlaps não são convertidos: o resultado é {@link ClassificadorGapOverlap#REJEITADO}
+         */
+        REJEITAR,
+
+        /**
+         * Gap: o horário é trocado pelo primeiro horário válido depois do gap (o instante da transição). Overlap: igual a {@link #ANTERIOR}.
+         */
+        DESLOCAR
+    }
+
+    private final ZoneId zona;
+
+    private final ZoneRules regras;
+
+    // para cada transição: instante, offset anterior e posterior, e o intervalo de horários locais afetados [inicioAfetado, fimAfetado)
+    private final long[] transicoes;
+
+    private final int[] offsets;
+
+    private final long[] inicioAfetado;
+
+    private final long[] fimAfetado;
+
+    // horários locais a partir deste valor usam as regras do JDK
+    private final long limiteLocal;
+
+    private ClassificadorGapOverlap(ZoneId zona) {
+        RegrasCompiladas compiladas = RegrasCompiladas.of(zona);
+        this.zona = zona;
+        this.regras = compiladas.regras();
+        this.transicoes = compiladas.transicoes();
+        this.offsets = compiladas.offsets();
+        this.inicioAfetado = new long[transicoes.length];
+        this.fimAfetado = new long[transicoes.length];
+        for (int i = 0; i < transicoes.length; i++) {
+            inicioAfetado[i] = transicoes[i] + Math.min(offsets[i], offsets[i + 1]);
+            fimAfetado[i] = transicoes[i] + Math.max(offsets[i], offsets[i + 1]);
+        }
+        // os offsets estão entre -18 e +18 horas: um dia antes do limite, todos os horários locais ainda estão antes dele
+        this.limiteLocal = compiladas.limite() - 86400;
+    }
+
+    public static ClassificadorGapOverlap of(ZoneId zona) {
+        return new ClassificadorGapOverlap(zona);
+    }
+
+    public ZoneId getZona() {
+        return zona;
+    }
+
+    /**
+     * Classifica e converte os horários locais de <code>locais[inicio]</code> até <code>locais[fim - 1]</code>. Os arrays de resultado podem ser
+     * reutilizados para vários lotes.
+     *
+     * @param tipos
+     *            array em que é guardado o tipo de cada horário ({@link #NORMAL}, {@link #GAP} ou {@link #OVERLAP}). <code>tipos[0]</code> corresponde a
+     *            <code>locais[inicio]</code>
+     * @param resolvidos
+     *            array em que é guardado o instante (em segundos desde o Unix Epoch) de cada horário, de acordo com a política (pode ser
+     *            <code>null</code>, se somente os tipos forem necessários)
+     * @return a quantidade de horários que estão em um gap ou overlap
+     */
+    public int classificar(long[] locais, int inicio, int fim, Politica politica, byte[] tipos, long[] resolvidos) {
+        int qtd = 0;
+        long anterior = Long.MAX_VALUE;
+        int j = 0;
+        for (int i = inicio; i < fim; i++) {
+            long local = locais[i];
+            byte tipo;
+            long resolvido;
+            if (local >= limiteLocal) {
+                ZoneOffsetTransition transicao = regras.getTransition(LocalDateTime.ofEpochSecond(local, 0, ZoneOffset.UTC));
+                if (transicao == null) {
+                    tipo = NORMAL;
+                    resolvido = local - regras.getOffset(LocalDateTime.ofEpochSecond(local, 0, ZoneOffset.UTC)).getTotalSeconds();
+                } else {
+                    tipo = transicao.isGap() ? GAP : OVERLAP;
+                    resolvido = resolver(tipo, local, transicao.toEpochSecond(), transicao.getOffsetBefore().getTotalSeconds(),
+                        transicao.getOffsetAfter().getTotalSeconds(), politica);
+                }
+            } else {
+                if (local < anterior) {
+                    // primeiro valor, ou fora de ordem: busca binária
+                    j = posicao(local);
+                } else {
+                    // avança pelas transições cujos horários afetados já passaram
+                    while (j < fimAfetado.length && fimAfetado[j] <= local) {
+                        j++;
+                    }
+                }
+                anterior = local;
+                if (j < inicioAfetado.length && local >= inicioAfetado[j]) {
+                    tipo = offsets[j + 1] > offsets[j] ? GAP : OVERLAP;
+                    resolvido = resolver(tipo, local, transicoes[j], offsets[j], offsets[j + 1], politica);
+                } else {
+                    tipo = NORMAL;
+                    resolvido = local - offsets[j];
+                }
+            }
+            tipos[i - inicio] = tipo;
+            if (resolvidos != null) {
+                resolvidos[i - inicio] = resolvido;
+            }
+            if (tipo != NORMAL) {
+                qtd++;
+            }
+        }
+        return qtd;
+    }
+
+    /**
+     * Tipo do horário local ({@link #NORMAL}, {@link #GAP} ou {@link #OVERLAP})
+     *
+     * @param local
+     *            data/hora local, em segundos desde 1970-01-01T00:00
+     */
+    public byte tipo(long local) {
+        if (local >= limiteLocal) {
+            ZoneOffsetTransition transicao = regras.getTransition(LocalDateTime.ofEpochSecond(local, 0, ZoneOffset.UTC));
+            return transicao == null ? NORMAL : transicao.isGap() ? GAP : OVERLAP;
+        }
+        int j = posicao(local);
+        if (j < inicioAfetado.length && local >= inicioAfetado[j]) {
+            return offsets[j + 1] > offsets[j] ? GAP : OVERLAP;
+        }
+        return NORMAL;
+    }
+
+    /**
+     * Converte o horário local para o Unix Epoch, de acordo com a política
+     *
+     * @param local
+     *            data/hora local, em segundos desde 1970-01-01T00:00
+     * @return o instante, em segundos desde o Unix Epoch (ou {@link #REJEITADO})
+     */
+    public long resolver(long local, Politica politica) {
+        if (local >= limiteLocal) {
+            ZoneOffsetTransition transicao = regras.getTransition(LocalDateTime.ofEpochSecond(local, 0, ZoneOffset.UTC));
+            if (transicao == null) {
+                return local - regras.getOffset(LocalDateTime.ofEpochSecond(local, 0, ZoneOffset.UTC)).getTotalSeconds();
+            }
+            return resolver(transicao.isGap() ? GAP : OVERLAP, local, transicao.toEpochSecond(), transicao.getOffsetBefore().getTotalSeconds(),
+                transicao.getOffsetAfter().getTotalSeconds(), politica);
+        }
+        int j = posicao(local);
+        if (j < inicioAfetado.length && local >= inicioAfetado[j]) {
+            return resolver(offsets[j + 1] > offsets[j] ? GAP : OVERLAP, local, transicoes[j], offsets[j], offsets[j + 1], politica);
+        }
+        return local - offsets[j];
+    }
+
+    // primeira transição cujos horários afetados não terminam antes do horário local
+    private int posicao(long local) {
+        int ini = 0, fim = fimAfetado.length;
+        while (ini < fim) {
+            int meio = (ini + fim) >>> 1;
+            if (fimAfetado[meio] <= local) {
+                ini = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+        return ini;
+    }
+
+    private static long resolver(byte tipo, long local, long transicao, int offsetAntes, int offsetDepois, Politica politica) {
+        switch (politica) {
+            case REJEITAR:
+                return REJEITADO;
+            case POSTERIOR:
+                // no gap, o offset anterior ajusta o horário para depois da transição
+                return local - (tipo == GAP ? offsetAntes : offsetDepois);
+            case DESLOCAR:
+                return tipo == GAP ? transicao : local - offsetAntes;
+            default:
+                return local - offsetAntes;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ClassificadorGapOverlap[" + zona + ", transicoes=" + transicoes.length + "]";
+    }
+}
@@ -0,0 +1,306 @@
+package desempenho;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import exemplos.part3.Cap18Parsing;
+
+/**
+ * Leitura e escrita de datas e horas sem separadores, com tamanho fixo (<code>uuuuMMdd</code>, <code>uuuuMMddHHmmss</code>,
+ * <code>uuuuMMddHHmmssSSS</code>, etc).
+ *
+ * Com {@link java.time.format.DateTimeFormatter}, campos adjacentes sem separadores precisam de cuidados especiais (ver
+ * {@link Cap18Parsing#dataHoraSemSeparadores()}). Como aqui todos os campos têm tamanho fixo, cada um deles é lido diretamente da sua posição, com
+ * aritmética simples sobre os dígitos, tanto de um {@link CharSequence} quanto de um <code>byte[]</code> (ASCII ou UTF-8).
+ *
+ * Além da conversão de/para {@link LocalDateTime}, cada layout possui uma "chave": um <code>long</code> que mantém a mesma ordem do texto, podendo ser
+ * usado para ordenar e comparar valores, ou como chave de mapas e índices, sem precisar guardar a String. A chave é a quantidade de unidades (dias,
+ * segundos, milissegundos, etc) desde 1970-01-01T00:00, e portanto também pode ser usada em cálculos (por exemplo, a diferença entre duas chaves de
+ * {@link #DATA_HORA_MILIS} é a quantidade de milissegundos entre as datas). Não há timezone envolvido: os valores são datas e horas locais.
+ *
+ * O ano deve ter 4 dígitos (entre 0000 e 9999). Por isso os patterns usam <code>uuuu</code> (ano proléptico), e não <code>yyyy</code> (ano da era, em
+ * que não existe ano zero). Em {@link #DATA_HORA_NANOS} a chave só comporta datas entre 1677 e 2262 (os limites de um
+ * <code>long</code> em nanossegundos); fora disso, o texto é considerado inválido.
+ */
+public final class CodecCompacto {
+
+    /**
+     * <code>uuuuMMdd</code>: a chave é a quantidade de dias desde 1970-01-01 (o mesmo que {@link LocalDate#toEpochDay()})
+     */
+    public static final CodecCompacto DATA = new CodecCompacto("uuuuMMdd", -1);
+
+    /**
+     * <code>uuuuMMddHHmmss</code>: a chave é a quantidade de segundos desde 1970-01-01T00:00
+     */
+    public static final CodecCompacto DATA_HORA = new CodecCompacto("uuuuMMddHHmmss", 0);
+
+    /**
+     * <code>uuuuMMddHHmmssSSS</code>: a chave é a quantidade de milissegundos desde 1970-01-01T00:00
+     */
+    public static final CodecCompacto DATA_HORA_MILIS = new CodecCompacto("uuuuMMddHHmmssSSS", 3);
+
+    /**
+     * <code>uuuuMMddHHmmssSSSSSS</code>: a chave é a quantidade de microssegundos desde 1970-01-01T00:00
+     */
+    public static final CodecCompacto DATA_HORA_MICROS = new CodecCompacto("uuuuMMddHHmmssSSSSSS", 6);
+
+    /**
+     * <code>uuuuMMddHHmmssSSSSSSSSS</code>: a chave é a quantidade de nanossegundos desde 1970-01-01T00:00
+     */
+    public static final CodecCompacto DATA_HORA_NANOS = new CodecCompacto("uuuuMMddHHmmssSSSSSSSSS", 9);
+
+    /**
+     * Valor retornado pelos métodos <code>chave</code> quando o texto é inválido
+     */
+    public static final long INVALIDO = Long.MIN_VALUE;
+
+    private static final int SEGUNDOS_POR_DIA = 86400;
+
+    private final String pattern;
+
+    // quantidade de dígitos das frações de segundo (-1 se não tiver horário)
+    private final int digitosFracao;
+
+    // quantidade de unidades da chave em um segundo (1 para segundos, 1000 para milissegundos, etc)
+    private final long unidadesPorSegundo;
+
+    private CodecCompacto(String pattern, int digitosFracao) {
+        this.pattern = pattern;
+        this.digitosFracao = digitosFracao;
+        this.unidadesPorSegundo = digitosFracao < 0 ? 0 : Datas.POTENCIAS_10[digitosFracao];
+    }
+
+    /**
+     * Pattern equivalente (usando os mesmos símbolos de {@link java.time.format.DateTimeFormatter})
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Quantidade de caracteres do texto
+     */
+    public int tamanho() {
+        return pattern.length();
+    }
+
+    // ------------------------------------------------------------------------
+    // parsing
+
+    /**
+     * Lê o valor que começa na posição indicada e retorna a chave correspondente, ou {@link #INVALIDO} se o texto for inválido.
+     */
+    public long chave(CharSequence s, int pos) {
+        if (pos < 0 || pos + tamanho() > s.length()) {
+            return INVALIDO;
+        }
+        return chaveTexto(s, pos);
+    }
+
+    /**
+     * O mesmo que {@link #chave(CharSequence, int)}, mas lendo bytes ASCII (ou UTF-8)
+     */
+    public long chave(byte[] b, int pos) {
+        if (pos < 0 || pos + tamanho() > b.length) {
+            return INVALIDO;
+        }
+        return chaveTexto(b, pos);
+    }
+
+    /**
+     * Faz o parsing do texto inteiro (que deve ter exatamente {@link #tamanho()} caracteres) e retorna um {@link LocalDateTime} (para {@link #DATA}, o
+     * horário é meia-noite), ou <code>null</code> se o texto for inválido.
+     */
+    public LocalDateTime parse(CharSequence s) {
+        if (s.length() != tamanho()) {
+            return null;
+        }
+        long chave = chave(s, 0);
+        return chave == INVALIDO ? null : toLocalDateTime(chave);
+    }
+
+    private long chaveTexto(Object buf, int pos) {
+        int ano = numero(buf, pos, 4);
+        int mes = numero(buf, pos + 4, 2);
+        int dia = numero(buf, pos + 6, 2);
+        if (!dataValida(ano, mes, dia)) {
+            return INVALIDO;
+        }
+        long epochDay = Datas.epochDay(ano, mes, dia);
+        if (digitosFracao < 0) {
+            return epochDay;
+        }
+        int hora = numero(buf, pos + 8, 2);
+        int minuto = numero(buf, pos + 10, 2);
+        int segundo = numero(buf, pos + 12, 2);
+        int fracao = digitosFracao == 0 ? 0 : numero(buf, pos + 14, digitosFracao);
+        return chave(epochDay, hora, minuto, segundo, fracao);
+    }
+
+    private static boolean dataValida(int ano, int mes, int dia) {
+        return ano >= 0 && mes >= 1 && mes <= 12 && dia >= 1 && dia <= Datas.diasNoMes(ano, mes);
+    }
+
+    private long chave(long epochDay, int hora, int minuto, int segundo, int fracao) {
+        if (hora < 0 || hora > 23 || minuto < 0 || minuto > 59 || segundo < 0 || segundo > 59 || fracao < 0) {
+            return INVALIDO;
+        }
+        long segundos = epochDay * SEGUNDOS_POR_DIA + hora * 3600 + minuto * 60 + segundo;
+        if (digitosFracao == 9) {
+            // só aqui há risco de estourar o long
+            try {
+                return Math.addExact(Math.multiplyExact(segundos, unidadesPorSegundo), fracao);
+            } catch (ArithmeticException e) {
+                return INVALIDO;
+            }
+        }
+        return segundos * unidadesPorSegundo + fracao;
+    }
+
+    // caractere de um byte[] ou CharSequence: assim o parsing e a formatação são implementados uma única vez (em cada chamada o tipo é sempre o
+    // mesmo, e o JIT elimina a verificação que não é usada)
+    private static int charAt(Object buf, int i) {
+        if (buf instanceof byte[]) {
+            return ((byte[]) buf)[i];
+        }
+        return ((CharSequence) buf).charAt(i);
+    }
+
+    // valor dos dígitos a partir da posição indicada, ou -1 se algum caractere não for dígito
+    private static int numero(Object buf, int pos, int qtd) {
+        int valor = 0;
+        for (int i = pos; i < pos + qtd; i++) {
+            int d = charAt(buf, i) - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            valor = valor * 10 + d;
+        }
+        return valor;
+    }
+
+    // ------------------------------------------------------------------------
+    // conversões
+
+    /**
+     * Retorna a chave correspondente ao {@link LocalDateTime}. Frações de segundo que não cabem no layout são descartadas (por exemplo,
+     * {@link #DATA_HORA_MILIS} descarta os micro e nanossegundos, e {@link #DATA} descarta o horário).
+     *
+     * @throws IllegalArgumentException
+     *             se o ano não estiver entre 0 e 9999, ou se o valor não couber na chave
+     */
+    public long chave(LocalDateTime dataHora) {
+        int ano = dataHora.getYear();
+        if (ano < 0 || ano > 9999) {
+            throw new IllegalArgumentException("Ano deve estar entre 0 e 9999: " + dataHora);
+        }
+        long epochDay = dataHora.toLocalDate().toEpochDay();
+        if (digitosFracao < 0) {
+            return epochDay;
+        }
+        int fracao = digitosFracao == 0 ? 0 : dataHora.getNano() / Datas.POTENCIAS_10[9 - digitosFracao];
+        long chave = chave(epochDay, dataHora.getHour(), dataHora.getMinute(), dataHora.getSecond(), fracao);
+        if (chave == INVALIDO) {
+            throw new IllegalArgumentException("Valor não pode ser representado em " + pattern + ": " + dataHora);
+        }
+        return chave;
+    }
+
+    public LocalDateTime toLocalDateTime(long chave) {
+        LocalDate data = LocalDate.ofEpochDay(epochDay(chave));
+        if (digitosFracao < 0) {
+            return data.atStartOfDay();
+        }
+        long nano = fracao(chave) * Datas.POTENCIAS_10[9 - digitosFracao];
+        return LocalDateTime.of(data, LocalTime.ofNanoOfDay(segundoDoDia(chave) * 1_000_000_000L + nano));
+    }
+
+    private long epochDay(long chave) {
+        if (digitosFracao < 0) {
+            return chave;
+        }
+        return Math.floorDiv(Math.floorDiv(chave, unidadesPorSegundo), SEGUNDOS_POR_DIA);
+    }
+
+    private int segundoDoDia(long chave) {
+        return (int) Math.floorMod(Math.floorDiv(chave, unidadesPorSegundo), SEGUNDOS_POR_DIA);
+    }
+
+    private long fracao(long chave) {
+        return Math.floorMod(chave, unidadesPorSegundo);
+    }
+
+    // ------------------------------------------------------------------------
+    // formatação
+
+    /**
+     * Escreve o texto correspondente à chave, a partir da posição indicada.
+     *
+     * @return a posição seguinte ao último caractere escrito
+     * @throws IllegalArgumentException
+     *             se o ano correspondente à chave não estiver entre 0 e 9999
+     */
+    public int escrever(long chave, char[] dest, int pos) {
+        return escreverTexto(chave, dest, pos);
+    }
+
+    /**
+     * O mesmo que {@link #escrever(long, char[], int)}, mas escreve bytes ASCII
+     */
+    public int escrever(long chave, byte[] dest, int pos) {
+        return escreverTexto(chave, dest, pos);
+    }
+
+    private int escreverTexto(long chave, Object dest, int pos) {
+        int data = dataCivil(chave);
+        escreverNumero(Datas.anoCivil(data), 4, dest, pos);
+        escreverNumero(Datas.mesCivil(data), 2, dest, pos + 4);
+        escreverNumero(Datas.diaCivil(data), 2, dest, pos + 6);
+        if (digitosFracao >= 0) {
+            int segundoDoDia = segundoDoDia(chave);
+            escreverNumero(segundoDoDia / 3600, 2, dest, pos + 8);
+            escreverNumero((segundoDoDia / 60) % 60, 2, dest, pos + 10);
+            escreverNumero(segundoDoDia % 60, 2, dest, pos + 12);
+            escreverNumero(fracao(chave), digitosFracao, dest, pos + 14);
+        }
+        return pos + tamanho();
+    }
+
+    public String formatar(long chave) {
+        char[] chars = new char[tamanho()];
+        escrever(chave, chars, 0);
+        return new String(chars);
+    }
+
+    public String formatar(LocalDateTime dataHora) {
+        return formatar(chave(dataHora));
+    }
+
+    private int dataCivil(long chave) {
+        long epochDay = epochDay(chave);
+        // limites: 0000-01-01 e 9999-12-31
+        if (epochDay < -719528 || epochDay > 2932896) {
+            throw new IllegalArgumentException("Chave fora dos limites de " + pattern + ": " + chave);
+        }
+        return Datas.dataCivil(epochDay);
+    }
+
+    // escreve o número com a quantidade de dígitos indicada (completando com zeros à esquerda)
+    private static void escreverNumero(long valor, int qtd, Object dest, int pos) {
+        for (int i = pos + qtd - 1; i >= pos; i--) {
+            char c = (char) ('0' + (valor % 10));
+            if (dest instanceof byte[]) {
+                ((byte[]) dest)[i] = (byte) c;
+            } else {
+                ((char[]) dest)[i] = c;
+            }
+            valor /= 10;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
@@ -0,0 +1,513 @@
+package desempenho;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import exemplos.part3.Cap18Parsing;
+
+/**
+ * Leitura e escrita das datas usadas em cabeçalhos HTTP e de e-mail, diretamente em bytes (ASCII), sem criar Strings nem usar o {@link DateTimeFormatter}.
+ *
+ * São aceitos os 3 formatos do HTTP (RFC 7231), além de offsets no formato "GMT-8" (ver {@link Cap18Parsing#parseGmtOffset()}, em que o parsing desse
+ * formato precisa de um espaço adicional no final da String e do pattern, por causa de um bug do Java 8):
+ * <ul>
+ * <li>RFC 1123: <code>Sun, 06 Nov 1994 08:49:37 GMT</code>, com as mesmas variações aceitas por {@link DateTimeFormatter#RFC_1123_DATE_TIME} (dia da
+ * semana e segundos opcionais, dia com 1 ou 2 dígitos, offset <code>GMT</code> ou <code>+hhmm</code>, e <code>24:00:00</code> como meia-noite do dia
+ * seguinte), mas o horário sempre com 2 dígitos em cada campo, e também offsets como <code>GMT-8</code> e
+ * <code>GMT+05:30</code> (em vez do <code>GMT</code>) e <code>UT</code>, <code>UTC</code> e <code>Z</code></li>
+ * <li>RFC 850: <code>Sunday, 06-Nov-94 08:49:37 GMT</code>. O ano tem 2 dígitos: de 70 a 99 é 19xx, e de 00 a 69 é 20xx (a mesma regra da
+ * RFC 6265)</li>
+ * <li>asctime: <code>Sun Nov  6 08:49:37 1994</code> (sempre em GMT)</li>
+ * </ul>
+ * Os nomes dos meses e dias da semana são em inglês e não diferenciam maiúsculas e minúsculas. Se o dia da semana estiver presente, ele deve corresponder à
+ * data, assim como no {@link DateTimeFormatter}.
+ *
+ * A formatação usa o formato RFC 1123 com o dia sempre com 2 dígitos (o formato exigido pelo HTTP, enquanto {@link DateTimeFormatter#RFC_1123_DATE_TIME}
+ * não coloca o zero à esquerda), e escreve em um array ou {@link ByteBuffer} fornecido pelo chamador, que pode ser reutilizado.
+ */
+public final class CodecDataHttp {
+
+    /**
+     * Tamanho de uma data formatada em GMT: <code>Sun, 06 Nov 1994 08:49:37 GMT</code>
+     */
+    public static final int TAMANHO_GMT = 29;
+
+    /**
+     * Tamanho máximo de uma data formatada: <code>Sun, 06 Nov 1994 08:49:37 +0530</code>
+     */
+    public static final int TAMANHO_MAXIMO = 31;
+
+    private static final String[] DIAS_SEMANA = { "monday", "tuesday", "wednesday", "thursday", "friday", "saturday", "sunday" };
+
+    private static final byte[] DIAS_SEMANA_CURTOS = "MonTueWedThuFriSatSun".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] MESES = "JanFebMarAprMayJunJulAugSepOctNovDec".getBytes(StandardCharsets.US_ASCII);
+
+    // nomes dos meses em minúsculas, com os 3 caracteres em um int (para comparar com um único ==)
+    private static final int[] CHAVES_MESES = new int[12];
+
+    private static final int CHAVE_GMT = chave('g', 'm', 't'), CHAVE_UTC = chave('u', 't', 'c'), CHAVE_UT = chave('u', 't', 0);
+
+    static {
+        for (int i = 0; i < 12; i++) {
+            CHAVES_MESES[i] = chave(MESES[i * 3], MESES[i * 3 + 1], MESES[i * 3 + 2]);
+        }
+    }
+
+    private CodecDataHttp() {
+    }
+
+    /**
+     * Formatos aceitos no parsing
+     */
+    public enum Formato {
+        RFC_1123, RFC_850, ASCTIME
+    }
+
+    /**
+     * Valores obtidos no parsing. A mesma instância pode ser reutilizada para vários valores.
+     */
+    public static final class Valor {
+
+        public long epochSegundo;
+
+        public int offsetSegundos;
+
+        public Formato formato;
+
+        public Instant toInstant() {
+            return Instant.ofEpochSecond(epochSegundo);
+        }
+
+        public OffsetDateTime toOffsetDateTime() {
+            return toInstant().atOffset(ZoneOffset.ofTotalSeconds(offsetSegundos));
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // parsing
+
+    /**
+     * Faz o parsing da String e retorna um {@link OffsetDateTime}, ou <code>null</code> se a String for inválida.
+     */
+    public static OffsetDateTime parse(CharSequence s) {
+        Valor valor = new Valor();
+        if (decodificarBytes(s, 0, s.length(), valor) != s.length()) {
+            return null;
+        }
+        return valor.toOffsetDateTime();
+    }
+
+    /**
+     * O mesmo que {@link #decodificar(ByteBuffer, int, int, Valor)}, lendo de um array
+     */
+    public static int decodificar(byte[] buf, int inicio, int fim, Valor destino) {
+        return decodificarBytes(buf, inicio, fim, destino);
+    }
+
+    /**
+     * Lê a data que começa na posição <code>inicio</code>, em qualquer um dos formatos aceitos. As posições são absolutas, e a posição do buffer não é
+     * alterada.
+     *
+     * @return a posição seguinte ao último caractere da data, ou -1 se a data for inválida
+     */
+    public static int decodificar(ByteBuffer buf, int inicio, int fim, Valor destino) {
+        return decodificarBytes(buf, inicio, fim, destino);
+    }
+
+    // byte de um byte[], ByteBuffer ou CharSequence: assim o parsing é implementado uma única vez, sem criar objetos para acessar cada tipo (em cada
+    // chamada o tipo é sempre o mesmo, e o JIT elimina as verificações que não são usadas). Caracteres que não são ASCII são lidos como zero, que
+    // nunca é aceito
+    private static byte get(Object buf, int i) {
+        if (buf instanceof byte[]) {
+            return ((byte[]) buf)[i];
+        }
+        if (buf instanceof ByteBuffer) {
+            return ((ByteBuffer) buf).get(i);
+        }
+        char c = ((CharSequence) buf).charAt(i);
+        return c > 127 ? 0 : (byte) c;
+    }
+
+    private static int decodificarBytes(Object buf, int inicio, int fim, Valor destino) {
+        int i = inicio;
+        int diaSemana = 0;
+        if (i < fim && letra(get(buf, i))) {
+            while (i < fim && letra(get(buf, i))) {
+                i++;
+            }
+            diaSemana = diaSemana(buf, inicio, i);
+            if (diaSemana < 0) {
+                return -1;
+            }
+            boolean nomeCompleto = i - inicio > 3;
+            if (!nomeCompleto && i < fim && get(buf, i) == ' ') {
+                return asctime(buf, i + 1, fim, diaSemana, destino);
+            }
+            if (i + 1 >= fim || get(buf, i) != ',' || get(buf, i + 1) != ' ') {
+                return -1;
+            }
+            i += 2;
+            if (nomeCompleto) {
+                return rfc850(buf, i, fim, diaSemana, destino);
+            }
+        }
+        return rfc1123(buf, i, fim, diaSemana, destino);
+    }
+
+    // d MMM yyyy HH:mm[:ss] offset
+    private static int rfc1123(Object buf, int i, int fim, int diaSemana, Valor destino) {
+        int dia = digito(buf, i, fim);
+        if (dia < 0) {
+            return -1;
+        }
+        i++;
+        int d = digito(buf, i, fim);
+        if (d >= 0) {
+            dia = dia * 10 + d;
+            i++;
+        }
+        if (!caractere(buf, i, fim, ' ')) {
+            return -1;
+        }
+        int mes = mes(buf, i + 1, fim);
+        if (mes < 0 || !caractere(buf, i + 4, fim, ' ')) {
+            return -1;
+        }
+        i += 5;
+        int ano = digitos(buf, i, fim, 4);
+        if (ano < 0 || !caractere(buf, i + 4, fim, ' ')) {
+            return -1;
+        }
+        i += 5;
+        int hora = digitos(buf, i, fim, 2);
+        int minuto = caractere(buf, i + 2, fim, ':') ? digitos(buf, i + 3, fim, 2) : -1;
+        i += 5;
+        int segundo = 0;
+        if (caractere(buf, i, fim, ':')) {
+            segundo = digitos(buf, i + 1, fim, 2);
+            i += 3;
+        }
+        if (!caractere(buf, i, fim, ' ')) {
+            return -1;
+        }
+        int fimOffset = offset(buf, i + 1, fim, destino);
+        if (fimOffset < 0 || !resolver(ano, mes, dia, hora, minuto, segundo, diaSemana, destino.offsetSegundos, destino)) {
+            return -1;
+        }
+        destino.formato = Formato.RFC_1123;
+        return fimOffset;
+    }
+
+    // dd-MMM-yy HH:mm:ss GMT (o dia da semana já foi lido)
+    private static int rfc850(Object buf, int i, int fim, int diaSemana, Valor destino) {
+        int dia = digitos(buf, i, fim, 2);
+        int mes = caractere(buf, i + 2, fim, '-') ? mes(buf, i + 3, fim) : -1;
+        if (dia < 0 || mes < 0 || !caractere(buf, i + 6, fim, '-')) {
+            return -1;
+        }
+        int ano = digitos(buf, i + 7, fim, 2);
+        if (ano < 0 || !caractere(buf, i + 9, fim, ' ')) {
+            return -1;
+        }
+        ano += ano < 70 ? 2000 : 1900;
+        i += 10;
+        int hora = digitos(buf, i, fim, 2);
+        int minuto = caractere(buf, i + 2, fim, ':') ? digitos(buf, i + 3, fim, 2) : -1;
+        int segundo = caractere(buf, i + 5, fim, ':') ? digitos(buf, i + 6, fim, 2) : -1;
+        if (!caractere(buf, i + 8, fim, ' ')) {
+            return -1;
+        }
+        int fimOffset = offset(buf, i + 9, fim, destino);
+        if (fimOffset < 0 || !resolver(ano, mes, dia, hora, minuto, segundo, diaSemana, destino.offsetSegundos, destino)) {
+            return -1;
+        }
+        destino.formato = Formato.RFC_850;
+        return fimOffset;
+    }
+
+    // MMM d HH:mm:ss yyyy (o dia da semana já foi lido, e o dia pode ter um espaço no lugar do primeiro dígito)
+    private static int asctime(Object buf, int i, int fim, int diaSemana, Valor destino) {
+        int mes = mes(buf, i, fim);
+        if (mes < 0 || !caractere(buf, i + 3, fim, ' ')) {
+            return -1;
+        }
+        i += 4;
+        int dia;
+        if (caractere(buf, i, fim, ' ')) {
+            dia = digito(buf, i + 1, fim);
+            i += 2;
+        } else {
+            dia = digito(buf, i, fim);
+            i++;
+            int d = digito(buf, i, fim);
+            if (d >= 0) {
+                dia = dia * 10 + d;
+                i++;
+            }
+        }
+        if (dia < 0 || !caractere(buf, i, fim, ' ')) {
+            return -1;
+        }
+        i++;
+        int hora = digitos(buf, i, fim, 2);
+        int minuto = caractere(buf, i + 2, fim, ':') ? digitos(buf, i + 3, fim, 2) : -1;
+        int segundo = caractere(buf, i + 5, fim, ':') ? digitos(buf, i + 6, fim, 2) : -1;
+        int ano = caractere(buf, i + 8, fim, ' ') ? digitos(buf, i + 9, fim, 4) : -1;
+        if (ano < 0 || !resolver(ano, mes, dia, hora, minuto, segundo, diaSemana, 0, destino)) {
+            return -1;
+        }
+        destino.offsetSegundos = 0;
+        destino.formato = Formato.ASCTIME;
+        return i + 13;
+    }
+
+    // valida os campos e calcula o timestamp (24:00:00 é a meia-noite do dia seguinte, como no ResolverStyle.SMART)
+    private static boolean resolver(int ano, int mes, int dia, int hora, int minuto, int segundo, int diaSemana, int offset, Valor destino) {
+        boolean meiaNoite = hora == 24 && minuto == 0 && segundo == 0;
+        if (dia < 1 || dia > Datas.diasNoMes(ano, mes) || hora < 0 || (hora > 23 && !meiaNoite) || minuto < 0 || minuto > 59 || segundo < 0 || segundo > 59) {
+            return false;
+        }
+        long epochDay = Datas.epochDay(ano, mes, dia);
+        // 1970-01-01 foi uma quinta-feira
+        if (diaSemana > 0 && Math.floorMod(epochDay + 3, 7) + 1 != diaSemana) {
+            return false;
+        }
+        destino.epochSegundo = epochDay * 86400 + hora * 3600 + minuto * 60 + segundo - offset;
+        return true;
+    }
+
+    // GMT, UT, UTC, Z, GMT+h[h][:mm] (ou UTC) e +hhmm; grava o offset em destino e retorna a posição seguinte
+    private static int offset(Object buf, int i, int fim, Valor destino) {
+        if (i >= fim) {
+            return -1;
+        }
+        byte c = get(buf, i);
+        if (c == '+' || c == '-') {
+            int horas = digitos(buf, i + 1, fim, 2);
+            int minutos = digitos(buf, i + 3, fim, 2);
+            return gravarOffset(c, horas, minutos, i + 5, destino);
+        }
+        if (c == 'Z' || c == 'z') {
+            destino.offsetSegundos = 0;
+            return i + 1;
+        }
+        int chave = i + 3 <= fim ? chave(c, get(buf, i + 1), get(buf, i + 2)) : 0;
+        if (chave == CHAVE_GMT || chave == CHAVE_UTC) {
+            i += 3;
+        } else if (i + 2 <= fim && chave(c, get(buf, i + 1), 0) == CHAVE_UT) {
+            destino.offsetSegundos = 0;
+            return i + 2;
+        } else {
+            return -1;
+        }
+        destino.offsetSegundos = 0;
+        if (i >= fim || (get(buf, i) != '+' && get(buf, i) != '-')) {
+            return i;
+        }
+        // GMT-8, GMT-08, GMT+5:30, GMT+05:30
+        byte sinal = get(buf, i);
+        int horas = digito(buf, i + 1, fim);
+        i += 2;
+        int d = digito(buf, i, fim);
+        if (d >= 0 && horas >= 0) {
+            horas = horas * 10 + d;
+            i++;
+        }
+        int minutos = 0;
+        if (caractere(buf, i, fim, ':')) {
+            minutos = digitos(buf, i + 1, fim, 2);
+            i += 3;
+        }
+        return gravarOffset(sinal, horas, minutos, i, destino);
+    }
+
+    private static int gravarOffset(byte sinal, int horas, int minutos, int fimOffset, Valor destino) {
+        if (horas < 0 || minutos < 0 || minutos > 59 || horas > 18 || (horas == 18 && minutos > 0)) {
+            return -1;
+        }
+        int total = horas * 3600 + minutos * 60;
+        destino.offsetSegundos = sinal == '-' ? -total : total;
+        return fimOffset;
+    }
+
+    // 1 (segunda-feira) a 7 (domingo), ou -1 se não for um nome válido (abreviado ou completo)
+    private static int diaSemana(Object buf, int inicio, int fim) {
+        int tamanho = fim - inicio;
+        if (tamanho < 3) {
+            return -1;
+        }
+        for (int dia = 0; dia < 7; dia++) {
+            String nome = DIAS_SEMANA[dia];
+            if (tamanho != 3 && tamanho != nome.length()) {
+                continue;
+            }
+            boolean igual = true;
+            for (int i = 0; i < tamanho && igual; i++) {
+                igual = (get(buf, inicio + i) | 0x20) == nome.charAt(i);
+            }
+            if (igual) {
+                return dia + 1;
+            }
+        }
+        return -1;
+    }
+
+    // 1 a 12, ou -1 se não for um nome válido
+    private static int mes(Object buf, int i, int fim) {
+        if (i + 3 > fim) {
+            return -1;
+        }
+        int chave = chave(get(buf, i), get(buf, i + 1), get(buf, i + 2));
+        for (int mes = 0; mes < 12; mes++) {
+            if (CHAVES_MESES[mes] == chave) {
+                return mes + 1;
+            }
+        }
+        return -1;
+    }
+
+    // 3 caracteres em minúsculas, em um int (só é usado para comparar com nomes que têm somente letras)
+    private static int chave(int c1, int c2, int c3) {
+        return ((c1 | 0x20) & 0xff) << 16 | ((c2 | 0x20) & 0xff) << 8 | ((c3 | 0x20) & 0xff);
+    }
+
+    private static boolean letra(byte c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean caractere(Object buf, int i, int fim, char c) {
+        return i < fim && get(buf, i) == c;
+    }
+
+    // valor do dígito, ou -1 se não for dígito (ou estiver fora do limite)
+    private static int digito(Object buf, int i, int fim) {
+        if (i >= fim) {
+            return -1;
+        }
+        int d = get(buf, i) - '0';
+        return d >= 0 && d <= 9 ? d : -1;
+    }
+
+    // valor com a quantidade de dígitos indicada, ou -1 se algum não for dígito
+    private static int digitos(Object buf, int i, int fim, int qtd) {
+        if (i + qtd > fim) {
+            return -1;
+        }
+        int valor = 0;
+        for (int j = i; j < i + qtd; j++) {
+            int d = get(buf, j) - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            valor = valor * 10 + d;
+        }
+        return valor;
+    }
+
+    // ------------------------------------------------------------------------
+    // formatação
+
+    /**
+     * Retorna a data no formato RFC 1123, em GMT (o formato usado no HTTP)
+     */
+    public static String formatar(Instant instant) {
+        byte[] buf = new byte[TAMANHO_GMT];
+        codificar(instant.getEpochSecond(), 0, buf, 0);
+        return new String(buf, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Escreve a data no formato RFC 1123 a partir da posição indicada (devem existir pelo menos {@link #TAMANHO_MAXIMO} posições livres). Se o offset for
+     * zero, é escrito "GMT", senão é escrito no formato <code>+hhmm</code> (o offset deve ter minutos inteiros).
+     *
+     * @return a posição seguinte ao último caractere escrito
+     * @throws DateTimeException
+     *             se o ano não estiver entre 0 e 9999
+     */
+    public static int codificar(long epochSegundo, int offsetSegundos, byte[] dest, int pos) {
+        return codificarBytes(epochSegundo, offsetSegundos, dest, pos);
+    }
+
+    /**
+     * O mesmo que {@link #codificar(long, int, byte[], int)}, mas escreve na posição atual do buffer (que é avançada)
+     *
+     * @throws BufferOverflowException
+     *             se não houver espaço para a data (nesse caso, nada é escrito)
+     */
+    public static void codificar(long epochSegundo, int offsetSegundos, ByteBuffer dest) {
+        if (dest.remaining() < (offsetSegundos == 0 ? TAMANHO_GMT : TAMANHO_MAXIMO)) {
+            throw new BufferOverflowException();
+        }
+        // posições absolutas: funciona com buffers diretos, sem array temporário
+        dest.position(codificarBytes(epochSegundo, offsetSegundos, dest, dest.position()));
+    }
+
+    private static int codificarBytes(long epochSegundo, int offsetSegundos, Object dest, int pos) {
+        long segundosLocais = epochSegundo + offsetSegundos;
+        long epochDay = Math.floorDiv(segundosLocais, 86400);
+        int segundosDia = (int) Math.floorMod(segundosLocais, 86400);
+        if (epochDay < -719528 || epochDay > 2932896) {
+            throw new DateTimeException("Ano deve estar entre 0 e 9999: " + Instant.ofEpochSecond(epochSegundo));
+        }
+        int data = Datas.dataCivil(epochDay);
+        int ano = Datas.anoCivil(data);
+        int diaSemana = (int) Math.floorMod(epochDay + 3, 7);
+        pos = escrever3(DIAS_SEMANA_CURTOS, diaSemana * 3, dest, pos);
+        put(dest, pos, ',');
+        put(dest, pos + 1, ' ');
+        pos = escrever2(Datas.diaCivil(data), dest, pos + 2);
+        put(dest, pos, ' ');
+        pos = escrever3(MESES, (Datas.mesCivil(data) - 1) * 3, dest, pos + 1);
+        put(dest, pos, ' ');
+        pos = escrever2(ano / 100, dest, pos + 1);
+        pos = escrever2(ano % 100, dest, pos);
+        put(dest, pos, ' ');
+        pos = escrever2(segundosDia / 3600, dest, pos + 1);
+        put(dest, pos, ':');
+        pos = escrever2(segundosDia / 60 % 60, dest, pos + 1);
+        put(dest, pos, ':');
+        pos = escrever2(segundosDia % 60, dest, pos + 1);
+        put(dest, pos++, ' ');
+        if (offsetSegundos == 0) {
+            put(dest, pos++, 'G');
+            put(dest, pos++, 'M');
+            put(dest, pos++, 'T');
+            return pos;
+        }
+        int minutos = offsetSegundos / 60;
+        put(dest, pos++, minutos < 0 ? '-' : '+');
+        minutos = Math.abs(minutos);
+        pos = escrever2(minutos / 60, dest, pos);
+        return escrever2(minutos % 60, dest, pos);
+    }
+
+    // escreve em um byte[] ou ByteBuffer (com posição absoluta), assim como get(Object, int)
+    private static void put(Object dest, int pos, int c) {
+        if (dest instanceof byte[]) {
+            ((byte[]) dest)[pos] = (byte) c;
+        } else {
+            ((ByteBuffer) dest).put(pos, (byte) c);
+        }
+    }
+
+    private static int escrever2(int valor, Object dest, int pos) {
+        put(dest, pos, '0' + valor / 10);
+        put(dest, pos + 1, '0' + valor % 10);
+        return pos + 2;
+    }
+
+    // 3 letras de um nome (dia da semana ou mês)
+    private static int escrever3(byte[] nomes, int inicio, Object dest, int pos) {
+        put(dest, pos, nomes[inicio]);
+        put(dest, pos + 1, nomes[inicio + 1]);
+        put(dest, pos + 2, nomes[inicio + 2]);
+        return pos + 3;
+    }
+}
@@ -0,0 +1,316 @@
+package desempenho;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import exemplos.part3.Cap18Parsing;
+
+/**
+ * Leitura e escrita do formato de data usado em JSON por serviços .NET: <code>/Date(1325134800000-0500)/</code> (ver
+ * {@link Cap18Parsing#parseMicrosoftJSONDate()}).
+ *
+ * O número é a quantidade de milissegundos desde o Unix Epoch (que pode ser negativa) e o offset (<code>+hhmm</code> ou <code>-hhmm</code>) é opcional.
+ * Repare que o offset não altera o valor do timestamp, ele só indica em qual offset a data/hora deve ser exibida. Dentro de Strings JSON, as barras
+ * normalmente aparecem escapadas (<code>\/Date(...)\/</code>), e ambas as formas são aceitas.
+ *
+ * Diferente do exemplo de <code>Cap18Parsing</code>, aqui não são usadas regex nem <code>split</code>: os caracteres são lidos diretamente do
+ * <code>char[]</code>, do <code>byte[]</code> (UTF-8 ou ASCII) ou do {@link CharSequence}, sem copiá-los. Para não criar objetos, os valores podem ser
+ * lidos em um {@link Valor} reutilizável, e o método {@link #decodificarJson(byte[], int, int, Consumidor)} percorre um documento JSON inteiro, chamando
+ * um {@link Consumidor} para cada data encontrada.
+ */
+public final class DataJsonMicrosoft {
+
+    /**
+     * Tamanho máximo de um valor codificado (sem as barras escapadas): <code>/Date(-9223372036854775808+9999)/</code>
+     */
+    public static final int TAMANHO_MAXIMO = 35;
+
+    private static final char[] PREFIXO = "Date(".toCharArray();
+
+    private DataJsonMicrosoft() {
+    }
+
+    /**
+     * Valores obtidos no parsing. A mesma instância pode ser reutilizada para vários valores.
+     */
+    public static final class Valor {
+
+        public long epochMilli;
+
+        public int offsetSegundos;
+
+        public boolean temOffset;
+
+        public OffsetDateTime toOffsetDateTime() {
+            // sem offset, o timestamp é exibido em UTC
+            return Instant.ofEpochMilli(epochMilli).atOffset(ZoneOffset.ofTotalSeconds(temOffset ? offsetSegundos : 0));
+        }
+    }
+
+    /**
+     * Recebe as datas encontradas por {@link DataJsonMicrosoft#decodificarJson(byte[], int, int, Consumidor)}
+     */
+    @FunctionalInterface
+    public interface Consumidor {
+
+        /**
+         * @param posicao
+         *            posição do array em que começa a String JSON que contém a data
+         */
+        void aceitar(int posicao, long epochMilli, int offsetSegundos, boolean temOffset);
+    }
+
+    // ------------------------------------------------------------------------
+    // parsing
+
+    /**
+     * Faz o parsing da String e retorna um {@link OffsetDateTime} (em UTC, se não houver offset), ou <code>null</code> se a String for inválida.
+     */
+    public static OffsetDateTime parse(CharSequence s) {
+        Valor valor = new Valor();
+        if (decodificarTexto(s, 0, s.length(), valor) != s.length()) {
+            return null;
+        }
+        return valor.toOffsetDateTime();
+    }
+
+    /**
+     * Lê o valor que começa na posição <code>inicio</code> (a barra inicial, escapada ou não).
+     *
+     * @return a posição logo depois da barra final, ou -1 se o valor for inválido
+     */
+    public static int decodificar(char[] buf, int inicio, int fim, Valor destino) {
+        return decodificarTexto(buf, inicio, fim, destino);
+    }
+
+    /**
+     * O mesmo que {@link #decodificar(char[], int, int, Valor)}, mas lendo bytes em UTF-8 ou ASCII (todos os caracteres do formato são ASCII).
+     */
+    public static int decodificar(byte[] buf, int inicio, int fim, Valor destino) {
+        return decodificarTexto(buf, inicio, fim, destino);
+    }
+
+    // caractere de um char[], byte[] ou CharSequence: assim o parsing e a formatação são implementados uma única vez, sem criar objetos para acessar
+    // cada tipo (em cada chamada o tipo é sempre o mesmo, e o JIT elimina as verificações que não são usadas)
+    private static char charAt(Object buf, int i) {
+        if (buf instanceof byte[]) {
+            return (char) (((byte[]) buf)[i] & 0xFF);
+        }
+        if (buf instanceof char[]) {
+            return ((char[]) buf)[i];
+        }
+        return ((CharSequence) buf).charAt(i);
+    }
+
+    private static void put(Object dest, int pos, char c) {
+        if (dest instanceof byte[]) {
+            ((byte[]) dest)[pos] = (byte) c;
+        } else {
+            ((char[]) dest)[pos] = c;
+        }
+    }
+
+    private static int decodificarTexto(Object buf, int inicio, int fim, Valor destino) {
+        int i = inicio;
+        // "/" ou "\/"
+        if (i < fim && charAt(buf, i) == '\\') {
+            i++;
+        }
+        if (i >= fim || charAt(buf, i) != '/') {
+            return -1;
+        }
+        i++;
+        if (i + PREFIXO.length > fim) {
+            return -1;
+        }
+        for (char c : PREFIXO) {
+            if (charAt(buf, i++) != c) {
+                return -1;
+            }
+        }
+        // timestamp, com sinal opcional
+        boolean negativo = false;
+        char c = i < fim ? charAt(buf, i) : 0;
+        if (c == '-' || c == '+') {
+            negativo = c == '-';
+            i++;
+        }
+        int inicioNumero = i;
+        // acumulado como negativo, pois Long.MIN_VALUE não tem um positivo correspondente
+        long millis = 0;
+        while (i < fim && digito(c = charAt(buf, i))) {
+            int d = c - '0';
+            if (millis < Long.MIN_VALUE / 10 || (millis == Long.MIN_VALUE / 10 && d > -(Long.MIN_VALUE % 10))) {
+                // não cabe em um long
+                return -1;
+            }
+            millis = millis * 10 - d;
+            i++;
+        }
+        if (i == inicioNumero || (!negativo && millis == Long.MIN_VALUE)) {
+            return -1;
+        }
+        // offset opcional
+        int offset = 0;
+        boolean temOffset = false;
+        c = i < fim ? charAt(buf, i) : 0;
+        if (c == '-' || c == '+') {
+            if (i + 5 > fim) {
+                return -1;
+            }
+            offset = offsetSegundos(charAt(buf, i + 1), charAt(buf, i + 2), charAt(buf, i + 3), charAt(buf, i + 4));
+            if (offset < 0) {
+                return -1;
+            }
+            if (c == '-') {
+                offset = -offset;
+            }
+            temOffset = true;
+            i += 5;
+        }
+        // ")/" ou ")\/"
+        if (i >= fim || charAt(buf, i) != ')') {
+            return -1;
+        }
+        i++;
+        if (i < fim && charAt(buf, i) == '\\') {
+            i++;
+        }
+        if (i >= fim || charAt(buf, i) != '/') {
+            return -1;
+        }
+        destino.epochMilli = negativo ? millis : -millis;
+        destino.offsetSegundos = offset;
+        destino.temOffset = temOffset;
+        return i + 1;
+    }
+
+    // offset no formato hhmm, em segundos (ou -1 se for inválido)
+    private static int offsetSegundos(char h1, char h2, char m1, char m2) {
+        int horas = (h1 - '0') * 10 + (h2 - '0');
+        int minutos = (m1 - '0') * 10 + (m2 - '0');
+        if (!digito(h1) || !digito(h2) || !digito(m1) || !digito(m2) || horas > 18 || minutos > 59 || (horas == 18 && minutos > 0)) {
+            return -1;
+        }
+        return horas * 3600 + minutos * 60;
+    }
+
+    private static boolean digito(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Percorre um documento JSON e chama o consumidor para cada String cujo conteúdo é uma data neste formato (Strings com outros conteúdos são
+     * ignoradas). Não é feita a validação completa do JSON: somente as Strings são identificadas, para que os valores sejam lidos diretamente do array.
+     *
+     * @return a quantidade de datas encontradas
+     */
+    public static int decodificarJson(byte[] json, int inicio, int fim, Consumidor consumidor) {
+        Valor valor = new Valor();
+        int qtd = 0;
+        int i = inicio;
+        while (i < fim) {
+            if (json[i] != '"') {
+                i++;
+                continue;
+            }
+            // início de uma String
+            int inicioString = i;
+            i++;
+            int fimValor = decodificar(json, i, fim, valor);
+            if (fimValor > 0 && fimValor < fim && json[fimValor] == '"') {
+                consumidor.aceitar(inicioString, valor.epochMilli, valor.offsetSegundos, valor.temOffset);
+                qtd++;
+                i = fimValor + 1;
+                continue;
+            }
+            // não é uma data, pular até o fim da String (considerando os caracteres escapados)
+            while (i < fim && json[i] != '"') {
+                i += json[i] == '\\' ? 2 : 1;
+            }
+            i++;
+        }
+        return qtd;
+    }
+
+    // ------------------------------------------------------------------------
+    // formatação
+
+    /**
+     * Retorna o valor no formato <code>/Date(ms+hhmm)/</code>, usando o offset do {@link OffsetDateTime}. O offset deve ter minutos inteiros.
+     */
+    public static String formatar(OffsetDateTime odt) {
+        char[] buf = new char[TAMANHO_MAXIMO];
+        int fim = codificar(odt.toInstant().toEpochMilli(), odt.getOffset().getTotalSeconds(), true, buf, 0);
+        return new String(buf, 0, fim);
+    }
+
+    /**
+     * Escreve o valor a partir da posição indicada (devem existir pelo menos {@link #TAMANHO_MAXIMO} posições livres).
+     *
+     * @return a posição seguinte ao último caractere escrito
+     */
+    public static int codificar(long epochMilli, int offsetSegundos, boolean comOffset, char[] dest, int pos) {
+        return codificarTexto(epochMilli, offsetSegundos, comOffset, dest, pos);
+    }
+
+    /**
+     * O mesmo que {@link #codificar(long, int, boolean, char[], int)}, mas escreve bytes ASCII
+     */
+    public static int codificar(long epochMilli, int offsetSegundos, boolean comOffset, byte[] dest, int pos) {
+        return codificarTexto(epochMilli, offsetSegundos, comOffset, dest, pos);
+    }
+
+    private static int codificarTexto(long epochMilli, int offsetSegundos, boolean comOffset, Object dest, int pos) {
+        put(dest, pos++, '/');
+        for (char c : PREFIXO) {
+            put(dest, pos++, c);
+        }
+        pos = escreverLong(epochMilli, dest, pos);
+        if (comOffset) {
+            int minutosTotais = offsetSegundos / 60;
+            put(dest, pos++, minutosTotais < 0 ? '-' : '+');
+            minutosTotais = Math.abs(minutosTotais);
+            int horas = minutosTotais / 60;
+            int minutos = minutosTotais % 60;
+            put(dest, pos++, (char) ('0' + horas / 10));
+            put(dest, pos++, (char) ('0' + horas % 10));
+            put(dest, pos++, (char) ('0' + minutos / 10));
+            put(dest, pos++, (char) ('0' + minutos % 10));
+        }
+        put(dest, pos++, ')');
+        put(dest, pos++, '/');
+        return pos;
+    }
+
+    // quantidade de dígitos de um número não negativo
+    private static int qtdDigitos(long valor) {
+        int qtd = 1;
+        for (long v = valor / 10; v > 0; v /= 10) {
+            qtd++;
+        }
+        return qtd;
+    }
+
+    // escreve o número em decimal e retorna a próxima posição
+    private static int escreverLong(long valor, Object dest, int pos) {
+        if (valor == Long.MIN_VALUE) {
+            String s = Long.toString(valor);
+            for (int i = 0; i < s.length(); i++) {
+                put(dest, pos++, s.charAt(i));
+            }
+            return pos;
+        }
+        if (valor < 0) {
+            put(dest, pos++, '-');
+            valor = -valor;
+        }
+        int fim = pos + qtdDigitos(valor);
+        for (int i = fim - 1; i >= pos; i--) {
+            put(dest, i, (char) ('0' + (valor % 10)));
+            valor /= 10;
+        }
+        return fim;
+    }
+}
@@ -0,0 +1,97 @@
+package desempenho;
+
+/**
+ * Funções auxiliares com aritmética de datas usando apenas tipos primitivos (calendário ISO 8601), para que os parsers deste pacote possam validar os campos
+ * sem criar objetos intermediários.
+ */
+final class Datas {
+
+    // potências de 10 usadas para ajustar as frações de segundo para nanossegundos (índice = quantidade de dígitos que faltam para completar 9)
+    static final int[] POTENCIAS_10 = { 1, 10, 100, 1000, 10000, 100000, 1000000, 10000000, 100000000, 1000000000 };
+
+    // quantidade de dias entre 0000-01-01 e 1970-01-01
+    private static final long DIAS_0000_ATE_1970 = 719528L;
+
+    // quantidade de dias em um ciclo de 400 anos
+    private static final long DIAS_CICLO_400_ANOS = 146097L;
+
+    private Datas() {
+    }
+
+    // mesma regra usada por java.time.Year.isLeap
+    static boolean bissexto(long ano) {
+        return ((ano & 3) == 0) && ((ano % 100) != 0 || (ano % 400) == 0);
+    }
+
+    // quantidade de dias do mês (equivalente a YearMonth.of(ano, mes).lengthOfMonth(), mas sem criar o YearMonth)
+    static int diasNoMes(int ano, int mes) {
+        switch (mes) {
+            case 2:
+                return bissexto(ano) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    // mesmo algoritmo de LocalDate.toEpochDay (os valores já devem ter sido validados)
+    static long epochDay(long ano, int mes, int dia) {
+        long total = 365 * ano;
+        if (ano >= 0) {
+            total += (ano + 3) / 4 - (ano + 99) / 100 + (ano + 399) / 400;
+        } else {
+            total -= ano / -4 - ano / -100 + ano / -400;
+        }
+        total += (367 * mes - 362) / 12;
+        total += dia - 1;
+        if (mes > 2) {
+            total--;
+            if (!bissexto(ano)) {
+                total--;
+            }
+        }
+        return total - DIAS_0000_ATE_1970;
+    }
+
+    // mesmo algoritmo de LocalDate.ofEpochDay, mas retorna ano, mês e dia em um único int: (ano << 16) | (mes << 8) | dia
+    // o ano deve estar entre -32768 e 32767 (use anoCivil, mesCivil e diaCivil para obter os valores)
+    static int dataCivil(long epochDay) {
+        long zeroDay = epochDay + DIAS_0000_ATE_1970;
+        // ajusta para começar em 1 de março, assim o dia 29 de fevereiro fica no final do ano
+        zeroDay -= 60;
+        long ajuste = 0;
+        if (zeroDay < 0) {
+            long ciclos = (zeroDay + 1) / DIAS_CICLO_400_ANOS - 1;
+            ajuste = ciclos * 400;
+            zeroDay += -ciclos * DIAS_CICLO_400_ANOS;
+        }
+        long ano = (400 * zeroDay + 591) / DIAS_CICLO_400_ANOS;
+        long diaDoAno = zeroDay - (365 * ano + ano / 4 - ano / 100 + ano / 400);
+        if (diaDoAno < 0) {
+            ano--;
+            diaDoAno = zeroDay - (365 * ano + ano / 4 - ano / 100 + ano / 400);
+        }
+        ano += ajuste;
+        int mesMarco = ((int) diaDoAno * 5 + 2) / 153;
+        int mes = (mesMarco + 2) % 12 + 1;
+        int dia = (int) diaDoAno - (mesMarco * 306 + 5) / 10 + 1;
+        ano += mesMarco / 10;
+        return ((int) ano << 16) | (mes << 8) | dia;
+    }
+
+    static int anoCivil(int dataCivil) {
+        return dataCivil >> 16;
+    }
+
+    static int mesCivil(int dataCivil) {
+        return (dataCivil >> 8) & 0xFF;
+    }
+
+    static int diaCivil(int dataCivil) {
+        return dataCivil & 0xFF;
+    }
+}
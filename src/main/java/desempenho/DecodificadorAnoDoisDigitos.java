@@ -0,0 +1,153 @@
+package desempenho;
+
+import java.time.format.ResolverStyle;
+
+import exemplos.part3.Cap18Parsing;
+
+/**
+ * Converte datas no formato <code>ddMMyy</code> (ano com 2 dígitos) para a quantidade de dias desde 1970-01-01 (o mesmo valor de
+ * {@link java.time.LocalDate#toEpochDay()}), processando colunas inteiras de uma vez.
+ *
+ * O ano é obtido da mesma forma que em
+ * {@link java.time.format.DateTimeFormatterBuilder#appendValueReduced(java.time.temporal.TemporalField, int, int, int)} (ver
+ * {@link Cap18Parsing#anoCom2Digitos()}): com ano base 1930, os anos possíveis vão de 1930 a 2029, então "98" é 1998 e "20" é 2020. Diferente de
+ * {@link java.text.SimpleDateFormat#set2DigitYearStart(java.util.Date)}, o ano base é fixo e explícito, e não depende da data atual.
+ *
+ * Como o intervalo tem somente 100 anos, o primeiro dia de cada mês de cada um desses anos é calculado no construtor. Assim, cada valor é convertido com
+ * algumas operações sobre os dígitos e uma consulta a uma tabela, sem criar nenhum {@link java.time.LocalDate} e sem divisões. Os loops não têm chamadas
+ * nem alocações, para que o JIT possa otimizá-los.
+ *
+ * A validação segue o {@link ResolverStyle} indicado: com {@link ResolverStyle#STRICT}, datas como 31 de abril são inválidas; com
+ * {@link ResolverStyle#SMART}, o dia é ajustado para o último dia do mês (30 de abril), desde que esteja entre 1 e 31. Valores inválidos resultam em
+ * {@link #INVALIDO}.
+ */
+public final class DecodificadorAnoDoisDigitos {
+
+    /**
+     * Valor usado para as datas inválidas
+     */
+    public static final int INVALIDO = Integer.MIN_VALUE;
+
+    /**
+     * Quantidade de caracteres de cada valor (<code>ddMMyy</code>)
+     */
+    public static final int TAMANHO = 6;
+
+    private final int anoBase;
+
+    private final ResolverStyle resolverStyle;
+
+    // índice = (ano com 2 dígitos) * 16 + mês: epochDay do primeiro dia do mês e quantidade de dias do mês (zero para meses inválidos)
+    private final int[] inicioMes = new int[100 * 16];
+
+    private final int[] diasMes = new int[100 * 16];
+
+    /**
+     * @param anoBase
+     *            menor ano possível (o maior é <code>anoBase + 99</code>)
+     * @param resolverStyle
+     *            {@link ResolverStyle#STRICT} ou {@link ResolverStyle#SMART}
+     */
+    public DecodificadorAnoDoisDigitos(int anoBase, ResolverStyle resolverStyle) {
+        if (resolverStyle == ResolverStyle.LENIENT) {
+            throw new IllegalArgumentException("ResolverStyle não suportado: " + resolverStyle);
+        }
+        // limita o ano para que os epochDays caibam em um int
+        if (anoBase < 0 || anoBase > 9900) {
+            throw new IllegalArgumentException("Ano base deve estar entre 0 e 9900: " + anoBase);
+        }
+        this.anoBase = anoBase;
+        this.resolverStyle = resolverStyle;
+        for (int ano = anoBase; ano < anoBase + 100; ano++) {
+            int doisDigitos = Math.floorMod(ano, 100);
+            for (int mes = 1; mes <= 12; mes++) {
+                inicioMes[doisDigitos * 16 + mes] = (int) Datas.epochDay(ano, mes, 1);
+                diasMes[doisDigitos * 16 + mes] = Datas.diasNoMes(ano, mes);
+            }
+        }
+    }
+
+    public int getAnoBase() {
+        return anoBase;
+    }
+
+    public ResolverStyle getResolverStyle() {
+        return resolverStyle;
+    }
+
+    /**
+     * Converte o valor que começa na posição indicada
+     *
+     * @return o epochDay, ou {@link #INVALIDO}
+     */
+    public int decodificar(CharSequence s, int pos) {
+        return converter(s.charAt(pos) - '0', s.charAt(pos + 1) - '0', s.charAt(pos + 2) - '0', s.charAt(pos + 3) - '0', s.charAt(pos + 4) - '0',
+                s.charAt(pos + 5) - '0');
+    }
+
+    /**
+     * Converte um array de Strings (todas devem ter exatamente 6 caracteres; as que tiverem outro tamanho, ou forem <code>null</code>, são inválidas)
+     */
+    public int[] decodificar(CharSequence[] valores) {
+        int[] result = new int[valores.length];
+        for (int i = 0; i < valores.length; i++) {
+            CharSequence s = valores[i];
+            result[i] = s == null || s.length() != TAMANHO ? INVALIDO : decodificar(s, 0);
+        }
+        return result;
+    }
+
+    /**
+     * Converte uma coluna de registros de tamanho fixo (por exemplo, um arquivo em que cada linha tem <code>tamanhoRegistro</code> bytes, e a data está
+     * sempre na mesma posição).
+     *
+     * @param dados
+     *            bytes em ASCII
+     * @param inicio
+     *            posição da data no primeiro registro
+     * @param tamanhoRegistro
+     *            distância entre o início de dois registros consecutivos (use 6 se os valores estiverem um após o outro)
+     * @param qtd
+     *            quantidade de registros
+     * @param destino
+     *            array em que os valores serão gravados
+     * @param posDestino
+     *            posição do array em que o primeiro valor será gravado
+     * @return a quantidade de valores inválidos
+     */
+    public int decodificar(byte[] dados, int inicio, int tamanhoRegistro, int qtd, int[] destino, int posDestino) {
+        int invalidos = 0;
+        for (int i = 0, pos = inicio; i < qtd; i++, pos += tamanhoRegistro) {
+            int epochDay = converter(dados[pos] - '0', dados[pos + 1] - '0', dados[pos + 2] - '0', dados[pos + 3] - '0', dados[pos + 4] - '0',
+                    dados[pos + 5] - '0');
+            destino[posDestino + i] = epochDay;
+            if (epochDay == INVALIDO) {
+                invalidos++;
+            }
+        }
+        return invalidos;
+    }
+
+    // recebe os valores dos 6 dígitos (já subtraído o '0')
+    private int converter(int d1, int d2, int m1, int m2, int a1, int a2) {
+        // se algum caractere não for dígito, o valor será negativo (o OR de todos também) ou maior que 9
+        if ((d1 | d2 | m1 | m2 | a1 | a2) < 0 || d1 > 9 || d2 > 9 || m1 > 9 || m2 > 9 || a1 > 9 || a2 > 9) {
+            return INVALIDO;
+        }
+        int dia = d1 * 10 + d2;
+        int mes = m1 * 10 + m2;
+        if (mes < 1 || mes > 12 || dia < 1) {
+            return INVALIDO;
+        }
+        int indice = (a1 * 10 + a2) * 16 + mes;
+        int dias = diasMes[indice];
+        if (dia > dias) {
+            // SMART ajusta para o último dia do mês, desde que o dia seja no máximo 31
+            if (resolverStyle == ResolverStyle.STRICT || dia > 31) {
+                return INVALIDO;
+            }
+            dia = dias;
+        }
+        return inicioMes[indice] + dia - 1;
+    }
+}
@@ -0,0 +1,577 @@
+package desempenho;
+
+import java.text.Format;
+import java.text.ParsePosition;
+import java.time.DateTimeException;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalQuery;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Alternativa ao <code>Temporals.parseFirstMatching</code> do ThreeTen-Extra (ver {@link outros.ThreetenExtraExemplos}) para quando há muitos formatos
+ * possíveis.
+ *
+ * <code>parseFirstMatching</code> tenta cada um dos formatters, na ordem, até que algum funcione. Se há 20 formatos, uma String no último formato causa 19
+ * tentativas de parsing que falham. Aqui, cada pattern é "compilado" em uma assinatura que descreve o formato da String: a sequência de grupos de dígitos,
+ * grupos de letras e separadores, além da quantidade de dígitos aceita em cada grupo. Por exemplo, <code>dd/MM/uuuu</code> tem a assinatura
+ * <code>D/D/D</code>, com 2, 2 e 4 (ou mais) dígitos, e <code>MMM, dd uuuu</code> tem a assinatura <code>L, D D</code>.
+ *
+ * No parsing, a assinatura da String de entrada é calculada em uma única passada, e o formatter só é usado se a assinatura for compatível. Ou seja, na
+ * grande maioria dos casos somente um formatter é testado. Se houver mais de um formato com a mesma assinatura (como <code>dd/MM/uuuu</code> e
+ * <code>MM/dd/uuuu</code>), eles são testados na ordem em que foram registrados, assim como em <code>parseFirstMatching</code>.
+ *
+ * Entradas que não correspondem a nenhum formato retornam <code>null</code>, sem lançar exceções.
+ *
+ * Campos de texto (nome do mês, dia da semana, AM/PM, era) são grupos de letras, que podem terminar com ponto (como <code>mai.</code>) e conter espaços e
+ * hífens entre as palavras (como <code>segunda-feira</code>). Por isso, espaços e hífens entre duas letras fazem parte do grupo, tanto na String quanto no
+ * pattern (<code>dd 'de' MMMM</code> e <code>dd-MMM</code> continuam separando os campos, pois há dígitos de um dos lados). Patterns com campos de timezone ou
+ * offset (<code>VzOXxZ</code>) ou que não podem ser compilados por outro motivo são aceitos, mas não possuem assinatura: eles só são testados (na ordem de
+ * registro) quando nenhum outro formato for compatível. Anos com sinal (como <code>-0044</code> ou <code>+10000</code>) não são
+ * reconhecidos pela assinatura.
+ *
+ * Todos os formatos devem ser registrados antes de a instância ser compartilhada entre threads. Depois disso, o método {@link #parse(String)} é
+ * thread-safe.
+ */
+public final class DespachanteFormatos<T> {
+
+    // códigos usados na assinatura para grupos de dígitos e de letras (os demais caracteres usam o próprio código, que é sempre menor que 0x10000)
+    private static final int DIGITOS = 0x10001;
+
+    private static final int LETRAS = 0x10002;
+
+    // limite de combinações geradas pelas seções opcionais de um pattern
+    private static final int MAX_VARIANTES = 64;
+
+    private final TemporalQuery<T> query;
+
+    private final List<Format> formatos = new ArrayList<>();
+
+    private final List<String> patterns = new ArrayList<>();
+
+    // formatos sem assinatura, testados somente se nenhum outro for compatível
+    private final List<Integer> semAssinatura = new ArrayList<>();
+
+    private final TabelaAssinaturas tabela = new TabelaAssinaturas();
+
+    /**
+     * @param query
+     *            define o tipo retornado pelo parsing (por exemplo, <code>LocalDate::from</code>)
+     */
+    public DespachanteFormatos(TemporalQuery<T> query) {
+        this.query = query;
+    }
+
+    /**
+     * Registra o formato, usando o locale indicado. O formatter é obtido de {@link RegistroFormatters#global()}.
+     */
+    public DespachanteFormatos<T> registrar(String pattern, Locale locale) {
+        return registrar(pattern, RegistroFormatters.global().ofPattern(pattern, locale));
+    }
+
+    /**
+     * Registra um formatter. O pattern é usado somente para calcular a assinatura e deve corresponder ao formato aceito pelo formatter (útil para formatters
+     * criados com {@link java.time.format.DateTimeFormatterBuilder}, com valores predefinidos, etc).
+     */
+    public synchronized DespachanteFormatos<T> registrar(String pattern, DateTimeFormatter formatter) {
+        int indice = formatos.size();
+        formatos.add(formatter.toFormat(query));
+        patterns.add(pattern);
+        List<Variante> variantes = compilar(pattern, indice);
+        if (variantes == null) {
+            semAssinatura.add(indice);
+        } else {
+            for (Variante v : variantes) {
+                tabela.adicionar(v);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Faz o parsing da String usando o formato compatível com ela.
+     *
+     * @return o resultado da {@link TemporalQuery}, ou <code>null</code> se nenhum formato registrado conseguir fazer o parsing
+     */
+    public T parse(String s) {
+        int indice = indiceFormato(s, 0);
+        ParsePosition pos = new ParsePosition(0);
+        while (indice >= 0) {
+            T resultado = parse(indice, s, pos);
+            if (resultado != null) {
+                return resultado;
+            }
+            // o pattern era compatível, mas o conteúdo não (ex: nome do mês inválido), tentar o próximo formato compatível
+            indice = indiceFormato(s, indice + 1);
+        }
+        for (int i : semAssinatura) {
+            T resultado = parse(i, s, pos);
+            if (resultado != null) {
+                return resultado;
+            }
+        }
+        return null;
+    }
+
+    // parsing da String inteira com o formato indicado, ou null se não for possível
+    @SuppressWarnings("unchecked")
+    private T parse(int indice, String s, ParsePosition pos) {
+        pos.setIndex(0);
+        pos.setErrorIndex(-1);
+        try {
+            // Format.parseObject indica o erro no ParsePosition, em vez de lançar exceção
+            Object resultado = formatos.get(indice).parseObject(s, pos);
+            return resultado != null && pos.getIndex() == s.length() ? (T) resultado : null;
+        } catch (DateTimeException e) {
+            // exceto em alguns casos, como offsets fora do intervalo válido ("-03:70" com o pattern "XXX")
+            return null;
+        }
+    }
+
+    /**
+     * Retorna o pattern do primeiro formato cuja assinatura é compatível com a String, ou <code>null</code> se não houver nenhum. O parsing não é feito,
+     * somente a verificação da assinatura.
+     */
+    public String patternCompativel(CharSequence s) {
+        int indice = indiceFormato(s, 0);
+        return indice >= 0 ? patterns.get(indice) : null;
+    }
+
+    // índice do primeiro formato compatível com a String, a partir do índice indicado (ou -1, se não houver)
+    private int indiceFormato(CharSequence s, int aPartirDe) {
+        Variante[] candidatas = tabela.get(hashEntrada(s));
+        if (candidatas == null) {
+            return -1;
+        }
+        for (Variante v : candidatas) {
+            if (v.formato >= aPartirDe && v.compativel(s)) {
+                return v.formato;
+            }
+        }
+        return -1;
+    }
+
+    // ------------------------------------------------------------------------
+    // cálculo das assinaturas
+
+    private static int simbolo(char c) {
+        if (c >= '0' && c <= '9') {
+            return DIGITOS;
+        }
+        if (Character.isLetter(c)) {
+            return LETRAS;
+        }
+        return c;
+    }
+
+    // um ponto logo depois de um grupo de letras faz parte do grupo (abreviações como "mai." ou "Sept.")
+    private static int simbolo(char c, int anterior) {
+        return c == '.' && anterior == LETRAS ? LETRAS : simbolo(c);
+    }
+
+    // espaços e hífens entre letras fazem parte do grupo de letras (nomes como "segunda-feira" ou "de março"): retorna a posição da próxima letra,
+    // ou a própria posição se não houver separadores seguidos de uma letra
+    private static int pularSeparadores(CharSequence s, int i) {
+        int j = i;
+        while (j < s.length() && separadorTexto(s.charAt(j))) {
+            j++;
+        }
+        return j > i && j < s.length() && Character.isLetter(s.charAt(j)) ? j : i;
+    }
+
+    private static boolean separadorTexto(int c) {
+        return c == ' ' || c == '-';
+    }
+
+    private static long combinar(long hash, int simbolo) {
+        return hash * 1_000_003L + simbolo;
+    }
+
+    // hash da sequência de símbolos da String, em que grupos de dígitos ou de letras contam como um único símbolo
+    private static long hashEntrada(CharSequence s) {
+        long hash = 17;
+        int anterior = -1;
+        for (int i = 0; i < s.length(); i++) {
+            if (anterior == LETRAS) {
+                i = pularSeparadores(s, i);
+            }
+            int simbolo = simbolo(s.charAt(i), anterior);
+            if (simbolo != anterior || simbolo < DIGITOS) {
+                hash = combinar(hash, simbolo);
+            }
+            anterior = simbolo;
+        }
+        return hash;
+    }
+
+    // retorna as variantes do pattern (uma para cada combinação de seções opcionais), ou null se o pattern não for suportado
+    private static List<Variante> compilar(String pattern, int formato) {
+        List<List<Elemento>> alternativas;
+        try {
+            int[] pos = { 0 };
+            alternativas = ler(pattern, pos, false);
+            if (pos[0] != pattern.length()) {
+                return null;
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        List<Variante> variantes = new ArrayList<>();
+        for (List<Elemento> elementos : alternativas) {
+            Variante v = Variante.de(elementos, formato);
+            // seções opcionais diferentes podem gerar a mesma assinatura
+            if (!variantes.contains(v)) {
+                variantes.add(v);
+            }
+        }
+        return variantes;
+    }
+
+    // lê o pattern até o fim (ou até o ']' que fecha a seção opcional) e retorna todas as combinações possíveis de elementos
+    private static List<List<Elemento>> ler(String pattern, int[] pos, boolean opcional) {
+        List<List<Elemento>> alternativas = new ArrayList<>();
+        alternativas.add(new ArrayList<>());
+        while (pos[0] < pattern.length()) {
+            char c = pattern.charAt(pos[0]);
+            if (c == ']') {
+                if (!opcional) {
+                    throw new IllegalArgumentException("']' sem '['");
+                }
+                pos[0]++;
+                return alternativas;
+            }
+            if (c == '[') {
+                pos[0]++;
+                List<List<Elemento>> secao = ler(pattern, pos, true);
+                List<List<Elemento>> combinadas = new ArrayList<>();
+                for (List<Elemento> base : alternativas) {
+                    // sem a seção opcional
+                    combinadas.add(base);
+                    // com a seção opcional
+                    for (List<Elemento> s : secao) {
+                        List<Elemento> nova = new ArrayList<>(base);
+                        nova.addAll(s);
+                        combinadas.add(nova);
+                    }
+                }
+                if (combinadas.size() > MAX_VARIANTES) {
+                    throw new IllegalArgumentException("Muitas seções opcionais");
+                }
+                alternativas = combinadas;
+                continue;
+            }
+            List<Elemento> lidos = new ArrayList<>();
+            if (c == '\'') {
+                // texto literal entre aspas ('' representa a própria aspa)
+                pos[0]++;
+                int inicio = pos[0];
+                while (true) {
+                    if (pos[0] >= pattern.length()) {
+                        throw new IllegalArgumentException("Aspas não foram fechadas");
+                    }
+                    if (pattern.charAt(pos[0]) == '\'') {
+                        if (pos[0] + 1 < pattern.length() && pattern.charAt(pos[0] + 1) == '\'') {
+                            pos[0]++;
+                        } else {
+                            break;
+                        }
+                    }
+                    pos[0]++;
+                }
+                String literal = pos[0] == inicio ? "'" : pattern.substring(inicio, pos[0]).replace("''", "'");
+                pos[0]++;
+                for (char l : literal.toCharArray()) {
+                    lidos.add(Elemento.literal(l));
+                }
+            } else if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')) {
+                int inicio = pos[0];
+                while (pos[0] < pattern.length() && pattern.charAt(pos[0]) == c) {
+                    pos[0]++;
+                }
+                lidos.add(Elemento.campo(c, pos[0] - inicio));
+            } else if (c == '{' || c == '}' || c == '#') {
+                throw new IllegalArgumentException("Caractere reservado: " + c);
+            } else {
+                lidos.add(Elemento.literal(c));
+                pos[0]++;
+            }
+            for (List<Elemento> alternativa : alternativas) {
+                alternativa.addAll(lidos);
+            }
+        }
+        if (opcional) {
+            throw new IllegalArgumentException("'[' sem ']'");
+        }
+        return alternativas;
+    }
+
+    /**
+     * Um elemento do pattern: um literal, um grupo de dígitos (com quantidade mínima e máxima) ou um grupo de letras.
+     */
+    private static final class Elemento {
+
+        final int simbolo;
+
+        final int minDigitos;
+
+        final int maxDigitos;
+
+        private Elemento(int simbolo, int minDigitos, int maxDigitos) {
+            this.simbolo = simbolo;
+            this.minDigitos = minDigitos;
+            this.maxDigitos = maxDigitos;
+        }
+
+        static Elemento literal(char c) {
+            int simbolo = simbolo(c);
+            // dígitos literais contam como um grupo de dígitos com tamanho 1
+            return new Elemento(simbolo, 1, 1);
+        }
+
+        static Elemento campo(char letra, int qtd) {
+            switch (letra) {
+                // campos de texto
+                case 'G':
+                case 'E':
+                case 'a':
+                    return new Elemento(LETRAS, 0, 0);
+                case 'M':
+                case 'L':
+                case 'Q':
+                case 'q':
+                    return qtd >= 3 ? new Elemento(LETRAS, 0, 0) : numerico(qtd);
+                case 'e':
+                case 'c':
+                    return qtd >= 3 ? new Elemento(LETRAS, 0, 0) : new Elemento(DIGITOS, qtd, qtd);
+                // campos numéricos
+                case 'd':
+                case 'H':
+                case 'h':
+                case 'K':
+                case 'k':
+                case 'm':
+                case 's':
+                    if (qtd > 2) {
+                        throw new IllegalArgumentException("Quantidade inválida para " + letra);
+                    }
+                    return numerico(qtd);
+                case 'w':
+                    if (qtd > 2) {
+                        throw new IllegalArgumentException("Quantidade inválida para " + letra);
+                    }
+                    return new Elemento(DIGITOS, qtd, 2);
+                case 'W':
+                    return new Elemento(DIGITOS, qtd, qtd);
+                case 'F':
+                    return numerico(qtd);
+                case 'D':
+                    // "DD" aceita 2 ou 3 dígitos
+                    return qtd == 1 ? numerico(qtd) : new Elemento(DIGITOS, qtd, 3);
+                case 'u':
+                case 'y':
+                case 'Y':
+                    // 2 letras: ano reduzido (exatamente 2 dígitos), senão: no mínimo esta quantidade de dígitos
+                    return qtd == 2 ? new Elemento(DIGITOS, 2, 2) : new Elemento(DIGITOS, qtd, 19);
+                case 'S':
+                    // fração de segundo: exatamente a quantidade de letras
+                    return new Elemento(DIGITOS, qtd, qtd);
+                case 'n':
+                case 'N':
+                case 'A':
+                    return new Elemento(DIGITOS, qtd, Math.max(qtd, 19));
+                default:
+                    // timezones, offsets e demais campos não são suportados
+                    throw new IllegalArgumentException("Campo não suportado: " + letra);
+            }
+        }
+
+        private static Elemento numerico(int qtd) {
+            // uma letra: o DateTimeFormatter aceita até 19 dígitos (como "017" para "d"), mais letras: exatamente esta quantidade
+            return qtd == 1 ? new Elemento(DIGITOS, 1, 19) : new Elemento(DIGITOS, qtd, qtd);
+        }
+    }
+
+    /**
+     * Assinatura de uma das combinações possíveis de um pattern
+     */
+    private static final class Variante {
+
+        final int formato;
+
+        // sequência de símbolos (grupos de dígitos e de letras aparecem uma única vez)
+        final int[] simbolos;
+
+        // quantidade mínima e máxima de dígitos de cada grupo de dígitos, na ordem em que aparecem
+        final int[] minDigitos;
+
+        final int[] maxDigitos;
+
+        final long hash;
+
+        private Variante(int formato, int[] simbolos, int[] minDigitos, int[] maxDigitos) {
+            this.formato = formato;
+            this.simbolos = simbolos;
+            this.minDigitos = minDigitos;
+            this.maxDigitos = maxDigitos;
+            long h = 17;
+            for (int simbolo : simbolos) {
+                h = combinar(h, simbolo);
+            }
+            this.hash = h;
+        }
+
+        static Variante de(List<Elemento> elementos, int formato) {
+            int[] simbolos = new int[elementos.size()];
+            int[] min = new int[elementos.size()];
+            int[] max = new int[elementos.size()];
+            int qtdSimbolos = 0;
+            int qtdGrupos = 0;
+            for (int i = 0; i < elementos.size(); i++) {
+                int anterior = qtdSimbolos > 0 ? simbolos[qtdSimbolos - 1] : -1;
+                if (anterior == LETRAS) {
+                    // assim como na String, espaços e hífens entre letras fazem parte do grupo
+                    int j = i;
+                    while (j < elementos.size() && separadorTexto(elementos.get(j).simbolo)) {
+                        j++;
+                    }
+                    if (j > i && j < elementos.size() && elementos.get(j).simbolo == LETRAS) {
+                        i = j;
+                    }
+                }
+                Elemento e = elementos.get(i);
+                int simbolo = e.simbolo == '.' && anterior == LETRAS ? LETRAS : e.simbolo;
+                boolean mesmoGrupo = simbolo >= DIGITOS && anterior == simbolo;
+                if (!mesmoGrupo) {
+                    simbolos[qtdSimbolos++] = simbolo;
+                    if (simbolo == DIGITOS) {
+                        qtdGrupos++;
+                    }
+                }
+                if (simbolo == DIGITOS) {
+                    // campos numéricos adjacentes (como em uuuuMMdd) formam um único grupo
+                    min[qtdGrupos - 1] += e.minDigitos;
+                    max[qtdGrupos - 1] += e.maxDigitos;
+                }
+            }
+            return new Variante(formato, Arrays.copyOf(simbolos, qtdSimbolos), Arrays.copyOf(min, qtdGrupos), Arrays.copyOf(max, qtdGrupos));
+        }
+
+        // verifica se a sequência de símbolos e as quantidades de dígitos da String correspondem a esta variante
+        boolean compativel(CharSequence s) {
+            int len = s.length();
+            int i = 0;
+            int grupo = 0;
+            for (int simbolo : simbolos) {
+                if (i >= len || simbolo(s.charAt(i)) != simbolo) {
+                    return false;
+                }
+                int inicio = i;
+                i++;
+                if (simbolo >= DIGITOS) {
+                    while (true) {
+                        if (simbolo == LETRAS) {
+                            i = pularSeparadores(s, i);
+                        }
+                        if (i >= len || simbolo(s.charAt(i), simbolo) != simbolo) {
+                            break;
+                        }
+                        i++;
+                    }
+                    if (simbolo == DIGITOS) {
+                        int qtd = i - inicio;
+                        if (qtd < minDigitos[grupo] || qtd > maxDigitos[grupo]) {
+                            return false;
+                        }
+                        grupo++;
+                    }
+                }
+            }
+            return i == len;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Variante)) {
+                return false;
+            }
+            Variante v = (Variante) obj;
+            return formato == v.formato && Arrays.equals(simbolos, v.simbolos) && Arrays.equals(minDigitos, v.minDigitos)
+                    && Arrays.equals(maxDigitos, v.maxDigitos);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash);
+        }
+    }
+
+    /**
+     * Tabela hash com chaves <code>long</code> (endereçamento aberto), para não precisar criar um <code>Long</code> a cada busca
+     */
+    private static final class TabelaAssinaturas {
+
+        private long[] chaves = new long[16];
+
+        private Variante[][] valores = new Variante[16][];
+
+        private int tamanho;
+
+        Variante[] get(long chave) {
+            int mascara = chaves.length - 1;
+            for (int i = indice(chave, mascara);; i = (i + 1) & mascara) {
+                Variante[] v = valores[i];
+                if (v == null || chaves[i] == chave) {
+                    return v;
+                }
+            }
+        }
+
+        void adicionar(Variante variante) {
+            if ((tamanho + 1) * 2 > chaves.length) {
+                redimensionar();
+            }
+            int mascara = chaves.length - 1;
+            for (int i = indice(variante.hash, mascara);; i = (i + 1) & mascara) {
+                if (valores[i] == null) {
+                    chaves[i] = variante.hash;
+                    valores[i] = new Variante[] { variante };
+                    tamanho++;
+                    return;
+                }
+                if (chaves[i] == variante.hash) {
+                    // variantes com a mesma assinatura ficam na ordem de registro
+                    Variante[] atual = valores[i];
+                    Variante[] novo = Arrays.copyOf(atual, atual.length + 1);
+                    novo[atual.length] = variante;
+                    valores[i] = novo;
+                    return;
+                }
+            }
+        }
+
+        private void redimensionar() {
+            long[] chavesAntigas = chaves;
+            Variante[][] valoresAntigos = valores;
+            chaves = new long[chavesAntigas.length * 2];
+            valores = new Variante[chavesAntigas.length * 2][];
+            int mascara = chaves.length - 1;
+            for (int j = 0; j < chavesAntigas.length; j++) {
+                if (valoresAntigos[j] != null) {
+                    int i = indice(chavesAntigas[j], mascara);
+                    while (valores[i] != null) {
+                        i = (i + 1) & mascara;
+                    }
+                    chaves[i] = chavesAntigas[j];
+                    valores[i] = valoresAntigos[j];
+                }
+            }
+        }
+
+        private static int indice(long chave, int mascara) {
+            long h = chave * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mascara;
+        }
+    }
+}
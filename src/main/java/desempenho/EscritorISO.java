@@ -0,0 +1,280 @@
+package desempenho;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+
+import exemplos.part1.Capitulos1a6;
+import exemplos.part3.Cap17Formatacao;
+
+/**
+ * Escreve datas e horas nos formatos de {@link DateTimeFormatter#ISO_INSTANT}, {@link DateTimeFormatter#ISO_OFFSET_DATE_TIME} e
+ * {@link DateTimeFormatter#ISO_LOCAL_DATE_TIME} diretamente em bytes (ASCII), sem criar nenhum objeto (ver {@link Cap17Formatacao#formatarInstant()} e
+ * {@link Cap17Formatacao#formatarISO8601()}, em que cada chamada a <code>format</code> cria um <code>StringBuilder</code> e uma String).
+ *
+ * O resultado é igual ao dos formatters do JDK, inclusive nas frações de segundo:
+ * <ul>
+ * <li>{@link DateTimeFormatter#ISO_INSTANT} usa grupos de 3 dígitos (".123", ".123456" ou ".123456789"), e a fração é omitida se for zero</li>
+ * <li>os demais omitem os zeros no final, assim como <code>appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true)</code> (usado em
+ * {@link Capitulos1a6#criaFormatter(boolean, boolean)}): 0,120 segundos é ".12", e a fração é omitida se for zero</li>
+ * </ul>
+ * Os dígitos são escritos de dois em dois, usando uma tabela com os valores de 00 a 99. Anos com mais de 4 dígitos têm o sinal "+", como nos formatters
+ * do JDK.
+ *
+ * Os métodos estáticos escrevem em um <code>byte[]</code>. Para escrever em um {@link ByteBuffer} direto ou em um {@link Appendable} (como um
+ * {@link StringBuilder} ou um <code>Writer</code>), use uma instância, que tem um array interno reutilizado a cada chamada (por isso as instâncias não
+ * são thread-safe).
+ */
+public final class EscritorISO {
+
+    /**
+     * Quantidade máxima de bytes escritos: <code>+999999999-12-31T23:59:59.999999999+17:59:59</code>
+     */
+    public static final int TAMANHO_MAXIMO = 44;
+
+    // "00", "01", ... "99": os 2 dígitos do valor n ficam nas posições 2n e 2n + 1
+    private static final byte[] PARES = new byte[200];
+
+    static {
+        for (int i = 0; i < 100; i++) {
+            PARES[i * 2] = (byte) ('0' + i / 10);
+            PARES[i * 2 + 1] = (byte) ('0' + i % 10);
+        }
+    }
+
+    // segundos em 10000 anos (25 ciclos de 400 anos, então o calendário se repete exatamente)
+    private static final long SEGUNDOS_10000_ANOS = 146097L * 25 * 86400;
+
+    private final byte[] buffer = new byte[TAMANHO_MAXIMO];
+
+    // ------------------------------------------------------------------------
+    // byte[]
+
+    /**
+     * Escreve o instante no formato de {@link DateTimeFormatter#ISO_INSTANT}, a partir da posição indicada (devem existir pelo menos
+     * {@link #TAMANHO_MAXIMO} posições livres).
+     *
+     * @return a posição seguinte ao último byte escrito
+     */
+    public static int escreverInstant(long epochSegundo, int nano, byte[] dest, int pos) {
+        // o ano é calculado a partir do resto da divisão por 10000 anos (entre 1970 e 11969), para que Datas.dataCivil funcione para qualquer Instant
+        long ciclos = Math.floorDiv(epochSegundo, SEGUNDOS_10000_ANOS);
+        long resto = epochSegundo - ciclos * SEGUNDOS_10000_ANOS;
+        int data = Datas.dataCivil(resto / 86400);
+        int segundosDia = (int) (resto % 86400);
+        pos = escreverData((int) (Datas.anoCivil(data) + ciclos * 10000), Datas.mesCivil(data), Datas.diaCivil(data), dest, pos);
+        dest[pos++] = 'T';
+        pos = escreverHora(segundosDia / 3600, segundosDia / 60 % 60, segundosDia % 60, dest, pos);
+        if (nano > 0) {
+            dest[pos++] = '.';
+            // grupos de 3 dígitos
+            if (nano % 1000000 == 0) {
+                pos = escrever3(nano / 1000000, dest, pos);
+            } else if (nano % 1000 == 0) {
+                pos = escrever3(nano / 1000000, dest, pos);
+                pos = escrever3(nano / 1000 % 1000, dest, pos);
+            } else {
+                pos = escrever9(nano, dest, pos);
+            }
+        }
+        dest[pos++] = 'Z';
+        return pos;
+    }
+
+    /**
+     * O mesmo que {@link #escreverInstant(long, int, byte[], int)}
+     */
+    public static int escreverInstant(Instant instant, byte[] dest, int pos) {
+        return escreverInstant(instant.getEpochSecond(), instant.getNano(), dest, pos);
+    }
+
+    /**
+     * Escreve a data e hora no formato de {@link DateTimeFormatter#ISO_LOCAL_DATE_TIME}, a partir da posição indicada (devem existir pelo menos
+     * {@link #TAMANHO_MAXIMO} posições livres).
+     *
+     * @return a posição seguinte ao último byte escrito
+     */
+    public static int escreverLocalDateTime(LocalDateTime dataHora, byte[] dest, int pos) {
+        pos = escreverData(dataHora.getYear(), dataHora.getMonthValue(), dataHora.getDayOfMonth(), dest, pos);
+        dest[pos++] = 'T';
+        pos = escreverHora(dataHora.getHour(), dataHora.getMinute(), dataHora.getSecond(), dest, pos);
+        return escreverFracao(dataHora.getNano(), dest, pos);
+    }
+
+    /**
+     * Escreve a data, hora e offset no formato de {@link DateTimeFormatter#ISO_OFFSET_DATE_TIME}, a partir da posição indicada (devem existir pelo menos
+     * {@link #TAMANHO_MAXIMO} posições livres).
+     *
+     * @return a posição seguinte ao último byte escrito
+     */
+    public static int escreverOffsetDateTime(OffsetDateTime dataHora, byte[] dest, int pos) {
+        pos = escreverLocalDateTime(dataHora.toLocalDateTime(), dest, pos);
+        return escreverOffset(dataHora.getOffset().getTotalSeconds(), dest, pos);
+    }
+
+    // ------------------------------------------------------------------------
+    // ByteBuffer e Appendable
+
+    /**
+     * Escreve na posição atual do buffer (que é avançada)
+     */
+    public void escreverInstant(Instant instant, ByteBuffer dest) {
+        if (temEspaco(dest)) {
+            int inicio = dest.arrayOffset() + dest.position();
+            dest.position(dest.position() + escreverInstant(instant, dest.array(), inicio) - inicio);
+        } else {
+            dest.put(buffer, 0, escreverInstant(instant, buffer, 0));
+        }
+    }
+
+    public void escreverInstant(Instant instant, Appendable dest) throws IOException {
+        copiar(escreverInstant(instant, buffer, 0), dest);
+    }
+
+    /**
+     * Escreve na posição atual do buffer (que é avançada)
+     */
+    public void escreverLocalDateTime(LocalDateTime dataHora, ByteBuffer dest) {
+        if (temEspaco(dest)) {
+            int inicio = dest.arrayOffset() + dest.position();
+            dest.position(dest.position() + escreverLocalDateTime(dataHora, dest.array(), inicio) - inicio);
+        } else {
+            dest.put(buffer, 0, escreverLocalDateTime(dataHora, buffer, 0));
+        }
+    }
+
+    public void escreverLocalDateTime(LocalDateTime dataHora, Appendable dest) throws IOException {
+        copiar(escreverLocalDateTime(dataHora, buffer, 0), dest);
+    }
+
+    /**
+     * Escreve na posição atual do buffer (que é avançada)
+     */
+    public void escreverOffsetDateTime(OffsetDateTime dataHora, ByteBuffer dest) {
+        if (temEspaco(dest)) {
+            int inicio = dest.arrayOffset() + dest.position();
+            dest.position(dest.position() + escreverOffsetDateTime(dataHora, dest.array(), inicio) - inicio);
+        } else {
+            dest.put(buffer, 0, escreverOffsetDateTime(dataHora, buffer, 0));
+        }
+    }
+
+    public void escreverOffsetDateTime(OffsetDateTime dataHora, Appendable dest) throws IOException {
+        copiar(escreverOffsetDateTime(dataHora, buffer, 0), dest);
+    }
+
+    // se é possível escrever diretamente no array do buffer (sem passar do limite)
+    private static boolean temEspaco(ByteBuffer dest) {
+        return dest.hasArray() && dest.remaining() >= TAMANHO_MAXIMO;
+    }
+
+    private void copiar(int tamanho, Appendable dest) throws IOException {
+        for (int i = 0; i < tamanho; i++) {
+            dest.append((char) buffer[i]);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // campos
+
+    // ano com pelo menos 4 dígitos (com "+" se tiver mais de 4, e "-" se for negativo), mês e dia
+    private static int escreverData(int ano, int mes, int dia, byte[] dest, int pos) {
+        if (ano < 0) {
+            dest[pos++] = '-';
+            ano = -ano;
+        } else if (ano > 9999) {
+            dest[pos++] = '+';
+        }
+        if (ano <= 9999) {
+            pos = escrever2(ano / 100, dest, pos);
+            pos = escrever2(ano % 100, dest, pos);
+        } else {
+            pos = escreverInt(ano, dest, pos);
+        }
+        dest[pos++] = '-';
+        pos = escrever2(mes, dest, pos);
+        dest[pos++] = '-';
+        return escrever2(dia, dest, pos);
+    }
+
+    private static int escreverHora(int hora, int minuto, int segundo, byte[] dest, int pos) {
+        pos = escrever2(hora, dest, pos);
+        dest[pos++] = ':';
+        pos = escrever2(minuto, dest, pos);
+        dest[pos++] = ':';
+        return escrever2(segundo, dest, pos);
+    }
+
+    // fração sem os zeros no final (nada é escrito se for zero)
+    private static int escreverFracao(int nano, byte[] dest, int pos) {
+        if (nano == 0) {
+            return pos;
+        }
+        dest[pos++] = '.';
+        pos = escrever9(nano, dest, pos);
+        // remove os zeros do final (sempre há pelo menos um dígito diferente de zero)
+        while (dest[pos - 1] == '0') {
+            pos--;
+        }
+        return pos;
+    }
+
+    // Z ou +HH:MM, ou +HH:MM:SS se tiver segundos (mesmo formato de DateTimeFormatterBuilder.appendOffsetId)
+    private static int escreverOffset(int totalSegundos, byte[] dest, int pos) {
+        if (totalSegundos == 0) {
+            dest[pos++] = 'Z';
+            return pos;
+        }
+        dest[pos++] = (byte) (totalSegundos < 0 ? '-' : '+');
+        int abs = Math.abs(totalSegundos);
+        pos = escrever2(abs / 3600, dest, pos);
+        dest[pos++] = ':';
+        pos = escrever2(abs / 60 % 60, dest, pos);
+        if (abs % 60 != 0) {
+            dest[pos++] = ':';
+            pos = escrever2(abs % 60, dest, pos);
+        }
+        return pos;
+    }
+
+    private static int escrever2(int valor, byte[] dest, int pos) {
+        dest[pos] = PARES[valor * 2];
+        dest[pos + 1] = PARES[valor * 2 + 1];
+        return pos + 2;
+    }
+
+    private static int escrever3(int valor, byte[] dest, int pos) {
+        dest[pos] = (byte) ('0' + valor / 100);
+        return escrever2(valor % 100, dest, pos + 1);
+    }
+
+    // 9 dígitos, com zeros à esquerda
+    private static int escrever9(int valor, byte[] dest, int pos) {
+        pos = escrever3(valor / 1000000, dest, pos);
+        pos = escrever3(valor / 1000 % 1000, dest, pos);
+        return escrever3(valor % 1000, dest, pos);
+    }
+
+    // número positivo, sem zeros à esquerda
+    private static int escreverInt(int valor, byte[] dest, int pos) {
+        int qtd = 1;
+        for (int v = valor / 10; v > 0; v /= 10) {
+            qtd++;
+        }
+        int fim = pos + qtd;
+        int i = fim;
+        while (valor >= 100) {
+            i = escrever2(valor % 100, dest, i - 2) - 2;
+            valor /= 100;
+        }
+        if (valor >= 10) {
+            escrever2(valor, dest, i - 2);
+        } else {
+            dest[i - 1] = (byte) ('0' + valor);
+        }
+        return fim;
+    }
+}
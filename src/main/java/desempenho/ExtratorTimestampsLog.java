@@ -0,0 +1,401 @@
+package desempenho;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParsePosition;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Extrai o timestamp do início de cada linha de um arquivo de log.
+ *
+ * O arquivo é mapeado em memória ({@link FileChannel#map(FileChannel.MapMode, long, long)}) e dividido em blocos que terminam sempre no final de uma
+ * linha, e os blocos são processados em paralelo por um {@link ForkJoinPool}. O resultado tem, para cada linha que começa com uma data/hora válida, o
+ * timestamp (em nanossegundos desde o Unix Epoch) e a posição do início da linha no arquivo. Linhas que não começam com uma data/hora (como as linhas de
+ * um stack trace) são apenas contadas.
+ *
+ * Se o pattern tiver somente campos numéricos de tamanho fixo (como <code>uuuu-MM-dd HH:mm:ss.SSS</code>, o caso mais comum em logs), os campos são lidos
+ * diretamente dos bytes mapeados (ver {@link PadraoNumerico}). Se não tiver, ou se o início da linha não corresponder a esse formato, é usado o
+ * {@link DateTimeFormatter}: o início da linha é decodificado em um {@link CharBuffer} reutilizado (sem criar uma String por linha), e
+ * {@link DateTimeFormatter#parseUnresolved(CharSequence, ParsePosition)} verifica o formato sem lançar exceções. Somente as linhas em que o formato
+ * corresponde são convertidas (e validadas) por {@link DateTimeFormatter#parse(CharSequence, java.time.temporal.TemporalQuery)}. Como o
+ * {@link DateTimeFormatter} sempre é o critério final, o resultado é o mesmo que seria obtido usando somente ele.
+ *
+ * Datas e horas sem offset são convertidas usando o timezone indicado (ver {@link CacheOffset}), com as mesmas regras do {@link DateTimeFormatter}
+ * (ou seja, de {@link java.time.ZonedDateTime#of(java.time.LocalDateTime, ZoneId)}): horários que estão em um gap são ajustados para depois da
+ * transição, e nos overlaps é usado o offset anterior à transição (a primeira ocorrência do horário). Timestamps fora do intervalo que cabe em um
+ * <code>long</code> de nanossegundos (entre 1677 e 2262) são ignorados.
+ */
+public final class ExtratorTimestampsLog {
+
+    /**
+     * Tamanho padrão de cada bloco processado por uma tarefa
+     */
+    public static final int TAMANHO_BLOCO_PADRAO = 32 * 1024 * 1024;
+
+    // quantidade máxima de bytes do início da linha que são decodificados, quando é usado o DateTimeFormatter
+    private static final int MAX_BYTES_FORMATTER = 256;
+
+    private final String pattern;
+
+    private final ZoneId zona;
+
+    private final DateTimeFormatter formatter;
+
+    // null se o pattern não puder ser compilado
+    private final PadraoNumerico padraoNumerico;
+
+    private final int tamanhoBloco;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Usa o tamanho de bloco padrão e o {@link ForkJoinPool#commonPool()}
+     */
+    public ExtratorTimestampsLog(String pattern, Locale locale, ZoneId zona) {
+        this(pattern, locale, zona, TAMANHO_BLOCO_PADRAO, ForkJoinPool.commonPool());
+    }
+
+    public ExtratorTimestampsLog(String pattern, Locale locale, ZoneId zona, int tamanhoBloco, ForkJoinPool pool) {
+        if (tamanhoBloco <= 0) {
+            throw new IllegalArgumentException("Tamanho do bloco deve ser maior que zero: " + tamanhoBloco);
+        }
+        this.pattern = pattern;
+        this.zona = zona;
+        this.formatter = RegistroFormatters.global().get(RegistroFormatters.Chave.of(pattern).comLocale(locale).comZona(zona));
+        this.padraoNumerico = PadraoNumerico.compilar(pattern);
+        this.tamanhoBloco = tamanhoBloco;
+        this.pool = pool;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Indica se os campos são lidos diretamente dos bytes (somente campos numéricos de tamanho fixo)
+     */
+    public boolean isPatternNumerico() {
+        return padraoNumerico != null;
+    }
+
+    /**
+     * Processa o arquivo inteiro
+     */
+    public Resultado extrair(Path arquivo) throws IOException {
+        long inicio = System.nanoTime();
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long[] limites = dividirEmBlocos(canal);
+            Parcial parcial = pool.invoke(new Tarefa(canal, limites, 0, limites.length - 1));
+            return new Resultado(parcial, canal.size(), System.nanoTime() - inicio);
+        }
+    }
+
+    // posições de início de cada bloco (o último elemento é o tamanho do arquivo). Cada bloco termina logo após um '\n' (ou no final do arquivo)
+    private long[] dividirEmBlocos(FileChannel canal) throws IOException {
+        long tamanho = canal.size();
+        List<Long> limites = new ArrayList<>();
+        limites.add(0L);
+        ByteBuffer buf = ByteBuffer.allocate(4096);
+        long pos = 0;
+        while (pos + tamanhoBloco < tamanho) {
+            // procura o próximo '\n' a partir do tamanho do bloco
+            long busca = pos + tamanhoBloco;
+            long fimLinha = -1;
+            while (fimLinha < 0 && busca < tamanho) {
+                buf.clear();
+                int lidos = canal.read(buf, busca);
+                if (lidos <= 0) {
+                    break;
+                }
+                for (int i = 0; i < lidos; i++) {
+                    if (buf.get(i) == '\n') {
+                        fimLinha = busca + i;
+                        break;
+                    }
+                }
+                busca += lidos;
+            }
+            if (fimLinha < 0 || fimLinha + 1 >= tamanho) {
+                break;
+            }
+            pos = fimLinha + 1;
+            limites.add(pos);
+        }
+        limites.add(tamanho);
+        long[] result = new long[limites.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = limites.get(i);
+        }
+        return result;
+    }
+
+    // processa os blocos de "primeiro" até "ultimo" (exclusive), dividindo-os em duas tarefas enquanto houver mais de um
+    private final class Tarefa extends RecursiveTask<Parcial> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel canal;
+
+        private final long[] limites;
+
+        private final int primeiro, ultimo;
+
+        Tarefa(FileChannel canal, long[] limites, int primeiro, int ultimo) {
+            this.canal = canal;
+            this.limites = limites;
+            this.primeiro = primeiro;
+            this.ultimo = ultimo;
+        }
+
+        @Override
+        protected Parcial compute() {
+            if (ultimo - primeiro > 1) {
+                int meio = (primeiro + ultimo) >>> 1;
+                Tarefa esquerda = new Tarefa(canal, limites, primeiro, meio);
+                esquerda.fork();
+                Parcial direita = new Tarefa(canal, limites, meio, ultimo).compute();
+                return esquerda.join().juntar(direita);
+            }
+            if (ultimo == primeiro) {
+                return new Parcial(0);
+            }
+            try {
+                long inicio = limites[primeiro];
+                MappedByteBuffer buf = canal.map(FileChannel.MapMode.READ_ONLY, inicio, limites[ultimo] - inicio);
+                return processarBloco(buf, inicio);
+            } catch (IOException e) {
+                throw new RuntimeException("Erro ao mapear o bloco " + primeiro, e);
+            }
+        }
+    }
+
+    private Parcial processarBloco(ByteBuffer buf, long deslocamento) {
+        int limite = buf.limit();
+        Parcial parcial = new Parcial(Math.max(16, limite / 64));
+        // objetos usados em todas as linhas do bloco
+        // nos overlaps, usa o mesmo offset que o DateTimeFormatter (o anterior à transição)
+        CacheOffset cacheOffset = new CacheOffset(zona, false);
+        int[] nano = new int[1];
+        LeitorFormatter leitor = new LeitorFormatter();
+
+        int inicioLinha = 0;
+        while (inicioLinha < limite) {
+            int fimLinha = inicioLinha;
+            while (fimLinha < limite && buf.get(fimLinha) != '\n') {
+                fimLinha++;
+            }
+            parcial.linhas++;
+            long epochNano = Long.MIN_VALUE;
+            if (padraoNumerico != null) {
+                long segundosLocais = padraoNumerico.segundosLocais(buf, inicioLinha, fimLinha, nano);
+                if (segundosLocais != Long.MIN_VALUE) {
+                    epochNano = epochNano(cacheOffset.epochSecond(segundosLocais), nano[0]);
+                }
+            }
+            if (epochNano == Long.MIN_VALUE) {
+                epochNano = leitor.ler(buf, inicioLinha, fimLinha);
+            }
+            if (epochNano == Long.MIN_VALUE) {
+                parcial.semTimestamp++;
+            } else {
+                parcial.adicionar(epochNano, deslocamento + inicioLinha);
+            }
+            inicioLinha = fimLinha + 1;
+        }
+        return parcial;
+    }
+
+    // parsing com o DateTimeFormatter, reutilizando os mesmos buffers em todas as linhas do bloco
+    private final class LeitorFormatter {
+
+        private final byte[] bytesLinha = new byte[MAX_BYTES_FORMATTER];
+
+        private final ByteBuffer entrada = ByteBuffer.wrap(bytesLinha);
+
+        private final CharBuffer texto = CharBuffer.allocate(MAX_BYTES_FORMATTER);
+
+        // bytes inválidos (ou um caractere cortado no limite de bytes) são substituídos, como em new String(bytes, UTF_8)
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        private final ParsePosition pos = new ParsePosition(0);
+
+        long ler(ByteBuffer buf, int inicioLinha, int fimLinha) {
+            int qtd = Math.min(fimLinha - inicioLinha, bytesLinha.length);
+            for (int i = 0; i < qtd; i++) {
+                bytesLinha[i] = buf.get(inicioLinha + i);
+            }
+            entrada.clear();
+            entrada.limit(qtd);
+            texto.clear();
+            decoder.reset();
+            decoder.decode(entrada, texto, true);
+            decoder.flush(texto);
+            texto.flip();
+            pos.setIndex(0);
+            pos.setErrorIndex(-1);
+            // parseUnresolved só verifica o formato do início da linha, e não lança exceção se não corresponder
+            if (formatter.parseUnresolved(texto, pos) == null) {
+                return Long.MIN_VALUE;
+            }
+            // o formato corresponde: o trecho lido é convertido e validado (datas inválidas, como 30 de fevereiro, lançam exceção)
+            texto.limit(pos.getIndex());
+            try {
+                Instant instant = formatter.parse(texto, Instant::from);
+                return epochNano(instant.getEpochSecond(), instant.getNano());
+            } catch (DateTimeException e) {
+                return Long.MIN_VALUE;
+            }
+        }
+    }
+
+    private static long epochNano(long epochSecond, int nano) {
+        // limites de um long em nanossegundos: de 1677-09-21T00:12:43.145224192Z (Long.MIN_VALUE, que indica "sem timestamp", fica de fora) até
+        // 2262-04-11T23:47:16.854775807Z
+        if (epochSecond > 9223372036L || (epochSecond == 9223372036L && nano > 854_775_807)) {
+            return Long.MIN_VALUE;
+        }
+        if (epochSecond < -9223372037L || (epochSecond == -9223372037L && nano <= 145_224_192)) {
+            return Long.MIN_VALUE;
+        }
+        // em -9223372037 segundos a multiplicação estoura, mas a soma volta para o valor correto
+        return epochSecond * 1_000_000_000L + nano;
+    }
+
+    // resultado de um ou mais blocos
+    private static final class Parcial {
+
+        private long[] epochNanos;
+
+        private long[] posicoes;
+
+        private int qtd;
+
+        private long linhas;
+
+        private long semTimestamp;
+
+        Parcial(int capacidade) {
+            this.epochNanos = new long[capacidade];
+            this.posicoes = new long[capacidade];
+        }
+
+        void adicionar(long epochNano, long posicao) {
+            if (qtd == epochNanos.length) {
+                epochNanos = Arrays.copyOf(epochNanos, Math.max(16, qtd * 2));
+                posicoes = Arrays.copyOf(posicoes, epochNanos.length);
+            }
+            epochNanos[qtd] = epochNano;
+            posicoes[qtd] = posicao;
+            qtd++;
+        }
+
+        // junta com o resultado dos blocos seguintes, mantendo a ordem do arquivo
+        Parcial juntar(Parcial outro) {
+            Parcial p = new Parcial(qtd + outro.qtd);
+            System.arraycopy(epochNanos, 0, p.epochNanos, 0, qtd);
+            System.arraycopy(outro.epochNanos, 0, p.epochNanos, qtd, outro.qtd);
+            System.arraycopy(posicoes, 0, p.posicoes, 0, qtd);
+            System.arraycopy(outro.posicoes, 0, p.posicoes, qtd, outro.qtd);
+            p.qtd = qtd + outro.qtd;
+            p.linhas = linhas + outro.linhas;
+            p.semTimestamp = semTimestamp + outro.semTimestamp;
+            return p;
+        }
+    }
+
+    /**
+     * Timestamps extraídos do arquivo, mais algumas estatísticas (quantidade de linhas, bytes e tempo de processamento)
+     */
+    public static final class Resultado {
+
+        private final long[] epochNanos;
+
+        private final long[] posicoes;
+
+        private final long linhas;
+
+        private final long linhasSemTimestamp;
+
+        private final long bytes;
+
+        private final long nanosDecorridos;
+
+        Resultado(Parcial parcial, long bytes, long nanosDecorridos) {
+            this.epochNanos = parcial.qtd == parcial.epochNanos.length ? parcial.epochNanos : Arrays.copyOf(parcial.epochNanos, parcial.qtd);
+            this.posicoes = parcial.qtd == parcial.posicoes.length ? parcial.posicoes : Arrays.copyOf(parcial.posicoes, parcial.qtd);
+            this.linhas = parcial.linhas;
+            this.linhasSemTimestamp = parcial.semTimestamp;
+            this.bytes = bytes;
+            this.nanosDecorridos = nanosDecorridos;
+        }
+
+        /**
+         * Timestamps (em nanossegundos desde o Unix Epoch) das linhas que começam com uma data/hora, na ordem do arquivo
+         */
+        public long[] getEpochNanos() {
+            return epochNanos;
+        }
+
+        /**
+         * Posição no arquivo do início de cada linha (o elemento <code>i</code> corresponde a <code>getEpochNanos()[i]</code>)
+         */
+        public long[] getPosicoes() {
+            return posicoes;
+        }
+
+        /**
+         * Quantidade total de linhas do arquivo
+         */
+        public long getLinhas() {
+            return linhas;
+        }
+
+        public long getLinhasSemTimestamp() {
+            return linhasSemTimestamp;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getNanosDecorridos() {
+            return nanosDecorridos;
+        }
+
+        public double getMegabytesPorSegundo() {
+            return (bytes / (1024.0 * 1024.0)) / segundos();
+        }
+
+        public double getLinhasPorSegundo() {
+            return linhas / segundos();
+        }
+
+        private double segundos() {
+            return Math.max(nanosDecorridos, 1) / 1e9;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d linhas (%d sem timestamp), %d bytes em %.3f s: %.1f MB/s, %.0f linhas/s", linhas, linhasSemTimestamp, bytes,
+                    segundos(), getMegabytesPorSegundo(), getLinhasPorSegundo());
+        }
+    }
+}
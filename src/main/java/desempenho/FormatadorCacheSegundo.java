@@ -0,0 +1,162 @@
+package desempenho;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+import exemplos.part3.Cap20Migracao;
+
+/**
+ * Formata timestamps de logs com patterns como <code>dd/MM/yyyy HH:mm:ss.SSS</code> (ver {@link Cap20Migracao#simpleDateFormatVsDateTimeFormatter()}),
+ * guardando o texto de cada segundo.
+ *
+ * Em um log, muitas linhas são escritas no mesmo segundo, e somente as frações de segundo mudam. Por isso o pattern é dividido em 3 partes: o que vem
+ * antes das frações de segundo (<code>S</code>), as frações, e o que vem depois (como o offset, em <code>HH:mm:ss.SSSXXX</code>). As partes antes e
+ * depois são formatadas pelo {@link DateTimeFormatter} somente quando o segundo muda, e para os demais valores do mesmo segundo somente os dígitos das
+ * frações são escritos. Se o pattern não tiver frações de segundo, o texto inteiro é reaproveitado.
+ *
+ * O cache é indexado pelo timestamp (segundos desde o Unix Epoch), e não pela data e hora local. Como as mudanças de offset (como o início e fim do horário
+ * de verão) sempre acontecem em um segundo exato, o texto de cada segundo é sempre o correto, inclusive nos segundos repetidos de um overlap.
+ *
+ * O cache é um objeto imutável, trocado a cada segundo, então as instâncias podem ser usadas por várias threads, sem locks. Se várias threads
+ * formatarem valores de segundos diferentes ao mesmo tempo, o resultado continua correto (somente o cache é menos aproveitado).
+ */
+public final class FormatadorCacheSegundo {
+
+    private final String pattern;
+
+    private final ZoneId zona;
+
+    // formatters das partes antes e depois das frações de segundo (null se não houver a parte)
+    private final DateTimeFormatter formatterPrefixo;
+
+    private final DateTimeFormatter formatterSufixo;
+
+    // quantidade de dígitos das frações de segundo (zero se não houver)
+    private final int digitosFracao;
+
+    private volatile Segundo cache;
+
+    // texto de um segundo
+    private static final class Segundo {
+
+        private final long epochSegundo;
+
+        private final String prefixo;
+
+        private final String sufixo;
+
+        private Segundo(long epochSegundo, String prefixo, String sufixo) {
+            this.epochSegundo = epochSegundo;
+            this.prefixo = prefixo;
+            this.sufixo = sufixo;
+        }
+    }
+
+    /**
+     * @param pattern
+     *            pattern no formato de {@link DateTimeFormatter#ofPattern(String)}, com no máximo uma sequência de <code>S</code> (fora de seções
+     *            opcionais), e sem outros campos que mudam dentro de um segundo (<code>n</code>, <code>N</code> e <code>A</code>)
+     * @param locale
+     *            locale usado nos textos (como nomes de meses)
+     * @param zona
+     *            timezone usado para obter a data e hora de cada timestamp
+     * @throws IllegalArgumentException
+     *             se o pattern não for suportado
+     */
+    public FormatadorCacheSegundo(String pattern, Locale locale, ZoneId zona) {
+        this.pattern = pattern;
+        this.zona = zona;
+        int inicioFracao = -1;
+        int fimFracao = -1;
+        boolean aspas = false;
+        int nivelOpcional = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\'') {
+                aspas = !aspas;
+            } else if (aspas) {
+                continue;
+            } else if (c == '[') {
+                nivelOpcional++;
+            } else if (c == ']') {
+                nivelOpcional--;
+            } else if (c == 'n' || c == 'N' || c == 'A') {
+                throw new IllegalArgumentException("Pattern não suportado (campo '" + c + "' muda dentro de um segundo): " + pattern);
+            } else if (c == 'S') {
+                if (inicioFracao >= 0 || nivelOpcional > 0) {
+                    throw new IllegalArgumentException("Pattern não suportado (frações de segundo repetidas ou opcionais): " + pattern);
+                }
+                inicioFracao = i;
+                while (i + 1 < pattern.length() && pattern.charAt(i + 1) == 'S') {
+                    i++;
+                }
+                fimFracao = i + 1;
+            }
+        }
+        if (inicioFracao < 0) {
+            this.formatterPrefixo = DateTimeFormatter.ofPattern(pattern, locale);
+            this.formatterSufixo = null;
+            this.digitosFracao = 0;
+        } else {
+            this.digitosFracao = fimFracao - inicioFracao;
+            if (digitosFracao > 9) {
+                throw new IllegalArgumentException("Pattern não suportado (mais de 9 dígitos nas frações de segundo): " + pattern);
+            }
+            this.formatterPrefixo = inicioFracao == 0 ? null : DateTimeFormatter.ofPattern(pattern.substring(0, inicioFracao), locale);
+            this.formatterSufixo = fimFracao == pattern.length() ? null : DateTimeFormatter.ofPattern(pattern.substring(fimFracao), locale);
+        }
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public ZoneId getZona() {
+        return zona;
+    }
+
+    /**
+     * Formata o timestamp (em milissegundos desde o Unix Epoch)
+     */
+    public String formatar(long epochMilli) {
+        StringBuilder sb = new StringBuilder(32);
+        formatar(Math.floorDiv(epochMilli, 1000), (int) Math.floorMod(epochMilli, 1000) * 1000000, sb);
+        return sb.toString();
+    }
+
+    public String formatar(Instant instant) {
+        StringBuilder sb = new StringBuilder(32);
+        formatar(instant.getEpochSecond(), instant.getNano(), sb);
+        return sb.toString();
+    }
+
+    /**
+     * Formata o timestamp, adicionando o resultado no final do {@link StringBuilder} (nenhum objeto é criado se o segundo for o mesmo da chamada anterior)
+     */
+    public void formatar(long epochSegundo, int nano, StringBuilder destino) {
+        Segundo segundo = cache;
+        if (segundo == null || segundo.epochSegundo != epochSegundo) {
+            segundo = novoSegundo(epochSegundo);
+            cache = segundo;
+        }
+        destino.append(segundo.prefixo);
+        if (digitosFracao > 0) {
+            // os dígitos são truncados, assim como no DateTimeFormatter
+            int fracao = nano / Datas.POTENCIAS_10[9 - digitosFracao];
+            for (int i = digitosFracao - 1; i >= 0; i--) {
+                destino.append((char) ('0' + fracao / Datas.POTENCIAS_10[i] % 10));
+            }
+            destino.append(segundo.sufixo);
+        }
+    }
+
+    private Segundo novoSegundo(long epochSegundo) {
+        ZonedDateTime dataHora = Instant.ofEpochSecond(epochSegundo).atZone(zona);
+        String prefixo = formatterPrefixo == null ? "" : formatterPrefixo.format(dataHora);
+        String sufixo = formatterSufixo == null ? "" : formatterSufixo.format(dataHora);
+        return new Segundo(epochSegundo, prefixo, sufixo);
+    }
+}
@@ -0,0 +1,305 @@
+package desempenho;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneRules;
+
+import exemplos.part2.Cap10Aritmetica;
+
+/**
+ * Formata durações no formato ISO 8601 <code>PnYnMnDTnHnMnS</code>, com a quantidade exata de anos, meses e dias contados a partir de uma data e hora
+ * inicial (ver {@link Cap10Aritmetica#duracaoISO8601()}, que considera que todos os meses têm 30 dias).
+ *
+ * A partir do início, são contados os meses e dias completos até o final (início + duração), da mesma forma que
+ * {@link LocalDateTime#until(java.time.temporal.Temporal, java.time.temporal.TemporalUnit)}: se o horário final for anterior ao horário inicial, o último
+ * dia não está completo. O que sobra é escrito como horas, minutos e segundos. Para durações positivas, o resultado é o mesmo de
+ * {@link Period#between(LocalDate, LocalDate)} seguido de {@link Duration#between(java.time.temporal.Temporal, java.time.temporal.Temporal)} (como o
+ * <code>PeriodDuration</code> do ThreeTen-Extra), mas sem horas negativas: de <code>2018-01-01T11:00</code> a <code>2018-02-10T10:00</code> o resultado é
+ * <code>P1M8DT23H</code>, e não <code>P1M9DT-1H</code>. Para durações negativas, todos os campos são negativos.
+ *
+ * Com um {@link ZonedDateTime}, os meses e dias são contados na data e hora local, e as horas, minutos e segundos são a diferença exata entre os instantes
+ * (então em um dia com horário de verão pode haver 23 ou 25 horas, por exemplo). Em todos os casos, somar o {@link Period} e depois a {@link Duration}
+ * do resultado ao início resulta exatamente no final.
+ *
+ * As contas são feitas com tipos primitivos e o resultado é escrito em bytes (ASCII), sem criar objetos (exceto com timezones que têm mudanças de offset,
+ * em que as regras do timezone são consultadas). As instâncias são imutáveis e podem ser usadas por várias threads.
+ */
+public final class FormatadorDuracaoISO {
+
+    /**
+     * Quantidade máxima de bytes escritos por duração: <code>P-1999999998Y-11M-30DT-999H-59M-59.999999999S</code>
+     */
+    public static final int TAMANHO_MAXIMO = 48;
+
+    private static final long NANOS_POR_SEGUNDO = 1000000000L;
+
+    private static final long NANOS_POR_MINUTO = 60 * NANOS_POR_SEGUNDO;
+
+    private static final long NANOS_POR_HORA = 60 * NANOS_POR_MINUTO;
+
+    private static final long NANOS_POR_DIA = 24 * NANOS_POR_HORA;
+
+    private static final long EPOCH_DAY_MIN = LocalDate.MIN.toEpochDay();
+
+    private static final long EPOCH_DAY_MAX = LocalDate.MAX.toEpochDay();
+
+    // intervalo em que Datas.dataCivil funciona (anos entre -32768 e 32767)
+    private static final long EPOCH_DAY_MIN_CIVIL = Datas.epochDay(-32768, 1, 1);
+
+    private static final long EPOCH_DAY_MAX_CIVIL = Datas.epochDay(32767, 12, 31);
+
+    // regras do timezone (null se o offset for sempre o mesmo)
+    private final ZoneRules regras;
+
+    // início com o timezone (usado somente se houver regras)
+    private final ZonedDateTime inicioZona;
+
+    private final ZoneOffset offsetInicio;
+
+    // campos do início (com LocalDateTime, o offset é zero e os segundos são os da data e hora local)
+    private final long epochSegundoInicio;
+
+    private final int nanoInicio;
+
+    private final long nanoDiaInicio;
+
+    private final long epochDayInicio;
+
+    // para o cálculo dos meses, como em LocalDate.until: mês proléptico * 32 + dia
+    private final long mesProlepticoInicio;
+
+    private final int diaInicio;
+
+    /**
+     * Conta os meses e dias a partir da data e hora local
+     */
+    public FormatadorDuracaoISO(LocalDateTime inicio) {
+        this(inicio, null, ZoneOffset.UTC, null);
+    }
+
+    /**
+     * Conta os meses e dias a partir da data e hora local, e as horas, minutos e segundos pela diferença entre os instantes
+     */
+    public FormatadorDuracaoISO(ZonedDateTime inicio) {
+        this(inicio.toLocalDateTime(), inicio.getZone(), inicio.getOffset(), inicio);
+    }
+
+    private FormatadorDuracaoISO(LocalDateTime inicio, ZoneId zona, ZoneOffset offset, ZonedDateTime inicioZona) {
+        ZoneRules regrasZona = zona == null ? null : zona.getRules();
+        this.inicioZona = inicioZona;
+        this.regras = regrasZona == null || regrasZona.isFixedOffset() ? null : regrasZona;
+        this.offsetInicio = offset;
+        this.epochSegundoInicio = inicio.toEpochSecond(offset);
+        this.nanoInicio = inicio.getNano();
+        this.nanoDiaInicio = inicio.toLocalTime().toNanoOfDay();
+        this.epochDayInicio = inicio.toLocalDate().toEpochDay();
+        this.mesProlepticoInicio = inicio.getYear() * 12L + inicio.getMonthValue() - 1;
+        this.diaInicio = inicio.getDayOfMonth();
+    }
+
+    // ------------------------------------------------------------------------
+    // String
+
+    /**
+     * Formata a duração (em milissegundos)
+     */
+    public String formatar(long millis) {
+        byte[] buf = new byte[TAMANHO_MAXIMO];
+        return new String(buf, 0, escrever(millis, buf, 0), StandardCharsets.US_ASCII);
+    }
+
+    public String formatar(Duration duracao) {
+        byte[] buf = new byte[TAMANHO_MAXIMO];
+        return new String(buf, 0, escrever(duracao.getSeconds(), duracao.getNano(), buf, 0), StandardCharsets.US_ASCII);
+    }
+
+    // ------------------------------------------------------------------------
+    // byte[]
+
+    /**
+     * Escreve a duração (em milissegundos) a partir da posição indicada (devem existir pelo menos {@link #TAMANHO_MAXIMO} posições livres)
+     *
+     * @return a posição seguinte ao último byte escrito
+     */
+    public int escrever(long millis, byte[] dest, int pos) {
+        return escrever(Math.floorDiv(millis, 1000), (int) Math.floorMod(millis, 1000) * 1000000, dest, pos);
+    }
+
+    /**
+     * Escreve várias durações (em milissegundos) de uma vez, uma após a outra, a partir da posição indicada (devem existir pelo menos
+     * <code>(fim - inicio) * TAMANHO_MAXIMO</code> posições livres). O mesmo array pode ser reutilizado para vários lotes.
+     *
+     * @param fins
+     *            array em que é guardada a posição final de cada duração (<code>fins[0]</code> corresponde a <code>millis[inicio]</code>)
+     * @return a posição seguinte ao último byte escrito
+     */
+    public int escrever(long[] millis, int inicio, int fim, byte[] dest, int pos, int[] fins) {
+        for (int i = inicio; i < fim; i++) {
+            pos = escrever(millis[i], dest, pos);
+            fins[i - inicio] = pos;
+        }
+        return pos;
+    }
+
+    /**
+     * Escreve a duração (com os mesmos valores de {@link Duration#getSeconds()} e {@link Duration#getNano()}) a partir da posição indicada (devem existir
+     * pelo menos {@link #TAMANHO_MAXIMO} posições livres)
+     *
+     * @return a posição seguinte ao último byte escrito
+     * @throws DateTimeException
+     *             se o final estiver fora dos limites de {@link LocalDateTime}
+     */
+    public int escrever(long segundos, int nano, byte[] dest, int pos) {
+        // final (instante e data e hora local)
+        long epochSegundoFim = Math.addExact(epochSegundoInicio, segundos);
+        int nanoFim = nanoInicio + nano;
+        if (nanoFim >= NANOS_POR_SEGUNDO) {
+            nanoFim -= NANOS_POR_SEGUNDO;
+            epochSegundoFim++;
+        }
+        int offsetFim = regras == null ? offsetInicio.getTotalSeconds() : regras.getOffset(Instant.ofEpochSecond(epochSegundoFim)).getTotalSeconds();
+        long localFim = epochSegundoFim + offsetFim;
+        long epochDayFim = Math.floorDiv(localFim, 86400);
+        if (epochDayFim < EPOCH_DAY_MIN || epochDayFim > EPOCH_DAY_MAX) {
+            throw new DateTimeException("Final da duração fora dos limites de LocalDateTime");
+        }
+        long nanoDiaFim = Math.floorMod(localFim, 86400) * NANOS_POR_SEGUNDO + nanoFim;
+
+        // se o horário final não completa o último dia, ele não é contado (a comparação é pelas datas locais, como em LocalDateTime.until, pois em um
+        // overlap a data e hora local final pode ser anterior à inicial, mesmo com uma duração positiva)
+        long epochDayDatas = epochDayFim;
+        if (epochDayFim > epochDayInicio && nanoDiaFim < nanoDiaInicio) {
+            epochDayDatas--;
+        } else if (epochDayFim < epochDayInicio && nanoDiaFim > nanoDiaInicio) {
+            epochDayDatas++;
+        }
+
+        // meses completos (mesmo cálculo de LocalDate.until com ChronoUnit.MONTHS), e os dias que sobram
+        long data = dataCivil(epochDayDatas);
+        long mesProlepticoFim = (data >> 16) * 12 + ((data >> 8) & 0xFF) - 1;
+        long totalMeses = ((mesProlepticoFim * 32 + (data & 0xFF)) - (mesProlepticoInicio * 32 + diaInicio)) / 32;
+        long epochDayMeses = somarMeses(totalMeses);
+        long dias = epochDayDatas - epochDayMeses;
+
+        // o que sobra é a diferença entre o final e o início + meses + dias
+        long tempo;
+        if (regras == null) {
+            tempo = (epochDayFim - epochDayDatas) * NANOS_POR_DIA + nanoDiaFim - nanoDiaInicio;
+        } else {
+            tempo = (epochSegundoFim - epochSegundoMeio(epochDayDatas)) * NANOS_POR_SEGUNDO + nanoFim - nanoInicio;
+        }
+
+        dest[pos++] = 'P';
+        int inicioCampos = pos;
+        if (totalMeses / 12 != 0) {
+            pos = escreverCampo(totalMeses / 12, 'Y', dest, pos);
+        }
+        if (totalMeses % 12 != 0) {
+            pos = escreverCampo(totalMeses % 12, 'M', dest, pos);
+        }
+        if (dias != 0) {
+            pos = escreverCampo(dias, 'D', dest, pos);
+        }
+        if (tempo != 0 || pos == inicioCampos) {
+            pos = escreverTempo(tempo, dest, pos);
+        }
+        return pos;
+    }
+
+    // ------------------------------------------------------------------------
+    // datas
+
+    // epochDay do início + meses (se o dia não existir no mês, é ajustado para o último dia do mês, como em LocalDate.plusMonths)
+    private long somarMeses(long meses) {
+        long mesProleptico = mesProlepticoInicio + meses;
+        int ano = (int) Math.floorDiv(mesProleptico, 12);
+        int mes = (int) Math.floorMod(mesProleptico, 12) + 1;
+        return Datas.epochDay(ano, mes, Math.min(diaInicio, Datas.diasNoMes(ano, mes)));
+    }
+
+    // instante correspondente à data indicada com o horário do início (o mesmo que inicio.plus(periodo), em que a data e hora local é resolvida uma vez)
+    private long epochSegundoMeio(long epochDay) {
+        LocalDateTime dataHora = LocalDateTime.of(LocalDate.ofEpochDay(epochDay), inicioZona.toLocalTime());
+        return ZonedDateTime.ofLocal(dataHora, inicioZona.getZone(), offsetInicio).toEpochSecond();
+    }
+
+    // ano, mês e dia em um único long, no mesmo formato de Datas.dataCivil
+    private static long dataCivil(long epochDay) {
+        if (epochDay >= EPOCH_DAY_MIN_CIVIL && epochDay <= EPOCH_DAY_MAX_CIVIL) {
+            return Datas.dataCivil(epochDay);
+        }
+        LocalDate data = LocalDate.ofEpochDay(epochDay);
+        return ((long) data.getYear() << 16) | (data.getMonthValue() << 8) | data.getDayOfMonth();
+    }
+
+    // ------------------------------------------------------------------------
+    // campos
+
+    // "T" seguido das horas, minutos e segundos (mesmo formato de Duration.toString, com o sinal em cada campo)
+    private static int escreverTempo(long tempo, byte[] dest, int pos) {
+        dest[pos++] = 'T';
+        boolean negativo = tempo < 0;
+        long abs = Math.abs(tempo);
+        long horas = abs / NANOS_POR_HORA;
+        long minutos = abs / NANOS_POR_MINUTO % 60;
+        long segundos = abs / NANOS_POR_SEGUNDO % 60;
+        int nano = (int) (abs % NANOS_POR_SEGUNDO);
+        if (horas != 0) {
+            pos = escreverCampo(negativo ? -horas : horas, 'H', dest, pos);
+        }
+        if (minutos != 0) {
+            pos = escreverCampo(negativo ? -minutos : minutos, 'M', dest, pos);
+        }
+        if (segundos == 0 && nano == 0 && dest[pos - 1] != 'T') {
+            return pos;
+        }
+        if (negativo) {
+            dest[pos++] = '-';
+        }
+        pos = escreverLong(segundos, dest, pos);
+        if (nano != 0) {
+            // fração sem os zeros no final
+            dest[pos++] = '.';
+            for (int i = 8; i >= 0; i--) {
+                dest[pos++] = (byte) ('0' + nano / Datas.POTENCIAS_10[i] % 10);
+            }
+            while (dest[pos - 1] == '0') {
+                pos--;
+            }
+        }
+        dest[pos++] = 'S';
+        return pos;
+    }
+
+    private static int escreverCampo(long valor, char letra, byte[] dest, int pos) {
+        if (valor < 0) {
+            dest[pos++] = '-';
+            valor = -valor;
+        }
+        pos = escreverLong(valor, dest, pos);
+        dest[pos++] = (byte) letra;
+        return pos;
+    }
+
+    // número positivo, sem zeros à esquerda
+    private static int escreverLong(long valor, byte[] dest, int pos) {
+        int qtd = 1;
+        for (long v = valor / 10; v > 0; v /= 10) {
+            qtd++;
+        }
+        int fim = pos + qtd;
+        for (int i = fim - 1; i >= pos; i--) {
+            dest[i] = (byte) ('0' + valor % 10);
+            valor /= 10;
+        }
+        return fim;
+    }
+}
@@ -0,0 +1,316 @@
+package desempenho;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import exemplos.part3.Cap19TestesOutrosCasos;
+
+/**
+ * Agrupa os timezones que têm as mesmas regras (como "America/Sao_Paulo" e "Brazil/East"), usando uma impressão digital (hash SHA-256) das regras de
+ * cada um.
+ *
+ * Em {@link Cap19TestesOutrosCasos#compararTimezones()}, vimos que dois timezones são equivalentes se os seus {@link ZoneRules} forem iguais, mas
+ * {@link ZoneRules#equals(Object)} compara todos os arrays de transições. Aqui, a forma serializada das regras de cada timezone é usada para calcular a
+ * impressão digital uma única vez, e os timezones com a mesma impressão digital formam uma {@link ZonaCanonica}. Depois disso, saber se dois
+ * timezones são equivalentes, ou agrupar valores pelo timezone, é só uma consulta a um mapa, e a {@link ZonaCanonica} pode ser usada como chave de
+ * caches, que passam a ser compartilhados por todos os sinônimos.
+ *
+ * O id canônico de cada grupo é escolhido por um {@link Comparator}. O padrão dá preferência aos ids que não são links no TZDB (por exemplo, no grupo
+ * de "Europe/Berlin" também estão os links "Atlantic/Jan_Mayen" e "Arctic/Longyearbyen"), e depois aos ids no formato "Continente/Cidade". Para
+ * controlar a escolha, use {@link #of(Comparator)}.
+ *
+ * O índice é criado para a versão do TZDB carregada pela JVM: se outra versão for carregada, {@link #global()} cria um novo índice (a versão é
+ * verificada no máximo uma vez por segundo). As instâncias são imutáveis e podem ser usadas por várias threads.
+ */
+public final class ImpressaoDigitalZonas {
+
+    /**
+     * Ordem padrão dos ids, para escolher o canônico (o primeiro): primeiro os ids que não são links no TZDB (quando a JVM permite obtê-los, ver
+     * {@link Tzdb#links()}), e depois pela região: continentes ("America/Sao_Paulo"), oceanos ("Atlantic/Azores"), Antarctica e Arctic, e os demais
+     * (ids antigos como "Brazil/East", "US/Pacific", "Etc/GMT+3" e "Japan"). Em cada grupo, em ordem alfabética.
+     */
+    public static final Comparator<String> ORDEM_PADRAO = Comparator.comparingInt((String id) -> Tzdb.links().containsKey(id) ? 1 : 0).thenComparingInt(
+        ImpressaoDigitalZonas::prioridade).thenComparing(Comparator.naturalOrder());
+
+    private static final List<String> CONTINENTES = Arrays.asList("Africa", "America", "Asia", "Australia", "Europe");
+
+    private static final List<String> OCEANOS = Arrays.asList("Atlantic", "Indian", "Pacific");
+
+    private static volatile ImpressaoDigitalZonas global;
+
+    private final String versaoTzdb;
+
+    private final Map<ZoneId, ZonaCanonica> porZona;
+
+    private final Map<String, ZonaCanonica> porImpressaoDigital;
+
+    private final List<ZonaCanonica> canonicas;
+
+    // timezones que não estão no índice (como os ZoneOffset), para calcular a impressão digital somente na primeira vez
+    private final Map<ZoneId, ZonaCanonica> foraDoIndice = new ConcurrentHashMap<>();
+
+    /**
+     * Grupo de timezones com as mesmas regras
+     */
+    public static final class ZonaCanonica {
+
+        private final ZoneId id;
+
+        private final List<ZoneId> sinonimos;
+
+        private final ZoneRules regras;
+
+        private final String impressaoDigital;
+
+        private ZonaCanonica(ZoneId id, List<ZoneId> sinonimos, ZoneRules regras, String impressaoDigital) {
+            this.id = id;
+            this.sinonimos = Collections.unmodifiableList(sinonimos);
+            this.regras = regras;
+            this.impressaoDigital = impressaoDigital;
+        }
+
+        /**
+         * Id canônico do grupo
+         */
+        public ZoneId getId() {
+            return id;
+        }
+
+        /**
+         * Todos os timezones do grupo (inclusive o canônico, que é o primeiro), na ordem usada para escolher o canônico
+         */
+        public List<ZoneId> getSinonimos() {
+            return sinonimos;
+        }
+
+        /**
+         * Regras do timezone canônico (as mesmas de todos os sinônimos)
+         */
+        public ZoneRules getRegras() {
+            return regras;
+        }
+
+        /**
+         * Hash SHA-256 da forma serializada das regras, em hexadecimal
+         */
+        public String getImpressaoDigital() {
+            return impressaoDigital;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return this == obj || obj instanceof ZonaCanonica && impressaoDigital.equals(((ZonaCanonica) obj).impressaoDigital);
+        }
+
+        @Override
+        public int hashCode() {
+            return impressaoDigital.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return id + sinonimos.subList(1, sinonimos.size()).toString();
+        }
+    }
+
+    private ImpressaoDigitalZonas(String versaoTzdb, Comparator<String> ordem) {
+        this.versaoTzdb = versaoTzdb;
+        // impressão digital -> ids dos timezones, ordenados
+        Map<String, List<String>> ids = new TreeMap<>();
+        Map<String, ZoneRules> regras = new HashMap<>();
+        for (String id : ZoneId.getAvailableZoneIds()) {
+            ZoneRules regrasZona = ZoneId.of(id).getRules();
+            String impressaoDigital = hex(impressaoDigital(regrasZona));
+            ids.computeIfAbsent(impressaoDigital, k -> new ArrayList<>()).add(id);
+            regras.putIfAbsent(impressaoDigital, regrasZona);
+        }
+        Map<ZoneId, ZonaCanonica> porZona = new HashMap<>();
+        Map<String, ZonaCanonica> porImpressaoDigital = new LinkedHashMap<>();
+        List<ZonaCanonica> canonicas = new ArrayList<>();
+        ids.forEach((impressaoDigital, lista) -> {
+            lista.sort(ordem);
+            List<ZoneId> sinonimos = new ArrayList<>(lista.size());
+            for (String id : lista) {
+                sinonimos.add(ZoneId.of(id));
+            }
+            ZonaCanonica canonica = new ZonaCanonica(sinonimos.get(0), sinonimos, regras.get(impressaoDigital), impressaoDigital);
+            for (ZoneId zona : sinonimos) {
+                porZona.put(zona, canonica);
+            }
+            porImpressaoDigital.put(impressaoDigital, canonica);
+            canonicas.add(canonica);
+        });
+        canonicas.sort(Comparator.comparing(c -> c.getId().getId(), ordem));
+        this.porZona = Collections.unmodifiableMap(porZona);
+        this.porImpressaoDigital = Collections.unmodifiableMap(porImpressaoDigital);
+        this.canonicas = Collections.unmodifiableList(canonicas);
+    }
+
+    private static int prioridade(String id) {
+        int barra = id.indexOf('/');
+        String regiao = barra < 0 ? "" : id.substring(0, barra);
+        if (CONTINENTES.contains(regiao)) {
+            return 0;
+        }
+        if (OCEANOS.contains(regiao)) {
+            return 1;
+        }
+        return "Antarctica".equals(regiao) || "Arctic".equals(regiao) ? 2 : 3;
+    }
+
+    /**
+     * Índice de todos os timezones, com a ordem {@link #ORDEM_PADRAO}, para a versão do TZDB atualmente carregada
+     */
+    public static ImpressaoDigitalZonas global() {
+        String versao = Tzdb.versaoRecente();
+        ImpressaoDigitalZonas indice = global;
+        if (indice == null || !indice.versaoTzdb.equals(versao)) {
+            // primeira chamada, ou outra versão do TZDB foi carregada
+            indice = new ImpressaoDigitalZonas(versao, ORDEM_PADRAO);
+            global = indice;
+        }
+        return indice;
+    }
+
+    /**
+     * Cria um índice, usando a ordem indicada para escolher o id canônico de cada grupo (o primeiro)
+     */
+    public static ImpressaoDigitalZonas of(Comparator<String> ordem) {
+        return new ImpressaoDigitalZonas(Tzdb.versao(), ordem);
+    }
+
+    /**
+     * Hash SHA-256 da forma serializada das regras. Regras iguais ({@link ZoneRules#equals(Object)}) têm a mesma forma serializada.
+     */
+    public static byte[] impressaoDigital(ZoneRules regras) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (ObjectOutputStream out = new ObjectOutputStream(new DigestOutputStream(new OutputStream() {
+                @Override
+                public void write(int b) {
+                    // somente o hash é necessário: os bytes são descartados
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                }
+            }, digest))) {
+                out.writeObject(regras);
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            // todas as JVMs têm SHA-256
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        char[] digitos = "0123456789abcdef".toCharArray();
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = digitos[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = digitos[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    public String getVersaoTzdb() {
+        return versaoTzdb;
+    }
+
+    /**
+     * Grupo do timezone. Para timezones que não estão no índice (como {@link java.time.ZoneOffset}), a impressão digital é calculada na primeira
+     * chamada, e se não houver um timezone do TZDB com as mesmas regras, é retornado um grupo que só tem o próprio timezone.
+     */
+    public ZonaCanonica canonica(ZoneId zona) {
+        ZonaCanonica canonica = porZona.get(zona);
+        if (canonica == null) {
+            canonica = foraDoIndice.get(zona);
+            if (canonica == null) {
+                canonica = foraDoIndice.computeIfAbsent(zona, this::calcularCanonica);
+            }
+        }
+        return canonica;
+    }
+
+    private ZonaCanonica calcularCanonica(ZoneId zona) {
+        String impressaoDigital = hex(impressaoDigital(zona.getRules()));
+        ZonaCanonica canonica = porImpressaoDigital.get(impressaoDigital);
+        if (canonica == null) {
+            canonica = new ZonaCanonica(zona, Collections.singletonList(zona), zona.getRules(), impressaoDigital);
+        }
+        return canonica;
+    }
+
+    /**
+     * Id canônico do timezone (por exemplo, "America/Sao_Paulo" para "Brazil/East")
+     */
+    public ZoneId canonico(ZoneId zona) {
+        return canonica(zona).getId();
+    }
+
+    /**
+     * Indica se os timezones têm as mesmas regras (o mesmo que comparar os {@link ZoneRules}, mas sem percorrer as transições)
+     */
+    public boolean equivalentes(ZoneId zona1, ZoneId zona2) {
+        return zona1.equals(zona2) || canonica(zona1).equals(canonica(zona2));
+    }
+
+    /**
+     * Grupo de todos os timezones do TZDB
+     */
+    public Map<ZoneId, ZonaCanonica> getMapa() {
+        return porZona;
+    }
+
+    /**
+     * Grupo com a impressão digital indicada (em hexadecimal), ou <code>null</code> se não existir
+     */
+    public ZonaCanonica porImpressaoDigital(String impressaoDigital) {
+        return porImpressaoDigital.get(impressaoDigital);
+    }
+
+    /**
+     * Todos os grupos, ordenados pelo id canônico
+     */
+    public List<ZonaCanonica> canonicas() {
+        return canonicas;
+    }
+
+    /**
+     * Agrupa os valores pelo grupo do timezone de cada um (valores com timezones sinônimos ficam no mesmo grupo)
+     */
+    public <T> Map<ZonaCanonica, List<T>> agrupar(Collection<T> valores, Function<? super T, ZoneId> zona) {
+        Map<ZonaCanonica, List<T>> grupos = new LinkedHashMap<>();
+        for (T valor : valores) {
+            grupos.computeIfAbsent(canonica(zona.apply(valor)), k -> new ArrayList<>()).add(valor);
+        }
+        return grupos;
+    }
+
+    @Override
+    public String toString() {
+        return "ImpressaoDigitalZonas[tzdb=" + versaoTzdb + ", zonas=" + porZona.size() + ", canonicas=" + canonicas.size() + "]";
+    }
+}
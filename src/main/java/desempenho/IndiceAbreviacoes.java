@@ -0,0 +1,320 @@
+package desempenho;
+
+import java.text.DateFormatSymbols;
+import java.text.ParsePosition;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.TextStyle;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQueries;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import exemplos.part3.Cap14ZonesOffsets;
+import exemplos.part3.Cap18Parsing;
+
+/**
+ * Índice com todas as abreviações de timezones (como "EST", "IST" e "CST") de um locale, e os timezones que usam cada uma.
+ *
+ * Abreviações são ambíguas: "IST" é usada na Índia, Irlanda e Israel (ver {@link Cap18Parsing#abreviacaoTimezone()} e
+ * {@link Cap14ZonesOffsets#timezones()}). Por isso o índice guarda todos os timezones candidatos, e a escolha de um deles é feita por uma
+ * {@link PoliticaPreferencia}. O resultado é um {@link Resolvedor}, em que cada abreviação já está associada a um único timezone, e a busca é uma
+ * simples consulta a um mapa (ou a uma {@link TrieTextos}, para buscar a abreviação no meio de uma String sem criar substrings), em vez de percorrer
+ * os nomes de todos os timezones a cada parsing.
+ *
+ * O índice é construído uma única vez para cada locale e versão do TZDB: se a JVM carregar outra versão, {@link #of(Locale)} cria um novo índice.
+ * São considerados os nomes curtos do horário padrão e do horário de verão de cada timezone ({@link TimeZone#getDisplayName(boolean, int, Locale)}).
+ * Nomes no formato "GMT+03:00", usados quando um timezone não tem abreviação, são ignorados.
+ */
+public final class IndiceAbreviacoes {
+
+    private static final Map<String, IndiceAbreviacoes> CACHE = new ConcurrentHashMap<>();
+
+    private static final Map<Locale, Map<String, Integer>> POSICOES_NOMES = new ConcurrentHashMap<>();
+
+    private final Locale locale;
+
+    private final String versaoTzdb;
+
+    // abreviação -> timezones (o escolhido pelo DateTimeFormatter primeiro, depois os demais em ordem alfabética)
+    private final Map<String, List<ZoneId>> candidatos;
+
+    private IndiceAbreviacoes(Locale locale, String versaoTzdb) {
+        this.locale = locale;
+        this.versaoTzdb = versaoTzdb;
+        Map<String, Set<String>> ids = new TreeMap<>();
+        for (String id : ZoneId.getAvailableZoneIds()) {
+            TimeZone tz = TimeZone.getTimeZone(id);
+            adicionar(ids, tz.getDisplayName(false, TimeZone.SHORT, locale), id);
+            adicionar(ids, tz.getDisplayName(true, TimeZone.SHORT, locale), id);
+        }
+        Map<String, List<ZoneId>> candidatos = new LinkedHashMap<>();
+        DateTimeFormatter parserJdk = DateTimeFormatter.ofPattern("z", locale);
+        ids.forEach((abreviacao, zonas) -> {
+            List<ZoneId> lista = new ArrayList<>();
+            // o primeiro é o timezone que o DateTimeFormatter escolhe (parseUnresolved não lança exceção se não conseguir fazer o parsing)
+            ParsePosition pos = new ParsePosition(0);
+            TemporalAccessor parsed = parserJdk.parseUnresolved(abreviacao, pos);
+            ZoneId escolhaJdk = parsed == null || pos.getIndex() != abreviacao.length() ? null : parsed.query(TemporalQueries.zoneId());
+            if (escolhaJdk != null && zonas.contains(escolhaJdk.getId())) {
+                lista.add(escolhaJdk);
+            }
+            for (String id : zonas) {
+                ZoneId zona = ZoneId.of(id);
+                if (!zona.equals(escolhaJdk)) {
+                    lista.add(zona);
+                }
+            }
+            candidatos.put(abreviacao, Collections.unmodifiableList(lista));
+        });
+        this.candidatos = Collections.unmodifiableMap(candidatos);
+    }
+
+    // posição de cada timezone nos nomes do JDK, que é a ordem em que o DateTimeFormatter considera os timezones preferidos
+    private static Map<String, Integer> posicoesNomes(Locale locale) {
+        return POSICOES_NOMES.computeIfAbsent(locale, k -> {
+            Map<String, Integer> posicoes = new HashMap<>();
+            String[][] nomes = DateFormatSymbols.getInstance(k).getZoneStrings();
+            for (int i = 0; i < nomes.length; i++) {
+                posicoes.put(nomes[i][0], i);
+            }
+            return posicoes;
+        });
+    }
+
+    private static void adicionar(Map<String, Set<String>> ids, String abreviacao, String id) {
+        if ((abreviacao.startsWith("GMT") || abreviacao.startsWith("UTC")) && abreviacao.length() > 3) {
+            return;
+        }
+        ids.computeIfAbsent(abreviacao, k -> new TreeSet<>()).add(id);
+    }
+
+    /**
+     * Retorna o índice do locale, para a versão do TZDB atualmente carregada
+     */
+    public static IndiceAbreviacoes of(Locale locale) {
+        String versao = Tzdb.versaoRecente();
+        IndiceAbreviacoes indice = CACHE.computeIfAbsent(locale.toLanguageTag(), k -> new IndiceAbreviacoes(locale, versao));
+        if (!indice.versaoTzdb.equals(versao)) {
+            // outra versão do TZDB foi carregada
+            indice = new IndiceAbreviacoes(locale, versao);
+            CACHE.put(locale.toLanguageTag(), indice);
+        }
+        return indice;
+    }
+
+    public Locale getLocale() {
+        return locale;
+    }
+
+    public String getVersaoTzdb() {
+        return versaoTzdb;
+    }
+
+    public Set<String> abreviacoes() {
+        return candidatos.keySet();
+    }
+
+    /**
+     * Timezones que usam a abreviação (lista vazia se ela não existir)
+     */
+    public List<ZoneId> candidatos(String abreviacao) {
+        List<ZoneId> zonas = candidatos.get(abreviacao);
+        return zonas == null ? Collections.<ZoneId> emptyList() : zonas;
+    }
+
+    /**
+     * Cria um {@link Resolvedor}, usando a política para escolher o timezone de cada abreviação
+     */
+    public Resolvedor resolvedor(PoliticaPreferencia politica) {
+        Map<String, ZoneId> escolhidos = new LinkedHashMap<>();
+        candidatos.forEach((abreviacao, zonas) -> {
+            ZoneId zona = politica.escolher(abreviacao, zonas, locale);
+            if (zona != null) {
+                escolhidos.put(abreviacao, zona);
+            }
+        });
+        return new Resolvedor(escolhidos);
+    }
+
+    /**
+     * Escolhe um timezone entre os que usam determinada abreviação
+     */
+    @FunctionalInterface
+    public interface PoliticaPreferencia {
+
+        /**
+         * @param candidatos
+         *            timezones que usam a abreviação (nunca é vazia). O primeiro é o timezone que o {@link java.time.format.DateTimeFormatter} escolhe
+         *            ao fazer o parsing de um pattern com "z", e os demais estão em ordem alfabética.
+         * @return o timezone escolhido, ou <code>null</code> para não resolver a abreviação
+         */
+        ZoneId escolher(String abreviacao, List<ZoneId> candidatos);
+
+        /**
+         * Escolhe o timezone para as abreviações de um locale, que é o método usado por {@link IndiceAbreviacoes#resolvedor(PoliticaPreferencia)}.
+         * Por padrão, ignora o locale.
+         */
+        default ZoneId escolher(String abreviacao, List<ZoneId> candidatos, Locale locale) {
+            return escolher(abreviacao, candidatos);
+        }
+
+        /**
+         * Usa o mesmo timezone que o {@link java.time.format.DateTimeFormatter} escolheria (ou seja, o resultado é igual ao do parsing com o pattern "z"
+         * nesta JVM)
+         */
+        static PoliticaPreferencia padrao() {
+            return (abreviacao, candidatos) -> candidatos.get(0);
+        }
+
+        /**
+         * Usa o timezone de {@link ZoneId#SHORT_IDS} (por exemplo, "IST" é "Asia/Kolkata"), se ele for um dos candidatos. Senão, usa a política padrão.
+         */
+        static PoliticaPreferencia shortIds() {
+            return (abreviacao, candidatos) -> {
+                String id = ZoneId.SHORT_IDS.get(abreviacao);
+                if (id != null) {
+                    ZoneId zona = ZoneId.of(id);
+                    if (candidatos.contains(zona)) {
+                        return zona;
+                    }
+                }
+                return candidatos.get(0);
+            };
+        }
+
+        /**
+         * Usa o candidato que estiver entre os timezones preferidos, da mesma forma que {@link DateTimeFormatterBuilder#appendZoneText(TextStyle, Set)}:
+         * se houver mais de um, o formatter escolhe o último na ordem de {@link DateFormatSymbols#getZoneStrings()}, que depende do locale (sem o locale,
+         * é usado o {@link Locale.Category#FORMAT} padrão). Se nenhum deles for candidato, usa a política padrão, assim como nas abreviações que começam
+         * com "GMT" ou "UT", que o formatter sempre lê como offsets.
+         */
+        static PoliticaPreferencia preferidos(Collection<ZoneId> preferidos) {
+            Set<ZoneId> set = new HashSet<>(preferidos);
+            PoliticaPreferencia padrao = padrao();
+            return new PoliticaPreferencia() {
+
+                @Override
+                public ZoneId escolher(String abreviacao, List<ZoneId> candidatos) {
+                    return escolher(abreviacao, candidatos, Locale.getDefault(Locale.Category.FORMAT));
+                }
+
+                @Override
+                public ZoneId escolher(String abreviacao, List<ZoneId> candidatos, Locale locale) {
+                    if (abreviacao.startsWith("GMT") || abreviacao.startsWith("UT")) {
+                        return padrao.escolher(abreviacao, candidatos);
+                    }
+                    Map<String, Integer> posicoes = posicoesNomes(locale);
+                    ZoneId escolhido = null;
+                    int posicaoEscolhido = -1;
+                    for (ZoneId zona : candidatos) {
+                        if (set.contains(zona)) {
+                            int posicao = posicoes.getOrDefault(zona.getId(), -1);
+                            if (escolhido == null || posicao > posicaoEscolhido) {
+                                escolhido = zona;
+                                posicaoEscolhido = posicao;
+                            }
+                        }
+                    }
+                    return escolhido != null ? escolhido : padrao.escolher(abreviacao, candidatos);
+                }
+            };
+        }
+
+        /**
+         * Só resolve as abreviações que correspondem a um único timezone (as ambíguas não são resolvidas)
+         */
+        static PoliticaPreferencia somenteSemAmbiguidade() {
+            return (abreviacao, candidatos) -> candidatos.size() == 1 ? candidatos.get(0) : null;
+        }
+    }
+
+    /**
+     * Abreviações já associadas a um único timezone. É imutável e thread-safe.
+     */
+    public static final class Resolvedor {
+
+        private final Map<String, ZoneId> zonas;
+
+        // as abreviações e os timezones ficam na mesma posição da lista, que é o valor usado na trie
+        private final ZoneId[] zonasPorIndice;
+
+        private final TrieTextos trie;
+
+        private Resolvedor(Map<String, ZoneId> zonas) {
+            this.zonas = Collections.unmodifiableMap(zonas);
+            this.zonasPorIndice = new ZoneId[zonas.size()];
+            Map<Long, String> textos = new LinkedHashMap<>();
+            int i = 0;
+            for (Map.Entry<String, ZoneId> e : zonas.entrySet()) {
+                zonasPorIndice[i] = e.getValue();
+                textos.put((long) i, e.getKey());
+                i++;
+            }
+            this.trie = TrieTextos.of(textos);
+        }
+
+        /**
+         * Timezone associado à abreviação, ou <code>null</code> se ela não existir ou não tiver sido resolvida
+         */
+        public ZoneId resolver(String abreviacao) {
+            return zonas.get(abreviacao);
+        }
+
+        /**
+         * Procura a abreviação mais longa que começa na posição indicada (ignorando maiúsculas e minúsculas).
+         *
+         * @return {@link TrieTextos#NAO_ENCONTRADO}, ou um <code>long</code> com a posição seguinte à abreviação (use {@link TrieTextos#posicao(long)}) e
+         *         o índice do timezone (use {@link #zona(long)})
+         */
+        public long buscar(CharSequence texto, int pos) {
+            return trie.buscar(texto, pos);
+        }
+
+        /**
+         * Timezone encontrado por {@link #buscar(CharSequence, int)}
+         */
+        public ZoneId zona(long resultado) {
+            return zonasPorIndice[TrieTextos.valor(resultado)];
+        }
+
+        /**
+         * Mapa que pode ser usado em {@link ZoneId#of(String, Map)}
+         */
+        public Map<String, String> mapaIds() {
+            Map<String, String> mapa = new HashMap<>();
+            zonas.forEach((abreviacao, zona) -> mapa.put(abreviacao, zona.getId()));
+            return mapa;
+        }
+
+        /**
+         * Timezones escolhidos, que podem ser usados em {@link DateTimeFormatterBuilder#appendZoneText(TextStyle, Set)}, para que o
+         * {@link java.time.format.DateTimeFormatter} faça as mesmas escolhas.
+         *
+         * O formatter associa todas as abreviações de um timezone preferido a ele, inclusive as genéricas (como "ACT" em Australia/Adelaide), que não
+         * fazem parte do índice: se um timezone escolhido para uma abreviação também usar outra, o formatter pode escolher outro timezone para ela.
+         * Por exemplo, se "ACDT" for resolvida para Australia/Adelaide e "ACST" para America/Rio_Branco, o formatter usa Australia/Adelaide para as duas.
+         */
+        public Set<ZoneId> zonasEscolhidas() {
+            return new LinkedHashSet<>(zonas.values());
+        }
+
+        public Map<String, ZoneId> getZonas() {
+            return zonas;
+        }
+    }
+}
@@ -0,0 +1,511 @@
+package desempenho;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.DateFormatSymbols;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import exemplos.part2.Cap12Others;
+import exemplos.part3.Cap19TestesOutrosCasos;
+
+/**
+ * Índice com as abreviações (como "EST") que cada timezone usa em cada locale, separadas entre horário padrão e horário de verão.
+ *
+ * Nos exemplos do livro ({@link Cap12Others#encontrarTimezonesPorAbreviacao()} e
+ * {@link Cap19TestesOutrosCasos#encontrarTimezonesPorOffsetOuAbreviacao()}), cada busca formata o instante em todos os timezones e em todos os locales
+ * (mais de 600 mil combinações), o que leva vários segundos. Aqui, os nomes de todos os timezones em todos os locales são obtidos uma única vez (em
+ * paralelo, dividindo os locales entre as threads do {@link java.util.concurrent.ForkJoinPool#commonPool()}), e cada abreviação fica associada a uma
+ * lista de {@link Entrada}s: o timezone, se o nome é do horário padrão ou de verão, o período em que o timezone usa aquele tipo de horário, e os
+ * locales que usam o nome. Uma busca só consulta as entradas da abreviação.
+ *
+ * Ao contrário do {@link IndiceAbreviacoes}, que é de um único locale e escolhe um timezone para cada abreviação (para ser usado no parsing), este
+ * índice retorna todos os candidatos. Os nomes no formato "GMT+03:00" também estão no índice, pois são os mesmos retornados pelo pattern "z".
+ *
+ * O índice é criado na primeira chamada a {@link #global()}, e recriado se a JVM carregar outra versão do TZDB (verificada no máximo uma vez por
+ * segundo). Como a criação leva alguns segundos, o índice pode ser gravado em um arquivo ({@link #of(Path)}), que é lido nas próximas execuções
+ * (desde que a versão do TZDB, a versão do Java e os locales disponíveis sejam os mesmos). As instâncias são imutáveis e podem ser usadas por várias
+ * threads.
+ */
+public final class IndiceAbreviacoesLocales {
+
+    // identifica o arquivo de cache, e a versão do seu formato
+    private static final int ASSINATURA_ARQUIVO = 0x41425256;
+
+    private static final int VERSAO_ARQUIVO = 1;
+
+    private static final Comparator<Locale> ORDEM_LOCALES = Comparator.comparing(Locale::toLanguageTag).thenComparing(Locale::toString);
+
+    private static volatile IndiceAbreviacoesLocales global;
+
+    // os nomes dependem da versão do TZDB e dos dados de locale da JVM
+    private final String versaoTzdb;
+
+    private final String versaoJava;
+
+    // locales e ids dos timezones, ordenados (as entradas guardam as posições nestes arrays)
+    private final Locale[] locales;
+
+    private final String[] ids;
+
+    private final ZoneRules[] regras;
+
+    // abreviação -> entradas, ordenadas pelo timezone e depois pelo tipo
+    private final Map<String, Entrada[]> entradas;
+
+    /**
+     * Tipo de horário em que o timezone usa a abreviação
+     */
+    public enum Tipo {
+        /**
+         * Horário padrão ({@link TimeZone#getDisplayName(boolean, int, Locale)} com <code>daylight=false</code>)
+         */
+        PADRAO,
+
+        /**
+         * Horário de verão ({@link ZoneRules#isDaylightSavings(Instant)} retorna <code>true</code>)
+         */
+        VERAO
+    }
+
+    /**
+     * Um timezone que usa a abreviação, em um tipo de horário
+     */
+    public final class Entrada {
+
+        private final int zona;
+
+        private final Tipo tipo;
+
+        // primeiro e último instante (em segundos) em que o timezone usa este tipo de horário: Long.MIN_VALUE e Long.MAX_VALUE indicam que não há limite
+        private final long inicio, fim;
+
+        private final BitSet locales;
+
+        private Entrada(int zona, Tipo tipo, long inicio, long fim, BitSet locales) {
+            this.zona = zona;
+            this.tipo = tipo;
+            this.inicio = inicio;
+            this.fim = fim;
+            this.locales = locales;
+        }
+
+        public String getZona() {
+            return ids[zona];
+        }
+
+        public Tipo getTipo() {
+            return tipo;
+        }
+
+        /**
+         * Primeiro instante em que o timezone usa este tipo de horário ({@link Instant#MIN} se for desde o início das regras)
+         */
+        public Instant getInicio() {
+            return inicio == Long.MIN_VALUE ? Instant.MIN : Instant.ofEpochSecond(inicio);
+        }
+
+        /**
+         * Instante em que o timezone deixou de usar este tipo de horário ({@link Instant#MAX} se ainda usa). Entre o início e o fim pode haver
+         * períodos do outro tipo (por exemplo, o horário de verão é usado somente em parte de cada ano).
+         */
+        public Instant getFim() {
+            return fim == Long.MAX_VALUE ? Instant.MAX : Instant.ofEpochSecond(fim);
+        }
+
+        /**
+         * Indica se o timezone usa a abreviação no instante indicado (se o nome for usado em algum dos locales)
+         */
+        public boolean isUsadaEm(Instant instante) {
+            long segundos = instante.getEpochSecond();
+            return inicio <= segundos && segundos < fim && regras[zona].isDaylightSavings(instante) == (tipo == Tipo.VERAO);
+        }
+
+        public boolean isUsadaNoLocale(Locale locale) {
+            int pos = Arrays.binarySearch(IndiceAbreviacoesLocales.this.locales, locale, ORDEM_LOCALES);
+            return pos >= 0 && locales.get(pos);
+        }
+
+        /**
+         * Locales em que o timezone tem este nome
+         */
+        public List<Locale> getLocales() {
+            List<Locale> lista = new ArrayList<>(locales.cardinality());
+            for (int i = locales.nextSetBit(0); i >= 0; i = locales.nextSetBit(i + 1)) {
+                lista.add(IndiceAbreviacoesLocales.this.locales[i]);
+            }
+            return lista;
+        }
+
+        @Override
+        public String toString() {
+            return getZona() + "[" + tipo + ", " + getInicio() + " - " + getFim() + ", " + locales.cardinality() + " locales]";
+        }
+    }
+
+    // cria o índice, obtendo os nomes de todos os timezones nos locales indicados (ordenados)
+    private IndiceAbreviacoesLocales(String versaoTzdb, Locale[] locales) {
+        this.versaoTzdb = versaoTzdb;
+        this.versaoJava = versaoJava();
+        this.locales = locales;
+        this.ids = ids();
+        this.regras = regras(ids);
+
+        // período em que cada timezone usa cada tipo de horário: {inicio, fim} (null se nunca usou)
+        long[][][] periodos = new long[ids.length][][];
+        for (int i = 0; i < ids.length; i++) {
+            periodos[i] = periodos(regras[i]);
+        }
+
+        // os nomes de cada locale são obtidos em paralelo: nomes[locale][zona * 2 + tipo]
+        String[][] nomes = IntStream.range(0, locales.length).parallel().mapToObj(l -> {
+            // getZoneStrings() obtém os nomes de quase todos os timezones de uma vez (os mesmos de TimeZone.getDisplayName), o que é bem mais rápido
+            // do que obter cada nome separadamente
+            Map<String, String[]> porId = new HashMap<>();
+            for (String[] nomesZona : DateFormatSymbols.getInstance(locales[l]).getZoneStrings()) {
+                porId.put(nomesZona[0], nomesZona);
+            }
+            String[] nomesLocale = new String[ids.length * 2];
+            for (int i = 0; i < ids.length; i++) {
+                String[] nomesZona = porId.get(ids[i]);
+                for (Tipo tipo : Tipo.values()) {
+                    if (periodos[i][tipo.ordinal()] != null) {
+                        boolean verao = tipo == Tipo.VERAO;
+                        nomesLocale[i * 2 + tipo.ordinal()] = nomesZona != null ? nomesZona[verao ? 4 : 2]
+                                : TimeZone.getTimeZone(ids[i]).getDisplayName(verao, TimeZone.SHORT, locales[l]);
+                    }
+                }
+            }
+            return nomesLocale;
+        }).toArray(String[][]::new);
+
+        // abreviação -> (zona * 2 + tipo) -> locales
+        Map<String, TreeMap<Integer, BitSet>> porAbreviacao = new HashMap<>();
+        for (int l = 0; l < locales.length; l++) {
+            for (int chave = 0; chave < ids.length * 2; chave++) {
+                String nome = nomes[l][chave];
+                if (nome != null) {
+                    porAbreviacao.computeIfAbsent(nome, k -> new TreeMap<>()).computeIfAbsent(chave, k -> new BitSet(locales.length)).set(l);
+                }
+            }
+        }
+        this.entradas = new HashMap<>();
+        porAbreviacao.forEach((abreviacao, porChave) -> {
+            Entrada[] lista = new Entrada[porChave.size()];
+            int pos = 0;
+            for (Map.Entry<Integer, BitSet> e : porChave.entrySet()) {
+                int zona = e.getKey() / 2;
+                Tipo tipo = Tipo.values()[e.getKey() % 2];
+                long[] periodo = periodos[zona][tipo.ordinal()];
+                lista[pos++] = new Entrada(zona, tipo, periodo[0], periodo[1], e.getValue());
+            }
+            entradas.put(abreviacao, lista);
+        });
+    }
+
+    // período em que o timezone usa o horário padrão e o de verão: [tipo] = {início, fim}, ou null se nunca usou aquele tipo
+    private static long[][] periodos(ZoneRules regras) {
+        long[][] periodos = new long[2][];
+        long limite = Datas.epochDay(IndiceOffsets.ANO_LIMITE_PADRAO + 1, 1, 1) * 86400;
+        // início do período atual (em que o tipo de horário não muda), e instante até onde as regras já foram verificadas
+        long inicio = Long.MIN_VALUE;
+        long atual = Long.MIN_VALUE;
+        boolean verao = verao(regras, Instant.MIN.getEpochSecond());
+        while (true) {
+            // a mudança pode ocorrer em uma transição, ou entre duas transições (quando muda somente o offset padrão, e o offset usado continua o mesmo)
+            ZoneOffsetTransition transicao = regras.nextTransition(atual == Long.MIN_VALUE ? Instant.MIN : Instant.ofEpochSecond(atual));
+            long proxima = transicao == null ? limite : Math.min(transicao.toEpochSecond(), limite);
+            long mudanca;
+            if (verao(regras, proxima - 1) != verao) {
+                // busca binária pelo primeiro segundo com o outro tipo
+                long ini = atual == Long.MIN_VALUE ? Instant.MIN.getEpochSecond() : atual, fim = proxima - 1;
+                while (ini < fim) {
+                    long meio = ini + (fim - ini) / 2;
+                    if (verao(regras, meio) != verao) {
+                        fim = meio;
+                    } else {
+                        ini = meio + 1;
+                    }
+                }
+                mudanca = ini;
+            } else if (proxima < limite && verao(regras, proxima) != verao) {
+                mudanca = proxima;
+            } else if (proxima < limite) {
+                atual = proxima;
+                continue;
+            } else {
+                break;
+            }
+            estender(periodos, verao, inicio, mudanca);
+            inicio = mudanca;
+            atual = mudanca;
+            verao = !verao;
+        }
+        estender(periodos, verao, inicio, Long.MAX_VALUE);
+        // se o timezone ainda alterna entre os dois tipos (regras anuais), os dois continuam após o limite
+        boolean anual = !regras.getTransitionRules().isEmpty();
+        long[] outro = periodos[verao ? Tipo.PADRAO.ordinal() : Tipo.VERAO.ordinal()];
+        if (anual && outro != null && outro[1] >= limite - 366 * 86400L) {
+            outro[1] = Long.MAX_VALUE;
+        }
+        return periodos;
+    }
+
+    private static boolean verao(ZoneRules regras, long epochSegundo) {
+        return regras.isDaylightSavings(Instant.ofEpochSecond(epochSegundo));
+    }
+
+    private static void estender(long[][] periodos, boolean verao, long inicio, long fim) {
+        int tipo = verao ? Tipo.VERAO.ordinal() : Tipo.PADRAO.ordinal();
+        if (periodos[tipo] == null) {
+            periodos[tipo] = new long[] { inicio, fim };
+        } else {
+            periodos[tipo][1] = fim;
+        }
+    }
+
+    // lê o índice gravado por salvar()
+    private IndiceAbreviacoesLocales(DataInputStream in, String versaoTzdb) throws IOException {
+        this.versaoTzdb = versaoTzdb;
+        this.versaoJava = versaoJava();
+        this.locales = locales();
+        this.ids = ids();
+        this.regras = regras(ids);
+        int qtd = in.readInt();
+        this.entradas = new HashMap<>(qtd * 2);
+        for (int i = 0; i < qtd; i++) {
+            String abreviacao = in.readUTF();
+            Entrada[] lista = new Entrada[in.readInt()];
+            for (int j = 0; j < lista.length; j++) {
+                int zona = in.readInt();
+                Tipo tipo = Tipo.values()[in.readByte()];
+                long inicio = in.readLong();
+                long fim = in.readLong();
+                long[] bits = new long[in.readInt()];
+                for (int k = 0; k < bits.length; k++) {
+                    bits[k] = in.readLong();
+                }
+                lista[j] = new Entrada(zona, tipo, inicio, fim, BitSet.valueOf(bits));
+            }
+            entradas.put(abreviacao, lista);
+        }
+    }
+
+    private static String versaoJava() {
+        return System.getProperty("java.version") + "|" + System.getProperty("java.locale.providers", "");
+    }
+
+    private static Locale[] locales() {
+        Locale[] locales = Locale.getAvailableLocales().clone();
+        Arrays.sort(locales, ORDEM_LOCALES);
+        return locales;
+    }
+
+    private static String[] ids() {
+        String[] ids = ZoneId.getAvailableZoneIds().toArray(new String[0]);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private static ZoneRules[] regras(String[] ids) {
+        ZoneRules[] regras = new ZoneRules[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            regras[i] = ZoneId.of(ids[i]).getRules();
+        }
+        return regras;
+    }
+
+    /**
+     * Índice de todos os locales, para a versão do TZDB atualmente carregada (criado na primeira chamada)
+     */
+    public static IndiceAbreviacoesLocales global() {
+        String versao = Tzdb.versaoRecente();
+        IndiceAbreviacoesLocales indice = global;
+        if (indice == null || !indice.versaoTzdb.equals(versao)) {
+            // primeira chamada, ou outra versão do TZDB foi carregada
+            indice = new IndiceAbreviacoesLocales(versao, locales());
+            global = indice;
+        }
+        return indice;
+    }
+
+    /**
+     * Índice somente dos locales indicados (o global tem todos os locales, e leva vários segundos para ser criado)
+     */
+    static IndiceAbreviacoesLocales of(Locale... locales) {
+        Locale[] ordenados = locales.clone();
+        Arrays.sort(ordenados, ORDEM_LOCALES);
+        return new IndiceAbreviacoesLocales(Tzdb.versao(), ordenados);
+    }
+
+    /**
+     * Lê o índice do arquivo. Se o arquivo não existir, ou tiver sido criado com outra versão do TZDB, outra versão do Java ou outros locales, o
+     * índice é criado e gravado no arquivo.
+     *
+     * @throws IOException
+     *             se não for possível gravar o arquivo
+     */
+    public static IndiceAbreviacoesLocales of(Path arquivo) throws IOException {
+        String versao = Tzdb.versao();
+        IndiceAbreviacoesLocales indice = ler(arquivo, versao);
+        if (indice == null) {
+            indice = new IndiceAbreviacoesLocales(versao, locales());
+            indice.salvar(arquivo);
+        }
+        return indice;
+    }
+
+    // retorna null se o arquivo não existir, estiver corrompido ou desatualizado
+    private static IndiceAbreviacoesLocales ler(Path arquivo, String versaoTzdb) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(arquivo))))) {
+            if (in.readInt() != ASSINATURA_ARQUIVO || in.readInt() != VERSAO_ARQUIVO || !in.readUTF().equals(versaoTzdb)
+                    || !in.readUTF().equals(versaoJava()) || !Arrays.equals(lerTextos(in), tags(locales())) || !Arrays.equals(lerTextos(in), ids())) {
+                return null;
+            }
+            return new IndiceAbreviacoesLocales(in, versaoTzdb);
+        } catch (IOException | RuntimeException e) {
+            // arquivo não existe ou está corrompido: será recriado
+            return null;
+        }
+    }
+
+    private static String[] lerTextos(DataInputStream in) throws IOException {
+        String[] textos = new String[in.readInt()];
+        for (int i = 0; i < textos.length; i++) {
+            textos[i] = in.readUTF();
+        }
+        return textos;
+    }
+
+    private static String[] tags(Locale[] locales) {
+        String[] tags = new String[locales.length];
+        for (int i = 0; i < locales.length; i++) {
+            tags[i] = locales[i].toString();
+        }
+        return tags;
+    }
+
+    /**
+     * Grava o índice no arquivo (em um arquivo temporário, que depois substitui o original)
+     */
+    public void salvar(Path arquivo) throws IOException {
+        Path absoluto = arquivo.toAbsolutePath();
+        Path temporario = Files.createTempFile(absoluto.getParent(), absoluto.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temporario))))) {
+                out.writeInt(ASSINATURA_ARQUIVO);
+                out.writeInt(VERSAO_ARQUIVO);
+                out.writeUTF(versaoTzdb);
+                out.writeUTF(versaoJava);
+                escreverTextos(out, tags(locales));
+                escreverTextos(out, ids);
+                out.writeInt(entradas.size());
+                for (Map.Entry<String, Entrada[]> e : entradas.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeInt(e.getValue().length);
+                    for (Entrada entrada : e.getValue()) {
+                        out.writeInt(entrada.zona);
+                        out.writeByte(entrada.tipo.ordinal());
+                        out.writeLong(entrada.inicio);
+                        out.writeLong(entrada.fim);
+                        long[] bits = entrada.locales.toLongArray();
+                        out.writeInt(bits.length);
+                        for (long b : bits) {
+                            out.writeLong(b);
+                        }
+                    }
+                }
+            }
+            Files.move(temporario, absoluto, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporario);
+        }
+    }
+
+    private static void escreverTextos(DataOutputStream out, String[] textos) throws IOException {
+        out.writeInt(textos.length);
+        for (String texto : textos) {
+            out.writeUTF(texto);
+        }
+    }
+
+    public String getVersaoTzdb() {
+        return versaoTzdb;
+    }
+
+    /**
+     * Todas as abreviações (e nomes no formato "GMT+03:00") usadas por algum timezone em algum locale
+     */
+    public Set<String> abreviacoes() {
+        return Collections.unmodifiableSet(entradas.keySet());
+    }
+
+    /**
+     * Entradas da abreviação (lista vazia se ela não existir), ordenadas pelo timezone e depois pelo tipo
+     */
+    public List<Entrada> entradas(String abreviacao) {
+        Entrada[] lista = entradas.get(abreviacao);
+        return lista == null ? Collections.<Entrada> emptyList() : Collections.unmodifiableList(Arrays.asList(lista));
+    }
+
+    /**
+     * Timezones que usam a abreviação no instante indicado, em algum locale, em ordem alfabética (o mesmo resultado de formatar o instante com o
+     * pattern "z", em todos os timezones e locales)
+     */
+    public List<String> zonas(String abreviacao, Instant instante) {
+        return zonas(abreviacao, null, instante);
+    }
+
+    /**
+     * Timezones que usam a abreviação no instante indicado, no locale indicado, em ordem alfabética
+     */
+    public List<String> zonas(String abreviacao, Locale locale, Instant instante) {
+        List<String> zonas = new ArrayList<>();
+        Entrada[] lista = entradas.get(abreviacao);
+        if (lista == null) {
+            return zonas;
+        }
+        int posLocale = locale == null ? -1 : Arrays.binarySearch(locales, locale, ORDEM_LOCALES);
+        if (locale != null && posLocale < 0) {
+            return zonas;
+        }
+        int ultima = -1;
+        for (Entrada entrada : lista) {
+            // as entradas do mesmo timezone são consecutivas: se o horário padrão e o de verão têm o mesmo nome, o timezone só é incluído uma vez
+            if (entrada.zona != ultima && (posLocale < 0 || entrada.locales.get(posLocale)) && entrada.isUsadaEm(instante)) {
+                zonas.add(ids[entrada.zona]);
+                ultima = entrada.zona;
+            }
+        }
+        return zonas;
+    }
+
+    @Override
+    public String toString() {
+        return "IndiceAbreviacoesLocales[tzdb=" + versaoTzdb + ", locales=" + locales.length + ", zonas=" + ids.length + ", abreviacoes=" + entradas.size()
+                + "]";
+    }
+}
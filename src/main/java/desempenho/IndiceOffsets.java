@@ -0,0 +1,252 @@
+package desempenho;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import exemplos.part1.Capitulos1a6;
+import exemplos.part2.Cap12Others;
+import exemplos.part3.Cap19TestesOutrosCasos;
+
+/**
+ * Índice com os timezones que usam cada offset, em cada período da história, para responder "quais timezones têm o offset X no instante T" sem
+ * consultar as regras de todos os timezones.
+ *
+ * Nos exemplos do livro ({@link Capitulos1a6#dadoOffsetQualTimezone()}, {@link Cap12Others#encontrarTimezonesPorOffset()} e
+ * {@link Cap19TestesOutrosCasos#encontrarTimezonesPorOffsetOuAbreviacao()}), cada busca percorre todos os timezones (mais de 600), obtendo o offset de
+ * cada um no instante indicado. Aqui, as transições de todos os timezones são percorridas uma única vez, e para cada offset é criada uma lista de
+ * intervalos (timezone, início, fim) em que ele é usado. Os intervalos de cada offset são agrupados por ano (um intervalo que dura vários anos aparece
+ * no grupo de cada ano), então uma busca só verifica os intervalos que existem no ano do instante, sem percorrer os demais.
+ *
+ * As transições que seguem regras anuais (como o início e fim do horário de verão) são consideradas até {@link #getAnoLimite()}. Para instantes
+ * posteriores, a busca consulta as regras de todos os timezones, assim como nos exemplos do livro.
+ *
+ * O índice é criado para a versão do TZDB carregada pela JVM: se outra versão for carregada, {@link #global()} cria um novo índice (a versão é
+ * verificada no máximo uma vez por segundo). As instâncias são imutáveis e podem ser usadas por várias threads.
+ */
+public final class IndiceOffsets {
+
+    /**
+     * Último ano indexado pelo índice retornado por {@link #global()}
+     */
+    public static final int ANO_LIMITE_PADRAO = 2100;
+
+    private static volatile IndiceOffsets global;
+
+    private final String versaoTzdb;
+
+    private final int anoLimite;
+
+    // instantes a partir deste valor não estão no índice (início do ano seguinte ao ano limite)
+    private final long epochSegundoLimite;
+
+    // ids de todos os timezones, em ordem alfabética, e suas regras
+    private final String[] ids;
+
+    private final ZoneRules[] regras;
+
+    // offsets (em segundos) em ordem crescente, e os intervalos de cada um
+    private final int[] offsets;
+
+    private final Intervalos[] intervalos;
+
+    // início de cada ano indexado (em segundos desde o Unix Epoch), usado para encontrar o grupo de intervalos de um instante
+    private final long[] inicioAnos;
+
+    // intervalos em que um offset é usado: o timezone zonas[i] tem o offset de inicios[i] (inclusive) a fins[i] (exclusive)
+    private static final class Intervalos {
+
+        private final int[] zonas;
+
+        private final long[] inicios;
+
+        private final long[] fins;
+
+        // para cada ano, as posições dos intervalos que existem naquele ano (em ordem alfabética dos timezones)
+        private int[][] porAno;
+
+        private Intervalos(List<long[]> lista) {
+            this.zonas = new int[lista.size()];
+            this.inicios = new long[lista.size()];
+            this.fins = new long[lista.size()];
+            for (int i = 0; i < lista.size(); i++) {
+                long[] intervalo = lista.get(i);
+                zonas[i] = (int) intervalo[0];
+                inicios[i] = intervalo[1];
+                fins[i] = intervalo[2];
+            }
+        }
+    }
+
+    private IndiceOffsets(String versaoTzdb, int anoLimite) {
+        this.versaoTzdb = versaoTzdb;
+        this.anoLimite = anoLimite;
+        this.epochSegundoLimite = Datas.epochDay(anoLimite + 1, 1, 1) * 86400;
+        List<String> todos = new ArrayList<>(ZoneId.getAvailableZoneIds());
+        Collections.sort(todos);
+        this.ids = todos.toArray(new String[todos.size()]);
+        this.regras = new ZoneRules[ids.length];
+
+        // percorre as transições de cada timezone, guardando os intervalos de cada offset: {zona, início, fim}
+        TreeMap<Integer, List<long[]>> porOffset = new TreeMap<>();
+        long primeiraTransicao = epochSegundoLimite;
+        for (int i = 0; i < ids.length; i++) {
+            ZoneRules regrasZona = ZoneId.of(ids[i]).getRules();
+            regras[i] = regrasZona;
+            ZoneOffsetTransition transicao = regrasZona.nextTransition(Instant.MIN);
+            ZoneOffset offset = transicao == null ? regrasZona.getOffset(Instant.EPOCH) : transicao.getOffsetBefore();
+            long inicio = Long.MIN_VALUE;
+            while (transicao != null && transicao.toEpochSecond() < epochSegundoLimite) {
+                // transições que não mudam o offset (por exemplo, somente o nome) são ignoradas
+                if (!transicao.getOffsetAfter().equals(offset)) {
+                    porOffset.computeIfAbsent(offset.getTotalSeconds(), k -> new ArrayList<>()).add(new long[] { i, inicio, transicao.toEpochSecond() });
+                    primeiraTransicao = Math.min(primeiraTransicao, transicao.toEpochSecond());
+                    inicio = transicao.toEpochSecond();
+                    offset = transicao.getOffsetAfter();
+                }
+                transicao = regrasZona.nextTransition(transicao.getInstant());
+            }
+            porOffset.computeIfAbsent(offset.getTotalSeconds(), k -> new ArrayList<>()).add(new long[] { i, inicio, Long.MAX_VALUE });
+        }
+
+        // anos indexados: do ano da primeira transição até o ano limite
+        int anoInicial = Math.min(anoLimite, Datas.anoCivil(Datas.dataCivil(Math.floorDiv(primeiraTransicao, 86400))));
+        this.inicioAnos = new long[anoLimite - anoInicial + 1];
+        for (int ano = anoInicial; ano <= anoLimite; ano++) {
+            inicioAnos[ano - anoInicial] = Datas.epochDay(ano, 1, 1) * 86400;
+        }
+        this.offsets = new int[porOffset.size()];
+        this.intervalos = new Intervalos[porOffset.size()];
+        int pos = 0;
+        for (Map.Entry<Integer, List<long[]>> e : porOffset.entrySet()) {
+            offsets[pos] = e.getKey();
+            intervalos[pos] = agruparPorAno(new Intervalos(e.getValue()));
+            pos++;
+        }
+    }
+
+    private Intervalos agruparPorAno(Intervalos lista) {
+        // primeiro conta quantos intervalos existem em cada ano, depois preenche os arrays
+        int[] qtd = new int[inicioAnos.length];
+        for (int i = 0; i < lista.zonas.length; i++) {
+            for (int ano = ano(lista.inicios[i]); ano <= ano(lista.fins[i] - 1); ano++) {
+                qtd[ano]++;
+            }
+        }
+        lista.porAno = new int[inicioAnos.length][];
+        for (int ano = 0; ano < qtd.length; ano++) {
+            lista.porAno[ano] = new int[qtd[ano]];
+            qtd[ano] = 0;
+        }
+        for (int i = 0; i < lista.zonas.length; i++) {
+            for (int ano = ano(lista.inicios[i]); ano <= ano(lista.fins[i] - 1); ano++) {
+                lista.porAno[ano][qtd[ano]++] = i;
+            }
+        }
+        return lista;
+    }
+
+    // posição do ano do instante em inicioAnos (instantes antes do primeiro ano ficam no primeiro, e depois do último, no último)
+    private int ano(long epochSegundo) {
+        int pos = Arrays.binarySearch(inicioAnos, epochSegundo);
+        if (pos < 0) {
+            pos = -pos - 2;
+        }
+        return Math.max(0, Math.min(pos, inicioAnos.length - 1));
+    }
+
+    /**
+     * Índice de todos os timezones, até o ano {@link #ANO_LIMITE_PADRAO}, para a versão do TZDB atualmente carregada
+     */
+    public static IndiceOffsets global() {
+        String versao = Tzdb.versaoRecente();
+        IndiceOffsets indice = global;
+        if (indice == null || !indice.versaoTzdb.equals(versao)) {
+            // primeira chamada, ou outra versão do TZDB foi carregada
+            indice = new IndiceOffsets(versao, ANO_LIMITE_PADRAO);
+            global = indice;
+        }
+        return indice;
+    }
+
+    /**
+     * Cria um índice com as transições até o ano indicado (inclusive)
+     */
+    public static IndiceOffsets of(int anoLimite) {
+        return new IndiceOffsets(Tzdb.versao(), anoLimite);
+    }
+
+    /**
+     * Timezones que usam o offset no instante indicado, em ordem alfabética
+     */
+    public List<String> zonas(ZoneOffset offset, Instant instante) {
+        List<String> zonas = new ArrayList<>();
+        long epochSegundo = instante.getEpochSecond();
+        if (epochSegundo >= epochSegundoLimite) {
+            // fora do índice: consulta as regras de todos os timezones
+            for (int i = 0; i < ids.length; i++) {
+                if (regras[i].getOffset(instante).equals(offset)) {
+                    zonas.add(ids[i]);
+                }
+            }
+            return zonas;
+        }
+        int pos = Arrays.binarySearch(offsets, offset.getTotalSeconds());
+        if (pos < 0) {
+            return zonas;
+        }
+        Intervalos lista = intervalos[pos];
+        for (int i : lista.porAno[ano(epochSegundo)]) {
+            if (lista.inicios[i] <= epochSegundo && epochSegundo < lista.fins[i]) {
+                zonas.add(ids[lista.zonas[i]]);
+            }
+        }
+        return zonas;
+    }
+
+    /**
+     * Todos os offsets usados por algum timezone, em algum momento até o ano limite
+     */
+    public Set<ZoneOffset> offsets() {
+        Set<ZoneOffset> todos = new LinkedHashSet<>();
+        for (int offset : offsets) {
+            todos.add(ZoneOffset.ofTotalSeconds(offset));
+        }
+        return Collections.unmodifiableSet(todos);
+    }
+
+    public String getVersaoTzdb() {
+        return versaoTzdb;
+    }
+
+    public int getAnoLimite() {
+        return anoLimite;
+    }
+
+    /**
+     * Quantidade total de intervalos (cada intervalo é um período em que um timezone usou o mesmo offset)
+     */
+    public int getQtdIntervalos() {
+        int qtd = 0;
+        for (Intervalos lista : intervalos) {
+            qtd += lista.zonas.length;
+        }
+        return qtd;
+    }
+
+    @Override
+    public String toString() {
+        return "IndiceOffsets[tzdb=" + versaoTzdb + ", anoLimite=" + anoLimite + ", zonas=" + ids.length + ", offsets=" + offsets.length + ", intervalos="
+                + getQtdIntervalos() + "]";
+    }
+}
@@ -0,0 +1,238 @@
+package desempenho;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Pattern compilado em que todos os campos são numéricos e têm tamanho fixo, como <code>uuuu-MM-dd HH:mm:ss.SSS</code> ou
+ * <code>dd/MM/uuuu HH:mm</code>. Como a posição de cada campo é conhecida de antemão, os valores são lidos diretamente dos bytes, sem passar pelo
+ * {@link java.time.format.DateTimeFormatter}.
+ *
+ * São aceitos os símbolos <code>uuuu</code>, <code>yyyy</code>, <code>MM</code>, <code>dd</code>, <code>HH</code>, <code>mm</code>, <code>ss</code>
+ * e de 1 a 9 <code>S</code>, além de literais (entre aspas simples ou caracteres que não são letras). Qualquer outro símbolo (nomes de meses, AM/PM,
+ * offsets, campos com tamanho variável, seções opcionais) faz com que {@link #compilar(String)} retorne <code>null</code>.
+ */
+final class PadraoNumerico {
+
+    private static final int ANO = 0, MES = 1, DIA = 2, HORA = 3, MINUTO = 4, SEGUNDO = 5, FRACAO = 6;
+
+    // posição e quantidade de dígitos de cada campo (posição -1 se o campo não existe)
+    private final int[] posicao;
+
+    private final int[] tamanho;
+
+    // literais e suas posições
+    private final byte[] literais;
+
+    private final int[] posicaoLiterais;
+
+    private final int tamanhoTotal;
+
+    // com "yyyy" (ano da era), o ano zero não existe
+    private final int anoMinimo;
+
+    private PadraoNumerico(int[] posicao, int[] tamanho, byte[] literais, int[] posicaoLiterais, int tamanhoTotal, int anoMinimo) {
+        this.posicao = posicao;
+        this.tamanho = tamanho;
+        this.literais = literais;
+        this.posicaoLiterais = posicaoLiterais;
+        this.tamanhoTotal = tamanhoTotal;
+        this.anoMinimo = anoMinimo;
+    }
+
+    /**
+     * Compila o pattern, ou retorna <code>null</code> se ele não tiver somente campos numéricos de tamanho fixo (ou se não tiver ano, mês e dia)
+     */
+    static PadraoNumerico compilar(String pattern) {
+        int[] posicao = new int[7];
+        Arrays.fill(posicao, -1);
+        int[] tamanho = new int[7];
+        StringBuilder literais = new StringBuilder();
+        int[] posicaoLiterais = new int[pattern.length()];
+        int pos = 0;
+        int anoMinimo = 0;
+        for (int i = 0; i < pattern.length();) {
+            char c = pattern.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                int qtd = 1;
+                while (i + qtd < pattern.length() && pattern.charAt(i + qtd) == c) {
+                    qtd++;
+                }
+                int campo = campo(c, qtd);
+                if (campo < 0 || posicao[campo] >= 0) {
+                    return null;
+                }
+                posicao[campo] = pos;
+                tamanho[campo] = qtd;
+                if (c == 'y') {
+                    anoMinimo = 1;
+                }
+                pos += qtd;
+                i += qtd;
+            } else if (c == '\'') {
+                // literal entre aspas ('' é uma aspa simples)
+                int fim = i + 1;
+                if (fim < pattern.length() && pattern.charAt(fim) == '\'') {
+                    posicaoLiterais[literais.length()] = pos++;
+                    literais.append('\'');
+                    i += 2;
+                    continue;
+                }
+                while (fim < pattern.length() && pattern.charAt(fim) != '\'') {
+                    fim++;
+                }
+                if (fim == pattern.length()) {
+                    return null;
+                }
+                for (int j = i + 1; j < fim; j++) {
+                    if (pattern.charAt(j) > 127) {
+                        return null;
+                    }
+                    posicaoLiterais[literais.length()] = pos++;
+                    literais.append(pattern.charAt(j));
+                }
+                i = fim + 1;
+            } else if (c == '[' || c == ']' || c == '{' || c == '}' || c == '#' || c > 127) {
+                // seções opcionais e caracteres reservados não são suportados
+                return null;
+            } else {
+                posicaoLiterais[literais.length()] = pos++;
+                literais.append(c);
+                i++;
+            }
+        }
+        if (posicao[ANO] < 0 || posicao[MES] < 0 || posicao[DIA] < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[literais.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) literais.charAt(i);
+        }
+        return new PadraoNumerico(posicao, tamanho, bytes, Arrays.copyOf(posicaoLiterais, bytes.length), pos, anoMinimo);
+    }
+
+    private static int campo(char c, int qtd) {
+        switch (c) {
+            case 'u':
+            case 'y':
+                return qtd == 4 ? ANO : -1;
+            case 'M':
+                return qtd == 2 ? MES : -1;
+            case 'd':
+                return qtd == 2 ? DIA : -1;
+            case 'H':
+                return qtd == 2 ? HORA : -1;
+            case 'm':
+                return qtd == 2 ? MINUTO : -1;
+            case 's':
+                return qtd == 2 ? SEGUNDO : -1;
+            case 'S':
+                return qtd <= 9 ? FRACAO : -1;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Quantidade de caracteres de um valor
+     */
+    int tamanho() {
+        return tamanhoTotal;
+    }
+
+    /**
+     * Lê a data/hora que começa na posição indicada.
+     *
+     * @return a data/hora local em segundos desde 1970-01-01T00:00 (e as frações de segundo, em nanossegundos, em <code>nano[0]</code>), ou
+     *         {@link Long#MIN_VALUE} se o valor for inválido
+     */
+    long segundosLocais(ByteBuffer buf, int inicio, int limite, int[] nano) {
+        if (inicio + tamanhoTotal > limite) {
+            return Long.MIN_VALUE;
+        }
+        for (int i = 0; i < literais.length; i++) {
+            if (buf.get(inicio + posicaoLiterais[i]) != literais[i]) {
+                return Long.MIN_VALUE;
+            }
+        }
+        int ano = valor(buf, inicio, ANO);
+        int mes = valor(buf, inicio, MES);
+        int dia = valor(buf, inicio, DIA);
+        int hora = valor(buf, inicio, HORA);
+        int minuto = valor(buf, inicio, MINUTO);
+        int segundo = valor(buf, inicio, SEGUNDO);
+        int fracao = valor(buf, inicio, FRACAO);
+        if (ano < anoMinimo || mes < 1 || mes > 12 || dia < 1 || dia > Datas.diasNoMes(ano, mes) || hora < 0 || hora > 23 || minuto < 0 || minuto > 59
+                || segundo < 0 || segundo > 59 || fracao < 0) {
+            return Long.MIN_VALUE;
+        }
+        nano[0] = posicao[FRACAO] < 0 ? 0 : fracao * Datas.POTENCIAS_10[9 - tamanho[FRACAO]];
+        return Datas.epochDay(ano, mes, dia) * 86400 + hora * 3600 + minuto * 60 + segundo;
+    }
+
+    /**
+     * Indica se o pattern só tem ano, mês e dia
+     */
+    boolean somenteData() {
+        return posicao[HORA] < 0 && posicao[MINUTO] < 0 && posicao[SEGUNDO] < 0 && posicao[FRACAO] < 0;
+    }
+
+    /**
+     * Indica se o ano é o ano da era (<code>yyyy</code>)
+     */
+    boolean anoDaEra() {
+        return anoMinimo == 1;
+    }
+
+    /**
+     * Lê a data (somente ano, mês e dia; ver {@link #somenteData()}) do texto inteiro.
+     *
+     * @return a data em dias desde 1970-01-01, ou {@link Long#MIN_VALUE} se o valor for inválido
+     */
+    long epochDay(CharSequence s) {
+        if (s.length() != tamanhoTotal) {
+            return Long.MIN_VALUE;
+        }
+        for (int i = 0; i < literais.length; i++) {
+            if (s.charAt(posicaoLiterais[i]) != literais[i]) {
+                return Long.MIN_VALUE;
+            }
+        }
+        int ano = valor(s, ANO);
+        int mes = valor(s, MES);
+        int dia = valor(s, DIA);
+        if (ano < anoMinimo || mes < 1 || mes > 12 || dia < 1 || dia > Datas.diasNoMes(ano, mes)) {
+            return Long.MIN_VALUE;
+        }
+        return Datas.epochDay(ano, mes, dia);
+    }
+
+    private int valor(CharSequence s, int campo) {
+        int valor = 0;
+        for (int i = posicao[campo]; i < posicao[campo] + tamanho[campo]; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            valor = valor * 10 + d;
+        }
+        return valor;
+    }
+
+    // valor do campo (zero se o campo não existe, -1 se tiver algum caractere que não é dígito)
+    private int valor(ByteBuffer buf, int inicio, int campo) {
+        int pos = posicao[campo];
+        if (pos < 0) {
+            return 0;
+        }
+        int valor = 0;
+        for (int i = inicio + pos; i < inicio + pos + tamanho[campo]; i++) {
+            int d = buf.get(i) - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            valor = valor * 10 + d;
+        }
+        return valor;
+    }
+}
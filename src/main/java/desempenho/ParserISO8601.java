@@ -0,0 +1,165 @@
+package desempenho;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAccessor;
+
+import exemplos.part3.Cap18Parsing;
+
+/**
+ * Parser para os formatos ISO 8601 aceitos pelo método <code>parseBest</code> de {@link Cap18Parsing} (ver {@link Cap18Parsing#formatosISO8601()}).
+ *
+ * Em vez de usar um {@link java.time.format.DateTimeFormatter} com seções opcionais e <code>parseBest</code> (que cria um mapa com os campos obtidos e tenta
+ * uma {@link java.time.temporal.TemporalQuery} de cada vez), a String é lida uma única vez, da esquerda para a direita, e o tipo retornado é decidido
+ * conforme os campos encontrados:
+ *
+ * <ul>
+ * <li><code>2018-02-10</code>: retorna {@link LocalDate}</li>
+ * <li><code>2018-02-10T10:30</code>, <code>2018-02-10T10:30:45</code>, <code>2018-02-10T10:30:45.123456789</code>: retorna {@link LocalDateTime}</li>
+ * <li>data e hora seguidas de <code>Z</code>, <code>+05:30</code>, <code>-0100</code> ou <code>-03</code>: retorna {@link OffsetDateTime}</li>
+ * </ul>
+ *
+ * Valores inválidos (formato errado ou campos fora dos limites, como dia 32 ou mês 13) não lançam exceção: o retorno é <code>null</code>. As validações
+ * seguem o {@link java.time.format.ResolverStyle#SMART}, que é o usado pelo formatter de <code>parseBest</code> (criado com
+ * {@link java.time.format.DateTimeFormatterBuilder#toFormatter()}): dias maiores que o último dia do mês são ajustados (31 de abril é 30 de abril, e
+ * 29 de fevereiro de 2017 é 28 de fevereiro), e 24:00 é a meia-noite do dia seguinte.
+ *
+ * A única diferença em relação ao formatter de <code>parseBest</code> é que o ano deve ter exatamente 4 dígitos (sem sinal); nos demais casos, o resultado
+ * é o mesmo.
+ */
+public final class ParserISO8601 {
+
+    // maior offset permitido pela API (+18:00 ou -18:00)
+    private static final int MAX_OFFSET_SEGUNDOS = 18 * 3600;
+
+    private ParserISO8601() {
+    }
+
+    /**
+     * Faz o parsing da String e retorna um {@link OffsetDateTime}, {@link LocalDateTime} ou {@link LocalDate}, conforme os campos presentes.
+     *
+     * @return o objeto correspondente, ou <code>null</code> se a String não estiver em um dos formatos aceitos
+     */
+    public static TemporalAccessor parse(CharSequence s) {
+        int len = s.length();
+        // data: uuuu-MM-dd
+        if (len < 10 || s.charAt(4) != '-' || s.charAt(7) != '-') {
+            return null;
+        }
+        int ano = digitos4(s, 0);
+        int mes = digitos2(s, 5);
+        int dia = digitos2(s, 8);
+        if (ano < 0 || mes < 1 || mes > 12 || dia < 1 || dia > 31) {
+            return null;
+        }
+        // no modo SMART, o dia é ajustado para o último dia do mês
+        dia = Math.min(dia, Datas.diasNoMes(ano, mes));
+        if (len == 10) {
+            return LocalDate.of(ano, mes, dia);
+        }
+
+        // hora: THH:mm[:ss[.fração]]
+        if (len < 16 || s.charAt(10) != 'T' || s.charAt(13) != ':') {
+            return null;
+        }
+        int hora = digitos2(s, 11);
+        int minuto = digitos2(s, 14);
+        if (hora < 0 || hora > 24 || minuto < 0 || minuto > 59) {
+            return null;
+        }
+        int pos = 16;
+        int segundo = 0;
+        int nano = 0;
+        if (pos < len && s.charAt(pos) == ':') {
+            segundo = pos + 3 <= len ? digitos2(s, pos + 1) : -1;
+            if (segundo < 0 || segundo > 59) {
+                return null;
+            }
+            pos += 3;
+            if (pos < len && s.charAt(pos) == '.') {
+                pos++;
+                int inicio = pos;
+                // até 9 dígitos na fração de segundo (assim como no ISO_LOCAL_TIME, o ponto sem nenhum dígito é aceito)
+                while (pos < len && pos - inicio < 9) {
+                    int d = s.charAt(pos) - '0';
+                    if (d < 0 || d > 9) {
+                        break;
+                    }
+                    nano = nano * 10 + d;
+                    pos++;
+                }
+                nano *= Datas.POTENCIAS_10[9 - (pos - inicio)];
+            }
+        }
+        // offset: Z, +HH:MM, +HHMM ou +HH
+        int offsetSegundos = pos == len ? 0 : offset(s, pos, len);
+        if (offsetSegundos == Integer.MIN_VALUE) {
+            return null;
+        }
+        LocalDateTime dataHora;
+        if (hora == 24) {
+            // no modo SMART, somente 24:00 (sem minutos, segundos e frações) é aceito, e corresponde à meia-noite do dia seguinte
+            if (minuto != 0 || segundo != 0 || nano != 0) {
+                return null;
+            }
+            dataHora = LocalDate.of(ano, mes, dia).plusDays(1).atStartOfDay();
+        } else {
+            dataHora = LocalDateTime.of(ano, mes, dia, hora, minuto, segundo, nano);
+        }
+        return pos == len ? dataHora : OffsetDateTime.of(dataHora, ZoneOffset.ofTotalSeconds(offsetSegundos));
+    }
+
+    // retorna o total de segundos do offset, ou Integer.MIN_VALUE se for inválido ou se sobrarem caracteres depois do offset
+    private static int offset(CharSequence s, int pos, int len) {
+        char c = s.charAt(pos);
+        if (c == 'Z') {
+            return pos + 1 == len ? 0 : Integer.MIN_VALUE;
+        }
+        if ((c != '+' && c != '-') || pos + 3 > len) {
+            return Integer.MIN_VALUE;
+        }
+        int horas = digitos2(s, pos + 1);
+        int minutos = 0;
+        pos += 3;
+        if (pos < len) {
+            // minutos, com ou sem os dois pontos
+            if (s.charAt(pos) == ':') {
+                pos++;
+            }
+            if (pos + 2 != len) {
+                return Integer.MIN_VALUE;
+            }
+            minutos = digitos2(s, pos);
+        }
+        if (horas < 0 || minutos < 0 || minutos > 59) {
+            return Integer.MIN_VALUE;
+        }
+        int total = horas * 3600 + minutos * 60;
+        if (total > MAX_OFFSET_SEGUNDOS) {
+            return Integer.MIN_VALUE;
+        }
+        return c == '-' ? -total : total;
+    }
+
+    // valor de 2 dígitos a partir da posição indicada, ou -1 se algum caractere não for dígito
+    static int digitos2(CharSequence s, int pos) {
+        int d1 = s.charAt(pos) - '0';
+        int d2 = s.charAt(pos + 1) - '0';
+        if (d1 < 0 || d1 > 9 || d2 < 0 || d2 > 9) {
+            return -1;
+        }
+        return d1 * 10 + d2;
+    }
+
+    // valor de 4 dígitos a partir da posição indicada, ou -1 se algum caractere não for dígito
+    static int digitos4(CharSequence s, int pos) {
+        int alto = digitos2(s, pos);
+        int baixo = digitos2(s, pos + 2);
+        if (alto < 0 || baixo < 0) {
+            return -1;
+        }
+        return alto * 100 + baixo;
+    }
+}
@@ -0,0 +1,381 @@
+package desempenho;
+
+import java.text.Format;
+import java.text.ParsePosition;
+import java.time.DateTimeException;
+import java.time.chrono.IsoChronology;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.Arrays;
+import java.util.function.ToLongFunction;
+import java.util.regex.Pattern;
+
+import exemplos.part3.Cap18Parsing;
+
+/**
+ * Faz o parsing de vários valores de uma vez (por exemplo, uma coluna de um arquivo), sem lançar exceções para os valores inválidos.
+ *
+ * Nos exemplos do livro (como {@link Cap18Parsing#modosDeParsing()}), valores inválidos são detectados capturando
+ * {@link java.time.format.DateTimeParseException}. Criar uma exceção (e o seu stack trace) para cada linha inválida custa caro quando há muitos erros.
+ * Por isso, com {@link #EPOCH_DAY} ou {@link #EPOCH_MILLI} (este último com o timezone do formatter) e um formatter que só tem campos numéricos de data e
+ * hora (como <code>dd/MM/uuuu HH:mm:ss.SSS</code>), o parsing é feito em duas etapas:
+ * <ul>
+ * <li>{@link DateTimeFormatter#parseUnresolved(CharSequence, ParsePosition)} lê os campos sem resolvê-los: erros de formato (caracteres inesperados,
+ * campos faltando) são indicados no {@link ParsePosition}, e caracteres que sobraram no final também são erros</li>
+ * <li>os valores dos campos de data e hora (ano, mês, dia, hora, minuto e segundo) são verificados com aritmética de inteiros, com as mesmas regras do
+ * {@link ResolverStyle} do formatter (por exemplo, 31 de abril é inválido com {@link ResolverStyle#STRICT}, mas é ajustado para 30 com
+ * {@link ResolverStyle#SMART}, e dia 33, mês 13 ou ano 0 com <code>yyyy</code> são sempre inválidos), e o valor é calculado diretamente a partir dos
+ * campos</li>
+ * </ul>
+ * Isso só é feito para a cronologia ISO, quando o formatter não usa {@link ResolverStyle#LENIENT} nem
+ * {@link DateTimeFormatter#withResolverFields(java.time.temporal.TemporalField...)}. A escolha é feita uma única vez, ao criar o parser: nos demais casos
+ * (e nos poucos valores que o cálculo direto não trata, como 24:00 no modo SMART), cada valor é lido uma única vez pelo {@link java.text.Format} do
+ * formatter ({@link DateTimeFormatter#toFormat()}), que indica os erros de formato no {@link ParsePosition} sem criar exceções. Os erros que só são
+ * detectados na resolução (como um dia da semana que não corresponde à data) são lançados e capturados internamente pelo {@link DateTimeFormatter}.
+ *
+ * Os valores obtidos são convertidos para <code>long</code> (por exemplo, {@link #EPOCH_DAY} ou {@link #EPOCH_MILLI}) e guardados em um array, e as
+ * linhas com erro são indicadas em um bitmap (um bit por linha), junto com a posição da String em que o erro ocorreu (ou um código negativo, para erros
+ * que não têm posição, como {@link #ERRO_RESOLUCAO}).
+ */
+public final class ParserLote {
+
+    /**
+     * Valor que o conversor retorna quando não é possível converter o resultado do parsing (sem precisar lançar exceção)
+     */
+    public static final long INVALIDO = Long.MIN_VALUE;
+
+    /**
+     * Posição do erro quando o formato está correto, mas os valores são inválidos (como 31 de abril com {@link ResolverStyle#STRICT}, ou mês 13)
+     */
+    public static final int ERRO_RESOLUCAO = -1;
+
+    /**
+     * Posição do erro quando o conversor não consegue converter o resultado (por exemplo, {@link #EPOCH_MILLI} quando não há timezone)
+     */
+    public static final int ERRO_CONVERSAO = -2;
+
+    /**
+     * Posição do erro quando o valor é <code>null</code>
+     */
+    public static final int VALOR_NULO = -3;
+
+    /**
+     * Converte para a quantidade de dias desde 1970-01-01 (o mesmo que {@link java.time.LocalDate#toEpochDay()})
+     */
+    public static final ToLongFunction<TemporalAccessor> EPOCH_DAY = t -> t.isSupported(ChronoField.EPOCH_DAY) ? t.getLong(ChronoField.EPOCH_DAY) : INVALIDO;
+
+    /**
+     * Converte para a quantidade de milissegundos desde o Unix Epoch (o resultado do parsing deve ter data, hora e offset/timezone), o mesmo que
+     * {@link java.time.Instant#toEpochMilli()}
+     */
+    public static final ToLongFunction<TemporalAccessor> EPOCH_MILLI = t -> {
+        if (!t.isSupported(ChronoField.INSTANT_SECONDS)) {
+            return INVALIDO;
+        }
+        long segundos = t.getLong(ChronoField.INSTANT_SECONDS);
+        int nano = t.isSupported(ChronoField.NANO_OF_SECOND) ? t.get(ChronoField.NANO_OF_SECOND) : 0;
+        // fora do intervalo que cabe em um long de milissegundos
+        if (segundos < Long.MIN_VALUE / 1000 + 1 || segundos > Long.MAX_VALUE / 1000 - 1) {
+            return INVALIDO;
+        }
+        return segundos * 1000 + nano / 1_000_000;
+    };
+
+    // descrição (toString) de formatters que só têm campos numéricos de data e hora e literais, como "dd/MM/uuuu HH:mm:ss.SSS"
+    private static final Pattern SOMENTE_NUMEROS = Pattern.compile("(Value\\((Year|YearOfEra|MonthOfYear|DayOfMonth|HourOfDay|MinuteOfHour|SecondOfMinute)"
+            + "(,[^)]*)?\\)|Fraction\\(NanoOfSecond,[^)]*\\)|ParseCaseSensitive\\((true|false)\\)|'([^']|'')*'|[\\[\\]()])*");
+
+    // indica que o valor deve ser resolvido pelo DateTimeFormatter
+    private static final long USAR_FORMATTER = Long.MAX_VALUE;
+
+    private final DateTimeFormatter formatter;
+
+    // faz o parsing e a resolução sem lançar exceções
+    private final Format format;
+
+    private final ToLongFunction<TemporalAccessor> conversor;
+
+    private final boolean strict;
+
+    // se os campos podem ser verificados e o resultado (EPOCH_DAY ou EPOCH_MILLI) calculado sem a resolução do DateTimeFormatter
+    private final boolean converterCampos;
+
+    /**
+     * @param conversor
+     *            converte o resultado do parsing para <code>long</code>. Deve retornar {@link #INVALIDO} quando não for possível converter (se lançar
+     *            {@link DateTimeException}, a exceção é capturada e a linha também é marcada com {@link #ERRO_CONVERSAO})
+     */
+    public ParserLote(DateTimeFormatter formatter, ToLongFunction<TemporalAccessor> conversor) {
+        this.formatter = formatter;
+        this.format = formatter.toFormat();
+        this.conversor = conversor;
+        boolean verificarCampos = formatter.getResolverStyle() != ResolverStyle.LENIENT && formatter.getResolverFields() == null
+                && (formatter.getChronology() == null || formatter.getChronology() == IsoChronology.INSTANCE);
+        this.strict = formatter.getResolverStyle() == ResolverStyle.STRICT;
+        this.converterCampos = verificarCampos && (conversor == EPOCH_DAY || (conversor == EPOCH_MILLI && formatter.getZone() != null))
+                && SOMENTE_NUMEROS.matcher(formatter.toString()).matches();
+    }
+
+    public DateTimeFormatter getFormatter() {
+        return formatter;
+    }
+
+    /**
+     * Faz o parsing de todos os valores do array
+     */
+    public Resultado parse(String[] valores) {
+        return parse(valores, 0, valores.length);
+    }
+
+    /**
+     * Faz o parsing dos valores entre as posições <code>inicio</code> (inclusive) e <code>fim</code> (exclusive). No {@link Resultado}, as linhas são
+     * numeradas a partir de zero (a linha 0 corresponde a <code>valores[inicio]</code>).
+     */
+    public Resultado parse(String[] valores, int inicio, int fim) {
+        Resultado resultado = new Resultado(fim - inicio);
+        // o mesmo ParsePosition é usado para todas as linhas
+        ParsePosition pos = new ParsePosition(0);
+        CacheOffset cacheOffset = converterCampos && conversor == EPOCH_MILLI ? new CacheOffset(formatter.getZone(), false) : null;
+        for (int i = inicio; i < fim; i++) {
+            String valor = valores[i];
+            int linha = i - inicio;
+            if (valor == null) {
+                resultado.erro(linha, VALOR_NULO);
+                continue;
+            }
+            if (converterCampos) {
+                pos.setIndex(0);
+                pos.setErrorIndex(-1);
+                TemporalAccessor campos = formatter.parseUnresolved(valor, pos);
+                if (campos == null) {
+                    resultado.erro(linha, Math.max(pos.getErrorIndex(), 0));
+                    continue;
+                }
+                if (pos.getIndex() != valor.length()) {
+                    // parseUnresolved não verifica se a String inteira foi usada (sobraram caracteres no final)
+                    resultado.erro(linha, pos.getIndex());
+                    continue;
+                }
+                if (!camposValidos(campos)) {
+                    resultado.erro(linha, ERRO_RESOLUCAO);
+                    continue;
+                }
+                long convertido = converter(campos, cacheOffset);
+                if (convertido != USAR_FORMATTER) {
+                    resultado.valores[linha] = convertido;
+                    continue;
+                }
+            }
+            parseFormatter(valor, linha, pos, resultado);
+        }
+        return resultado;
+    }
+
+    // parsing e resolução pelo DateTimeFormatter, lendo o valor uma única vez
+    private void parseFormatter(String valor, int linha, ParsePosition pos, Resultado resultado) {
+        pos.setIndex(0);
+        pos.setErrorIndex(-1);
+        TemporalAccessor resolvido = (TemporalAccessor) format.parseObject(valor, pos);
+        if (resolvido == null || pos.getIndex() != valor.length()) {
+            resultado.erro(linha, posicaoErro(valor, pos));
+            return;
+        }
+        long convertido;
+        try {
+            convertido = conversor.applyAsLong(resolvido);
+        } catch (DateTimeException e) {
+            convertido = INVALIDO;
+        }
+        if (convertido == INVALIDO) {
+            resultado.erro(linha, ERRO_CONVERSAO);
+        } else {
+            resultado.valores[linha] = convertido;
+        }
+    }
+
+    // posição do erro, na mesma ordem de verificação de DateTimeFormatter.parse: formato, caracteres que sobraram no final e resolução
+    private int posicaoErro(String valor, ParsePosition pos) {
+        if (pos.getIndex() > 0) {
+            // os campos foram lidos
+            return pos.getIndex() != valor.length() ? pos.getIndex() : ERRO_RESOLUCAO;
+        }
+        if (pos.getErrorIndex() > 0) {
+            return pos.getErrorIndex();
+        }
+        // nada foi lido: o Format indica a posição zero tanto para erros de formato quanto de resolução, então somente nesse caso o parsing é refeito
+        ParsePosition novaPos = new ParsePosition(0);
+        if (formatter.parseUnresolved(valor, novaPos) == null) {
+            return Math.max(novaPos.getErrorIndex(), 0);
+        }
+        return novaPos.getIndex() != valor.length() ? novaPos.getIndex() : ERRO_RESOLUCAO;
+    }
+
+    // mesmas verificações que o DateTimeFormatter faz na resolução (com ResolverStyle SMART ou STRICT)
+    private boolean camposValidos(TemporalAccessor campos) {
+        // mês e dia só são verificados quando a data é resolvida (com ano, mês e dia)
+        if (campos.isSupported(ChronoField.MONTH_OF_YEAR) && campos.isSupported(ChronoField.DAY_OF_MONTH)) {
+            long ano = ano(campos);
+            long mes = campos.getLong(ChronoField.MONTH_OF_YEAR);
+            long dia = campos.getLong(ChronoField.DAY_OF_MONTH);
+            if (ano != Long.MIN_VALUE && (mes < 1 || mes > 12 || dia < 1 || dia > 31)) {
+                return false;
+            }
+            // no modo SMART, dias maiores que o último dia do mês são ajustados
+            if (strict && dia > 28 && ChronoField.YEAR.range().isValidValue(ano) && dia > Datas.diasNoMes((int) ano, (int) mes)) {
+                return false;
+            }
+        }
+        if (campos.isSupported(ChronoField.HOUR_OF_DAY)) {
+            long hora = campos.getLong(ChronoField.HOUR_OF_DAY);
+            // no modo SMART, 24:00 é aceito (meia-noite do dia seguinte)
+            if (hora < 0 || hora > (strict ? 23 : 24)) {
+                return false;
+            }
+        }
+        // yyyy: o ano da era começa em 1
+        return valorValido(campos, ChronoField.YEAR_OF_ERA) && valorValido(campos, ChronoField.MINUTE_OF_HOUR)
+                && valorValido(campos, ChronoField.SECOND_OF_MINUTE);
+    }
+
+    // EPOCH_DAY ou EPOCH_MILLI calculado a partir dos campos já verificados, ou USAR_FORMATTER nos casos que não são tratados aqui
+    private long converter(TemporalAccessor campos, CacheOffset cacheOffset) {
+        if (!campos.isSupported(ChronoField.MONTH_OF_YEAR) || !campos.isSupported(ChronoField.DAY_OF_MONTH)) {
+            return USAR_FORMATTER;
+        }
+        long ano = ano(campos);
+        if (ano < -999_999 || ano > 999_999) {
+            return USAR_FORMATTER;
+        }
+        int mes = (int) campos.getLong(ChronoField.MONTH_OF_YEAR);
+        // no modo SMART, o dia é ajustado para o último dia do mês (no STRICT, isso já foi verificado)
+        int dia = Math.min((int) campos.getLong(ChronoField.DAY_OF_MONTH), Datas.diasNoMes((int) ano, mes));
+        long epochDay = Datas.epochDay(ano, mes, dia);
+        boolean temHora = campos.isSupported(ChronoField.HOUR_OF_DAY);
+        if (temHora && campos.getLong(ChronoField.HOUR_OF_DAY) == 24) {
+            // 24:00 no modo SMART
+            return USAR_FORMATTER;
+        }
+        if (cacheOffset == null) {
+            return epochDay;
+        }
+        // mesmas combinações de campos que o DateTimeFormatter aceita para obter o horário (sem minutos, não pode ter segundos nem frações)
+        boolean temMinuto = campos.isSupported(ChronoField.MINUTE_OF_HOUR);
+        boolean temSegundo = campos.isSupported(ChronoField.SECOND_OF_MINUTE);
+        boolean temNano = campos.isSupported(ChronoField.NANO_OF_SECOND);
+        if (!temHora || (!temMinuto && (temSegundo || temNano)) || (!temSegundo && temNano)) {
+            return USAR_FORMATTER;
+        }
+        long segundosLocais = epochDay * 86400 + campos.getLong(ChronoField.HOUR_OF_DAY) * 3600;
+        segundosLocais += (temMinuto ? campos.getLong(ChronoField.MINUTE_OF_HOUR) * 60 : 0) + (temSegundo ? campos.getLong(ChronoField.SECOND_OF_MINUTE) : 0);
+        long nano = temNano ? campos.getLong(ChronoField.NANO_OF_SECOND) : 0;
+        return cacheOffset.epochSecond(segundosLocais) * 1000 + nano / 1_000_000;
+    }
+
+    // ano (proléptico), ou Long.MIN_VALUE se a data não for resolvida ("yyyy" sem a era não é resolvido no modo STRICT)
+    private long ano(TemporalAccessor campos) {
+        if (campos.isSupported(ChronoField.YEAR)) {
+            return campos.getLong(ChronoField.YEAR);
+        }
+        if (campos.isSupported(ChronoField.YEAR_OF_ERA)) {
+            long anoEra = campos.getLong(ChronoField.YEAR_OF_ERA);
+            if (campos.isSupported(ChronoField.ERA)) {
+                return campos.getLong(ChronoField.ERA) == 1 ? anoEra : 1 - anoEra;
+            }
+            // sem a era, o modo SMART considera que é a era atual
+            return strict ? Long.MIN_VALUE : anoEra;
+        }
+        return Long.MIN_VALUE;
+    }
+
+    private static boolean valorValido(TemporalAccessor campos, ChronoField campo) {
+        return !campos.isSupported(campo) || campo.range().isValidValue(campos.getLong(campo));
+    }
+
+    /**
+     * Resultado do parsing de um lote. As linhas com erro ficam com valor zero.
+     */
+    public static final class Resultado {
+
+        private final long[] valores;
+
+        // bitmap das linhas com erro (bit i de erros[i / 64])
+        private final long[] erros;
+
+        // linhas com erro e a posição do erro na String, na ordem em que foram encontrados
+        private int[] linhasErro = new int[16];
+
+        private int[] posicoesErro = new int[16];
+
+        private int qtdErros;
+
+        Resultado(int tamanho) {
+            this.valores = new long[tamanho];
+            this.erros = new long[(tamanho + 63) >>> 6];
+        }
+
+        private void erro(int linha, int posicao) {
+            erros[linha >>> 6] |= 1L << linha;
+            if (qtdErros == linhasErro.length) {
+                linhasErro = Arrays.copyOf(linhasErro, qtdErros * 2);
+                posicoesErro = Arrays.copyOf(posicoesErro, qtdErros * 2);
+            }
+            linhasErro[qtdErros] = linha;
+            posicoesErro[qtdErros] = posicao;
+            qtdErros++;
+        }
+
+        public int tamanho() {
+            return valores.length;
+        }
+
+        /**
+         * Array com os valores convertidos (o próprio array, sem cópia)
+         */
+        public long[] getValores() {
+            return valores;
+        }
+
+        /**
+         * Bitmap com as linhas que tiveram erro: o bit <code>linha % 64</code> do elemento <code>linha / 64</code> (o próprio array, sem cópia)
+         */
+        public long[] getErros() {
+            return erros;
+        }
+
+        public boolean temErro(int linha) {
+            return (erros[linha >>> 6] & (1L << linha)) != 0;
+        }
+
+        public int getQtdErros() {
+            return qtdErros;
+        }
+
+        /**
+         * Linha do n-ésimo erro (<code>n</code> de zero a <code>getQtdErros() - 1</code>)
+         */
+        public int linhaErro(int n) {
+            if (n >= qtdErros) {
+                throw new IndexOutOfBoundsException("Erro " + n + ", total de erros: " + qtdErros);
+            }
+            return linhasErro[n];
+        }
+
+        /**
+         * Posição da String em que ocorreu o n-ésimo erro (<code>n</code> de zero a <code>getQtdErros() - 1</code>), ou {@link #ERRO_RESOLUCAO},
+         * {@link #ERRO_CONVERSAO} ou {@link #VALOR_NULO}, para erros que não têm posição
+         */
+        public int posicaoErro(int n) {
+            if (n >= qtdErros) {
+                throw new IndexOutOfBoundsException("Erro " + n + ", total de erros: " + qtdErros);
+            }
+            return posicoesErro[n];
+        }
+
+        @Override
+        public String toString() {
+            return "Resultado[linhas=" + valores.length + ", erros=" + qtdErros + "]";
+        }
+    }
+}
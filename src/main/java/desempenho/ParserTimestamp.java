@@ -0,0 +1,157 @@
+package desempenho;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.TimeZone;
+
+import exemplos.part2.Cap11JavaSql;
+
+/**
+ * Parser de data/hora com frações de segundo de tamanho variável, para {@link Timestamp} ou {@link Instant} (ver
+ * {@link Cap11JavaSql#parseTimestampFracaoSegundosVariavel()}).
+ *
+ * São aceitos os formatos <code>dd/MM/yyyy HH:mm:ss</code> e <code>yyyy-MM-dd HH:mm:ss</code> (o mesmo de {@link Timestamp#valueOf(String)}),
+ * opcionalmente seguidos por um ponto e de 1 a 9 dígitos de frações de segundo. O formato é identificado pelo separador: se o terceiro caractere for
+ * <code>/</code>, é o primeiro formato, senão é o segundo.
+ *
+ * Em vez de separar as frações de segundo com <code>split</code>, fazer o parsing do restante com {@link java.text.SimpleDateFormat} e completar as
+ * frações com zeros usando <code>String.format</code> e <code>replaceAll</code>, os campos são lidos em uma única passada e as frações são multiplicadas
+ * pela potência de 10 correspondente. O resultado pode ser gravado em um {@link Timestamp} já existente, para que o mesmo objeto seja reaproveitado
+ * (por exemplo, ao carregar um arquivo texto e passar os valores para {@link java.sql.PreparedStatement#setTimestamp(int, Timestamp)}).
+ *
+ * As datas e horas são interpretadas no timezone indicado (por padrão, o timezone default da JVM, como {@link java.text.SimpleDateFormat} faz), com o
+ * mesmo tratamento de gaps e overlaps (ver {@link CacheOffset}). Diferente de {@link java.text.SimpleDateFormat}, os valores não são lenientes: datas
+ * como 31/04/2018 são inválidas.
+ *
+ * Não é thread-safe: cada thread deve ter sua própria instância.
+ */
+public final class ParserTimestamp {
+
+    // tamanho de "dd/MM/yyyy HH:mm:ss" e de "yyyy-MM-dd HH:mm:ss"
+    private static final int TAMANHO_SEM_FRACAO = 19;
+
+    private final CacheOffset cacheOffset;
+
+    // resultado do último parsing
+    private long epochSecond;
+
+    private int nano;
+
+    /**
+     * Usa o timezone default da JVM
+     */
+    public ParserTimestamp() {
+        this(TimeZone.getDefault().toZoneId());
+    }
+
+    public ParserTimestamp(ZoneId zona) {
+        this.cacheOffset = new CacheOffset(zona, true);
+    }
+
+    /**
+     * Faz o parsing e retorna um novo {@link Timestamp}, ou <code>null</code> se a String for inválida
+     */
+    public Timestamp parse(CharSequence s) {
+        if (!ler(s, 0, s.length())) {
+            return null;
+        }
+        Timestamp ts = new Timestamp(0);
+        preencher(ts);
+        return ts;
+    }
+
+    /**
+     * Faz o parsing do trecho entre as posições <code>inicio</code> (inclusive) e <code>fim</code> (exclusive) e grava o resultado no {@link Timestamp}
+     * indicado.
+     *
+     * @return <code>false</code> se o valor for inválido (nesse caso o {@link Timestamp} não é alterado)
+     */
+    public boolean parse(CharSequence s, int inicio, int fim, Timestamp destino) {
+        if (!ler(s, inicio, fim)) {
+            return false;
+        }
+        preencher(destino);
+        return true;
+    }
+
+    /**
+     * Faz o parsing e retorna um {@link Instant}, ou <code>null</code> se a String for inválida
+     */
+    public Instant parseInstant(CharSequence s) {
+        if (!ler(s, 0, s.length())) {
+            return null;
+        }
+        return Instant.ofEpochSecond(epochSecond, nano);
+    }
+
+    private void preencher(Timestamp ts) {
+        // setTime considera somente os milissegundos, por isso os nanossegundos são setados depois
+        ts.setTime(epochSecond * 1000);
+        ts.setNanos(nano);
+    }
+
+    private boolean ler(CharSequence s, int inicio, int fim) {
+        if (fim - inicio < TAMANHO_SEM_FRACAO) {
+            return false;
+        }
+        int ano, mes, dia;
+        if (s.charAt(inicio + 2) == '/') {
+            // dd/MM/yyyy
+            if (s.charAt(inicio + 5) != '/') {
+                return false;
+            }
+            dia = ParserISO8601.digitos2(s, inicio);
+            mes = ParserISO8601.digitos2(s, inicio + 3);
+            ano = ParserISO8601.digitos4(s, inicio + 6);
+        } else {
+            // yyyy-MM-dd
+            if (s.charAt(inicio + 4) != '-' || s.charAt(inicio + 7) != '-') {
+                return false;
+            }
+            ano = ParserISO8601.digitos4(s, inicio);
+            mes = ParserISO8601.digitos2(s, inicio + 5);
+            dia = ParserISO8601.digitos2(s, inicio + 8);
+        }
+        if (ano < 0 || mes < 1 || mes > 12 || dia < 1 || dia > Datas.diasNoMes(ano, mes)) {
+            return false;
+        }
+        if (s.charAt(inicio + 10) != ' ' || s.charAt(inicio + 13) != ':' || s.charAt(inicio + 16) != ':') {
+            return false;
+        }
+        int hora = ParserISO8601.digitos2(s, inicio + 11);
+        int minuto = ParserISO8601.digitos2(s, inicio + 14);
+        int segundo = ParserISO8601.digitos2(s, inicio + 17);
+        if (hora < 0 || hora > 23 || minuto < 0 || minuto > 59 || segundo < 0 || segundo > 59) {
+            return false;
+        }
+
+        // frações de segundo (opcional): ponto seguido de 1 a 9 dígitos
+        int fracao = 0;
+        int pos = inicio + TAMANHO_SEM_FRACAO;
+        if (pos < fim) {
+            if (s.charAt(pos) != '.') {
+                return false;
+            }
+            pos++;
+            int qtd = fim - pos;
+            if (qtd < 1 || qtd > 9) {
+                return false;
+            }
+            for (; pos < fim; pos++) {
+                char c = s.charAt(pos);
+                if (c < '0' || c > '9') {
+                    return false;
+                }
+                fracao = fracao * 10 + (c - '0');
+            }
+            // completa os 9 dígitos (em vez de preencher a String com zeros)
+            fracao *= Datas.POTENCIAS_10[9 - qtd];
+        }
+
+        long segundosLocais = Datas.epochDay(ano, mes, dia) * 86400 + hora * 3600 + minuto * 60 + segundo;
+        this.epochSecond = cacheOffset.epochSecond(segundosLocais);
+        this.nano = fracao;
+        return true;
+    }
+}
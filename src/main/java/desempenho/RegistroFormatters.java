@@ -0,0 +1,284 @@
+package desempenho;
+
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.ResolverStyle;
+import java.time.temporal.TemporalField;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache de {@link DateTimeFormatter}, para não precisar criar um novo formatter a cada chamada.
+ *
+ * {@link DateTimeFormatter} é imutável e thread-safe (ver {@link exemplos.part2.thread.DateTimeFormatterMultiThread}), então a mesma instância pode ser
+ * compartilhada por toda a aplicação. Os formatters são identificados pelo pattern, locale, timezone, {@link ResolverStyle} e valores predefinidos (os
+ * mesmos que seriam passados para {@link DateTimeFormatterBuilder#parseDefaulting(TemporalField, long)}), ou então por um nome, no caso de formatters
+ * construídos com {@link DateTimeFormatterBuilder}.
+ *
+ * O cache tem tamanho máximo: quando ele é atingido, o formatter usado há mais tempo é removido (LRU aproximado: os acessos são marcados com um relógio
+ * que só avança quando um formatter é criado, então os que foram usados entre as mesmas duas falhas ficam empatados). Os contadores de acertos e falhas
+ * servem para verificar se o tamanho está adequado.
+ *
+ * As consultas não usam lock: o cache é um {@link ConcurrentHashMap}, e um acerto só escreve na entrada se o relógio tiver avançado desde o último acesso.
+ * Somente a remoção (que percorre o cache procurando o usado há mais tempo) é sincronizada, e ela só acontece quando um novo formatter é criado.
+ */
+public final class RegistroFormatters {
+
+    public static final int CAPACIDADE_PADRAO = 512;
+
+    private static final RegistroFormatters GLOBAL = new RegistroFormatters(CAPACIDADE_PADRAO);
+
+    /**
+     * Registro compartilhado por toda a JVM
+     */
+    public static RegistroFormatters global() {
+        return GLOBAL;
+    }
+
+    private final int capacidade;
+
+    private final ConcurrentHashMap<Object, Entrada> cache = new ConcurrentHashMap<>();
+
+    // avança a cada formatter criado; cada entrada guarda o valor do último acesso
+    private final AtomicLong relogio = new AtomicLong();
+
+    private final LongAdder acertos = new LongAdder();
+
+    private final LongAdder falhas = new LongAdder();
+
+    private final LongAdder remocoes = new LongAdder();
+
+    public RegistroFormatters(int capacidade) {
+        if (capacidade <= 0) {
+            throw new IllegalArgumentException("Capacidade deve ser maior que zero: " + capacidade);
+        }
+        this.capacidade = capacidade;
+    }
+
+    private static final class Entrada {
+
+        private final DateTimeFormatter formatter;
+
+        private volatile long ultimoAcesso;
+
+        private Entrada(DateTimeFormatter formatter, long ultimoAcesso) {
+            this.formatter = formatter;
+            this.ultimoAcesso = ultimoAcesso;
+        }
+    }
+
+    /**
+     * Equivalente a {@link DateTimeFormatter#ofPattern(String)} (usa o locale default da JVM)
+     */
+    public DateTimeFormatter ofPattern(String pattern) {
+        return get(Chave.of(pattern));
+    }
+
+    /**
+     * Equivalente a {@link DateTimeFormatter#ofPattern(String, Locale)}
+     */
+    public DateTimeFormatter ofPattern(String pattern, Locale locale) {
+        return get(Chave.of(pattern, locale));
+    }
+
+    /**
+     * Retorna o formatter correspondente à chave, criando-o se ainda não estiver no cache.
+     */
+    public DateTimeFormatter get(Chave chave) {
+        return obter(chave, chave::criaFormatter);
+    }
+
+    /**
+     * Retorna o formatter registrado com o nome indicado. Se ainda não estiver no cache, usa a fábrica para criá-lo.
+     *
+     * Usado para formatters que não podem ser criados somente com um pattern (por exemplo, os que usam
+     * {@link DateTimeFormatterBuilder#appendFraction(java.time.temporal.TemporalField, int, int, boolean)}). O nome deve identificar unicamente o formatter
+     * criado pela fábrica.
+     */
+    public DateTimeFormatter obter(String nome, Supplier<DateTimeFormatter> fabrica) {
+        return obter((Object) nome, fabrica);
+    }
+
+    private DateTimeFormatter obter(Object chave, Supplier<DateTimeFormatter> fabrica) {
+        Entrada entrada = cache.get(chave);
+        if (entrada != null) {
+            // enquanto nenhum formatter for criado, o relógio não muda e os acertos não escrevem nada (evita disputa pela mesma linha de cache). Uma
+            // thread que leu o relógio antes de outra avançá-lo não volta o último acesso para trás
+            long agora = relogio.get();
+            if (entrada.ultimoAcesso < agora) {
+                entrada.ultimoAcesso = agora;
+            }
+            acertos.increment();
+            return entrada.formatter;
+        }
+        falhas.increment();
+        // o formatter é criado sem lock; se outra thread criou o mesmo formatter nesse meio tempo, usa o que já está no cache
+        Entrada nova = new Entrada(fabrica.get(), relogio.getAndIncrement());
+        Entrada existente = cache.putIfAbsent(chave, nova);
+        if (existente != null) {
+            return existente.formatter;
+        }
+        if (cache.size() > capacidade) {
+            removerExcedentes();
+        }
+        return nova.formatter;
+    }
+
+    // remove os usados há mais tempo até voltar à capacidade (percorre o cache, mas só é chamado quando um formatter é criado)
+    private synchronized void removerExcedentes() {
+        while (cache.size() > capacidade) {
+            Map.Entry<Object, Entrada> maisAntiga = null;
+            for (Map.Entry<Object, Entrada> e : cache.entrySet()) {
+                if (maisAntiga == null || e.getValue().ultimoAcesso < maisAntiga.getValue().ultimoAcesso) {
+                    maisAntiga = e;
+                }
+            }
+            if (maisAntiga != null && cache.remove(maisAntiga.getKey(), maisAntiga.getValue())) {
+                remocoes.increment();
+            }
+        }
+    }
+
+    public long getAcertos() {
+        return acertos.sum();
+    }
+
+    public long getFalhas() {
+        return falhas.sum();
+    }
+
+    public long getRemocoes() {
+        return remocoes.sum();
+    }
+
+    public int getCapacidade() {
+        return capacidade;
+    }
+
+    public int tamanho() {
+        return cache.size();
+    }
+
+    /**
+     * Remove todos os formatters do cache (os contadores não são zerados)
+     */
+    public void limpar() {
+        cache.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "RegistroFormatters[tamanho=" + tamanho() + "/" + capacidade + ", acertos=" + getAcertos() + ", falhas=" + getFalhas() + ", remocoes="
+                + getRemocoes() + "]";
+    }
+
+    /**
+     * Identifica um formatter criado a partir de um pattern. É imutável: os métodos <code>comXXX</code> retornam uma nova instância, assim como os métodos
+     * <code>withXXX</code> de {@link DateTimeFormatter}.
+     */
+    public static final class Chave {
+
+        private final String pattern;
+
+        private final Locale locale;
+
+        private final ZoneId zona;
+
+        private final ResolverStyle resolverStyle;
+
+        private final Map<TemporalField, Long> valoresPadrao;
+
+        // calculado uma única vez (sem Objects.hash, que cria um array e faz boxing), pois toda consulta ao cache usa o hash
+        private final int hash;
+
+        private Chave(String pattern, Locale locale, ZoneId zona, ResolverStyle resolverStyle, Map<TemporalField, Long> valoresPadrao) {
+            this.pattern = Objects.requireNonNull(pattern, "pattern");
+            this.locale = Objects.requireNonNull(locale, "locale");
+            this.zona = zona;
+            this.resolverStyle = Objects.requireNonNull(resolverStyle, "resolverStyle");
+            this.valoresPadrao = valoresPadrao;
+            int h = pattern.hashCode();
+            h = 31 * h + locale.hashCode();
+            h = 31 * h + Objects.hashCode(zona);
+            h = 31 * h + resolverStyle.hashCode();
+            this.hash = 31 * h + valoresPadrao.hashCode();
+        }
+
+        /**
+         * Chave com o pattern indicado, locale default da JVM, sem timezone, {@link ResolverStyle#SMART} e sem valores predefinidos (ou seja, os mesmos
+         * valores de {@link DateTimeFormatter#ofPattern(String)})
+         */
+        public static Chave of(String pattern) {
+            return of(pattern, Locale.getDefault(Locale.Category.FORMAT));
+        }
+
+        /**
+         * O mesmo que <code>of(pattern).comLocale(locale)</code>, mas criando uma única instância
+         */
+        public static Chave of(String pattern, Locale locale) {
+            return new Chave(pattern, locale, null, ResolverStyle.SMART, Collections.<TemporalField, Long> emptyMap());
+        }
+
+        public Chave comLocale(Locale locale) {
+            return new Chave(pattern, locale, zona, resolverStyle, valoresPadrao);
+        }
+
+        public Chave comZona(ZoneId zona) {
+            return new Chave(pattern, locale, zona, resolverStyle, valoresPadrao);
+        }
+
+        public Chave comResolverStyle(ResolverStyle resolverStyle) {
+            return new Chave(pattern, locale, zona, resolverStyle, valoresPadrao);
+        }
+
+        /**
+         * Valor usado no parsing quando o campo não estiver presente (ver {@link DateTimeFormatterBuilder#parseDefaulting(TemporalField, long)})
+         */
+        public Chave comValorPadrao(TemporalField campo, long valor) {
+            Map<TemporalField, Long> novos = new LinkedHashMap<>(valoresPadrao);
+            novos.put(Objects.requireNonNull(campo, "campo"), valor);
+            return new Chave(pattern, locale, zona, resolverStyle, Collections.unmodifiableMap(novos));
+        }
+
+        DateTimeFormatter criaFormatter() {
+            DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder().appendPattern(pattern);
+            valoresPadrao.forEach(builder::parseDefaulting);
+            DateTimeFormatter formatter = builder.toFormatter(locale).withResolverStyle(resolverStyle);
+            if (zona != null) {
+                formatter = formatter.withZone(zona);
+            }
+            return formatter;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Chave)) {
+                return false;
+            }
+            Chave outra = (Chave) obj;
+            return hash == outra.hash && pattern.equals(outra.pattern) && locale.equals(outra.locale) && Objects.equals(zona, outra.zona)
+                    && resolverStyle == outra.resolverStyle && valoresPadrao.equals(outra.valoresPadrao);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return pattern + "," + locale + "," + zona + "," + resolverStyle + "," + valoresPadrao;
+        }
+    }
+}
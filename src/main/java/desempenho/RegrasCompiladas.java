@@ -0,0 +1,359 @@
+package desempenho;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.time.zone.ZoneRulesProvider;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import exemplos.part3.Cap14ZonesOffsets;
+import exemplos.part3.Cap19TestesOutrosCasos;
+
+/**
+ * Regras de um timezone com todas as transições (até {@link #ANO_LIMITE_PADRAO}) em arrays de tipos primitivos, para obter o offset de um instante.
+ *
+ * O {@link ZoneRules} do JDK guarda as transições que estão explícitas no TZDB, mas as transições que seguem regras anuais (como o horário de verão
+ * atual) são criadas a cada ano consultado, e guardadas em um mapa (ver {@link Cap14ZonesOffsets} e
+ * {@link Cap19TestesOutrosCasos#obterInformacoesTimezone2()}). Aqui, todas as transições são calculadas uma única vez: os instantes (em segundos
+ * desde o Unix Epoch) ficam em um <code>long[]</code> e os offsets em um <code>int[]</code>, e a busca é uma busca binária sem desvios (o resultado
+ * de cada comparação só muda o índice). Cada thread guarda o último intervalo encontrado, então consultas seguidas de instantes próximos (entre as
+ * mesmas transições) são só duas comparações. Para instantes posteriores ao ano limite, são usadas as regras do JDK.
+ *
+ * Para usar com as classes do java.time (como {@link ZonedDateTime#ofInstant(Instant, ZoneId)}), {@link #getZonaCompilada()} retorna um
+ * {@link ZoneId} com o prefixo {@link #PREFIXO} (por exemplo, "Compilado/America/Sao_Paulo"), cujas regras são fornecidas por um
+ * {@link ZoneRulesProvider} que tem todas as transições explícitas, sem precisar criá-las a cada ano.
+ *
+ * As instâncias são criadas uma única vez para cada timezone e versão do TZDB, são imutáveis e podem ser usadas por várias threads.
+ */
+public final class RegrasCompiladas {
+
+    /**
+     * Último ano cujas transições são calculadas
+     */
+    public static final int ANO_LIMITE_PADRAO = 2200;
+
+    /**
+     * Prefixo dos ids dos timezones fornecidos pelo {@link ZoneRulesProvider} (ver {@link #getZonaCompilada()})
+     */
+    public static final String PREFIXO = "Compilado/";
+
+    private static final Map<String, RegrasCompiladas> CACHE = new ConcurrentHashMap<>();
+
+    private static volatile boolean provedorRegistrado;
+
+    private final ZoneId zona;
+
+    private final String versaoTzdb;
+
+    private final ZoneRules regras;
+
+    // instantes das transições (em segundos), em ordem crescente
+    private final long[] transicoes;
+
+    // offsets[i] é usado antes de transicoes[i] (e depois de transicoes[i - 1]). O último é usado depois da última transição, até o limite
+    private final int[] offsets;
+
+    private final ZoneOffset[] zoneOffsets;
+
+    // a partir deste instante (início do ano seguinte ao limite), usa as regras do JDK
+    private final long limite;
+
+    // último intervalo encontrado por cada thread: {início, fim (exclusive), índice em offsets}
+    private final ThreadLocal<long[]> ultimo = ThreadLocal.withInitial(() -> new long[] { 1, 0, 0 });
+
+    // regras com todas as transições explícitas, criadas somente se forem usadas
+    private volatile ZoneRules regrasCompiladas;
+
+    // timezone com o prefixo, criado somente se for usado (o ZoneId guarda as regras, então não há outra consulta ao provedor)
+    private volatile ZoneId zonaCompilada;
+
+    private RegrasCompiladas(ZoneId zona, String versaoTzdb) {
+        this.zona = zona;
+        this.versaoTzdb = versaoTzdb;
+        this.regras = zona.getRules();
+        this.limite = Datas.epochDay(ANO_LIMITE_PADRAO + 1, 1, 1) * 86400;
+        List<ZoneOffsetTransition> lista = new ArrayList<>();
+        ZoneOffsetTransition transicao = regras.nextTransition(Instant.MIN);
+        while (transicao != null && transicao.toEpochSecond() < limite) {
+            lista.add(transicao);
+            transicao = regras.nextTransition(transicao.getInstant());
+        }
+        this.transicoes = new long[lista.size()];
+        this.zoneOffsets = new ZoneOffset[lista.size() + 1];
+        this.offsets = new int[lista.size() + 1];
+        zoneOffsets[0] = lista.isEmpty() ? regras.getOffset(Instant.EPOCH) : lista.get(0).getOffsetBefore();
+        for (int i = 0; i < lista.size(); i++) {
+            transicoes[i] = lista.get(i).toEpochSecond();
+            zoneOffsets[i + 1] = lista.get(i).getOffsetAfter();
+        }
+        for (int i = 0; i < zoneOffsets.length; i++) {
+            offsets[i] = zoneOffsets[i].getTotalSeconds();
+        }
+    }
+
+    /**
+     * Retorna as regras do timezone, para a versão do TZDB atualmente carregada. Se o id tiver o prefixo {@link #PREFIXO}, são as regras do
+     * timezone original.
+     */
+    public static RegrasCompiladas of(ZoneId zona) {
+        String id = zona.getId();
+        if (id.startsWith(PREFIXO)) {
+            id = id.substring(PREFIXO.length());
+            zona = ZoneId.of(id);
+        }
+        String versao = Tzdb.versaoRecente();
+        ZoneId original = zona;
+        RegrasCompiladas regras = CACHE.computeIfAbsent(id, k -> new RegrasCompiladas(original, versao));
+        if (!regras.versaoTzdb.equals(versao)) {
+            // outra versão do TZDB foi carregada
+            regras = new RegrasCompiladas(original, versao);
+            CACHE.put(id, regras);
+        }
+        return regras;
+    }
+
+    public ZoneId getZona() {
+        return zona;
+    }
+
+    public String getVersaoTzdb() {
+        return versaoTzdb;
+    }
+
+    /**
+     * Quantidade de transições calculadas (até o ano limite)
+     */
+    public int getQtdTransicoes() {
+        return transicoes.length;
+    }
+
+    /**
+     * Offset (em segundos) usado no instante indicado
+     */
+    public int offsetSegundos(long epochSegundo) {
+        return offsets[indice(epochSegundo)];
+    }
+
+    /**
+     * Offset usado no instante indicado (o mesmo de {@link ZoneRules#getOffset(Instant)})
+     */
+    public ZoneOffset getOffset(long epochSegundo) {
+        return zoneOffsets[indice(epochSegundo)];
+    }
+
+    public ZoneOffset getOffset(Instant instante) {
+        return getOffset(instante.getEpochSecond());
+    }
+
+    /**
+     * Data/hora com o offset usado no instante (sem consultar as regras do JDK, ao contrário de {@link OffsetDateTime#ofInstant(Instant, ZoneId)})
+     */
+    public OffsetDateTime atOffset(Instant instante) {
+        return instante.atOffset(getOffset(instante));
+    }
+
+    /**
+     * Equivalente a {@link ZonedDateTime#ofInstant(Instant, ZoneId)}, mas o timezone do resultado é {@link #getZonaCompilada()}
+     */
+    public ZonedDateTime atZone(Instant instante) {
+        return ZonedDateTime.ofInstant(instante, getZonaCompilada());
+    }
+
+    // arrays usados por outras classes do pacote (não devem ser alterados)
+    long[] transicoes() {
+        return transicoes;
+    }
+
+    int[] offsets() {
+        return offsets;
+    }
+
+    long limite() {
+        return limite;
+    }
+
+    ZoneRules regras() {
+        return regras;
+    }
+
+    // índice do offset usado no instante
+    private int indice(long epochSegundo) {
+        long[] cache = ultimo.get();
+        if (epochSegundo >= cache[0] && epochSegundo < cache[1]) {
+            return (int) cache[2];
+        }
+        if (epochSegundo >= limite) {
+            return indiceAposLimite(epochSegundo);
+        }
+        // busca binária sem desvios: a cada passo, o intervalo é reduzido à metade, e a comparação só decide se a base avança
+        long[] t = transicoes;
+        int base = 0;
+        int n = t.length;
+        if (n > 0) {
+            while (n > 1) {
+                int metade = n >>> 1;
+                base = t[base + metade - 1] <= epochSegundo ? base + metade : base;
+                n -= metade;
+            }
+            base += t[base] <= epochSegundo ? 1 : 0;
+        }
+        cache[0] = base == 0 ? Long.MIN_VALUE : t[base - 1];
+        cache[1] = base == t.length ? limite : t[base];
+        cache[2] = base;
+        return base;
+    }
+
+    // depois do limite, o offset é obtido pelas regras do JDK (e procurado entre os offsets já conhecidos, para não criar outro array)
+    private int indiceAposLimite(long epochSegundo) {
+        ZoneOffset offset = regras.getOffset(Instant.ofEpochSecond(epochSegundo));
+        for (int i = zoneOffsets.length - 1; i >= 0; i--) {
+            if (zoneOffsets[i].equals(offset)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Offset " + offset + " não encontrado nas transições de " + zona);
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+     * Regras do JDK com todas as transições até o ano limite explícitas (os offsets são os mesmos das regras originais). Depois do ano limite, são
+     * usadas as mesmas regras anuais das regras originais.
+     */
+    public ZoneRules getZoneRules() {
+        ZoneRules compiladas = regrasCompiladas;
+        if (compiladas == null) {
+            compiladas = criarZoneRules();
+            regrasCompiladas = compiladas;
+        }
+        return compiladas;
+    }
+
+    private ZoneRules criarZoneRules() {
+        List<ZoneOffsetTransition> lista = new ArrayList<>(transicoes.length);
+        for (int i = 0; i < transicoes.length; i++) {
+            lista.add(ZoneOffsetTransition.of(LocalDateTime.ofEpochSecond(transicoes[i], 0, zoneOffsets[i]), zoneOffsets[i], zoneOffsets[i + 1]));
+        }
+        // as transições do offset padrão não são públicas: são encontradas verificando o offset padrão em cada intervalo entre as transições
+        List<ZoneOffsetTransition> padrao = new ArrayList<>();
+        ZoneOffset padraoInicial = regras.getStandardOffset(Instant.MIN);
+        ZoneOffset padraoAtual = padraoInicial;
+        // o offset padrão pode mudar e depois voltar ao valor anterior sem que o offset usado mude (America/Indiana/Knox, entre 1991 e 2006), por isso
+        // a verificação é feita a cada dia, entre a primeira transição e um ano depois da última transição explícita do TZDB
+        List<ZoneOffsetTransition> explicitas = regras.getTransitions();
+        long inicioDiario = transicoes.length == 0 ? limite : transicoes[0];
+        long fimDiario = explicitas.isEmpty() ? inicioDiario : explicitas.get(explicitas.size() - 1).toEpochSecond() + 366 * 86400L;
+        long inicio = Instant.MIN.getEpochSecond();
+        for (int i = 0; i <= transicoes.length; i++) {
+            long fim = i < transicoes.length ? transicoes[i] : limite;
+            padraoAtual = adicionarTransicoesPadrao(padrao, padraoAtual, inicio, fim, inicioDiario, fimDiario);
+            inicio = fim;
+        }
+        return ZoneRules.of(padraoInicial, zoneOffsets[0], padrao, lista, regras.getTransitionRules());
+    }
+
+    // procura as mudanças do offset padrão no intervalo [inicio, fim), que podem ocorrer junto com uma transição ou entre duas transições
+    private ZoneOffset adicionarTransicoesPadrao(List<ZoneOffsetTransition> padrao, ZoneOffset atual, long inicio, long fim, long inicioDiario,
+            long fimDiario) {
+        long anterior = inicio;
+        while (anterior < fim - 1) {
+            long proximo = anterior >= inicioDiario && anterior < fimDiario ? Math.min(anterior + 86400, fim - 1) : fim - 1;
+            if (padrao(proximo).equals(atual)) {
+                anterior = proximo;
+                continue;
+            }
+            // busca binária pelo primeiro segundo com outro offset padrão
+            long ini = anterior, f = proximo;
+            while (ini < f) {
+                long meio = ini + (f - ini) / 2;
+                if (padrao(meio).equals(atual)) {
+                    ini = meio + 1;
+                } else {
+                    f = meio;
+                }
+            }
+            ZoneOffset novo = padrao(ini);
+            padrao.add(ZoneOffsetTransition.of(LocalDateTime.ofEpochSecond(ini, 0, atual), atual, novo));
+            atual = novo;
+            anterior = ini;
+        }
+        return atual;
+    }
+
+    private ZoneOffset padrao(long epochSegundo) {
+        return regras.getStandardOffset(Instant.ofEpochSecond(epochSegundo));
+    }
+
+    /**
+     * Timezone com o prefixo {@link #PREFIXO}, cujas regras são {@link #getZoneRules()}. Pode ser usado em qualquer classe do java.time (na
+     * primeira chamada, o {@link ZoneRulesProvider} é registrado).
+     */
+    public ZoneId getZonaCompilada() {
+        ZoneId compilada = zonaCompilada;
+        if (compilada == null) {
+            registrarProvedor();
+            compilada = ZoneId.of(PREFIXO + zona.getId());
+            zonaCompilada = compilada;
+        }
+        return compilada;
+    }
+
+    /**
+     * Registra o {@link ZoneRulesProvider} que fornece os timezones com o prefixo {@link #PREFIXO}, para todos os timezones disponíveis no momento
+     * do registro. Chamadas seguintes não fazem nada.
+     */
+    public static void registrarProvedor() {
+        if (provedorRegistrado) {
+            return;
+        }
+        synchronized (RegrasCompiladas.class) {
+            if (!provedorRegistrado) {
+                ZoneRulesProvider.registerProvider(new Provedor());
+                provedorRegistrado = true;
+            }
+        }
+    }
+
+    private static final class Provedor extends ZoneRulesProvider {
+
+        @Override
+        protected Set<String> provideZoneIds() {
+            Set<String> ids = new TreeSet<>();
+            for (String id : ZoneRulesProvider.getAvailableZoneIds()) {
+                if (!id.startsWith(PREFIXO)) {
+                    ids.add(PREFIXO + id);
+                }
+            }
+            return ids;
+        }
+
+        @Override
+        protected ZoneRules provideRules(String zoneId, boolean forCaching) {
+            return RegrasCompiladas.of(ZoneId.of(zoneId.substring(PREFIXO.length()))).getZoneRules();
+        }
+
+        @Override
+        protected NavigableMap<String, ZoneRules> provideVersions(String zoneId) {
+            RegrasCompiladas regras = RegrasCompiladas.of(ZoneId.of(zoneId.substring(PREFIXO.length())));
+            return Collections.unmodifiableNavigableMap(new TreeMap<>(Collections.singletonMap(regras.getVersaoTzdb(), regras.getZoneRules())));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RegrasCompiladas[" + zona + ", tzdb=" + versaoTzdb + ", transicoes=" + transicoes.length + "]";
+    }
+}
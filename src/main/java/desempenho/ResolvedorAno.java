@@ -0,0 +1,178 @@
+package desempenho;
+
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQuery;
+
+import exemplos.part3.Cap18Parsing;
+
+/**
+ * Encontra um ano em que determinado dia e mês cai no dia da semana indicado (por exemplo, para Strings como "Tue, Feb 7 03:30 PM", que não têm o ano).
+ *
+ * Em vez de testar um ano de cada vez, criando um {@link LocalDate} ou {@link java.util.Calendar} para cada um (ver
+ * {@link Cap18Parsing#encontrarAnoParaDiaMesDiaDaSemana()}), são usadas tabelas pré-calculadas. O calendário gregoriano se repete a cada 400 anos (que
+ * têm exatamente 146097 dias, ou 20871 semanas), então basta saber, para cada um desses 400 anos, quantos anos faltam até o próximo (ou desde o
+ * anterior) em que o dia da semana de 1 de janeiro, 1 de março ou 29 de fevereiro é o procurado. Para datas de janeiro e fevereiro, o dia da semana
+ * depende somente do dia 1 de janeiro; de março em diante, depende do dia 1 de março; e 29 de fevereiro só existe em anos bissextos, por isso tem sua
+ * própria tabela.
+ *
+ * Os métodos <code>dataXXX</code> retornam uma {@link TemporalQuery}, que pode ser passada diretamente para
+ * {@link java.time.format.DateTimeFormatter#parse(CharSequence, TemporalQuery)}. O resultado do parsing deve ter o mês, o dia do mês e o dia da semana.
+ */
+public final class ResolvedorAno {
+
+    private static final int CICLO = 400;
+
+    // sequências usadas nas tabelas
+    private static final int JANEIRO = 0, MARCO = 1, FEV29 = 2;
+
+    // [sequência][dia da semana][ano % 400] = quantidade de anos até o próximo ano (ou desde o anterior) em que a data de referência (1/jan, 1/mar ou
+    // 29/fev) cai no dia da semana indicado
+    private static final byte[][][] PROXIMO = new byte[3][7][CICLO];
+
+    private static final byte[][][] ANTERIOR = new byte[3][7][CICLO];
+
+    // dias desde 1 de março até o primeiro dia de cada mês (índice 3 = março, ..., 12 = dezembro)
+    private static final int[] DIAS_DESDE_MARCO = { 0, 0, 0, 0, 31, 61, 92, 122, 153, 184, 214, 245, 275 };
+
+    static {
+        // dia da semana (0 = segunda-feira) da data de referência de cada sequência, ou -1 se não existir no ano
+        int[][] diaDaSemana = new int[3][CICLO];
+        for (int ano = 0; ano < CICLO; ano++) {
+            diaDaSemana[JANEIRO][ano] = diaDaSemana(Datas.epochDay(ano, 1, 1));
+            diaDaSemana[MARCO][ano] = diaDaSemana(Datas.epochDay(ano, 3, 1));
+            diaDaSemana[FEV29][ano] = Datas.bissexto(ano) ? diaDaSemana(Datas.epochDay(ano, 2, 29)) : -1;
+        }
+        for (int seq = 0; seq < 3; seq++) {
+            for (int dow = 0; dow < 7; dow++) {
+                for (int ano = 0; ano < CICLO; ano++) {
+                    int delta = 0;
+                    while (diaDaSemana[seq][(ano + delta) % CICLO] != dow) {
+                        delta++;
+                    }
+                    PROXIMO[seq][dow][ano] = (byte) delta;
+                    delta = 0;
+                    while (diaDaSemana[seq][(ano - delta + CICLO) % CICLO] != dow) {
+                        delta++;
+                    }
+                    ANTERIOR[seq][dow][ano] = (byte) delta;
+                }
+            }
+        }
+    }
+
+    private ResolvedorAno() {
+    }
+
+    // 1970-01-01 (epochDay 0) foi quinta-feira
+    private static int diaDaSemana(long epochDay) {
+        return (int) Math.floorMod(epochDay + 3, 7L);
+    }
+
+    /**
+     * Retorna o menor ano, maior ou igual a <code>anoReferencia</code>, em que o dia e mês caem no dia da semana indicado.
+     *
+     * @throws DateTimeException
+     *             se o dia e mês forem inválidos (como 30 de fevereiro)
+     */
+    public static int anoPosterior(int anoReferencia, int mes, int dia, DayOfWeek diaDaSemana) {
+        int seq = sequencia(mes, dia);
+        return anoReferencia + PROXIMO[seq][diaReferencia(seq, mes, dia, diaDaSemana)][Math.floorMod(anoReferencia, CICLO)];
+    }
+
+    /**
+     * Retorna o maior ano, menor ou igual a <code>anoReferencia</code>, em que o dia e mês caem no dia da semana indicado.
+     *
+     * @throws DateTimeException
+     *             se o dia e mês forem inválidos (como 30 de fevereiro)
+     */
+    public static int anoAnterior(int anoReferencia, int mes, int dia, DayOfWeek diaDaSemana) {
+        int seq = sequencia(mes, dia);
+        return anoReferencia - ANTERIOR[seq][diaReferencia(seq, mes, dia, diaDaSemana)][Math.floorMod(anoReferencia, CICLO)];
+    }
+
+    /**
+     * Retorna o ano mais próximo de <code>anoReferencia</code> em que o dia e mês caem no dia da semana indicado. Em caso de empate, retorna o ano
+     * anterior.
+     *
+     * @throws DateTimeException
+     *             se o dia e mês forem inválidos (como 30 de fevereiro)
+     */
+    public static int anoMaisProximo(int anoReferencia, int mes, int dia, DayOfWeek diaDaSemana) {
+        int seq = sequencia(mes, dia);
+        int dow = diaReferencia(seq, mes, dia, diaDaSemana);
+        int indice = Math.floorMod(anoReferencia, CICLO);
+        int anterior = ANTERIOR[seq][dow][indice];
+        int proximo = PROXIMO[seq][dow][indice];
+        return anterior <= proximo ? anoReferencia - anterior : anoReferencia + proximo;
+    }
+
+    // qual tabela usar, conforme o dia e mês
+    private static int sequencia(int mes, int dia) {
+        ChronoField.MONTH_OF_YEAR.checkValidValue(mes);
+        // 2000 é bissexto, então aceita 29 de fevereiro
+        if (dia < 1 || dia > Datas.diasNoMes(2000, mes)) {
+            throw new DateTimeException("Dia inválido para o mês " + mes + ": " + dia);
+        }
+        if (mes == 2 && dia == 29) {
+            return FEV29;
+        }
+        return mes <= 2 ? JANEIRO : MARCO;
+    }
+
+    // dia da semana que a data de referência da sequência deve ter para que o dia e mês caiam no dia da semana procurado
+    private static int diaReferencia(int seq, int mes, int dia, DayOfWeek diaDaSemana) {
+        int diasDesdeReferencia;
+        if (seq == FEV29) {
+            diasDesdeReferencia = 0;
+        } else if (seq == JANEIRO) {
+            diasDesdeReferencia = (mes == 1 ? 0 : 31) + dia - 1;
+        } else {
+            diasDesdeReferencia = DIAS_DESDE_MARCO[mes] + dia - 1;
+        }
+        return Math.floorMod(diaDaSemana.getValue() - 1 - diasDesdeReferencia, 7);
+    }
+
+    // ------------------------------------------------------------------------
+    // TemporalQuery
+
+    /**
+     * Query que retorna a data no ano obtido por {@link #anoPosterior(int, int, int, DayOfWeek)}
+     */
+    public static TemporalQuery<LocalDate> dataPosterior(int anoReferencia) {
+        return temporal -> {
+            int mes = temporal.get(ChronoField.MONTH_OF_YEAR);
+            int dia = temporal.get(ChronoField.DAY_OF_MONTH);
+            return LocalDate.of(anoPosterior(anoReferencia, mes, dia, diaDaSemana(temporal)), mes, dia);
+        };
+    }
+
+    /**
+     * Query que retorna a data no ano obtido por {@link #anoAnterior(int, int, int, DayOfWeek)}
+     */
+    public static TemporalQuery<LocalDate> dataAnterior(int anoReferencia) {
+        return temporal -> {
+            int mes = temporal.get(ChronoField.MONTH_OF_YEAR);
+            int dia = temporal.get(ChronoField.DAY_OF_MONTH);
+            return LocalDate.of(anoAnterior(anoReferencia, mes, dia, diaDaSemana(temporal)), mes, dia);
+        };
+    }
+
+    /**
+     * Query que retorna a data no ano obtido por {@link #anoMaisProximo(int, int, int, DayOfWeek)}
+     */
+    public static TemporalQuery<LocalDate> dataMaisProxima(int anoReferencia) {
+        return temporal -> {
+            int mes = temporal.get(ChronoField.MONTH_OF_YEAR);
+            int dia = temporal.get(ChronoField.DAY_OF_MONTH);
+            return LocalDate.of(anoMaisProximo(anoReferencia, mes, dia, diaDaSemana(temporal)), mes, dia);
+        };
+    }
+
+    private static DayOfWeek diaDaSemana(TemporalAccessor temporal) {
+        return DayOfWeek.of(temporal.get(ChronoField.DAY_OF_WEEK));
+    }
+}
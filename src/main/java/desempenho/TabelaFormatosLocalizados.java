@@ -0,0 +1,145 @@
+package desempenho;
+
+import java.time.chrono.IsoChronology;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.FormatStyle;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import exemplos.part3.Cap17Formatacao;
+
+/**
+ * Tabela com os formatters localizados (os mesmos de {@link DateTimeFormatter#ofLocalizedDate(FormatStyle)},
+ * {@link DateTimeFormatter#ofLocalizedTime(FormatStyle)} e {@link DateTimeFormatter#ofLocalizedDateTime(FormatStyle)}) de cada locale e
+ * {@link FormatStyle} (ver {@link Cap17Formatacao#formatosPorLocaleETipo()}).
+ *
+ * Os formatters retornados por <code>ofLocalizedXXX</code> não têm o pattern: a cada formatação, ele é procurado em um cache interno do JDK, usando uma
+ * chave (uma String) criada a cada chamada. Aqui, o pattern de cada combinação é obtido uma única vez (com
+ * {@link DateTimeFormatterBuilder#getLocalizedDateTimePattern(FormatStyle, FormatStyle, java.time.chrono.Chronology, Locale)}) e o formatter é criado
+ * com {@link DateTimeFormatter#ofPattern(String, Locale)} e a cronologia ISO (também definida pelos formatters de <code>ofLocalizedXXX</code>), com o
+ * mesmo resultado.
+ *
+ * A tabela é preenchida sob demanda, e pode ser preenchida antecipadamente com {@link #aquecer(Locale...)} (por exemplo, na inicialização da aplicação).
+ * As consultas não usam locks nem criam objetos: para cada locale há um array com os formatters de todos os estilos e tipos.
+ */
+public final class TabelaFormatosLocalizados {
+
+    /**
+     * Tipo de formatter: somente data, somente hora ou data e hora
+     */
+    public enum Tipo {
+        DATA, HORA, DATA_HORA
+    }
+
+    private static final int QTD_COMBINACOES = FormatStyle.values().length * Tipo.values().length;
+
+    private static final TabelaFormatosLocalizados GLOBAL = new TabelaFormatosLocalizados();
+
+    /**
+     * Tabela compartilhada por toda a JVM
+     */
+    public static TabelaFormatosLocalizados global() {
+        return GLOBAL;
+    }
+
+    // para cada locale, os formatters de cada combinação de estilo e tipo (índice = estilo * 3 + tipo)
+    private final Map<Locale, AtomicReferenceArray<DateTimeFormatter>> formatters = new ConcurrentHashMap<>();
+
+    private final LongAdder acertos = new LongAdder();
+
+    private final LongAdder falhas = new LongAdder();
+
+    /**
+     * Retorna o formatter do locale, estilo e tipo indicados, criando-o se ainda não estiver na tabela
+     */
+    public DateTimeFormatter get(Locale locale, FormatStyle estilo, Tipo tipo) {
+        AtomicReferenceArray<DateTimeFormatter> doLocale = formatters.get(locale);
+        if (doLocale == null) {
+            doLocale = formatters.computeIfAbsent(locale, k -> new AtomicReferenceArray<>(QTD_COMBINACOES));
+        }
+        int indice = estilo.ordinal() * 3 + tipo.ordinal();
+        DateTimeFormatter formatter = doLocale.get(indice);
+        if (formatter != null) {
+            acertos.increment();
+            return formatter;
+        }
+        falhas.increment();
+        // assim como nos formatters de ofLocalizedXXX, a cronologia ISO é usada mesmo para datas de outras cronologias (como JapaneseDate)
+        formatter = DateTimeFormatter.ofPattern(pattern(locale, estilo, tipo), locale).withChronology(IsoChronology.INSTANCE);
+        // se outra thread criou o mesmo formatter nesse meio tempo, usa o que já está na tabela
+        return doLocale.compareAndSet(indice, null, formatter) ? formatter : doLocale.get(indice);
+    }
+
+    /**
+     * Pattern usado pelo formatter do locale, estilo e tipo indicados
+     */
+    public static String pattern(Locale locale, FormatStyle estilo, Tipo tipo) {
+        FormatStyle estiloData = tipo == Tipo.HORA ? null : estilo;
+        FormatStyle estiloHora = tipo == Tipo.DATA ? null : estilo;
+        return DateTimeFormatterBuilder.getLocalizedDateTimePattern(estiloData, estiloHora, IsoChronology.INSTANCE, locale);
+    }
+
+    /**
+     * Cria os formatters de todos os estilos e tipos dos locales indicados (ou de {@link Locale#getAvailableLocales()}, se nenhum for indicado)
+     *
+     * @return a quantidade de formatters criados
+     */
+    public int aquecer(Locale... locales) {
+        if (locales.length == 0) {
+            locales = Locale.getAvailableLocales();
+        }
+        long antes = falhas.sum();
+        for (Locale locale : locales) {
+            for (FormatStyle estilo : FormatStyle.values()) {
+                for (Tipo tipo : Tipo.values()) {
+                    get(locale, estilo, tipo);
+                }
+            }
+        }
+        return (int) (falhas.sum() - antes);
+    }
+
+    public long getAcertos() {
+        return acertos.sum();
+    }
+
+    public long getFalhas() {
+        return falhas.sum();
+    }
+
+    public int getQtdLocales() {
+        return formatters.size();
+    }
+
+    /**
+     * Quantidade de formatters já criados
+     */
+    public int getQtdFormatters() {
+        int qtd = 0;
+        for (AtomicReferenceArray<DateTimeFormatter> doLocale : formatters.values()) {
+            for (int i = 0; i < doLocale.length(); i++) {
+                if (doLocale.get(i) != null) {
+                    qtd++;
+                }
+            }
+        }
+        return qtd;
+    }
+
+    /**
+     * Remove todos os formatters da tabela (os contadores não são zerados)
+     */
+    public void limpar() {
+        formatters.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "TabelaFormatosLocalizados[locales=" + getQtdLocales() + ", formatters=" + getQtdFormatters() + ", acertos=" + getAcertos() + ", falhas="
+                + getFalhas() + "]";
+    }
+}
@@ -0,0 +1,577 @@
+package desempenho;
+
+import java.text.ParsePosition;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.IsoFields;
+import java.time.temporal.Temporal;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalField;
+import java.time.temporal.TemporalUnit;
+import java.time.temporal.UnsupportedTemporalTypeException;
+import java.time.temporal.ValueRange;
+import java.time.temporal.WeekFields;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import exemplos.part3.Cap17Formatacao;
+
+/**
+ * Textos customizados para os valores de um campo, como os usados em
+ * {@link DateTimeFormatterBuilder#appendText(TemporalField, Map)} (ver {@link Cap17Formatacao#textoCustomizado()} e
+ * {@link Cap17Formatacao#textoCustomizadoAmPm()}).
+ *
+ * O {@link DateTimeFormatter} guarda o mapa em uma estrutura que separa os textos por {@link java.time.format.TextStyle}, e a cada formatação faz duas
+ * buscas em mapas (criando um <code>Long</code> para a chave). Aqui os textos são guardados em um array indexado pelo valor do campo (ou, se os valores
+ * forem muito esparsos, em um array ordenado, com busca binária), e o parsing usa uma {@link TrieTextos} que retorna a posição do texto no array.
+ *
+ * Como as classes que fazem a formatação e o parsing de cada campo no {@link DateTimeFormatter} não são públicas, não é possível colocar um
+ * <code>TextoCustomizado</code> dentro de um formatter. Para usá-lo junto com outros campos, use um {@link Construtor}, que tem os mesmos métodos de
+ * {@link DateTimeFormatterBuilder}: as partes entre os textos customizados são montadas com um {@link DateTimeFormatterBuilder}, e o {@link Formatador}
+ * resultante escreve cada parte em sequência. O parsing também é feito em partes: {@link DateTimeFormatter#parseUnresolved(CharSequence, ParsePosition)}
+ * nas partes do JDK e a {@link TrieTextos} nos textos customizados. Como a resolução dos campos obtidos não é pública, os campos são passados para um
+ * {@link DateTimeFormatter} vazio (por meio de um {@link TemporalField} que, ao ser resolvido, é trocado por eles), e o resultado é o mesmo do
+ * {@link DateTimeFormatter} equivalente (montado com {@link DateTimeFormatterBuilder#appendText(TemporalField, Map)}). Essa segunda etapa custa mais do
+ * que o JDK gasta comparando poucos textos um a um, então com menos de {@link #QTD_TEXTOS_PARSING_EM_PARTES} textos o parsing é feito pelo formatter
+ * equivalente.
+ */
+public final class TextoCustomizado {
+
+    /**
+     * Valor retornado por {@link #parse(CharSequence, ParsePosition)} quando nenhum texto é encontrado
+     */
+    public static final long NAO_ENCONTRADO = Long.MIN_VALUE;
+
+    /**
+     * Quantidade mínima de textos customizados (somando todos os campos) para que o {@link Formatador} faça o parsing em partes
+     */
+    public static final int QTD_TEXTOS_PARSING_EM_PARTES = 100;
+
+    // se a diferença entre o maior e o menor valor for maior que isso, usa busca binária em vez do array indexado pelo valor
+    private static final int TAMANHO_MAXIMO_DENSO = 1024;
+
+    private final TemporalField campo;
+
+    private final Map<Long, String> textos;
+
+    // valores e textos, ordenados pelo valor
+    private final long[] valores;
+
+    private final String[] textosOrdenados;
+
+    // textos indexados por (valor - minimo), com null para os valores que não estão no mapa (null se os valores forem esparsos)
+    private final String[] denso;
+
+    private final long minimo;
+
+    // trie com os textos, em que o valor de cada texto é a sua posição em "valores"
+    private final TrieTextos trie;
+
+    private TextoCustomizado(TemporalField campo, Map<Long, String> textos) {
+        this.campo = Objects.requireNonNull(campo, "campo");
+        this.textos = Collections.unmodifiableMap(new LinkedHashMap<>(textos));
+        TreeMap<Long, String> ordenados = new TreeMap<>(textos);
+        if (ordenados.isEmpty()) {
+            throw new IllegalArgumentException("O mapa de textos está vazio");
+        }
+        this.valores = new long[ordenados.size()];
+        this.textosOrdenados = new String[ordenados.size()];
+        Map<Long, String> posicoes = new LinkedHashMap<>();
+        int i = 0;
+        for (Map.Entry<Long, String> e : ordenados.entrySet()) {
+            valores[i] = e.getKey();
+            textosOrdenados[i] = Objects.requireNonNull(e.getValue(), "texto");
+            posicoes.put((long) i, e.getValue());
+            i++;
+        }
+        this.minimo = valores[0];
+        long tamanho = valores[valores.length - 1] - minimo + 1;
+        if (tamanho > 0 && tamanho <= TAMANHO_MAXIMO_DENSO) {
+            this.denso = new String[(int) tamanho];
+            for (i = 0; i < valores.length; i++) {
+                denso[(int) (valores[i] - minimo)] = textosOrdenados[i];
+            }
+        } else {
+            this.denso = null;
+        }
+        this.trie = TrieTextos.of(posicoes);
+    }
+
+    /**
+     * Cria os textos do campo (as chaves do mapa são os valores do campo, como em {@link DateTimeFormatterBuilder#appendText(TemporalField, Map)})
+     */
+    public static TextoCustomizado of(TemporalField campo, Map<Long, String> textos) {
+        return new TextoCustomizado(campo, Objects.requireNonNull(textos, "textos"));
+    }
+
+    public TemporalField getCampo() {
+        return campo;
+    }
+
+    public Map<Long, String> getTextos() {
+        return textos;
+    }
+
+    /**
+     * Texto do valor, ou <code>null</code> se o valor não estiver no mapa
+     */
+    public String getTexto(long valor) {
+        if (denso != null) {
+            long indice = valor - minimo;
+            return indice >= 0 && indice < denso.length ? denso[(int) indice] : null;
+        }
+        int indice = Arrays.binarySearch(valores, valor);
+        return indice >= 0 ? textosOrdenados[indice] : null;
+    }
+
+    /**
+     * Escreve o texto correspondente ao valor do campo. Se o valor não estiver no mapa, escreve o próprio número (assim como o
+     * {@link DateTimeFormatter}).
+     *
+     * @throws java.time.temporal.UnsupportedTemporalTypeException
+     *             se o campo não for suportado
+     */
+    public void formatar(TemporalAccessor temporal, StringBuilder destino) {
+        long valor = temporal.getLong(campo);
+        String texto = getTexto(valor);
+        if (texto == null) {
+            destino.append(valor);
+        } else {
+            destino.append(texto);
+        }
+    }
+
+    /**
+     * Procura o texto mais longo que começa na posição indicada, ignorando maiúsculas e minúsculas (ver {@link TrieTextos}). Números não são aceitos,
+     * assim como no {@link DateTimeFormatter} (que por padrão é strict).
+     *
+     * @return o valor do campo correspondente ao texto encontrado (e a posição é atualizada para o final do texto), ou {@link #NAO_ENCONTRADO} (e o
+     *         índice de erro é atualizado)
+     */
+    public long parse(CharSequence texto, ParsePosition pos) {
+        long resultado = trie.buscar(texto, pos.getIndex());
+        if (resultado == TrieTextos.NAO_ENCONTRADO) {
+            pos.setErrorIndex(pos.getIndex());
+            return NAO_ENCONTRADO;
+        }
+        pos.setIndex(TrieTextos.posicao(resultado));
+        return valores[TrieTextos.valor(resultado)];
+    }
+
+    // parsing que diferencia maiúsculas e minúsculas, assim como o DateTimeFormatter (por padrão)
+    private long parseExato(CharSequence texto, ParsePosition pos) {
+        int inicio = pos.getIndex();
+        long resultado = trie.buscar(texto, inicio);
+        int indice = resultado == TrieTextos.NAO_ENCONTRADO ? -1 : TrieTextos.valor(resultado);
+        if (indice >= 0 && !igual(texto, inicio, textosOrdenados[indice])) {
+            // o texto mais longo só é igual ignorando maiúsculas e minúsculas: procura o mais longo que seja exatamente igual (caso raro)
+            indice = -1;
+            for (int i = 0; i < textosOrdenados.length; i++) {
+                if (igual(texto, inicio, textosOrdenados[i]) && (indice < 0 || textosOrdenados[i].length() >= textosOrdenados[indice].length())) {
+                    indice = i;
+                }
+            }
+        }
+        if (indice < 0) {
+            pos.setErrorIndex(inicio);
+            return NAO_ENCONTRADO;
+        }
+        pos.setIndex(inicio + textosOrdenados[indice].length());
+        return valores[indice];
+    }
+
+    private static boolean igual(CharSequence texto, int inicio, String valor) {
+        if (inicio + valor.length() > texto.length()) {
+            return false;
+        }
+        for (int i = 0; i < valor.length(); i++) {
+            if (texto.charAt(inicio + i) != valor.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "TextoCustomizado[" + campo + "=" + textos + "]";
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+     * Monta um {@link Formatador} com os mesmos métodos de {@link DateTimeFormatterBuilder}: troque <code>new DateTimeFormatterBuilder()</code> por
+     * <code>new TextoCustomizado.Construtor()</code>, e os textos passados para {@link #appendText(TemporalField, Map)} deixam de ser buscados nos mapas
+     * do JDK. Não há suporte a seções opcionais que contenham textos customizados.
+     */
+    public static final class Construtor {
+
+        // partes já prontas do formatter: DateTimeFormatterBuilder (ainda sem locale) ou TextoCustomizado
+        private final List<Object> partes = new ArrayList<>();
+
+        // parte que está sendo montada
+        private DateTimeFormatterBuilder atual;
+
+        // formatter equivalente, usado no parsing
+        private final DateTimeFormatterBuilder completo = new DateTimeFormatterBuilder();
+
+        public Construtor appendPattern(String pattern) {
+            atual().appendPattern(pattern);
+            completo.appendPattern(pattern);
+            return this;
+        }
+
+        public Construtor appendLiteral(String literal) {
+            atual().appendLiteral(literal);
+            completo.appendLiteral(literal);
+            return this;
+        }
+
+        public Construtor append(DateTimeFormatter formatter) {
+            atual().append(formatter);
+            completo.append(formatter);
+            return this;
+        }
+
+        /**
+         * Adiciona o campo com os textos customizados
+         */
+        public Construtor appendText(TemporalField campo, Map<Long, String> textos) {
+            return append(TextoCustomizado.of(campo, textos));
+        }
+
+        public Construtor append(TextoCustomizado texto) {
+            if (atual != null) {
+                partes.add(atual);
+                atual = null;
+            }
+            partes.add(texto);
+            completo.appendText(texto.getCampo(), texto.getTextos());
+            return this;
+        }
+
+        private DateTimeFormatterBuilder atual() {
+            if (atual == null) {
+                atual = new DateTimeFormatterBuilder();
+            }
+            return atual;
+        }
+
+        /**
+         * Cria o formatador, com o locale padrão (assim como {@link DateTimeFormatterBuilder#toFormatter()})
+         */
+        public Formatador toFormatter() {
+            return toFormatter(Locale.getDefault(Locale.Category.FORMAT));
+        }
+
+        public Formatador toFormatter(Locale locale) {
+            return toFormatter(locale, QTD_TEXTOS_PARSING_EM_PARTES);
+        }
+
+        // qtdTextosParsingEmPartes é alterado somente nos testes
+        Formatador toFormatter(Locale locale, int qtdTextosParsingEmPartes) {
+            List<Object> todas = new ArrayList<>(partes);
+            if (atual != null) {
+                todas.add(atual);
+            }
+            Object[] prontas = new Object[todas.size()];
+            TemporalField[][] campos = new TemporalField[prontas.length][];
+            int qtdTextos = 0;
+            boolean partesSuportadas = true;
+            for (int i = 0; i < prontas.length; i++) {
+                Object parte = todas.get(i);
+                prontas[i] = parte instanceof DateTimeFormatterBuilder ? ((DateTimeFormatterBuilder) parte).toFormatter(locale) : parte;
+                if (prontas[i] instanceof DateTimeFormatter) {
+                    campos[i] = campos((DateTimeFormatter) prontas[i], locale);
+                    // se alguma parte não puder ter o parsing feito separadamente, usa somente o formatter equivalente
+                    partesSuportadas &= campos[i] != null;
+                } else {
+                    qtdTextos += ((TextoCustomizado) prontas[i]).valores.length;
+                }
+            }
+            boolean parsingEmPartes = partesSuportadas && qtdTextos >= qtdTextosParsingEmPartes;
+            DateTimeFormatter formatter = completo.toFormatter(locale);
+            DateTimeFormatter resolvedor = new DateTimeFormatterBuilder().parseDefaulting(CamposObtidos.INSTANCIA, 0).toFormatter(locale)
+                .withResolverStyle(formatter.getResolverStyle());
+            return new Formatador(prontas, parsingEmPartes ? campos : null, formatter, resolvedor);
+        }
+
+        /*
+         * Campos que podem ser obtidos no parsing do formatter, encontrados no toString() (como "Value(DayOfMonth,2)'/'Text(MonthOfYear)"). Retorna
+         * null se o formatter tiver algo que não é um campo (como timezones e cronologias, que o resolvedor não recebe).
+         */
+        private static TemporalField[] campos(DateTimeFormatter formatter, Locale locale) {
+            String descricao = formatter.toString();
+            if (!SOMENTE_CAMPOS.matcher(descricao).matches()) {
+                return null;
+            }
+            Set<TemporalField> campos = new LinkedHashSet<>();
+            // sem os literais, que podem ter qualquer texto
+            Matcher matcher = CAMPO.matcher(LITERAL.matcher(descricao).replaceAll(""));
+            while (matcher.find()) {
+                if (matcher.group(1) == null) {
+                    campos.add(ChronoField.OFFSET_SECONDS);
+                } else if ("Localized".equals(matcher.group(1))) {
+                    WeekFields semana = WeekFields.of(locale);
+                    campos.addAll(Arrays.asList(semana.dayOfWeek(), semana.weekOfMonth(), semana.weekOfYear(), semana.weekOfWeekBasedYear(),
+                        semana.weekBasedYear()));
+                } else {
+                    TemporalField campo = CAMPOS_POR_NOME.get(matcher.group(2));
+                    if (campo == null) {
+                        return null;
+                    }
+                    campos.add(campo);
+                }
+            }
+            return campos.toArray(new TemporalField[0]);
+        }
+    }
+
+    private static final Pattern SOMENTE_CAMPOS = Pattern.compile("((Value|ReducedValue|Text|Fraction|Localized)\\(\\w+(,[^)]*)?\\)"
+        + "|Offset\\([^,]*,'([^']|'')*'\\)|LocalizedOffset\\(\\w+\\)|ParseCaseSensitive\\(\\w+\\)|ParseStrict\\(\\w+\\)|'([^']|'')*'|[\\[\\]()])*");
+
+    private static final Pattern LITERAL = Pattern.compile("'([^']|'')*'");
+
+    private static final Pattern CAMPO = Pattern.compile("(Value|ReducedValue|Text|Fraction|Localized)\\((\\w+)|Offset\\(");
+
+    private static final Map<String, TemporalField> CAMPOS_POR_NOME = new HashMap<>();
+
+    static {
+        for (TemporalField campo : new TemporalField[] { IsoFields.QUARTER_OF_YEAR, IsoFields.DAY_OF_QUARTER, IsoFields.WEEK_OF_WEEK_BASED_YEAR,
+            IsoFields.WEEK_BASED_YEAR }) {
+            CAMPOS_POR_NOME.put(campo.toString(), campo);
+        }
+        for (ChronoField campo : ChronoField.values()) {
+            CAMPOS_POR_NOME.put(campo.toString(), campo);
+        }
+    }
+
+    // campos e valores obtidos no parsing de cada parte
+    private static final class Obtidos {
+
+        private TemporalField[] campos = new TemporalField[8];
+
+        private long[] valores = new long[8];
+
+        private int qtd;
+
+        // o mesmo campo obtido em duas partes deve ter o mesmo valor (assim como no DateTimeFormatter)
+        private boolean adicionar(TemporalField campo, long valor) {
+            for (int i = 0; i < qtd; i++) {
+                if (campos[i] == campo) {
+                    return valores[i] == valor;
+                }
+            }
+            if (qtd == campos.length) {
+                campos = Arrays.copyOf(campos, qtd * 2);
+                valores = Arrays.copyOf(valores, qtd * 2);
+            }
+            campos[qtd] = campo;
+            valores[qtd++] = valor;
+            return true;
+        }
+    }
+
+    /*
+     * Campo que leva os campos obtidos no parsing até a resolução feita por um DateTimeFormatter: o resolvedor só tem este campo (com
+     * DateTimeFormatterBuilder#parseDefaulting), e ao ser resolvido ele é trocado pelos campos da thread atual (a interface TemporalField permite que o
+     * mapa seja alterado em resolve). Os campos são então resolvidos como em qualquer parsing.
+     */
+    private enum CamposObtidos implements TemporalField {
+        INSTANCIA;
+
+        // reaproveitado a cada parsing da thread, para não criar um mapa
+        private static final ThreadLocal<Obtidos> ATUAIS = ThreadLocal.withInitial(Obtidos::new);
+
+        @Override
+        public TemporalAccessor resolve(Map<TemporalField, Long> fieldValues, TemporalAccessor partialTemporal, ResolverStyle resolverStyle) {
+            fieldValues.remove(this);
+            Obtidos obtidos = ATUAIS.get();
+            for (int i = 0; i < obtidos.qtd; i++) {
+                fieldValues.put(obtidos.campos[i], obtidos.valores[i]);
+            }
+            return null;
+        }
+
+        @Override
+        public TemporalUnit getBaseUnit() {
+            return ChronoUnit.FOREVER;
+        }
+
+        @Override
+        public TemporalUnit getRangeUnit() {
+            return ChronoUnit.FOREVER;
+        }
+
+        @Override
+        public ValueRange range() {
+            return ValueRange.of(0, 0);
+        }
+
+        @Override
+        public boolean isDateBased() {
+            return false;
+        }
+
+        @Override
+        public boolean isTimeBased() {
+            return false;
+        }
+
+        @Override
+        public boolean isSupportedBy(TemporalAccessor temporal) {
+            return false;
+        }
+
+        @Override
+        public ValueRange rangeRefinedBy(TemporalAccessor temporal) {
+            return range();
+        }
+
+        @Override
+        public long getFrom(TemporalAccessor temporal) {
+            throw new UnsupportedTemporalTypeException("Campo interno do parsing");
+        }
+
+        @Override
+        public <R extends Temporal> R adjustInto(R temporal, long newValue) {
+            throw new UnsupportedTemporalTypeException("Campo interno do parsing");
+        }
+    }
+
+    /**
+     * Formatador criado pelo {@link Construtor}. As instâncias são imutáveis e podem ser usadas por várias threads.
+     */
+    public static final class Formatador {
+
+        // DateTimeFormatter ou TextoCustomizado
+        private final Object[] partes;
+
+        // campos que cada DateTimeFormatter pode obter no parsing (null se o parsing for feito somente pelo formatter equivalente)
+        private final TemporalField[][] campos;
+
+        private final DateTimeFormatter formatter;
+
+        // resolve os campos obtidos no parsing de cada parte (ver CamposObtidos)
+        private final DateTimeFormatter resolvedor;
+
+        private Formatador(Object[] partes, TemporalField[][] campos, DateTimeFormatter formatter, DateTimeFormatter resolvedor) {
+            this.partes = partes;
+            this.campos = campos;
+            this.formatter = formatter;
+            this.resolvedor = resolvedor;
+        }
+
+        public String format(TemporalAccessor temporal) {
+            StringBuilder sb = new StringBuilder(32);
+            formatTo(temporal, sb);
+            return sb.toString();
+        }
+
+        /**
+         * Escreve as partes em sequência, no final do {@link StringBuilder}
+         */
+        public void formatTo(TemporalAccessor temporal, StringBuilder destino) {
+            for (Object parte : partes) {
+                if (parte instanceof TextoCustomizado) {
+                    ((TextoCustomizado) parte).formatar(temporal, destino);
+                } else {
+                    ((DateTimeFormatter) parte).formatTo(temporal, destino);
+                }
+            }
+        }
+
+        /**
+         * Faz o parsing de cada parte em sequência, e os campos obtidos são resolvidos da mesma forma que no {@link DateTimeFormatter} equivalente.
+         *
+         * @throws DateTimeParseException
+         *             se o texto não corresponder ao formato, ou se os campos não puderem ser resolvidos
+         */
+        public TemporalAccessor parse(CharSequence texto) {
+            if (campos == null) {
+                return formatter.parse(texto);
+            }
+            ParsePosition pos = new ParsePosition(0);
+            Obtidos obtidos = CamposObtidos.ATUAIS.get();
+            obtidos.qtd = 0;
+            for (int i = 0; i < partes.length; i++) {
+                int inicio = pos.getIndex();
+                if (partes[i] instanceof TextoCustomizado) {
+                    TextoCustomizado parte = (TextoCustomizado) partes[i];
+                    long valor = parte.parseExato(texto, pos);
+                    if (valor == NAO_ENCONTRADO) {
+                        throw erro(texto, pos.getErrorIndex());
+                    }
+                    if (!obtidos.adicionar(parte.getCampo(), valor)) {
+                        throw erro(texto, inicio);
+                    }
+                } else {
+                    TemporalAccessor parsed = ((DateTimeFormatter) partes[i]).parseUnresolved(texto, pos);
+                    if (parsed == null) {
+                        throw erro(texto, pos.getErrorIndex());
+                    }
+                    for (TemporalField campo : campos[i]) {
+                        if (parsed.isSupported(campo) && !obtidos.adicionar(campo, parsed.getLong(campo))) {
+                            throw erro(texto, inicio);
+                        }
+                    }
+                }
+            }
+            if (pos.getIndex() < texto.length()) {
+                throw new DateTimeParseException("Text '" + abreviar(texto) + "' could not be parsed, unparsed text found at index " + pos.getIndex(), texto,
+                    pos.getIndex());
+            }
+            try {
+                return resolvedor.parse("");
+            } catch (DateTimeParseException e) {
+                throw new DateTimeParseException("Text '" + abreviar(texto) + "' could not be parsed: " + e.getCause().getMessage(), texto, 0, e.getCause());
+            }
+        }
+
+        // mesmas mensagens do DateTimeFormatter
+        private static DateTimeParseException erro(CharSequence texto, int posicao) {
+            return new DateTimeParseException("Text '" + abreviar(texto) + "' could not be parsed at index " + posicao, texto, posicao);
+        }
+
+        private static String abreviar(CharSequence texto) {
+            return texto.length() > 64 ? texto.subSequence(0, 64) + "..." : texto.toString();
+        }
+
+        /**
+         * Indica se o parsing é feito em partes (se alguma parte tiver campos que não podem ser passados para a resolução, como timezones, o parsing é
+         * feito pelo {@link DateTimeFormatter} equivalente)
+         */
+        public boolean isParsingEmPartes() {
+            return campos != null;
+        }
+
+        /**
+         * {@link DateTimeFormatter} equivalente (com os textos customizados em
+         * {@link DateTimeFormatterBuilder#appendText(TemporalField, Map)}), com os mesmos resultados
+         */
+        public DateTimeFormatter getFormatter() {
+            return formatter;
+        }
+
+        @Override
+        public String toString() {
+            return formatter.toString();
+        }
+    }
+}
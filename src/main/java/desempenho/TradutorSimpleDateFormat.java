@@ -0,0 +1,488 @@
+package desempenho;
+
+import java.text.FieldPosition;
+import java.text.Format;
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.ResolverStyle;
+import java.time.format.SignStyle;
+import java.time.format.TextStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalField;
+import java.time.temporal.TemporalAdjusters;
+import java.time.temporal.TemporalQueries;
+import java.time.temporal.WeekFields;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Objects;
+
+import exemplos.part3.Cap20Migracao;
+
+/**
+ * Traduz um pattern de {@link SimpleDateFormat} para um {@link DateTimeFormatter} equivalente.
+ *
+ * As duas APIs usam letras parecidas, mas com significados diferentes (ver {@link Cap20Migracao#simpleDateFormatVsDateTimeFormatter()}): "u" é o dia
+ * da semana no {@link SimpleDateFormat} e o ano no {@link DateTimeFormatter}, "S" são os milissegundos (e não frações de segundo), "MMMMM" é o nome
+ * completo do mês (e não a primeira letra), e assim por diante. Por isso o formatter não é criado com o mesmo pattern, e sim campo a campo, com um
+ * {@link DateTimeFormatterBuilder}:
+ * <ul>
+ * <li>campos numéricos têm a quantidade mínima de dígitos indicada no pattern, e no parsing aceitam mais ou menos dígitos (exceto quando estão logo
+ * depois de outro campo numérico, como em <code>yyyyMMdd</code>)</li>
+ * <li>"yy" usa o início do século de {@link SimpleDateFormat#set2DigitYearStart(Date)}: os anos de 2 dígitos ficam entre o ano inicial e 99 anos
+ * depois (o {@link SimpleDateFormat} também compara o dia e mês, aqui somente o ano é considerado)</li>
+ * <li>{@link SimpleDateFormat#setLenient(boolean)} corresponde a {@link ResolverStyle#LENIENT} ou {@link ResolverStyle#STRICT} (neste caso, se o
+ * pattern não tiver a era, é usado o valor padrão "depois de Cristo", assim como no {@link SimpleDateFormat})</li>
+ * <li>textos (como nomes de meses) são comparados sem diferenciar maiúsculas e minúsculas, e caracteres como "[" e "#" são tratados como texto, e não
+ * como seções opcionais ou caracteres reservados</li>
+ * </ul>
+ *
+ * Os formatters são guardados no {@link RegistroFormatters#global()}, então traduzir o mesmo pattern várias vezes não cria um novo formatter. Para
+ * código legado que usa {@link Format}, {@link #toFormat()} retorna um {@link Format} que aceita {@link Date} (assim como o {@link SimpleDateFormat}),
+ * mas que é imutável e pode ser compartilhado por várias threads.
+ */
+public final class TradutorSimpleDateFormat {
+
+    private final String pattern;
+
+    private final Locale locale;
+
+    private final ZoneId zona;
+
+    private final boolean leniente;
+
+    private final int anoInicioSeculo;
+
+    private TradutorSimpleDateFormat(String pattern, Locale locale, ZoneId zona, boolean leniente, int anoInicioSeculo) {
+        this.pattern = Objects.requireNonNull(pattern, "pattern");
+        this.locale = Objects.requireNonNull(locale, "locale");
+        this.zona = Objects.requireNonNull(zona, "zona");
+        this.leniente = leniente;
+        this.anoInicioSeculo = anoInicioSeculo;
+    }
+
+    /**
+     * Tradutor com os mesmos valores de <code>new SimpleDateFormat(pattern)</code>: locale e timezone default da JVM, leniente, e anos de 2 dígitos a
+     * partir de 80 anos atrás
+     */
+    public static TradutorSimpleDateFormat of(String pattern) {
+        return new TradutorSimpleDateFormat(pattern, Locale.getDefault(Locale.Category.FORMAT), ZoneId.systemDefault(), true,
+            LocalDate.now().getYear() - 80);
+    }
+
+    /**
+     * Tradutor com as mesmas configurações do {@link SimpleDateFormat} (pattern, timezone, leniência e início do século). O locale deve ser informado
+     * porque o {@link SimpleDateFormat} não permite obtê-lo.
+     */
+    public static TradutorSimpleDateFormat of(SimpleDateFormat sdf, Locale locale) {
+        Calendar inicio = (Calendar) sdf.getCalendar().clone();
+        inicio.setTime(sdf.get2DigitYearStart());
+        return new TradutorSimpleDateFormat(sdf.toPattern(), locale, sdf.getTimeZone().toZoneId(), sdf.isLenient(), inicio.get(Calendar.YEAR));
+    }
+
+    public TradutorSimpleDateFormat comLocale(Locale locale) {
+        return new TradutorSimpleDateFormat(pattern, locale, zona, leniente, anoInicioSeculo);
+    }
+
+    /**
+     * Timezone usado para formatar {@link Date} e {@link Instant}, e no parsing de Strings que não têm offset
+     */
+    public TradutorSimpleDateFormat comZona(ZoneId zona) {
+        return new TradutorSimpleDateFormat(pattern, locale, zona, leniente, anoInicioSeculo);
+    }
+
+    public TradutorSimpleDateFormat comLeniente(boolean leniente) {
+        return new TradutorSimpleDateFormat(pattern, locale, zona, leniente, anoInicioSeculo);
+    }
+
+    /**
+     * Primeiro ano dos anos de 2 dígitos (equivalente a {@link SimpleDateFormat#set2DigitYearStart(Date)})
+     */
+    public TradutorSimpleDateFormat comInicioSeculo(int ano) {
+        return new TradutorSimpleDateFormat(pattern, locale, zona, leniente, ano);
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * O {@link DateTimeFormatter} equivalente, já com o locale, timezone e {@link ResolverStyle}
+     *
+     * @throws IllegalArgumentException
+     *             se o pattern for inválido (nos mesmos casos em que o construtor do {@link SimpleDateFormat} lança exceção)
+     */
+    public DateTimeFormatter getFormatter() {
+        String nome = "SimpleDateFormat|" + pattern + "|" + locale.toLanguageTag() + "|" + zona.getId() + "|" + leniente + "|" + anoInicioSeculo;
+        return RegistroFormatters.global().obter(nome, this::traduzir);
+    }
+
+    /**
+     * {@link Format} que usa o {@link DateTimeFormatter} equivalente
+     */
+    public FormatLegado toFormat() {
+        return new FormatLegado(getFormatter(), zona, WeekFields.of(locale), leniente);
+    }
+
+    @Override
+    public String toString() {
+        return "TradutorSimpleDateFormat[" + pattern + ", " + locale + ", " + zona + ", leniente=" + leniente + ", inicioSeculo=" + anoInicioSeculo + "]";
+    }
+
+    // ------------------------------------------------------------------------
+    // tradução
+
+    private DateTimeFormatter traduzir() {
+        DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder().parseCaseInsensitive().parseLenient();
+        WeekFields semana = WeekFields.of(locale);
+        boolean temAno = false;
+        boolean temEra = false;
+        boolean numeroAnterior = false;
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            if (c == '\'') {
+                i = traduzirTexto(builder, i);
+                numeroAnterior = false;
+                continue;
+            }
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z')) {
+                builder.appendLiteral(c);
+                i++;
+                numeroAnterior = false;
+                continue;
+            }
+            int qtd = 1;
+            while (i + qtd < pattern.length() && pattern.charAt(i + qtd) == c) {
+                qtd++;
+            }
+            i += qtd;
+            boolean numero = false;
+            switch (c) {
+                case 'G':
+                    builder.appendText(ChronoField.ERA, qtd >= 4 ? TextStyle.FULL : TextStyle.SHORT);
+                    temEra = true;
+                    break;
+                case 'y':
+                    temAno = true;
+                    numero = true;
+                    if (qtd == 2) {
+                        builder.appendValueReduced(ChronoField.YEAR_OF_ERA, 2, 2, anoInicioSeculo);
+                    } else {
+                        appendNumero(builder, ChronoField.YEAR_OF_ERA, qtd, numeroAnterior);
+                    }
+                    break;
+                case 'Y':
+                    numero = true;
+                    if (qtd == 2) {
+                        builder.appendValueReduced(semana.weekBasedYear(), 2, 2, anoInicioSeculo);
+                    } else {
+                        appendNumero(builder, semana.weekBasedYear(), qtd, numeroAnterior);
+                    }
+                    break;
+                case 'M':
+                case 'L':
+                    if (qtd >= 3) {
+                        boolean standalone = c == 'L';
+                        TextStyle estilo = qtd >= 4 ? (standalone ? TextStyle.FULL_STANDALONE : TextStyle.FULL)
+                                : (standalone ? TextStyle.SHORT_STANDALONE : TextStyle.SHORT);
+                        builder.appendText(ChronoField.MONTH_OF_YEAR, estilo);
+                    } else {
+                        numero = true;
+                        appendNumero(builder, ChronoField.MONTH_OF_YEAR, qtd, numeroAnterior);
+                    }
+                    break;
+                case 'E':
+                    builder.appendText(ChronoField.DAY_OF_WEEK, qtd >= 4 ? TextStyle.FULL : TextStyle.SHORT);
+                    break;
+                case 'a':
+                    builder.appendText(ChronoField.AMPM_OF_DAY, TextStyle.SHORT);
+                    break;
+                case 'z':
+                    // abreviações ambíguas (como "IST") são resolvidas para o timezone do tradutor, se ele usar a abreviação (como no SimpleDateFormat)
+                    builder.appendZoneText(qtd >= 4 ? TextStyle.FULL : TextStyle.SHORT, Collections.singleton(zona));
+                    break;
+                case 'Z':
+                    builder.appendOffset("+HHMM", "+0000");
+                    break;
+                case 'X':
+                    if (qtd > 3) {
+                        throw new IllegalArgumentException("invalid ISO 8601 format: length=" + qtd);
+                    }
+                    builder.appendOffset(qtd == 1 ? "+HH" : qtd == 2 ? "+HHMM" : "+HH:MM", "Z");
+                    break;
+                default:
+                    TemporalField campo = campoNumerico(c, semana);
+                    if (campo == null) {
+                        throw new IllegalArgumentException("Illegal pattern character '" + c + "'");
+                    }
+                    numero = true;
+                    appendNumero(builder, campo, qtd, numeroAnterior);
+            }
+            numeroAnterior = numero;
+        }
+        // assim como no SimpleDateFormat, o ano sem a era é considerado "depois de Cristo" (no modo STRICT, sem isso a data não seria resolvida)
+        if (temAno && !temEra) {
+            builder.parseDefaulting(ChronoField.ERA, 1);
+        }
+        return builder.toFormatter(locale).withResolverStyle(leniente ? ResolverStyle.LENIENT : ResolverStyle.STRICT).withZone(zona);
+    }
+
+    // texto entre aspas (duas aspas seguidas são uma aspa), retorna a posição seguinte
+    private int traduzirTexto(DateTimeFormatterBuilder builder, int i) {
+        if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '\'') {
+            builder.appendLiteral('\'');
+            return i + 2;
+        }
+        StringBuilder texto = new StringBuilder();
+        i++;
+        while (true) {
+            if (i >= pattern.length()) {
+                throw new IllegalArgumentException("Unterminated quote");
+            }
+            char c = pattern.charAt(i);
+            if (c == '\'') {
+                if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '\'') {
+                    texto.append('\'');
+                    i += 2;
+                    continue;
+                }
+                builder.appendLiteral(texto.toString());
+                return i + 1;
+            }
+            texto.append(c);
+            i++;
+        }
+    }
+
+    // campos em que o SimpleDateFormat sempre escreve números
+    private static TemporalField campoNumerico(char c, WeekFields semana) {
+        switch (c) {
+            case 'w':
+                return semana.weekOfWeekBasedYear();
+            case 'W':
+                return semana.weekOfMonth();
+            case 'D':
+                return ChronoField.DAY_OF_YEAR;
+            case 'd':
+                return ChronoField.DAY_OF_MONTH;
+            case 'F':
+                return ChronoField.ALIGNED_WEEK_OF_MONTH;
+            case 'u':
+                return ChronoField.DAY_OF_WEEK;
+            case 'H':
+                return ChronoField.HOUR_OF_DAY;
+            case 'k':
+                return ChronoField.CLOCK_HOUR_OF_DAY;
+            case 'K':
+                return ChronoField.HOUR_OF_AMPM;
+            case 'h':
+                return ChronoField.CLOCK_HOUR_OF_AMPM;
+            case 'm':
+                return ChronoField.MINUTE_OF_HOUR;
+            case 's':
+                return ChronoField.SECOND_OF_MINUTE;
+            case 'S':
+                return ChronoField.MILLI_OF_SECOND;
+            default:
+                return null;
+        }
+    }
+
+    // depois de outro número, a quantidade de dígitos é fixa (como em "yyyyMMdd"), senão é somente a quantidade mínima
+    private static void appendNumero(DateTimeFormatterBuilder builder, TemporalField campo, int qtd, boolean numeroAnterior) {
+        if (qtd > 19) {
+            throw new IllegalArgumentException("Quantidade de letras não suportada para o campo " + campo + ": " + qtd);
+        }
+        if (numeroAnterior) {
+            builder.appendValue(campo, qtd);
+        } else {
+            builder.appendValue(campo, qtd, 19, SignStyle.NORMAL);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+     * {@link Format} que formata {@link Date}, {@link Number} (milissegundos desde o Unix Epoch, assim como no {@link SimpleDateFormat}) e
+     * {@link TemporalAccessor}, e cujo parsing retorna {@link Date}. Os campos que não estiverem na String têm os mesmos valores usados pelo
+     * {@link SimpleDateFormat} (1970-01-01T00:00 no timezone do tradutor). No modo leniente, os valores fora dos limites desses campos são somados aos
+     * campos maiores (como "31/02" com <code>dd/MM</code>, que é 3 de março de 1970), e no modo estrito são erros de parsing: assim como no
+     * {@link SimpleDateFormat}, {@link #parseObject(String, ParsePosition)} retorna <code>null</code> e {@link #parse(String)} lança
+     * {@link ParseException}.
+     *
+     * Ao contrário do {@link SimpleDateFormat}, é imutável e pode ser usado por várias threads.
+     */
+    public static final class FormatLegado extends Format {
+
+        private static final long serialVersionUID = 1L;
+
+        private final DateTimeFormatter formatter;
+
+        // criado uma única vez, para não criar um novo Format a cada parsing
+        private final Format format;
+
+        private final ZoneId zona;
+
+        private final WeekFields semana;
+
+        // no modo leniente, valores fora dos limites são somados aos campos maiores (13/2018 é janeiro de 2019), assim como no SimpleDateFormat
+        private final boolean leniente;
+
+        private FormatLegado(DateTimeFormatter formatter, ZoneId zona, WeekFields semana, boolean leniente) {
+            this.formatter = formatter;
+            this.format = formatter.toFormat();
+            this.zona = zona;
+            this.semana = semana;
+            this.leniente = leniente;
+        }
+
+        public DateTimeFormatter getFormatter() {
+            return formatter;
+        }
+
+        /**
+         * Equivalente a {@link java.text.DateFormat#format(Date)}
+         */
+        public String format(Date data) {
+            StringBuilder sb = new StringBuilder(32);
+            formatter.formatTo(Instant.ofEpochMilli(data.getTime()), sb);
+            return sb.toString();
+        }
+
+        @Override
+        public StringBuffer format(Object obj, StringBuffer destino, FieldPosition pos) {
+            TemporalAccessor temporal;
+            if (obj instanceof Date) {
+                temporal = Instant.ofEpochMilli(((Date) obj).getTime());
+            } else if (obj instanceof Number) {
+                temporal = Instant.ofEpochMilli(((Number) obj).longValue());
+            } else if (obj instanceof TemporalAccessor) {
+                temporal = (TemporalAccessor) obj;
+            } else {
+                throw new IllegalArgumentException("Cannot format given Object as a Date");
+            }
+            pos.setBeginIndex(0);
+            pos.setEndIndex(0);
+            formatter.formatTo(temporal, destino);
+            return destino;
+        }
+
+        /**
+         * Equivalente a {@link java.text.DateFormat#parse(String)}
+         */
+        public Date parse(String texto) throws ParseException {
+            ParsePosition pos = new ParsePosition(0);
+            Date data = parseObject(texto, pos);
+            if (data == null) {
+                throw new ParseException("Unparseable date: \"" + texto + "\"", pos.getErrorIndex());
+            }
+            return data;
+        }
+
+        @Override
+        public Date parseObject(String texto, ParsePosition pos) {
+            int inicio = pos.getIndex();
+            // sem exceções para erros de formato (ver ParserLote)
+            TemporalAccessor parsed = (TemporalAccessor) format.parseObject(texto, pos);
+            if (parsed == null) {
+                if (pos.getIndex() != inicio) {
+                    // erro na resolução (o Format do DateTimeFormatter não volta para a posição inicial)
+                    return erroResolucao(pos, inicio);
+                }
+                return null;
+            }
+            try {
+                return toDate(parsed);
+            } catch (DateTimeException e) {
+                // valores inválidos nos campos que o DateTimeFormatter não resolveu
+                return erroResolucao(pos, inicio);
+            }
+        }
+
+        // assim como no SimpleDateFormat, o erro fica no final do texto lido, e a posição volta para o início
+        private static Date erroResolucao(ParsePosition pos, int inicio) {
+            pos.setErrorIndex(pos.getIndex());
+            pos.setIndex(inicio);
+            return null;
+        }
+
+        private Date toDate(TemporalAccessor parsed) {
+            if (parsed.isSupported(ChronoField.OFFSET_SECONDS) && parsed.isSupported(ChronoField.INSTANT_SECONDS)) {
+                return new Date(parsed.getLong(ChronoField.INSTANT_SECONDS) * 1000 + parsed.getLong(ChronoField.MILLI_OF_SECOND));
+            }
+            LocalDate data = parsed.query(TemporalQueries.localDate());
+            if (data == null) {
+                data = dataIncompleta(parsed);
+            }
+            LocalDateTime dataHora;
+            LocalTime hora = parsed.query(TemporalQueries.localTime());
+            if (hora != null) {
+                dataHora = LocalDateTime.of(data, hora);
+            } else {
+                // "hh" sem "a" não é resolvido pelo DateTimeFormatter (o SimpleDateFormat considera AM)
+                long horaDoDia = parsed.isSupported(ChronoField.HOUR_OF_DAY) ? parsed.getLong(ChronoField.HOUR_OF_DAY)
+                        : valor(parsed, ChronoField.HOUR_OF_AMPM, 0) + 12 * valor(parsed, ChronoField.AMPM_OF_DAY, 0);
+                long minuto = valor(parsed, ChronoField.MINUTE_OF_HOUR, 0);
+                long segundo = valor(parsed, ChronoField.SECOND_OF_MINUTE, 0);
+                long nano = valor(parsed, ChronoField.NANO_OF_SECOND, 0);
+                if (leniente) {
+                    dataHora = data.atStartOfDay().plusHours(horaDoDia).plusMinutes(minuto).plusSeconds(segundo).plusNanos(nano);
+                } else {
+                    dataHora = LocalDateTime.of(data, LocalTime.of((int) horaDoDia, (int) minuto, (int) segundo, (int) nano));
+                }
+            }
+            // o offset da String tem prioridade (TemporalQueries.zone() retornaria o timezone do formatter, e não o offset, quando não há horário)
+            ZoneId zonaParse = parsed.isSupported(ChronoField.OFFSET_SECONDS) ? ZoneOffset.ofTotalSeconds(parsed.get(ChronoField.OFFSET_SECONDS))
+                    : parsed.query(TemporalQueries.zone());
+            // no overlap, o SimpleDateFormat usa o offset posterior (o DateTimeFormatter usaria o anterior)
+            return Date.from(dataHora.atZone(zonaParse == null ? zona : zonaParse).withLaterOffsetAtOverlap().toInstant());
+        }
+
+        // data que o DateTimeFormatter não resolveu, completada com os mesmos valores que o SimpleDateFormat usa
+        private LocalDate dataIncompleta(TemporalAccessor parsed) {
+            if (parsed.isSupported(semana.weekBasedYear()) && parsed.isSupported(semana.weekOfWeekBasedYear())) {
+                // semana do ano ("Y" e "w"): o dia da semana padrão é o primeiro da semana
+                LocalDate data = LocalDate.of((int) parsed.getLong(semana.weekBasedYear()), 7, 1);
+                long semanaDoAno = parsed.getLong(semana.weekOfWeekBasedYear());
+                data = leniente ? data.with(semana.weekOfWeekBasedYear(), 1).plusWeeks(semanaDoAno - 1) : data.with(semana.weekOfWeekBasedYear(), semanaDoAno);
+                data = data.with(semana.dayOfWeek(), 1);
+                return parsed.isSupported(ChronoField.DAY_OF_WEEK) ? data.with(TemporalAdjusters.nextOrSame(DayOfWeek.of(parsed.get(
+                    ChronoField.DAY_OF_WEEK)))) : data;
+            }
+            long ano = valor(parsed, ChronoField.YEAR, 1970);
+            long mes = valor(parsed, ChronoField.MONTH_OF_YEAR, 1);
+            long dia = valor(parsed, ChronoField.DAY_OF_MONTH, 1);
+            LocalDate data = leniente ? LocalDate.of((int) ano, 1, 1).plusMonths(mes - 1).plusDays(dia - 1) : LocalDate.of((int) ano, (int) mes, (int) dia);
+            // os dias excedentes (como em 25:00, no modo LENIENT) só são somados pelo DateTimeFormatter quando a data está completa
+            data = data.plus(parsed.query(DateTimeFormatter.parsedExcessDays()));
+            if (parsed.isSupported(ChronoField.DAY_OF_WEEK) && !parsed.isSupported(ChronoField.DAY_OF_MONTH)) {
+                // somente o dia da semana: o primeiro dia com esse dia da semana, a partir do dia 1
+                data = data.with(TemporalAdjusters.nextOrSame(DayOfWeek.of(parsed.get(ChronoField.DAY_OF_WEEK))));
+            }
+            return data;
+        }
+
+        private static long valor(TemporalAccessor parsed, ChronoField campo, long padrao) {
+            return parsed.isSupported(campo) ? parsed.getLong(campo) : padrao;
+        }
+
+        @Override
+        public String toString() {
+            return "FormatLegado[" + formatter + "]";
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package desempenho;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.time.Month;
+import java.time.chrono.IsoEra;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.TextStyle;
+import java.time.temporal.ChronoField;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Trie (árvore de prefixos) com os textos de um campo (nomes de meses, dias da semana, AM/PM ou eras), para encontrar o valor correspondente a um texto
+ * sem comparar com todos os textos possíveis, um de cada vez.
+ *
+ * As comparações ignoram maiúsculas e minúsculas (assim como {@link DateTimeFormatterBuilder#parseCaseInsensitive()}), e a busca é feita diretamente no
+ * {@link CharSequence}, a partir de uma posição, sem criar substrings. Assim como no {@link DateTimeFormatter}, é retornado o texto mais
+ * longo que corresponder (por exemplo, com "maio" e "mai.", a busca em "maio de 2018" encontra "maio"). Se o mesmo texto corresponder a mais de um valor
+ * (o que pode acontecer com {@link TextStyle#NARROW}, em que janeiro, junho e julho são "J"), prevalece o último, assim como no JDK. Textos que só
+ * diferem em maiúsculas e minúsculas também são tratados como o mesmo texto, e prevalece o último; nesse caso o JDK usa o primeiro na ordem interna de
+ * um {@link java.util.HashMap}, que não é previsível.
+ *
+ * Os nós são guardados em arrays, com os filhos de cada nó ordenados pelo caractere. Cada trie é imutável e thread-safe, e as tries de cada locale,
+ * {@link TextStyle} e campo ficam em cache ({@link #of(Locale, TextStyle, ChronoField)}).
+ *
+ * Para usar os mesmos textos em um {@link DateTimeFormatter}, use {@link #getTextos()} com
+ * {@link DateTimeFormatterBuilder#appendText(java.time.temporal.TemporalField, Map)}. Porém o parsing feito pelo formatter continua sendo o do JDK,
+ * pois a classe que faz o parsing de textos não é pública e não pode ser substituída.
+ */
+public final class TrieTextos {
+
+    /**
+     * Valor retornado por {@link #buscar(CharSequence, int)} quando nenhum texto é encontrado
+     */
+    public static final long NAO_ENCONTRADO = -1;
+
+    private static final Map<String, TrieTextos> CACHE = new ConcurrentHashMap<>();
+
+    // filhos do nó i: posições de inicioFilhos[i] até inicioFilhos[i + 1] (exclusive) dos arrays caracteres e filhos
+    private final int[] inicioFilhos;
+
+    private final char[] caracteres;
+
+    private final int[] filhos;
+
+    // valor de cada nó (somente os nós em que termina um texto têm valor)
+    private final int[] valores;
+
+    private final boolean[] terminal;
+
+    private final Map<Long, String> textos;
+
+    private TrieTextos(Map<Long, String> textos) {
+        this.textos = Collections.unmodifiableMap(new LinkedHashMap<>(textos));
+        // primeiro monta a árvore usando mapas, depois converte para arrays
+        No raiz = new No();
+        int qtdNos = 1;
+        for (Map.Entry<Long, String> e : textos.entrySet()) {
+            long valor = e.getKey();
+            if (valor < 0 || valor > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Valor deve estar entre 0 e " + Integer.MAX_VALUE + ": " + valor);
+            }
+            String texto = e.getValue();
+            if (texto.isEmpty()) {
+                throw new IllegalArgumentException("Texto vazio para o valor " + valor);
+            }
+            No no = raiz;
+            for (int i = 0; i < texto.length(); i++) {
+                char c = normalizar(texto.charAt(i));
+                No filho = no.filhos.get(c);
+                if (filho == null) {
+                    filho = new No();
+                    no.filhos.put(c, filho);
+                    qtdNos++;
+                }
+                no = filho;
+            }
+            no.terminal = true;
+            no.valor = (int) valor;
+        }
+        this.inicioFilhos = new int[qtdNos + 1];
+        this.caracteres = new char[qtdNos - 1];
+        this.filhos = new int[qtdNos - 1];
+        this.valores = new int[qtdNos];
+        this.terminal = new boolean[qtdNos];
+        // numera os nós em largura, para que os filhos de cada nó fiquem em posições consecutivas
+        No[] fila = new No[qtdNos];
+        fila[0] = raiz;
+        int fim = 1;
+        int posFilho = 0;
+        for (int i = 0; i < qtdNos; i++) {
+            No no = fila[i];
+            valores[i] = no.valor;
+            terminal[i] = no.terminal;
+            inicioFilhos[i] = posFilho;
+            for (Map.Entry<Character, No> filho : no.filhos.entrySet()) {
+                caracteres[posFilho] = filho.getKey();
+                filhos[posFilho] = fim;
+                fila[fim++] = filho.getValue();
+                posFilho++;
+            }
+        }
+        inicioFilhos[qtdNos] = posFilho;
+    }
+
+    // nó usado somente durante a construção (TreeMap mantém os filhos ordenados)
+    private static final class No {
+
+        private final TreeMap<Character, No> filhos = new TreeMap<>();
+
+        private boolean terminal;
+
+        private int valor;
+    }
+
+    // mesma comparação usada pelo DateTimeFormatter quando é case insensitive
+    private static char normalizar(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Retorna a trie com os textos do campo, no locale e estilo indicados. Os campos suportados são {@link ChronoField#MONTH_OF_YEAR},
+     * {@link ChronoField#DAY_OF_WEEK}, {@link ChronoField#AMPM_OF_DAY} e {@link ChronoField#ERA}.
+     */
+    public static TrieTextos of(Locale locale, TextStyle estilo, ChronoField campo) {
+        String chave = locale.toLanguageTag() + "|" + estilo + "|" + campo;
+        return CACHE.computeIfAbsent(chave, k -> new TrieTextos(textos(locale, estilo, campo)));
+    }
+
+    /**
+     * Cria uma trie com os textos do mapa (as chaves são os valores do campo, como em
+     * {@link DateTimeFormatterBuilder#appendText(java.time.temporal.TemporalField, Map)}). Os valores devem estar entre zero e {@link Integer#MAX_VALUE}.
+     */
+    public static TrieTextos of(Map<Long, String> textos) {
+        return new TrieTextos(Objects.requireNonNull(textos, "textos"));
+    }
+
+    // textos do campo, obtidos das próprias classes do java.time
+    private static Map<Long, String> textos(Locale locale, TextStyle estilo, ChronoField campo) {
+        Map<Long, String> textos = new LinkedHashMap<>();
+        switch (campo) {
+            case MONTH_OF_YEAR:
+                for (Month mes : Month.values()) {
+                    textos.put((long) mes.getValue(), mes.getDisplayName(estilo, locale));
+                }
+                break;
+            case DAY_OF_WEEK:
+                for (DayOfWeek dia : DayOfWeek.values()) {
+                    textos.put((long) dia.getValue(), dia.getDisplayName(estilo, locale));
+                }
+                break;
+            case ERA:
+                for (IsoEra era : IsoEra.values()) {
+                    textos.put((long) era.getValue(), era.getDisplayName(estilo, locale));
+                }
+                break;
+            case AMPM_OF_DAY:
+                // não há um getDisplayName para AM/PM, então o texto é obtido com um formatter
+                DateTimeFormatter fmt = new DateTimeFormatterBuilder().appendText(ChronoField.AMPM_OF_DAY, estilo).toFormatter(locale);
+                textos.put(0L, fmt.format(LocalTime.MIDNIGHT));
+                textos.put(1L, fmt.format(LocalTime.NOON));
+                break;
+            default:
+                throw new IllegalArgumentException("Campo não suportado: " + campo);
+        }
+        return textos;
+    }
+
+    /**
+     * Procura o texto mais longo que começa na posição indicada.
+     *
+     * @return {@link #NAO_ENCONTRADO}, ou um <code>long</code> com a posição seguinte ao texto encontrado e o valor correspondente (use
+     *         {@link #posicao(long)} e {@link #valor(long)} para obtê-los)
+     */
+    public long buscar(CharSequence texto, int pos) {
+        int no = 0;
+        long encontrado = NAO_ENCONTRADO;
+        for (int i = pos; i < texto.length(); i++) {
+            int inicio = inicioFilhos[no];
+            int indice = Arrays.binarySearch(caracteres, inicio, inicioFilhos[no + 1], normalizar(texto.charAt(i)));
+            if (indice < 0) {
+                break;
+            }
+            no = filhos[indice];
+            if (terminal[no]) {
+                encontrado = ((long) (i + 1) << 32) | valores[no];
+            }
+        }
+        return encontrado;
+    }
+
+    /**
+     * Posição seguinte ao texto encontrado por {@link #buscar(CharSequence, int)}
+     */
+    public static int posicao(long resultado) {
+        return (int) (resultado >>> 32);
+    }
+
+    /**
+     * Valor do texto encontrado por {@link #buscar(CharSequence, int)}
+     */
+    public static int valor(long resultado) {
+        return (int) resultado;
+    }
+
+    /**
+     * Textos usados para criar a trie (as chaves são os valores do campo), que podem ser usados em
+     * {@link DateTimeFormatterBuilder#appendText(java.time.temporal.TemporalField, Map)}
+     */
+    public Map<Long, String> getTextos() {
+        return textos;
+    }
+
+    @Override
+    public String toString() {
+        return "TrieTextos" + textos.values();
+    }
+}
@@ -0,0 +1,126 @@
+package desempenho;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.zone.ZoneRules;
+import java.time.zone.ZoneRulesProvider;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Informações sobre o TZDB (o banco de dados de timezones usado pela JVM), usadas pelos índices e caches que dependem das regras dos timezones.
+ */
+final class Tzdb {
+
+    // timezone usado para obter a versão (presente em qualquer versão do TZDB)
+    private static final String ZONA_REFERENCIA = "Europe/London";
+
+    /**
+     * Intervalo mínimo entre duas consultas da versão em {@link #versaoRecente()}
+     */
+    static final long INTERVALO_VERIFICACAO_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static volatile VersaoConsultada ultimaConsulta;
+
+    private static final class VersaoConsultada {
+
+        private final String versao;
+
+        private final long consultadaEm;
+
+        private VersaoConsultada(String versao, long consultadaEm) {
+            this.versao = versao;
+            this.consultadaEm = consultadaEm;
+        }
+    }
+
+    private Tzdb() {
+    }
+
+    /**
+     * Versão do TZDB atualmente carregada (por exemplo, "2023c"). Se a JVM carregar outra versão (ao atualizar as regras com
+     * {@link ZoneRulesProvider#refresh()}), os caches que dependem dela devem ser recriados.
+     */
+    static String versao() {
+        NavigableMap<String, ZoneRules> versoes = ZoneRulesProvider.getVersions(ZONA_REFERENCIA);
+        return versoes.isEmpty() ? "" : versoes.lastKey();
+    }
+
+    /**
+     * O mesmo que {@link #versao()}, mas consulta o {@link ZoneRulesProvider} no máximo uma vez a cada {@link #INTERVALO_VERIFICACAO_NANOS} (a consulta
+     * cria um mapa a cada chamada). Usado pelos índices globais, que verificam a versão em toda chamada: uma nova versão carregada por
+     * {@link ZoneRulesProvider#refresh()} é percebida depois de no máximo 1 segundo.
+     */
+    static String versaoRecente() {
+        VersaoConsultada consulta = ultimaConsulta;
+        long agora = System.nanoTime();
+        if (consulta == null || agora - consulta.consultadaEm >= INTERVALO_VERIFICACAO_NANOS) {
+            consulta = new VersaoConsultada(versao(), agora);
+            ultimaConsulta = consulta;
+        }
+        return consulta.versao;
+    }
+
+    /**
+     * Links do TZDB (id antigo ou alternativo -> id principal, como "Asia/Calcutta" -> "Asia/Kolkata"), ou um mapa vazio se não for possível obtê-los.
+     *
+     * A API pública da JVM não informa quais ids são links (os dois têm as mesmas {@link ZoneRules}), então eles são lidos do arquivo
+     * <code>lib/tzdb.dat</code> da JVM, no mesmo formato lido por {@link ZoneRulesProvider}: versões, ids, regras, as regras de cada id e, no final, os
+     * links. Outras JVMs, ou versões com outro formato, simplesmente não têm os links.
+     */
+    static Map<String, String> links() {
+        return Links.LINKS;
+    }
+
+    // carregado somente no primeiro uso
+    private static final class Links {
+
+        private static final Map<String, String> LINKS = ler(Paths.get(System.getProperty("java.home"), "lib", "tzdb.dat"));
+
+        private static Map<String, String> ler(Path arquivo) {
+            try (InputStream in = Files.newInputStream(arquivo)) {
+                DataInputStream dis = new DataInputStream(new BufferedInputStream(in));
+                if (dis.readByte() != 1 || !"TZDB".equals(dis.readUTF())) {
+                    return Collections.emptyMap();
+                }
+                int qtdVersoes = dis.readShort();
+                for (int i = 0; i < qtdVersoes; i++) {
+                    dis.readUTF();
+                }
+                String[] ids = new String[dis.readShort()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = dis.readUTF();
+                }
+                int qtdRegras = dis.readShort();
+                for (int i = 0; i < qtdRegras; i++) {
+                    dis.skipBytes(dis.readShort());
+                }
+                // regras de cada id, em cada versão
+                for (int i = 0; i < qtdVersoes; i++) {
+                    dis.skipBytes(dis.readShort() * 4);
+                }
+                // links (somente os da última versão são usados)
+                Map<String, String> links = new HashMap<>();
+                for (int i = 0; i < qtdVersoes; i++) {
+                    links.clear();
+                    int qtdLinks = dis.readShort();
+                    for (int j = 0; j < qtdLinks; j++) {
+                        links.put(ids[dis.readShort()], ids[dis.readShort()]);
+                    }
+                }
+                return Collections.unmodifiableMap(links);
+            } catch (IOException | RuntimeException e) {
+                // arquivo inexistente ou em outro formato
+                return Collections.emptyMap();
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package desempenho;
+
+import java.text.Format;
+import java.text.ParsePosition;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+
+import exemplos.part3.Cap18Parsing;
+
+/**
+ * Validação de datas com {@link ResolverStyle#STRICT} para patterns como <code>uuuu-MM-dd</code> e <code>dd/MM/uuuu</code>, sem passar pelo
+ * {@link DateTimeFormatter} (ver {@link Cap18Parsing#modosDeParsing()}).
+ *
+ * O {@link DateTimeFormatter} guarda os campos em um objeto intermediário (<code>java.time.format.Parsed</code>), que depois é resolvido e validado, e
+ * lança uma exceção para cada data inválida. Aqui, como o pattern só tem ano, mês e dia, com tamanho fixo, os dígitos são lidos diretamente das posições
+ * conhecidas e os limites de cada campo (incluindo o último dia de cada mês) são verificados com aritmética de inteiros, sem criar nenhum objeto.
+ *
+ * O resultado é sempre igual ao do {@link DateTimeFormatter} com o mesmo pattern e {@link ResolverStyle#STRICT}. O único caso em que o formatter é usado
+ * é quando a String é maior que o pattern (por exemplo, anos com sinal, como "+12345-01-01"), o que é raro. São aceitos somente os símbolos
+ * <code>uuuu</code>, <code>MM</code> e <code>dd</code> (uma vez cada) e literais ASCII (o pattern é compilado da mesma forma que no
+ * {@link ExtratorTimestampsLog}). <code>yyyy</code> não é aceito, pois com
+ * {@link ResolverStyle#STRICT} ele também precisa da era (ver {@link Cap18Parsing#patternsParaAno()}).
+ *
+ * As instâncias são imutáveis e thread-safe.
+ */
+public final class ValidadorStrict {
+
+    /**
+     * Valor retornado por {@link #epochDay(CharSequence)} quando a data é inválida
+     */
+    public static final long INVALIDO = Long.MIN_VALUE;
+
+    private final String pattern;
+
+    private final DateTimeFormatter formatter;
+
+    private final PadraoNumerico padrao;
+
+    private ValidadorStrict(String pattern, PadraoNumerico padrao) {
+        this.pattern = pattern;
+        this.formatter = DateTimeFormatter.ofPattern(pattern).withResolverStyle(ResolverStyle.STRICT);
+        this.padrao = padrao;
+    }
+
+    /**
+     * Cria o validador para o pattern.
+     *
+     * @throws IllegalArgumentException
+     *             se o pattern não tiver exatamente <code>uuuu</code>, <code>MM</code> e <code>dd</code>, além de literais
+     */
+    public static ValidadorStrict of(String pattern) {
+        PadraoNumerico padrao = PadraoNumerico.compilar(pattern);
+        if (padrao == null || !padrao.somenteData() || padrao.anoDaEra()) {
+            throw new IllegalArgumentException("Pattern não suportado (deve ter uuuu, MM e dd, além de literais): " + pattern);
+        }
+        return new ValidadorStrict(pattern, padrao);
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * O {@link DateTimeFormatter} equivalente (com {@link ResolverStyle#STRICT})
+     */
+    public DateTimeFormatter getFormatter() {
+        return formatter;
+    }
+
+    public boolean valido(CharSequence s) {
+        return epochDay(s) != INVALIDO;
+    }
+
+    /**
+     * Retorna a data em dias desde 1970-01-01 (o mesmo valor de {@link LocalDate#toEpochDay()}), ou {@link #INVALIDO} se a data for inválida. Não lança
+     * exceções.
+     */
+    public long epochDay(CharSequence s) {
+        int len = s.length();
+        if (len > padrao.tamanho()) {
+            // maior que o pattern só pode ser válido se o ano tiver sinal e mais de 4 dígitos
+            return epochDayFormatter(s);
+        }
+        return padrao.epochDay(s);
+    }
+
+    // caso raro, usa o próprio formatter (sem lançar exceção)
+    private long epochDayFormatter(CharSequence s) {
+        String str = s.toString();
+        ParsePosition pos = new ParsePosition(0);
+        Format format = formatter.toFormat();
+        TemporalAccessor parsed = (TemporalAccessor) format.parseObject(str, pos);
+        if (parsed == null || pos.getIndex() != str.length()) {
+            return INVALIDO;
+        }
+        return parsed.getLong(ChronoField.EPOCH_DAY);
+    }
+
+    /**
+     * Mesmo que <code>LocalDate.parse(s, getFormatter())</code>. A exceção é a mesma do {@link DateTimeFormatter}, pois as datas inválidas são passadas para
+     * ele, para obter a mensagem de erro.
+     *
+     * @throws java.time.format.DateTimeParseException
+     *             se a data for inválida
+     */
+    public LocalDate parse(CharSequence s) {
+        long epochDay = epochDay(s);
+        if (epochDay == INVALIDO) {
+            return LocalDate.parse(s, formatter);
+        }
+        return LocalDate.ofEpochDay(epochDay);
+    }
+}
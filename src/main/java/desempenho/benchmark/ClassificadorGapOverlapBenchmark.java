@@ -0,0 +1,96 @@
+package desempenho.benchmark;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneRules;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import desempenho.ClassificadorGapOverlap;
+import desempenho.ClassificadorGapOverlap.Politica;
+
+/**
+ * Compara {@link ZoneRules#getValidOffsets(LocalDateTime)} e {@link ZonedDateTime#of(LocalDateTime, ZoneId)} (um valor por vez) com
+ * {@link ClassificadorGapOverlap} (todos os valores de uma vez), para datas/horas locais a cada 15 minutos em São Paulo, a partir de 2017-10-01
+ * (passando pelo gap de 15 de outubro).
+ *
+ * Para rodar: <code>mvn package</code> e depois execute o método main desta classe (ou <code>java -cp ... org.openjdk.jmh.Main</code>).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassificadorGapOverlapBenchmark {
+
+    private static final int QTD = 1000;
+
+    private final ZoneId zona = ZoneId.of("America/Sao_Paulo");
+
+    private final ZoneRules regras = zona.getRules();
+
+    private final ClassificadorGapOverlap classificador = ClassificadorGapOverlap.of(zona);
+
+    private final long[] locais = new long[QTD];
+
+    private final LocalDateTime[] datasHoras = new LocalDateTime[QTD];
+
+    private final byte[] tipos = new byte[QTD];
+
+    private final long[] resolvidos = new long[QTD];
+
+    @org.openjdk.jmh.annotations.Setup
+    public void setup() {
+        long inicio = LocalDateTime.of(2017, 10, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+        for (int i = 0; i < QTD; i++) {
+            locais[i] = inicio + i * 900L;
+            datasHoras[i] = LocalDateTime.ofEpochSecond(locais[i], 0, ZoneOffset.UTC);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QTD)
+    public int validOffsets() {
+        int total = 0;
+        for (LocalDateTime dataHora : datasHoras) {
+            total += regras.getValidOffsets(dataHora).size();
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QTD)
+    public long zonedDateTime() {
+        long total = 0;
+        for (LocalDateTime dataHora : datasHoras) {
+            total += ZonedDateTime.of(dataHora, zona).toEpochSecond();
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QTD)
+    public int classificador() {
+        return classificador.classificar(locais, 0, QTD, Politica.ANTERIOR, tipos, resolvidos);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ClassificadorGapOverlapBenchmark.class.getSimpleName()).build()).run();
+    }
+}
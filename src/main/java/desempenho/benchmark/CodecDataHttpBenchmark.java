@@ -0,0 +1,95 @@
+package desempenho.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import desempenho.CodecDataHttp;
+import exemplos.part3.Cap18Parsing;
+
+/**
+ * Compara o {@link CodecDataHttp} com {@link DateTimeFormatter#RFC_1123_DATE_TIME}, no parsing e na formatação, e com o workaround de
+ * {@link Cap18Parsing#parseGmtOffset()} (que adiciona um espaço no final da String) para datas como "08 Jul 2018 13:34:21 GMT-8".
+ *
+ * Nos métodos do {@link DateTimeFormatter}, a conversão entre bytes e String também é medida, pois em um servidor HTTP os cabeçalhos são lidos e escritos
+ * em bytes.
+ *
+ * Para rodar: <code>mvn package</code> e depois execute o método main desta classe (ou <code>java -cp ... org.openjdk.jmh.Main</code>).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecDataHttpBenchmark {
+
+    private static final DateTimeFormatter PARSER_GMT_OFFSET = DateTimeFormatter.ofPattern("dd MMM yyyy HH:mm:ss O ", Locale.ENGLISH);
+
+    private final byte[] rfc1123 = "Sun, 06 Nov 1994 08:49:37 GMT".getBytes(StandardCharsets.US_ASCII);
+
+    private final byte[] gmtOffset = "08 Jul 2018 13:34:21 GMT-8".getBytes(StandardCharsets.US_ASCII);
+
+    private final OffsetDateTime dataHora = OffsetDateTime.of(2018, 7, 8, 13, 34, 21, 0, ZoneOffset.UTC);
+
+    private final long epochSegundo = dataHora.toEpochSecond();
+
+    // reutilizados a cada chamada
+    private final CodecDataHttp.Valor valor = new CodecDataHttp.Valor();
+
+    private final byte[] saida = new byte[CodecDataHttp.TAMANHO_MAXIMO];
+
+    @Benchmark
+    public OffsetDateTime parseRfc1123Formatter() {
+        return OffsetDateTime.parse(new String(rfc1123, StandardCharsets.US_ASCII), DateTimeFormatter.RFC_1123_DATE_TIME);
+    }
+
+    @Benchmark
+    public long parseRfc1123Codec() {
+        CodecDataHttp.decodificar(rfc1123, 0, rfc1123.length, valor);
+        return valor.epochSegundo;
+    }
+
+    @Benchmark
+    public OffsetDateTime parseGmtOffsetWorkaround() {
+        // mesmo workaround de Cap18Parsing.parseGmtOffset: espaço no final da String e do pattern
+        return OffsetDateTime.parse(new String(gmtOffset, StandardCharsets.US_ASCII) + " ", PARSER_GMT_OFFSET);
+    }
+
+    @Benchmark
+    public long parseGmtOffsetCodec() {
+        CodecDataHttp.decodificar(gmtOffset, 0, gmtOffset.length, valor);
+        return valor.epochSegundo;
+    }
+
+    @Benchmark
+    public byte[] formatarFormatter() {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(dataHora).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    public byte[] formatarCodec() {
+        CodecDataHttp.codificar(epochSegundo, 0, saida, 0);
+        return saida;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CodecDataHttpBenchmark.class.getSimpleName()).build()).run();
+    }
+}
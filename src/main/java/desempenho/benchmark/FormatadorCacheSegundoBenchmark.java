@@ -0,0 +1,90 @@
+package desempenho.benchmark;
+
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import desempenho.FormatadorCacheSegundo;
+import exemplos.part3.Cap20Migracao;
+
+/**
+ * Compara o {@link FormatadorCacheSegundo} com {@link DateTimeFormatter} e {@link SimpleDateFormat}, usando o pattern de
+ * {@link Cap20Migracao#simpleDateFormatVsDateTimeFormatter()} com milissegundos. Cada chamada avança o timestamp em 1 milissegundo, simulando um log
+ * com mil linhas por segundo.
+ *
+ * Para rodar: <code>mvn package</code> e depois execute o método main desta classe (ou <code>java -cp ... org.openjdk.jmh.Main</code>).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatadorCacheSegundoBenchmark {
+
+    private static final String PATTERN = "dd/MM/yyyy HH:mm:ss.SSS";
+
+    private static final ZoneId ZONA = ZoneId.of("America/Sao_Paulo");
+
+    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern(PATTERN, Locale.ENGLISH).withZone(ZONA);
+
+    private final FormatadorCacheSegundo cache = new FormatadorCacheSegundo(PATTERN, Locale.ENGLISH, ZONA);
+
+    private final SimpleDateFormat sdf = new SimpleDateFormat(PATTERN, Locale.ENGLISH);
+
+    private final StringBuilder sb = new StringBuilder();
+
+    // 2018-05-04T17:00-03:00
+    private long epochMilli = 1525464000000L;
+
+    @org.openjdk.jmh.annotations.Setup
+    public void setup() {
+        sdf.setTimeZone(TimeZone.getTimeZone(ZONA));
+    }
+
+    @Benchmark
+    public String dateTimeFormatter() {
+        return formatter.format(Instant.ofEpochMilli(epochMilli++));
+    }
+
+    @Benchmark
+    public String simpleDateFormat() {
+        return sdf.format(new Date(epochMilli++));
+    }
+
+    @Benchmark
+    public String cacheSegundo() {
+        return cache.formatar(epochMilli++);
+    }
+
+    @Benchmark
+    public StringBuilder cacheSegundoStringBuilder() {
+        // sem criar a String (por exemplo, quando a linha do log é montada em um StringBuilder)
+        sb.setLength(0);
+        long ms = epochMilli++;
+        cache.formatar(Math.floorDiv(ms, 1000), (int) Math.floorMod(ms, 1000) * 1000000, sb);
+        return sb;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FormatadorCacheSegundoBenchmark.class.getSimpleName()).build()).run();
+    }
+}
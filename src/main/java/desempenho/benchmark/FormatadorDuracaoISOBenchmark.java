@@ -0,0 +1,115 @@
+package desempenho.benchmark;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.temporal.ChronoUnit;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import desempenho.FormatadorDuracaoISO;
+import exemplos.part2.Cap10Aritmetica;
+
+/**
+ * Compara o {@link FormatadorDuracaoISO} com o <code>printf</code> de {@link Cap10Aritmetica#duracaoISO8601()} (meses de 30 dias) e com o cálculo
+ * exato usando os objetos do java.time ({@link LocalDateTime#until(java.time.temporal.Temporal, java.time.temporal.TemporalUnit)}, {@link Period} e
+ * {@link Duration}). Os resultados são medidos por duração.
+ *
+ * Para rodar: <code>mvn package</code> e depois execute o método main desta classe (ou <code>java -cp ... org.openjdk.jmh.Main</code>).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatadorDuracaoISOBenchmark {
+
+    private static final int QTD = 1000;
+
+    // 2018-05-04T17:00
+    private final LocalDateTime inicio = LocalDateTime.of(2018, 5, 4, 17, 0);
+
+    private final FormatadorDuracaoISO formatador = new FormatadorDuracaoISO(inicio);
+
+    private final long[] millis = new long[QTD];
+
+    private final byte[] buffer = new byte[QTD * FormatadorDuracaoISO.TAMANHO_MAXIMO];
+
+    private final int[] fins = new int[QTD];
+
+    @org.openjdk.jmh.annotations.Setup
+    public void setup() {
+        // durações de até 2 anos
+        Random random = new Random(1);
+        for (int i = 0; i < QTD; i++) {
+            millis[i] = (long) (random.nextDouble() * 2 * 365 * 86400000L);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QTD)
+    public int printf30Dias() {
+        int total = 0;
+        for (long ms : millis) {
+            long segundos = ms / 1000;
+            long minutos = segundos / 60;
+            long horas = minutos / 60;
+            long dias = horas / 24;
+            long meses = dias / 30;
+            total += String.format("P%dM%dDT%dH%dM%d.%dS", meses, dias - meses * 30, horas % 24, minutos % 60, segundos % 60, ms % 1000).length();
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QTD)
+    public int javaTime() {
+        int total = 0;
+        for (long ms : millis) {
+            LocalDateTime fim = inicio.plus(Duration.ofMillis(ms));
+            long meses = inicio.until(fim, ChronoUnit.MONTHS);
+            LocalDateTime inicioMaisMeses = inicio.plusMonths(meses);
+            long dias = inicioMaisMeses.until(fim, ChronoUnit.DAYS);
+            Period periodo = Period.of((int) (meses / 12), (int) (meses % 12), (int) dias);
+            Duration resto = Duration.between(inicioMaisMeses.plusDays(dias), fim);
+            total += (periodo.toString() + resto.toString().substring(1)).length();
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QTD)
+    public int formatadorString() {
+        int total = 0;
+        for (long ms : millis) {
+            total += formatador.formatar(ms).length();
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QTD)
+    public int formatadorLote() {
+        // sem criar Strings, reutilizando o mesmo buffer
+        return formatador.escrever(millis, 0, QTD, buffer, 0, fins);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FormatadorDuracaoISOBenchmark.class.getSimpleName()).build()).run();
+    }
+}
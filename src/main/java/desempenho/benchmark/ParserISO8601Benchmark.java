@@ -0,0 +1,87 @@
+package desempenho.benchmark;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.TemporalAccessor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import desempenho.ParserISO8601;
+import exemplos.part3.Cap18Parsing;
+
+/**
+ * Compara o {@link ParserISO8601} com o <code>DateTimeFormatterBuilder</code> + <code>parseBest</code> usado em {@link Cap18Parsing#formatosISO8601()}.
+ *
+ * São medidas duas versões do formatter: criado a cada chamada (como em <code>Cap18Parsing</code>) e criado uma única vez, para separar o custo de construção
+ * do custo do parsing em si.
+ *
+ * Para rodar: <code>mvn package</code> e depois execute o método main desta classe (ou <code>java -cp ... org.openjdk.jmh.Main ParserISO8601Benchmark</code>).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserISO8601Benchmark {
+
+    // os mesmos formatos de Cap18Parsing.formatosISO8601()
+    @Param({ "2018-02-10T10:30:45.143923Z", "2018-02-10T10:30:45.561-0100", "2018-02-10T10:30:45+05:30", "2018-02-10T10:30:45", "2018-02-10" })
+    String entrada;
+
+    private DateTimeFormatter parserPronto;
+
+    @org.openjdk.jmh.annotations.Setup
+    public void setup() {
+        parserPronto = criaParser();
+    }
+
+    // mesmo formatter usado em Cap18Parsing.parseBest
+    private static DateTimeFormatter criaParser() {
+        return new DateTimeFormatterBuilder()
+            .append(DateTimeFormatter.ISO_LOCAL_DATE)
+            .optionalStart()
+            .appendLiteral('T')
+            .append(DateTimeFormatter.ISO_LOCAL_TIME)
+            .optionalStart()
+            .appendPattern("[XXX][XX][X]")
+            .optionalEnd()
+            .optionalEnd()
+            .toFormatter();
+    }
+
+    @Benchmark
+    public TemporalAccessor builderACadaChamada() {
+        return criaParser().parseBest(entrada, OffsetDateTime::from, LocalDateTime::from, LocalDate::from);
+    }
+
+    @Benchmark
+    public TemporalAccessor builderPronto() {
+        return parserPronto.parseBest(entrada, OffsetDateTime::from, LocalDateTime::from, LocalDate::from);
+    }
+
+    @Benchmark
+    public TemporalAccessor parserISO8601() {
+        return ParserISO8601.parse(entrada);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ParserISO8601Benchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,128 @@
+package desempenho.benchmark;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneRules;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import desempenho.RegrasCompiladas;
+
+/**
+ * Compara {@link ZoneRules#getOffset(Instant)} com {@link RegrasCompiladas}, para instantes aleatórios (entre 1970 e 2100) e para instantes
+ * próximos (a cada minuto, como em um arquivo de log). Também compara {@link ZonedDateTime#ofInstant(Instant, ZoneId)} com o timezone original e
+ * com o timezone compilado.
+ *
+ * Para rodar: <code>mvn package</code> e depois execute o método main desta classe (ou <code>java -cp ... org.openjdk.jmh.Main</code>).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegrasCompiladasBenchmark {
+
+    private static final int QTD = 1000;
+
+    private final ZoneId zona = ZoneId.of("Europe/London");
+
+    private final ZoneRules regras = zona.getRules();
+
+    private final RegrasCompiladas compiladas = RegrasCompiladas.of(zona);
+
+    private final ZoneId zonaCompilada = compiladas.getZonaCompilada();
+
+    private final Instant[] aleatorios = new Instant[QTD];
+
+    private final Instant[] proximos = new Instant[QTD];
+
+    @org.openjdk.jmh.annotations.Setup
+    public void setup() {
+        Random random = new Random(1);
+        for (int i = 0; i < QTD; i++) {
+            aleatorios[i] = Instant.ofEpochSecond((long) (random.nextDouble() * 4_102_444_800L));
+            // 2018-05-04T20:00Z, a cada minuto
+            proximos[i] = Instant.ofEpochSecond(1525464000L + i * 60);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QTD)
+    public int zoneRulesAleatorios() {
+        int total = 0;
+        for (Instant instante : aleatorios) {
+            total += regras.getOffset(instante).getTotalSeconds();
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QTD)
+    public int compiladasAleatorios() {
+        int total = 0;
+        for (Instant instante : aleatorios) {
+            total += compiladas.offsetSegundos(instante.getEpochSecond());
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QTD)
+    public int zoneRulesProximos() {
+        int total = 0;
+        for (Instant instante : proximos) {
+            total += regras.getOffset(instante).getTotalSeconds();
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QTD)
+    public int compiladasProximos() {
+        int total = 0;
+        for (Instant instante : proximos) {
+            total += compiladas.offsetSegundos(instante.getEpochSecond());
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QTD)
+    public int zonedDateTimeOriginal() {
+        int total = 0;
+        for (Instant instante : aleatorios) {
+            total += ZonedDateTime.ofInstant(instante, zona).getHour();
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QTD)
+    public int zonedDateTimeCompilado() {
+        int total = 0;
+        for (Instant instante : aleatorios) {
+            total += ZonedDateTime.ofInstant(instante, zonaCompilada).getHour();
+        }
+        return total;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RegrasCompiladasBenchmark.class.getSimpleName()).build()).run();
+    }
+}
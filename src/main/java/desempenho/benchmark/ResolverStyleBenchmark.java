@@ -0,0 +1,83 @@
+package desempenho.benchmark;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.time.temporal.TemporalAccessor;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import exemplos.part3.Cap18Parsing;
+
+/**
+ * Mede o custo de cada {@link ResolverStyle} para os patterns usados em {@link Cap18Parsing} (ver {@link Cap18Parsing#modosDeParsing()}).
+ *
+ * Para cada combinação são medidas uma data válida e uma com dia 31 de abril, que é ajustada para 30 de abril com {@link ResolverStyle#SMART}, para 1 de
+ * maio com {@link ResolverStyle#LENIENT}, e lança exceção com {@link ResolverStyle#STRICT} (por isso o resultado de <code>parseDiaInvalido</code> inclui o
+ * custo da exceção).
+ *
+ * Para rodar: <code>mvn package</code> e depois execute o método main desta classe (ou <code>java -cp ... org.openjdk.jmh.Main ResolverStyleBenchmark</code>).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResolverStyleBenchmark {
+
+    // patterns de Cap18Parsing (exemplosBasicos, modosDeParsing, dataHoraSemSeparadores e textosCustomizados)
+    @Param({ "dd/MM/uuuu", "uuuu-MM-dd", "dd/MM/uuuu HH:mm", "uuuuMMddHHmmss", "dd MMM uuuu" })
+    String pattern;
+
+    @Param({ "STRICT", "SMART", "LENIENT" })
+    ResolverStyle resolverStyle;
+
+    private DateTimeFormatter parser;
+
+    private String entrada;
+
+    private String entradaDiaInvalido;
+
+    @org.openjdk.jmh.annotations.Setup
+    public void setup() {
+        parser = DateTimeFormatter.ofPattern(pattern, Locale.ENGLISH).withResolverStyle(resolverStyle);
+        LocalDateTime dataHora = LocalDateTime.of(2018, 4, 30, 17, 30, 45);
+        entrada = parser.format(dataHora);
+        // mesmo pattern, mas com o dia fixo em 31 (31 de abril)
+        entradaDiaInvalido = DateTimeFormatter.ofPattern(pattern.replace("dd", "'31'"), Locale.ENGLISH).format(dataHora);
+    }
+
+    @Benchmark
+    public TemporalAccessor parse() {
+        return parser.parse(entrada);
+    }
+
+    @Benchmark
+    public TemporalAccessor parseDiaInvalido() {
+        try {
+            return parser.parse(entradaDiaInvalido);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ResolverStyleBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,105 @@
+package desempenho.benchmark;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import desempenho.TextoCustomizado;
+import exemplos.part3.Cap17Formatacao;
+
+/**
+ * Compara o {@link TextoCustomizado.Formatador} com o {@link DateTimeFormatter} criado com
+ * {@link DateTimeFormatterBuilder#appendText(java.time.temporal.TemporalField, Map)}, usando os textos de {@link Cap17Formatacao#textoCustomizadoAmPm()}
+ * e um nome customizado para cada dia da semana.
+ *
+ * Para rodar: <code>mvn package</code> e depois execute o método main desta classe (ou <code>java -cp ... org.openjdk.jmh.Main</code>).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextoCustomizadoBenchmark {
+
+    private DateTimeFormatter formatter;
+
+    private TextoCustomizado.Formatador formatador;
+
+    private final StringBuilder sb = new StringBuilder();
+
+    private static final String TEXTO = "sextou, 05:00 da tarde";
+
+    // 2018-05-04T17:00
+    private LocalDateTime dataHora = LocalDateTime.of(2018, 5, 4, 17, 0);
+
+    @org.openjdk.jmh.annotations.Setup
+    public void setup() {
+        Map<Long, String> periodos = new HashMap<>();
+        periodos.put(0L, "manhã");
+        periodos.put(1L, "tarde");
+        Map<Long, String> dias = new HashMap<>();
+        String[] nomes = { "segundona", "terça", "quarta", "quinta", "sextou", "sábado", "domingo" };
+        for (int i = 0; i < nomes.length; i++) {
+            dias.put(i + 1L, nomes[i]);
+        }
+        Locale locale = new Locale("pt", "BR");
+        formatter = new DateTimeFormatterBuilder().appendText(ChronoField.DAY_OF_WEEK, dias).appendPattern(", hh:mm 'da' ")
+            .appendText(ChronoField.AMPM_OF_DAY, periodos).toFormatter(locale);
+        formatador = new TextoCustomizado.Construtor().appendText(ChronoField.DAY_OF_WEEK, dias).appendPattern(", hh:mm 'da' ")
+            .appendText(ChronoField.AMPM_OF_DAY, periodos).toFormatter(locale);
+    }
+
+    @Benchmark
+    public String dateTimeFormatter() {
+        dataHora = dataHora.plusMinutes(97);
+        return formatter.format(dataHora);
+    }
+
+    @Benchmark
+    public String textoCustomizado() {
+        dataHora = dataHora.plusMinutes(97);
+        return formatador.format(dataHora);
+    }
+
+    @Benchmark
+    public StringBuilder textoCustomizadoStringBuilder() {
+        dataHora = dataHora.plusMinutes(97);
+        sb.setLength(0);
+        formatador.formatTo(dataHora, sb);
+        return sb;
+    }
+
+    @Benchmark
+    public TemporalAccessor parseDateTimeFormatter() {
+        return formatter.parse(TEXTO);
+    }
+
+    @Benchmark
+    public TemporalAccessor parseTextoCustomizado() {
+        return formatador.parse(TEXTO);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TextoCustomizadoBenchmark.class.getSimpleName()).build()).run();
+    }
+}
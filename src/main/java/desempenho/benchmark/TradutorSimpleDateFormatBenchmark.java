@@ -0,0 +1,87 @@
+package desempenho.benchmark;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import desempenho.TradutorSimpleDateFormat;
+import exemplos.part3.Cap20Migracao;
+
+/**
+ * Compara a criação de um {@link SimpleDateFormat} a cada chamada (como no código legado que não pode compartilhar a instância entre threads) com o
+ * {@link TradutorSimpleDateFormat.FormatLegado}, usando o pattern de {@link Cap20Migracao#simpleDateFormatVsDateTimeFormatter()}. O benchmark
+ * <code>traduzirACadaChamada</code> mede o custo de obter o formatter já traduzido (que fica em cache) a cada chamada.
+ *
+ * Para rodar: <code>mvn package</code> e depois execute o método main desta classe (ou <code>java -cp ... org.openjdk.jmh.Main</code>).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TradutorSimpleDateFormatBenchmark {
+
+    private static final String PATTERN = "dd/MM/yyyy HH:mm";
+
+    private static final TimeZone ZONA = TimeZone.getTimeZone("America/Sao_Paulo");
+
+    private final TradutorSimpleDateFormat.FormatLegado format = TradutorSimpleDateFormat.of(PATTERN).comLocale(Locale.ENGLISH)
+        .comZona(ZONA.toZoneId()).toFormat();
+
+    // 2018-05-04T17:00-03:00
+    private final Date data = new Date(1525464000000L);
+
+    private final String texto = "04/05/2018 17:00";
+
+    private SimpleDateFormat novoSimpleDateFormat() {
+        SimpleDateFormat sdf = new SimpleDateFormat(PATTERN, Locale.ENGLISH);
+        sdf.setTimeZone(ZONA);
+        return sdf;
+    }
+
+    @Benchmark
+    public String formatarSimpleDateFormat() {
+        return novoSimpleDateFormat().format(data);
+    }
+
+    @Benchmark
+    public String formatarFormatLegado() {
+        return format.format(data);
+    }
+
+    @Benchmark
+    public String traduzirACadaChamada() {
+        return TradutorSimpleDateFormat.of(PATTERN).comLocale(Locale.ENGLISH).comZona(ZONA.toZoneId()).toFormat().format(data);
+    }
+
+    @Benchmark
+    public Date parseSimpleDateFormat() throws ParseException {
+        return novoSimpleDateFormat().parse(texto);
+    }
+
+    @Benchmark
+    public Date parseFormatLegado() throws ParseException {
+        return format.parse(texto);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TradutorSimpleDateFormatBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,84 @@
+package desempenho.benchmark;
+
+import java.text.Format;
+import java.text.ParsePosition;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import desempenho.ValidadorStrict;
+
+/**
+ * Compara o {@link ValidadorStrict} com o <code>DateTimeFormatter</code> em modo STRICT, usando <code>LocalDate.parse</code> (que lança exceção para
+ * datas inválidas) e <code>Format.parseObject</code> (que não lança).
+ *
+ * Para rodar: <code>mvn package</code> e depois execute o método main desta classe (ou <code>java -cp ... org.openjdk.jmh.Main</code>).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidadorStrictBenchmark {
+
+    @Param({ "uuuu-MM-dd", "dd/MM/uuuu" })
+    String pattern;
+
+    @Param({ "valida", "31 de abril" })
+    String caso;
+
+    private ValidadorStrict validador;
+
+    private Format format;
+
+    private String entrada;
+
+    @org.openjdk.jmh.annotations.Setup
+    public void setup() {
+        validador = ValidadorStrict.of(pattern);
+        format = validador.getFormatter().toFormat();
+        // 30 de abril, ou 31 de abril (que não existe e não pode ser criado com LocalDate, então o dia é colocado diretamente no pattern)
+        LocalDate data = LocalDate.of(2018, 4, 30);
+        String dia = "valida".equals(caso) ? String.format("%02d", data.getDayOfMonth()) : "31";
+        entrada = pattern.replace("uuuu", String.format("%04d", data.getYear())).replace("MM", String.format("%02d", data.getMonthValue()))
+            .replace("dd", dia);
+    }
+
+    @Benchmark
+    public long localDateParse() {
+        try {
+            return LocalDate.parse(entrada, validador.getFormatter()).toEpochDay();
+        } catch (DateTimeParseException e) {
+            return ValidadorStrict.INVALIDO;
+        }
+    }
+
+    @Benchmark
+    public Object parseObject() {
+        return format.parseObject(entrada, new ParsePosition(0));
+    }
+
+    @Benchmark
+    public long validadorStrict() {
+        return validador.epochDay(entrada);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ValidadorStrictBenchmark.class.getSimpleName()).build()).run();
+    }
+}
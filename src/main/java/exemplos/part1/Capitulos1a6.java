@@ -27,6 +27,9 @@ import java.util.stream.Stream;
 
 import org.joda.time.Years;
 
+import desempenho.IndiceOffsets;
+import desempenho.RegistroFormatters;
+
 /**
  * A primeira parte do livro não possui código propriamente dito, mas fiz alguns códigos em Java para ilustrar os exemplos do livro.
  * 
@@ -209,6 +212,9 @@ public class Capitulos1a6 {
 
         // procurar timezones para 1 de Outubro de 2018, às 17 horas em São Paulo (total: 44)
         getZonesByOffset(i.plus(Duration.ofDays(180)), offset);
+
+        // desempenho.IndiceOffsets faz a mesma busca sem consultar as regras de todos os timezones
+        System.out.println(IndiceOffsets.global().zonas(offset, i).size()); // 57
     }
 
     // dado um Instant e um offset, verifica quais os timezones que usam este offset naquele instante
@@ -349,22 +355,30 @@ public class Capitulos1a6 {
         System.out.println(dias); // 28
     }
 
+    // nomes no registro das 4 combinações de criaFormatter, criados uma única vez (índice: 2 para horas opcionais + 1 para fração de segundos)
+    private static final String[] NOMES_FORMATTERS = { "Capitulos1a6.criaFormatter(false,false)", "Capitulos1a6.criaFormatter(false,true)",
+        "Capitulos1a6.criaFormatter(true,false)", "Capitulos1a6.criaFormatter(true,true)" };
+
     public DateTimeFormatter criaFormatter(boolean incluirHorasOpcional, boolean incluirFracaoSegundos) {
-        DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder();
-        // usar formatador predefinido para data (yyyy-MM-dd)
-        builder.append(DateTimeFormatter.ISO_LOCAL_DATE);
-
-        if (incluirHorasOpcional) {
-            // seção opcional com as horas
-            builder.optionalStart().appendPattern(" HH:mm:ss");
-            if (incluirFracaoSegundos) {
-                builder.appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true);
+        // só existem 4 combinações possíveis, então cada uma é criada uma única vez e guardada no registro
+        String nome = NOMES_FORMATTERS[(incluirHorasOpcional ? 2 : 0) + (incluirFracaoSegundos ? 1 : 0)];
+        return RegistroFormatters.global().obter(nome, () -> {
+            DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder();
+            // usar formatador predefinido para data (yyyy-MM-dd)
+            builder.append(DateTimeFormatter.ISO_LOCAL_DATE);
+
+            if (incluirHorasOpcional) {
+                // seção opcional com as horas
+                builder.optionalStart().appendPattern(" HH:mm:ss");
+                if (incluirFracaoSegundos) {
+                    builder.appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true);
+                }
+                // encerrar seção opcional
+                builder.optionalEnd();
             }
-            // encerrar seção opcional
-            builder.optionalEnd();
-        }
-        // criar o DateTimeFormatter
-        return builder.toFormatter();
+            // criar o DateTimeFormatter
+            return builder.toFormatter();
+        });
     }
 
     static Temporal ajusta(Temporal temporal) {
@@ -5,11 +5,13 @@ import static exemplos.setup.Setup.setup;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.DayOfWeek;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
 import java.util.TimeZone;
 
+import desempenho.ResolvedorAno;
 import exemplos.part3.Cap18Parsing;
 
 public class Cap08e09FormatacaoParsing {
@@ -383,6 +385,10 @@ public class Cap08e09FormatacaoParsing {
             ano++;
         } while (cal.get(Calendar.DAY_OF_WEEK) != diaDaSemana);
         System.out.println(cal.getTime()); // Wed May 04 00:00:00 BRT 2022
+
+        // desempenho.ResolvedorAno faz a mesma busca sem criar nenhum objeto por ano (Calendar.DAY_OF_WEEK começa no domingo, DayOfWeek começa na segunda)
+        DayOfWeek dow = DayOfWeek.SUNDAY.plus(diaDaSemana - 1);
+        System.out.println(ResolvedorAno.anoPosterior(Calendar.getInstance().get(Calendar.YEAR), 5, 4, dow)); // 2022
     }
 
     static void parseISO8601Java6() throws ParseException {
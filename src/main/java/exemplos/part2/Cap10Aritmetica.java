@@ -4,11 +4,14 @@ import static exemplos.setup.Setup.clock;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
 
+import desempenho.FormatadorDuracaoISO;
+
 public class Cap10Aritmetica {
 
     public static void main(String[] args) throws ParseException {
@@ -171,5 +174,10 @@ public class Cap10Aritmetica {
         System.out.printf("P%dM%dDT%dH%dM%d.%dS", meses, dias, horas, mins, secs, millis); // P8M13DT5H20M0.0S
         // o problema é que eu considerei todos os meses com 30 dias, o que é uma aproximação arbitrária
         // dependendo das datas envolvidas, 1 mês pode ter de 28 a 31 dias, porém a API não fornece um mecanismo mais preciso para calcularmos corretamente
+
+        // desempenho.FormatadorDuracaoISO conta os meses e dias exatos a partir de uma data inicial (e sem printf)
+        System.out.println();
+        FormatadorDuracaoISO formatador = new FormatadorDuracaoISO(LocalDateTime.of(2018, 5, 4, 17, 0));
+        System.out.println(formatador.formatar(21878400000L)); // P8M8DT5H20M
     }
 }
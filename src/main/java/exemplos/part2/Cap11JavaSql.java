@@ -10,6 +10,8 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.TimeZone;
 
+import desempenho.ParserTimestamp;
+
 public class Cap11JavaSql {
 
     static {
@@ -200,5 +202,12 @@ public class Cap11JavaSql {
         System.out.println(ts); // 2018-05-04 10:30:45.12345
         System.out.println(ts.getTime()); // 1525440645123
         System.out.println(ts.getNanos()); // 123450000
+
+        // desempenho.ParserTimestamp faz o mesmo em uma única passada, sem split, String.format e replaceAll, e pode reaproveitar o mesmo Timestamp
+        ParserTimestamp parserTs = new ParserTimestamp();
+        parserTs.parse(input, 0, input.length(), ts);
+        System.out.println(ts); // 2018-05-04 10:30:45.12345
+        System.out.println(ts.getTime()); // 1525440645123
+        System.out.println(ts.getNanos()); // 123450000
     }
 }
\ No newline at end of file
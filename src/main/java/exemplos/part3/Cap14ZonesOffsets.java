@@ -16,6 +16,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.TimeZone;
 
+import desempenho.ClassificadorGapOverlap;
 import exemplos.setup.Setup;
 
 public class Cap14ZonesOffsets {
@@ -166,6 +167,9 @@ public class Cap14ZonesOffsets {
         z = ZonedDateTime.of(2018, 10, 7, 2, 10, 0, 0, zone);
         // 02:10 é ajustado para meia hora depois (02:40)
         System.out.println(z); // 2018-10-07T02:40+11:00[Australia/Lord_Howe]
+
+        // desempenho.ClassificadorGapOverlap verifica muitas datas/horas de uma vez (como valores long), sem criar objetos
+        System.out.println(ClassificadorGapOverlap.of(zone).tipo(LocalDateTime.of(2018, 10, 7, 2, 10).toEpochSecond(ZoneOffset.UTC))); // 1 (GAP)
     }
 
     /**
@@ -2,6 +2,7 @@ package exemplos.part3;
 
 import static exemplos.setup.Setup.setup;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -19,6 +20,9 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.TimeZone;
 
+import desempenho.EscritorISO;
+import desempenho.TabelaFormatosLocalizados;
+import desempenho.TextoCustomizado;
 import exemplos.setup.Setup;
 
 public class Cap17Formatacao {
@@ -201,6 +205,11 @@ public class Cap17Formatacao {
         formatter = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSSSSSSSS");
         System.out.println(dateTime.format(formatter)); // 2018-01-01T10:30:20.123000000 (imprime todos as 9 casas decimais)
         System.out.println(dateTime.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)); // 2018-01-01T10:30:20.123 (os zeros no final são omitidos)
+
+        // desempenho.EscritorISO escreve os mesmos formatos diretamente em um byte[], ByteBuffer ou Appendable, sem criar Strings
+        byte[] buf = new byte[EscritorISO.TAMANHO_MAXIMO];
+        int tamanho = EscritorISO.escreverLocalDateTime(dateTime, buf, 0);
+        System.out.println(new String(buf, 0, tamanho, StandardCharsets.US_ASCII)); // 2018-01-01T10:30:20.123
     }
 
     static void patternsOpcionais() {
@@ -259,6 +268,13 @@ public class Cap17Formatacao {
             .toFormatter();
         System.out.println(formatter.format(LocalTime.of(10, 30))); // 10:30 da manhã
         System.out.println(formatter.format(LocalTime.of(17, 50))); // 05:50 da tarde
+
+        // desempenho.TextoCustomizado guarda os textos em um array indexado pelo valor do campo (os métodos são os mesmos do DateTimeFormatterBuilder)
+        TextoCustomizado.Formatador formatador = new TextoCustomizado.Construtor()
+            .appendPattern("hh:mm 'da' ")
+            .appendText(ChronoField.AMPM_OF_DAY, textosCustomizados)
+            .toFormatter();
+        System.out.println(formatador.format(LocalTime.of(17, 50))); // 05:50 da tarde
     }
 
     // existem formatos predefinidos para cada Locale
@@ -277,5 +293,10 @@ public class Cap17Formatacao {
 
         // Atenção quando for usar estes formatos predefinidos. Dependendo do Locale e do FormatStyle, o formato retornado pode ter ou não determinados campos
         // (como só a data ou só a hora, ou data, hora e offset, etc), e se o tipo de data/hora sendo formatado não tiver esses campos, lançará exceção
+
+        // desempenho.TabelaFormatosLocalizados guarda os formatters de cada locale, estilo e tipo, com o pattern já obtido
+        TabelaFormatosLocalizados tabela = TabelaFormatosLocalizados.global();
+        formatter = tabela.get(new Locale("pt", "BR"), FormatStyle.SHORT, TabelaFormatosLocalizados.Tipo.DATA_HORA);
+        System.out.println(zdt.format(formatter)); // 04/05/2018 17:00
     }
 }
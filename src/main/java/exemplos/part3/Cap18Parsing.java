@@ -30,6 +30,17 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
+import desempenho.CodecCompacto;
+import desempenho.CodecDataHttp;
+import desempenho.DataJsonMicrosoft;
+import desempenho.DecodificadorAnoDoisDigitos;
+import desempenho.IndiceAbreviacoes;
+import desempenho.ParserISO8601;
+import desempenho.ParserLote;
+import desempenho.RegistroFormatters;
+import desempenho.ResolvedorAno;
+import desempenho.TrieTextos;
+import desempenho.ValidadorStrict;
 import exemplos.part2.Cap08e09FormatacaoParsing;
 
 public class Cap18Parsing {
@@ -226,6 +237,13 @@ public class Cap18Parsing {
         } catch (DateTimeParseException e) {
             System.out.println(e.getMessage()); // Text 'friday may 04 2018' could not be parsed at index 7
         }
+
+        // para obter somente o valor de um nome (de mês, dia da semana, etc), desempenho.TrieTextos faz a busca sem criar substrings, ignorando maiúsculas e
+        // minúsculas
+        TrieTextos meses = TrieTextos.of(Locale.ENGLISH, TextStyle.FULL, ChronoField.MONTH_OF_YEAR);
+        long encontrado = meses.buscar("friday may 04 2018", 7);
+        System.out.println(TrieTextos.valor(encontrado)); // 5
+        System.out.println(TrieTextos.posicao(encontrado)); // 10 (posição seguinte ao texto "may")
     }
 
     static void modosDeParsing() {
@@ -278,6 +296,22 @@ public class Cap18Parsing {
         } catch (Exception e) {
             System.out.println(e.getMessage()); // Text '2018-02-01' could not be parsed at index 4
         }
+
+        // para fazer o parsing de muitos valores, capturar uma exceção para cada valor inválido é caro
+        // desempenho.ParserLote não lança exceções: as linhas inválidas ficam marcadas no resultado, junto com a posição do erro
+        ParserLote lote = new ParserLote(DateTimeFormatter.ofPattern("dd/MM/uuuu").withResolverStyle(ResolverStyle.STRICT), ParserLote.EPOCH_DAY);
+        ParserLote.Resultado resultado = lote.parse(new String[] { "04/05/2018", "33/01/2018", "2018-02-01", "31/04/2018" });
+        System.out.println(resultado.getValores()[0]); // 17655 (2018-05-04)
+        for (int i = 0; i < resultado.getQtdErros(); i++) {
+            // 1, posição -1 / 2, posição 2 / 3, posição -1 (-1 é ParserLote.ERRO_RESOLUCAO: o formato está correto, mas a data não existe)
+            System.out.println(resultado.linhaErro(i) + ", posição " + resultado.posicaoErro(i));
+        }
+
+        // desempenho.ValidadorStrict valida "dd/MM/uuuu" e "uuuu-MM-dd" com o mesmo resultado do modo STRICT, mas sem criar objetos nem lançar exceções
+        // (o custo de cada ResolverStyle é medido em desempenho.benchmark.ResolverStyleBenchmark)
+        ValidadorStrict validador = ValidadorStrict.of("dd/MM/uuuu");
+        System.out.println(validador.valido("04/05/2018")); // true
+        System.out.println(validador.valido("31/04/2018")); // false
     }
 
     // Para o campo ano, podemos usar "u" ou "y", qual a diferença? A ideia básica já é explicada na classe Cap17Formatacao, método diferencaEntreUeY
@@ -473,6 +507,11 @@ public class Cap18Parsing {
         System.out.println(ZonedDateTime.parse("Sun Jan 07 10:00:00 IST 2018", parser)); // 2018-01-07T10:00+05:30[Asia/Kolkata]
         // CST é usada em Cuba, China e região central dos EUA, mas o Set acima definiu que será China
         System.out.println(ZonedDateTime.parse("Sun Jan 07 10:00:00 CST 2018", parser)); // 2018-01-07T10:00+08:00[Asia/Shanghai]
+
+        // desempenho.IndiceAbreviacoes faz a mesma escolha com um índice pré-calculado (uma vez por locale e versão do TZDB)
+        IndiceAbreviacoes.Resolvedor resolvedor = IndiceAbreviacoes.of(Locale.ENGLISH).resolvedor(IndiceAbreviacoes.PoliticaPreferencia.preferidos(zones));
+        System.out.println(resolvedor.resolver("IST")); // Asia/Kolkata
+        System.out.println(resolvedor.resolver("CST")); // Asia/Shanghai
     }
 
     // ------------------------------------------------
@@ -569,6 +608,11 @@ public class Cap18Parsing {
             dt = LocalTime.from(parsed).atDate(data);
             dt = data.atTime(LocalTime.from(parsed));
         }
+
+        // ------------------------------------
+        // desempenho.ResolvedorAno encontra o ano sem testar um ano de cada vez (usa tabelas pré-calculadas), e pode ser usado diretamente no parse
+        data = parser.parse(strDate, ResolvedorAno.dataAnterior(2018));
+        System.out.println(data); // 2017-02-07
     }
 
     static void dataHoraSemSeparadores() {
@@ -594,6 +638,13 @@ public class Cap18Parsing {
             .toFormatter();
         LocalDateTime dateTime = LocalDateTime.parse(text, formatter);
         System.out.println(dateTime); // 2017-09-25T14:20:51.591
+
+        // como todos os campos têm tamanho fixo, desempenho.CodecCompacto lê cada campo diretamente da sua posição, sem precisar de um formatter
+        System.out.println(CodecCompacto.DATA_HORA_MILIS.parse(text)); // 2017-09-25T14:20:51.591
+        // também é possível obter um long que mantém a mesma ordem do texto (nesse caso, a quantidade de milissegundos desde 1970-01-01T00:00)
+        long chave = CodecCompacto.DATA_HORA_MILIS.chave(text, 0);
+        System.out.println(chave); // 1506349251591
+        System.out.println(CodecCompacto.DATA_HORA_MILIS.formatar(chave)); // 20170925142051591
     }
 
     static void anoCom2Digitos() {
@@ -614,6 +665,11 @@ public class Cap18Parsing {
         System.out.println(LocalDate.parse(str, parser)); // 1998-02-10
         // ano "20" - resulta em 2020 (pois qualquer outro valor, como 1920, estaria fora do intervalo 1930 - 2029)
         System.out.println(LocalDate.parse("010120", parser)); // 2020-01-01
+
+        // para muitos valores, desempenho.DecodificadorAnoDoisDigitos faz o mesmo sem criar um LocalDate para cada um (o resultado é o epochDay)
+        DecodificadorAnoDoisDigitos decodificador = new DecodificadorAnoDoisDigitos(1930, ResolverStyle.SMART);
+        int[] epochDays = decodificador.decodificar(new String[] { str, "010120" });
+        System.out.println(LocalDate.ofEpochDay(epochDays[0]) + ", " + LocalDate.ofEpochDay(epochDays[1])); // 1998-02-10, 2020-01-01
     }
 
     // parsing do formato bizarro que algumas APIs retornam: https://www.hanselman.com/blog/OnTheNightmareThatIsJSONDatesPlusJSONNETAndASPNETWebAPI.aspx
@@ -657,6 +713,14 @@ public class Cap18Parsing {
         odt = instant.atOffset(ZoneOffset.of(partes[1]));
         System.out.println(instant); // 2011-12-29T05:00:00Z
         System.out.println(odt); // 2011-12-29T00:00-05:00
+
+        // ------------------------------------------------
+        // As duas alternativas acima usam regex (replaceAll e split), o que pode ser lento se houver muitos valores para processar
+        // desempenho.DataJsonMicrosoft lê os caracteres diretamente, sem regex
+        odt = DataJsonMicrosoft.parse("/Date(1325134800000-0500)/");
+        System.out.println(odt); // 2011-12-29T00:00-05:00
+        // e também faz o caminho inverso
+        System.out.println(DataJsonMicrosoft.formatar(odt)); // /Date(1325134800000-0500)/
     }
 
     static void parseGmtOffset() {
@@ -676,6 +740,9 @@ public class Cap18Parsing {
         parser = DateTimeFormatter.ofPattern("dd MMM yyyy HH:mm:ss O ", Locale.ENGLISH);
         OffsetDateTime odt = OffsetDateTime.parse(input, parser);
         System.out.println(odt); // 2018-07-08T13:34:21-08:00
+
+        // desempenho.CodecDataHttp faz o parsing deste formato (e dos formatos de data do HTTP) sem precisar do espaço no final
+        System.out.println(CodecDataHttp.parse("08 Jul 2018 13:34:21 GMT-8")); // 2018-07-08T13:34:21-08:00
     }
 
     /**
@@ -688,10 +755,14 @@ public class Cap18Parsing {
         list.forEach(Cap18Parsing::parseBest);
         // opção 2: sempre obter OffsetDateTime (preencher campos faltantes com valores default)
         list.forEach(Cap18Parsing::parseDefaultValues);
+        // opção 3: o mesmo resultado da opção 1, mas sem DateTimeFormatter (lê a String uma única vez, sem criar estruturas intermediárias)
+        // útil quando há muitas Strings para processar - ver desempenho.ParserISO8601
+        list.forEach(s -> System.out.println(ParserISO8601.parse(s)));
     }
 
     private static void parseBest(String s) {
-        DateTimeFormatter parser = new DateTimeFormatterBuilder()
+        // DateTimeFormatter é imutável e thread-safe, então não precisa ser criado a cada chamada: o registro guarda o formatter criado na primeira vez
+        DateTimeFormatter parser = RegistroFormatters.global().obter("Cap18Parsing.parseBest", () -> new DateTimeFormatterBuilder()
             // data
             .append(DateTimeFormatter.ISO_LOCAL_DATE)
             .optionalStart() // hora e offset opcionais
@@ -703,7 +774,7 @@ public class Cap18Parsing {
             .optionalEnd() // offset opcional
             .optionalEnd() // hora e offset opcionais
             // criar o parser
-            .toFormatter();
+            .toFormatter());
         // parseBest tenta aplicar as TemporalQueries na sequência:
         // primeiro tenta criar um OffsetDateTime, se não der, tenta LocalDateTime e por fim, tenta LocalDate
         TemporalAccessor dt = parser.parseBest(s, OffsetDateTime::from, LocalDateTime::from, LocalDate::from);
@@ -719,7 +790,7 @@ public class Cap18Parsing {
 
     // sempre obtém OffsetDateTime, preenchendo os campos faltantes com valores default
     private static void parseDefaultValues(String s) {
-        DateTimeFormatter parser = new DateTimeFormatterBuilder()
+        DateTimeFormatter parser = RegistroFormatters.global().obter("Cap18Parsing.parseDefaultValues", () -> new DateTimeFormatterBuilder()
             // data
             .append(DateTimeFormatter.ISO_LOCAL_DATE)
             .optionalStart() // hora e offset opcionais
@@ -735,7 +806,7 @@ public class Cap18Parsing {
             // valor default para o offset (-03:00)
             .parseDefaulting(ChronoField.OFFSET_SECONDS, ZoneOffset.ofHours(-3).getTotalSeconds())
             // criar o parser
-            .toFormatter();
+            .toFormatter());
         System.out.println(OffsetDateTime.parse(s, parser));
     }
 }
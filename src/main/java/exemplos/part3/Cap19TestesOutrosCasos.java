@@ -21,6 +21,9 @@ import java.util.HashSet;
 import java.util.Locale;
 import java.util.Set;
 
+import desempenho.ImpressaoDigitalZonas;
+import desempenho.IndiceAbreviacoesLocales;
+import desempenho.RegrasCompiladas;
 import exemplos.part2.Cap12Others;
 import exemplos.setup.Setup;
 
@@ -130,6 +133,8 @@ public class Cap19TestesOutrosCasos {
 
         // obtém o offset usado pelo timezone no Instant indicado
         System.out.println(rules.getOffset(instant)); // -03:00
+        // desempenho.RegrasCompiladas guarda todas as transições em arrays, e consultas de instantes próximos reutilizam o último intervalo encontrado
+        System.out.println(RegrasCompiladas.of(ZoneId.of("America/Sao_Paulo")).getOffset(instant)); // -03:00
         // o Instant corresponde a um instante em que o timezone está em horário de verão?
         System.out.println(rules.isDaylightSavings(instant)); // false
         // Quando está em horário de verão, retorna um Duration com a diferença para o horário "normal" (ou seja, para a grande maioria dos lugares, é 1 hora)
@@ -166,6 +171,10 @@ public class Cap19TestesOutrosCasos {
         System.out.println(sp.getRules().equals(br.getRules())); // true
         // Se o histórico (ZoneRules) é diferente, significa que em algum momento da história os timezones não usavam o mesmo offset
         // E se há uma diferença no histórico, por mínimo que seja, a IANA cria outro timezone (por isso ter ZoneRules iguais garante que é o mesmo timezone)
+
+        // desempenho.ImpressaoDigitalZonas calcula um hash das regras de cada timezone uma única vez, e agrupa os timezones com regras iguais
+        System.out.println(ImpressaoDigitalZonas.global().equivalentes(sp, br)); // true
+        System.out.println(ImpressaoDigitalZonas.global().canonico(br)); // America/Sao_Paulo
     }
 
     /**
@@ -221,6 +230,9 @@ public class Cap19TestesOutrosCasos {
         System.out.println(zonesOffset2); // mais de 50 timezones: [Europe/Ljubljana, Africa/Lusaka, Europe/Kaliningrad, Africa/Gaborone, etc....
         System.out.println(zonesAbrevEST); // 8 timezones: [America/Coral_Harbour, SystemV/EST5, America/Jamaica, America/Cayman, America/Cancun,
                                            // America/Panama, America/Atikokan, Jamaica]
+
+        // desempenho.IndiceAbreviacoesLocales obtém os nomes de todos os timezones em todos os locales uma única vez, e as próximas buscas são imediatas
+        System.out.println(IndiceAbreviacoesLocales.global().zonas(abreviacao, referencia)); // os mesmos 8 timezones, em ordem alfabética
     }
 
     static void criarTemporalAdjuster() {
@@ -2,6 +2,7 @@ package exemplos.part3;
 
 import static exemplos.setup.Setup.setup;
 
+import java.text.Format;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.Clock;
@@ -26,6 +27,8 @@ import java.util.GregorianCalendar;
 import java.util.Locale;
 import java.util.TimeZone;
 
+import desempenho.FormatadorCacheSegundo;
+import desempenho.TradutorSimpleDateFormat;
 import exemplos.setup.Setup;
 
 public class Cap20Migracao {
@@ -307,6 +310,11 @@ public class Cap20Migracao {
         System.out.println(sdf.format(date)); // 04/05/2018 17:00
         System.out.println(OffsetDateTime.now(Setup.clock()).format(fmt)); // 04/05/2018 17:00
 
+        // para logs, em que muitos valores são formatados no mesmo segundo, desempenho.FormatadorCacheSegundo guarda o texto de cada segundo
+        // e só escreve as frações de segundo
+        FormatadorCacheSegundo formatadorLog = new FormatadorCacheSegundo("dd/MM/yyyy HH:mm:ss.SSS", Locale.ENGLISH, ZoneId.of("America/Sao_Paulo"));
+        System.out.println(formatadorLog.formatar(Setup.clock().millis())); // 04/05/2018 17:00:00.000
+
         // ----------------------------------------------------
         // mas nem todos os patterns são assim
         ZonedDateTime zdt = ZonedDateTime.now(Setup.clock());
@@ -314,6 +322,10 @@ public class Cap20Migracao {
         // alguns são diferentes
         System.out.println(zdt.format(DateTimeFormatter.ofPattern("uuuu"))); // 2018 (ano)
         System.out.println(new SimpleDateFormat("uuuu").format(date)); // 0005 (dia da semana -> 5 é sexta-feira)
+        // desempenho.TradutorSimpleDateFormat traduz o pattern do SimpleDateFormat para um DateTimeFormatter equivalente (guardado em cache), e o Format
+        // retornado por toFormat() aceita Date e pode ser compartilhado por várias threads
+        Format format = TradutorSimpleDateFormat.of("uuuu").toFormat();
+        System.out.println(format.format(date)); // 0005
 
         // outros não existem na API antiga
         // dia da semana, trimestre e nome do timezone
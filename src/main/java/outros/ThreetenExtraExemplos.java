@@ -16,6 +16,7 @@ import org.threeten.extra.Interval;
 import org.threeten.extra.PeriodDuration;
 import org.threeten.extra.Temporals;
 
+import desempenho.DespachanteFormatos;
 import exemplos.part3.Cap16AritmeticaDatas;
 import exemplos.setup.Setup;
 
@@ -138,6 +139,17 @@ public class ThreetenExtraExemplos {
         // O método tenta fazer o parsing com fmt1, fmt2 e fmt3 (ele para no primeiro que der certo)
         // O resultado é determinado pelo segundo parâmetro, que é um TemporalQuery (no caso, usei o method reference LocalDate::from)
         System.out.println(dt); // 2018-05-04
+
+        // Com muitos formatos, cada String pode causar várias tentativas que falham antes de chegar no formatter certo
+        // desempenho.DespachanteFormatos verifica antes quais formatos são compatíveis com a String (pela sequência de dígitos, letras e separadores)
+        DespachanteFormatos<LocalDate> despachante = new DespachanteFormatos<>(LocalDate::from)
+            // mesmos formatters acima (o pattern é usado para saber quais Strings são compatíveis com cada um)
+            .registrar("dd/MM/uuuu", fmt1)
+            .registrar("MMM, dd uuuu", fmt2)
+            .registrar("uuuu-MM[-dd]", fmt3);
+        System.out.println(despachante.parse("May, 04 2018")); // 2018-05-04 <- somente fmt2 é usado
+        System.out.println(despachante.parse("2018-05")); // 2018-05-01 <- somente fmt3 é usado
+        System.out.println(despachante.parse("04.05.2018")); // null <- nenhum formato é compatível (sem lançar exceção)
     }
 
     static void outros() {
@@ -0,0 +1,114 @@
+package desempenho;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import desempenho.ClassificadorGapOverlap.Politica;
+
+public class ClassificadorGapOverlapTest {
+
+    private static final String[] ZONAS = { "America/Sao_Paulo", "Europe/London", "America/Indiana/Knox", "Australia/Lord_Howe", "Pacific/Apia",
+        "Asia/Kolkata", "UTC" };
+
+    private static long local(String dataHora) {
+        return LocalDateTime.parse(dataHora).toEpochSecond(ZoneOffset.UTC);
+    }
+
+    @Test
+    public void gapsEOverlaps() {
+        ClassificadorGapOverlap sp = ClassificadorGapOverlap.of(ZoneId.of("America/Sao_Paulo"));
+        long[] locais = { local("2017-10-14T23:59:59"), local("2017-10-15T00:30"), local("2017-10-15T01:00"), local("2018-02-17T22:59:59"),
+            local("2018-02-17T23:30"), local("2018-02-18T00:00") };
+        byte[] tipos = new byte[locais.length];
+        long[] resolvidos = new long[locais.length];
+        assertEquals(2, sp.classificar(locais, 0, locais.length, Politica.ANTERIOR, tipos, resolvidos));
+        assertEquals(Arrays.toString(new byte[] { ClassificadorGapOverlap.NORMAL, ClassificadorGapOverlap.GAP, ClassificadorGapOverlap.NORMAL,
+            ClassificadorGapOverlap.NORMAL, ClassificadorGapOverlap.OVERLAP, ClassificadorGapOverlap.NORMAL }), Arrays.toString(tipos));
+        // gap: 00:30 é ajustado para 01:30 (horário de verão)
+        assertEquals(local("2017-10-15T01:30") + 7200, resolvidos[1]);
+        // overlap: primeira ocorrência (horário de verão)
+        assertEquals(local("2018-02-17T23:30") + 7200, resolvidos[4]);
+        assertEquals(local("2018-02-17T23:30") + 10800, sp.resolver(locais[4], Politica.POSTERIOR));
+        assertEquals(ClassificadorGapOverlap.REJEITADO, sp.resolver(locais[1], Politica.REJEITAR));
+        assertEquals(ClassificadorGapOverlap.REJEITADO, sp.resolver(locais[4], Politica.REJEITAR));
+        assertEquals(local("2017-10-15T00:00") + 10800, sp.resolver(locais[1], Politica.DESLOCAR));
+
+        // gap de meia hora
+        ClassificadorGapOverlap lordHowe = ClassificadorGapOverlap.of(ZoneId.of("Australia/Lord_Howe"));
+        assertEquals(ClassificadorGapOverlap.GAP, lordHowe.tipo(local("2018-10-07T02:10")));
+        assertEquals(ClassificadorGapOverlap.NORMAL, lordHowe.tipo(local("2018-10-07T02:30")));
+    }
+
+    @Test
+    public void mesmoResultadoQueZonedDateTime() {
+        Random random = new Random(1);
+        for (String id : ZONAS) {
+            ZoneId zona = ZoneId.of(id);
+            ZoneRules regras = zona.getRules();
+            ClassificadorGapOverlap classificador = ClassificadorGapOverlap.of(zona);
+            List<ZoneOffsetTransition> transicoes = regras.getTransitions();
+            int qtd = 20000;
+            long[] locais = new long[qtd];
+            for (int i = 0; i < qtd; i++) {
+                if (!transicoes.isEmpty() && i % 2 == 0) {
+                    // em volta de uma transição
+                    ZoneOffsetTransition t = transicoes.get(random.nextInt(transicoes.size()));
+                    locais[i] = t.getDateTimeBefore().toEpochSecond(ZoneOffset.UTC) + random.nextInt(10800) - 5400;
+                } else {
+                    // inclusive depois do ano limite (que usam as regras do JDK)
+                    locais[i] = (long) (random.nextDouble() * 12_000_000_000L) - 4_000_000_000L;
+                }
+            }
+            // em ordem (junção com as transições) e fora de ordem (busca binária)
+            long[] ordenados = locais.clone();
+            Arrays.sort(ordenados);
+            for (long[] valores : Arrays.asList(ordenados, locais)) {
+                for (Politica politica : Politica.values()) {
+                    byte[] tipos = new byte[qtd];
+                    long[] resolvidos = new long[qtd];
+                    classificador.classificar(valores, 0, qtd, politica, tipos, resolvidos);
+                    for (int i = 0; i < qtd; i++) {
+                        LocalDateTime dataHora = LocalDateTime.ofEpochSecond(valores[i], 0, ZoneOffset.UTC);
+                        List<ZoneOffset> validos = regras.getValidOffsets(dataHora);
+                        byte tipo = validos.size() == 1 ? ClassificadorGapOverlap.NORMAL
+                            : validos.isEmpty() ? ClassificadorGapOverlap.GAP : ClassificadorGapOverlap.OVERLAP;
+                        assertEquals(id + " " + dataHora, tipo, tipos[i]);
+                        ZonedDateTime z = ZonedDateTime.of(dataHora, zona);
+                        long esperado;
+                        if (tipo == ClassificadorGapOverlap.NORMAL || politica == Politica.ANTERIOR) {
+                            esperado = z.toEpochSecond();
+                        } else if (politica == Politica.POSTERIOR) {
+                            esperado = z.withLaterOffsetAtOverlap().toEpochSecond();
+                        } else if (politica == Politica.REJEITAR) {
+                            esperado = ClassificadorGapOverlap.REJEITADO;
+                        } else {
+                            esperado = tipo == ClassificadorGapOverlap.GAP ? regras.getTransition(dataHora).toEpochSecond() : z.toEpochSecond();
+                        }
+                        assertEquals(id + " " + dataHora + " " + politica, esperado, resolvidos[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void intervaloDoArray() {
+        ClassificadorGapOverlap sp = ClassificadorGapOverlap.of(ZoneId.of("America/Sao_Paulo"));
+        long[] locais = { local("2018-02-17T23:30"), local("2017-10-15T00:30"), local("2018-05-04T17:30") };
+        byte[] tipos = new byte[2];
+        assertEquals(1, sp.classificar(locais, 1, 3, Politica.ANTERIOR, tipos, null));
+        assertEquals(ClassificadorGapOverlap.GAP, tipos[0]);
+        assertEquals(ClassificadorGapOverlap.NORMAL, tipos[1]);
+    }
+}
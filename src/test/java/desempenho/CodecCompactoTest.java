@@ -0,0 +1,127 @@
+package desempenho;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CodecCompactoTest {
+
+    private static final CodecCompacto[] CODECS = { CodecCompacto.DATA, CodecCompacto.DATA_HORA, CodecCompacto.DATA_HORA_MILIS,
+        CodecCompacto.DATA_HORA_MICROS, CodecCompacto.DATA_HORA_NANOS };
+
+    private static DateTimeFormatter formatter(CodecCompacto codec) {
+        // o próprio pattern do codec, sem alterações
+        return DateTimeFormatter.ofPattern(codec.getPattern()).withResolverStyle(ResolverStyle.STRICT);
+    }
+
+    // a chave calculada com java.time (null se não couber em um long)
+    private static Long chave(CodecCompacto codec, LocalDateTime dt) {
+        if (codec == CodecCompacto.DATA) {
+            return dt.toLocalDate().toEpochDay();
+        }
+        int digitos = codec.tamanho() - "uuuuMMddHHmmss".length();
+        BigInteger unidades = BigInteger.TEN.pow(digitos);
+        BigInteger chave = BigInteger.valueOf(dt.toEpochSecond(ZoneOffset.UTC)).multiply(unidades).add(
+            BigInteger.valueOf(dt.getNano()).divide(BigInteger.TEN.pow(9 - digitos)));
+        return chave.bitLength() < 64 && chave.longValue() != CodecCompacto.INVALIDO ? chave.longValue() : null;
+    }
+
+    private static LocalDateTime aleatorio(Random random) {
+        return LocalDateTime.of(random.nextInt(10000), 1, 1, 0, 0).plusSeconds(random.nextInt(365 * 86400)).withNano(random.nextInt(1_000_000_000));
+    }
+
+    @Test
+    public void mesmoResultadoQueDateTimeFormatter() {
+        Random random = new Random(1);
+        for (CodecCompacto codec : CODECS) {
+            DateTimeFormatter formatter = formatter(codec);
+            for (int i = 0; i < 20_000; i++) {
+                LocalDateTime dt = aleatorio(random);
+                if (i % 2 == 0) {
+                    // em volta dos limites de um long em nanossegundos
+                    dt = LocalDateTime.of(i % 4 == 0 ? 1677 : 2262, 1, 1, 0, 0).plusSeconds(random.nextInt(366 * 86400));
+                }
+                String s = formatter.format(dt);
+                if (i % 3 == 0) {
+                    // um dígito trocado (pode gerar datas e horas inválidas)
+                    char[] chars = s.toCharArray();
+                    chars[random.nextInt(chars.length)] = "0123456789 x".charAt(random.nextInt(12));
+                    s = new String(chars);
+                }
+                LocalDateTime esperado;
+                try {
+                    // para DATA, o codec retorna a data à meia-noite
+                    esperado = codec == CodecCompacto.DATA ? LocalDate.parse(s, formatter).atStartOfDay() : LocalDateTime.parse(s, formatter);
+                } catch (DateTimeParseException e) {
+                    esperado = null;
+                }
+                Long chave = esperado == null ? null : chave(codec, esperado);
+                if (chave == null) {
+                    esperado = null;
+                }
+                String msg = codec + " " + s;
+                assertEquals(msg, esperado, codec.parse(s));
+                long obtida = chave == null ? CodecCompacto.INVALIDO : chave;
+                assertEquals(msg, obtida, codec.chave(s, 0));
+                assertEquals(msg, obtida, codec.chave(("xx" + s).getBytes(StandardCharsets.US_ASCII), 2));
+                if (esperado != null) {
+                    // a formatação e a conversão de volta
+                    assertEquals(msg, s, codec.formatar(chave));
+                    assertEquals(msg, s, codec.formatar(esperado));
+                    assertEquals(msg, esperado, codec.toLocalDateTime(chave));
+                    assertEquals(msg, chave.longValue(), codec.chave(esperado));
+                    byte[] bytes = new byte[codec.tamanho() + 1];
+                    assertEquals(codec.tamanho() + 1, codec.escrever(chave, bytes, 1));
+                    assertEquals(msg, s, new String(bytes, 1, codec.tamanho(), StandardCharsets.US_ASCII));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void anoZero() {
+        // o pattern anunciado aceita o ano 0000, assim como o codec
+        LocalDate data = LocalDate.of(0, 2, 29);
+        assertEquals("00000229", formatter(CodecCompacto.DATA).format(data));
+        assertEquals(data, LocalDate.parse("00000229", formatter(CodecCompacto.DATA)));
+        assertEquals(data.atStartOfDay(), CodecCompacto.DATA.parse("00000229"));
+        assertEquals("00000229", CodecCompacto.DATA.formatar(data.atStartOfDay()));
+        LocalDateTime dt = LocalDateTime.of(0, 1, 1, 0, 0, 0, 123_000_000);
+        assertEquals(dt, LocalDateTime.parse("00000101000000123", formatter(CodecCompacto.DATA_HORA_MILIS)));
+        assertEquals(dt, CodecCompacto.DATA_HORA_MILIS.parse("00000101000000123"));
+    }
+
+    @Test
+    public void chaveMantemAOrdemDoTexto() {
+        Random random = new Random(2);
+        for (CodecCompacto codec : CODECS) {
+            List<String> textos = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                LocalDateTime dt = aleatorio(random);
+                if (codec == CodecCompacto.DATA_HORA_NANOS) {
+                    dt = dt.withYear(1700 + random.nextInt(500));
+                }
+                textos.add(codec.formatar(dt));
+            }
+            Collections.sort(textos);
+            for (int i = 1; i < textos.size(); i++) {
+                assertTrue(codec + " " + textos.get(i - 1) + " " + textos.get(i), Long.compare(codec.chave(textos.get(i - 1), 0), codec.chave(textos.get(i),
+                    0)) == Integer.signum(textos.get(i - 1).compareTo(textos.get(i))));
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package desempenho;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CodecDataHttpTest {
+
+    private static final DateTimeFormatter RFC_1123 = DateTimeFormatter.RFC_1123_DATE_TIME;
+
+    // anos de 0 a 9999, com offsets em minutos (o formato RFC 1123 não tem segundos no offset)
+    private static OffsetDateTime aleatorio(Random random) {
+        long min = OffsetDateTime.parse("0000-01-02T00:00Z").toEpochSecond(), max = OffsetDateTime.parse("9999-12-30T00:00Z").toEpochSecond();
+        Instant instant = Instant.ofEpochSecond(min + (long) (random.nextDouble() * (max - min)));
+        int offset = random.nextInt(3) == 0 ? 0 : (random.nextInt(18 * 60 * 2 + 1) - 18 * 60) * 60;
+        return instant.atOffset(ZoneOffset.ofTotalSeconds(offset));
+    }
+
+    @Test
+    public void mesmoResultadoQueRfc1123() {
+        Random random = new Random(1);
+        byte[] buf = new byte[CodecDataHttp.TAMANHO_MAXIMO];
+        for (int i = 0; i < 100_000; i++) {
+            OffsetDateTime data = aleatorio(random);
+            // formatação do codec lida pelo DateTimeFormatter
+            int fim = CodecDataHttp.codificar(data.toEpochSecond(), data.getOffset().getTotalSeconds(), buf, 0);
+            String codificado = new String(buf, 0, fim, StandardCharsets.US_ASCII);
+            assertEquals(codificado, data, OffsetDateTime.parse(codificado, RFC_1123));
+            // formatação do DateTimeFormatter lida pelo codec (dia com 1 dígito e às vezes sem o dia da semana ou os segundos)
+            String formatado = RFC_1123.format(data);
+            if (i % 3 == 1) {
+                formatado = formatado.substring(5);
+            }
+            if (i % 5 == 2 && data.getSecond() == 0) {
+                formatado = formatado.replaceFirst(":00 ", " ");
+            }
+            assertEquals(formatado, data, CodecDataHttp.parse(formatado));
+            assertEquals(formatado, OffsetDateTime.parse(formatado, RFC_1123), CodecDataHttp.parse(formatado));
+        }
+    }
+
+    @Test
+    public void invalidosNosDois() {
+        String[] valores = { "Sun, 06 Nov 1994 08:49:37 GMT", "Mon, 06 Nov 1994 08:49:37 GMT", "Sun, 31 Nov 1994 08:49:37 GMT",
+            "Tue, 29 Feb 2000 08:49:37 GMT", "Thu, 29 Feb 2001 08:49:37 GMT", "Sun, 06 Nov 1994 24:00:00 GMT", "Sun, 06 Nov 1994 08:60:37 GMT",
+            "Sun, 06 Nov 1994 08:49:60 GMT", "Sun, 06 Foo 1994 08:49:37 GMT", "Sun, 06 Nov 1994 08:49:37 +2400", "Sun, 06 Nov 1994 08:49:37 -0330",
+            "Sun, 06 Nov 94 08:49:37 GMT", "Sun, 06 Nov 1994 08:49:37", "Sun, 06 Nov 1994 08:49:37 GMT ", "Sun 06 Nov 1994 08:49:37 GMT",
+            "Sun, 6 Nov 1994 08:49:37 GMT", "sun, 06 nov 1994 08:49:37 GMT", "Sun, 06 Nov 1994 08:49 GMT", "" };
+        for (String valor : valores) {
+            OffsetDateTime esperado;
+            try {
+                esperado = OffsetDateTime.parse(valor, RFC_1123);
+            } catch (DateTimeParseException e) {
+                esperado = null;
+            }
+            assertEquals(valor, esperado, CodecDataHttp.parse(valor));
+        }
+        // o DateTimeFormatter usa parseLenient e aceita horários com 1 dígito, mas o codec sempre exige 2
+        assertNull(CodecDataHttp.parse("Sun, 6 Nov 1994 8:49:37 GMT"));
+    }
+
+    @Test
+    public void outrosFormatos() {
+        OffsetDateTime esperado = OffsetDateTime.parse("1994-11-06T08:49:37Z");
+        assertEquals(esperado, CodecDataHttp.parse("Sunday, 06-Nov-94 08:49:37 GMT"));
+        assertEquals(esperado, CodecDataHttp.parse("Sun Nov  6 08:49:37 1994"));
+        assertEquals(OffsetDateTime.parse("1994-11-06T08:49:37-08:00"), CodecDataHttp.parse("Sun, 06 Nov 1994 08:49:37 GMT-8"));
+        assertEquals(OffsetDateTime.parse("1994-11-06T08:49:37+05:30"), CodecDataHttp.parse("Sun, 06 Nov 1994 08:49:37 GMT+05:30"));
+        assertEquals(esperado, CodecDataHttp.parse("Sun, 06 Nov 1994 08:49:37 UTC"));
+        // caracteres fora do ASCII não são confundidos com outros
+        assertNull(CodecDataHttp.parse("Sun, 06 Nov 1994 08:49:37 GōT"));
+        assertNull(CodecDataHttp.parse("Sŵn, 06 Nov 1994 08:49:37 GMT"));
+    }
+
+    @Test
+    public void arrayEBuffers() {
+        Random random = new Random(2);
+        byte[] array = new byte[CodecDataHttp.TAMANHO_MAXIMO + 2];
+        ByteBuffer heap = ByteBuffer.allocate(array.length);
+        ByteBuffer direto = ByteBuffer.allocateDirect(array.length);
+        CodecDataHttp.Valor valor = new CodecDataHttp.Valor();
+        for (int i = 0; i < 10_000; i++) {
+            OffsetDateTime data = aleatorio(random);
+            long epochSegundo = data.toEpochSecond();
+            int offset = data.getOffset().getTotalSeconds();
+            int fim = CodecDataHttp.codificar(epochSegundo, offset, array, 2);
+            for (ByteBuffer buf : new ByteBuffer[] { heap, direto }) {
+                buf.clear().position(2);
+                CodecDataHttp.codificar(epochSegundo, offset, buf);
+                assertEquals(fim, buf.position());
+                byte[] bytes = new byte[fim - 2];
+                buf.position(2);
+                buf.get(bytes);
+                assertArrayEquals(Arrays.copyOfRange(array, 2, fim), bytes);
+
+                // a leitura usa posições absolutas, e não altera a posição do buffer
+                buf.position(0);
+                assertEquals(fim, CodecDataHttp.decodificar(buf, 2, fim, valor));
+                assertEquals(0, buf.position());
+                assertEquals(data, valor.toOffsetDateTime());
+            }
+            assertEquals(fim, CodecDataHttp.decodificar(array, 2, fim, valor));
+            assertEquals(data, valor.toOffsetDateTime());
+        }
+    }
+
+    @Test
+    public void bufferSemEspaco() {
+        int tamanho = CodecDataHttp.TAMANHO_MAXIMO - 1;
+        for (ByteBuffer buf : new ByteBuffer[] { ByteBuffer.allocate(tamanho), ByteBuffer.allocateDirect(tamanho) }) {
+            try {
+                CodecDataHttp.codificar(0, 3600, buf);
+                fail();
+            } catch (BufferOverflowException e) {
+                // nada foi escrito
+                assertEquals(0, buf.position());
+                assertEquals(0, buf.get(0));
+            }
+            // em GMT, cabe
+            CodecDataHttp.codificar(0, 0, buf);
+            assertEquals(CodecDataHttp.TAMANHO_GMT, buf.position());
+        }
+    }
+}
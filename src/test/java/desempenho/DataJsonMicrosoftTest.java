@@ -0,0 +1,102 @@
+package desempenho;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DataJsonMicrosoftTest {
+
+    @Test
+    public void parse() {
+        assertEquals(OffsetDateTime.parse("2011-12-29T00:00-05:00"), DataJsonMicrosoft.parse("/Date(1325134800000-0500)/"));
+        assertEquals(OffsetDateTime.parse("2011-12-29T05:00Z"), DataJsonMicrosoft.parse("\\/Date(1325134800000)\\/"));
+        // o offset não altera o timestamp
+        assertEquals(OffsetDateTime.parse("1969-12-31T20:29:59.999-03:30"), DataJsonMicrosoft.parse("/Date(-1-0330)/"));
+        String[] invalidas = { "", "/Date()/", "/Date(-)/", "/Date(123-05)/", "/Date(123-0560)/", "/Date(1+1801)/", "/Date(9223372036854775808)/",
+            "/Date(-9223372036854775809)/", "/Date(12345678901234567890)/", "/Date(+9223372036854775808)/", "Date(1)/", "/Date(1)",
+            "/Date(1)\\", "/date(1)/", "/Date(1) /", " /Date(1)/", "/Date(1x)/", "/Date(1-05:00)/" };
+        for (String invalida : invalidas) {
+            assertNull(invalida, DataJsonMicrosoft.parse(invalida));
+            char[] chars = invalida.toCharArray();
+            byte[] bytes = invalida.getBytes(StandardCharsets.UTF_8);
+            DataJsonMicrosoft.Valor valor = new DataJsonMicrosoft.Valor();
+            assertEquals(DataJsonMicrosoft.decodificar(chars, 0, chars.length, valor) == chars.length,
+                DataJsonMicrosoft.decodificar(bytes, 0, bytes.length, valor) == bytes.length);
+        }
+    }
+
+    @Test
+    public void idaEVolta() {
+        Random random = new Random(1);
+        char[] chars = new char[DataJsonMicrosoft.TAMANHO_MAXIMO + 3];
+        byte[] bytes = new byte[DataJsonMicrosoft.TAMANHO_MAXIMO + 3];
+        DataJsonMicrosoft.Valor valor = new DataJsonMicrosoft.Valor();
+        for (int i = 0; i < 100000; i++) {
+            // millis negativos e positivos, com até 19 dígitos, e todos os offsets com minutos inteiros entre -18:00 e +18:00
+            long millis = i % 3 == 0 ? random.nextLong() : (long) (random.nextDouble() * 8e12) - 4_000_000_000_000L;
+            int offset = (random.nextInt(18 * 60 * 2 + 1) - 18 * 60) * 60;
+            boolean comOffset = random.nextBoolean();
+            int inicio = random.nextInt(3);
+            int fim = DataJsonMicrosoft.codificar(millis, offset, comOffset, chars, inicio);
+            assertEquals(fim, DataJsonMicrosoft.codificar(millis, offset, comOffset, bytes, inicio));
+            String texto = new String(chars, inicio, fim - inicio);
+            assertEquals(texto, new String(bytes, inicio, fim - inicio, StandardCharsets.US_ASCII));
+            assertEquals(texto, "/Date(" + millis + (comOffset ? String.format("%s%02d%02d", offset < 0 ? "-" : "+", Math.abs(offset) / 3600,
+                Math.abs(offset) / 60 % 60) : "") + ")/");
+
+            assertEquals(fim, DataJsonMicrosoft.decodificar(chars, inicio, fim, valor));
+            verificar(valor, millis, offset, comOffset);
+            assertEquals(fim, DataJsonMicrosoft.decodificar(bytes, inicio, fim, valor));
+            verificar(valor, millis, offset, comOffset);
+            OffsetDateTime odt = Instant.ofEpochMilli(millis).atOffset(ZoneOffset.ofTotalSeconds(comOffset ? offset : 0));
+            assertEquals(odt, DataJsonMicrosoft.parse(texto));
+            assertEquals(odt, DataJsonMicrosoft.parse(new StringBuilder(texto)));
+            assertEquals(odt, DataJsonMicrosoft.parse(DataJsonMicrosoft.formatar(odt)));
+        }
+    }
+
+    @Test
+    public void limitesDoLong() {
+        long[] limites = { Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE - 1, Long.MIN_VALUE + 1, 999_999_999_999_999_999L, -1_000_000_000_000_000_000L };
+        for (long millis : limites) {
+            for (int offset : new int[] { 0, -18 * 3600, 18 * 3600 }) {
+                OffsetDateTime odt = Instant.ofEpochMilli(millis).atOffset(ZoneOffset.ofTotalSeconds(offset));
+                String texto = DataJsonMicrosoft.formatar(odt);
+                assertEquals(texto, odt, DataJsonMicrosoft.parse(texto));
+                byte[] bytes = texto.getBytes(StandardCharsets.US_ASCII);
+                DataJsonMicrosoft.Valor valor = new DataJsonMicrosoft.Valor();
+                assertEquals(bytes.length, DataJsonMicrosoft.decodificar(bytes, 0, bytes.length, valor));
+                verificar(valor, millis, offset, true);
+            }
+        }
+        assertEquals(Instant.ofEpochMilli(Long.MAX_VALUE).atOffset(ZoneOffset.UTC), DataJsonMicrosoft.parse("/Date(+9223372036854775807)/"));
+        assertEquals(Instant.ofEpochMilli(0).atOffset(ZoneOffset.UTC), DataJsonMicrosoft.parse("/Date(-0)/"));
+    }
+
+    private static void verificar(DataJsonMicrosoft.Valor valor, long millis, int offset, boolean comOffset) {
+        assertEquals(millis, valor.epochMilli);
+        assertEquals(comOffset, valor.temOffset);
+        assertEquals(comOffset ? offset : 0, valor.offsetSegundos);
+    }
+
+    @Test
+    public void decodificarJson() {
+        String json = "[{\"a\":\"\\/Date(1325134800000-0500)\\/\",\"b\":\"/Date(-1)/\"},\"texto com \\\" aspas /Date(2)/\",\"/Date(3)/ \","
+            + "\"\\/Date(-86400000)\\/\"]";
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        List<String> datas = new ArrayList<>();
+        int qtd = DataJsonMicrosoft.decodificarJson(bytes, 0, bytes.length, (posicao, epochMilli, offsetSegundos, temOffset) -> datas.add(posicao + " "
+            + epochMilli + " " + offsetSegundos + " " + temOffset));
+        assertEquals(3, qtd);
+        assertEquals("[6 1325134800000 -18000 true, 41 -1 0 false, " + json.lastIndexOf("\"\\/") + " -86400000 0 false]", datas.toString());
+    }
+}
@@ -0,0 +1,66 @@
+package desempenho;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoField;
+
+import org.junit.Test;
+
+public class DecodificadorAnoDoisDigitosTest {
+
+    // mesmo parser de Cap18Parsing.anoCom2Digitos, usado como referência
+    private static DateTimeFormatter parser(int anoBase, ResolverStyle resolverStyle) {
+        return new DateTimeFormatterBuilder()
+            .appendPattern("ddMM")
+            .appendValueReduced(ChronoField.YEAR, 2, 2, anoBase)
+            .toFormatter()
+            .withResolverStyle(resolverStyle);
+    }
+
+    private static int esperado(DateTimeFormatter parser, String s) {
+        try {
+            return (int) LocalDate.parse(s, parser).toEpochDay();
+        } catch (DateTimeParseException e) {
+            return DecodificadorAnoDoisDigitos.INVALIDO;
+        }
+    }
+
+    @Test
+    public void mesmoResultadoQueAppendValueReduced() {
+        int[] anosBase = { 1930, 2000, 1999, 1901 };
+        for (int anoBase : anosBase) {
+            for (ResolverStyle resolverStyle : new ResolverStyle[] { ResolverStyle.STRICT, ResolverStyle.SMART }) {
+                DateTimeFormatter parser = parser(anoBase, resolverStyle);
+                DecodificadorAnoDoisDigitos decodificador = new DecodificadorAnoDoisDigitos(anoBase, resolverStyle);
+                // todas as combinações de dia (00 a 32), mês (00 a 13) e ano (00 a 99)
+                for (int dia = 0; dia <= 32; dia++) {
+                    for (int mes = 0; mes <= 13; mes++) {
+                        for (int ano = 0; ano < 100; ano++) {
+                            String s = String.format("%02d%02d%02d", dia, mes, ano);
+                            assertEquals(s + ", " + anoBase + ", " + resolverStyle, esperado(parser, s), decodificador.decodificar(s, 0));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void colunaDeRegistros() {
+        DecodificadorAnoDoisDigitos decodificador = new DecodificadorAnoDoisDigitos(1930, ResolverStyle.STRICT);
+        // registros de 10 bytes, com a data na posição 2
+        byte[] dados = "xx100298;\nxx010120;\nxx31049x;\nxx3104ab;\n".getBytes(StandardCharsets.US_ASCII);
+        int[] destino = new int[5];
+        assertEquals(2, decodificador.decodificar(dados, 2, 10, 4, destino, 1));
+        assertEquals(LocalDate.of(1998, 2, 10).toEpochDay(), destino[1]);
+        assertEquals(LocalDate.of(2020, 1, 1).toEpochDay(), destino[2]);
+        assertEquals(DecodificadorAnoDoisDigitos.INVALIDO, destino[3]);
+        assertEquals(DecodificadorAnoDoisDigitos.INVALIDO, destino[4]);
+    }
+}
@@ -0,0 +1,141 @@
+package desempenho;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.text.Format;
+import java.text.ParsePosition;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DespachanteFormatosTest {
+
+    private static final Locale PT_BR = new Locale("pt", "BR");
+
+    // os patterns sem assinatura (com timezone ou offset) ficam no final, pois o despachante só os testa quando nenhum outro formato é compatível
+    private static final String[][] FORMATOS = { { "dd/MM/uuuu", "en" }, { "MM/dd/uuuu", "en" }, { "uuuu-MM-dd", "en" }, { "uuuuMMdd", "en" },
+        { "d MMM uuuu", "en" }, { "MMM d, uuuu", "en" }, { "EEE, d MMM uuuu HH:mm", "en" }, { "uuuu-MM-dd HH:mm[:ss[.SSS]]", "en" },
+        { "dd.MM.yy", "en" }, { "d/M/uuuu", "en" }, { "uuuu-MM-dd'T'HH:mm:ss", "en" }, { "dd 'de' MMMM 'de' uuuu", "pt" }, { "d MMM uuuu", "pt" },
+        { "hh:mm a dd/MM/uuuu", "en" }, { "uuuu-DDD", "en" }, { "[EEEE, ]dd-MMM-yy", "en" },
+        { "EEEE, d 'de' MMMM 'de' uuuu", "pt" }, { "EEEE dd/MM/uuuu", "pt" }, { "uuuu-MM-dd HH:mm XXX", "en" },
+        { "uuuu-MM-dd HH:mm VV", "en" } };
+
+    private static Locale locale(String[] formato) {
+        return "pt".equals(formato[1]) ? PT_BR : Locale.ENGLISH;
+    }
+
+    // o mesmo que parseFirstMatching: testa os formatters na ordem, até que algum consiga fazer o parsing da String inteira
+    private static LocalDate primeiroQueFunciona(List<Format> formatos, String s) {
+        for (Format formato : formatos) {
+            ParsePosition pos = new ParsePosition(0);
+            try {
+                Object resultado = formato.parseObject(s, pos);
+                if (resultado != null && pos.getIndex() == s.length()) {
+                    return (LocalDate) resultado;
+                }
+            } catch (DateTimeException e) {
+                // offsets inválidos lançam exceção, mesmo com ParsePosition
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void mesmoResultadoQueTestarTodosOsFormatters() {
+        DespachanteFormatos<LocalDate> despachante = new DespachanteFormatos<>(LocalDate::from);
+        List<Format> formatos = new ArrayList<>();
+        List<DateTimeFormatter> formatters = new ArrayList<>();
+        for (String[] formato : FORMATOS) {
+            despachante.registrar(formato[0], locale(formato));
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern(formato[0], locale(formato));
+            formatters.add(formatter);
+            formatos.add(formatter.toFormat(LocalDate::from));
+        }
+
+        // cada data em todos os formatos, mais algumas alterações (um caractere trocado, removido ou incluído)
+        Random random = new Random(1);
+        ZoneId zona = ZoneId.of("America/Sao_Paulo");
+        List<String> entradas = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            LocalDateTime dt = LocalDateTime.of(1900 + random.nextInt(200), 1 + random.nextInt(12), 1 + random.nextInt(28), random.nextInt(24),
+                random.nextInt(60), random.nextInt(60), random.nextInt(1000) * 1_000_000);
+            if (random.nextInt(10) == 0) {
+                dt = dt.withDayOfMonth(dt.toLocalDate().lengthOfMonth());
+            }
+            for (DateTimeFormatter formatter : formatters) {
+                String s = formatter.format(dt.atZone(zona));
+                entradas.add(s);
+                for (int j = 0; j < 3; j++) {
+                    StringBuilder sb = new StringBuilder(s);
+                    int pos = random.nextInt(sb.length());
+                    switch (random.nextInt(3)) {
+                        case 0:
+                            sb.setCharAt(pos, "0123456789/-: .aX".charAt(random.nextInt(17)));
+                            break;
+                        case 1:
+                            sb.deleteCharAt(pos);
+                            break;
+                        default:
+                            sb.insert(pos, (char) ('0' + random.nextInt(10)));
+                    }
+                    entradas.add(sb.toString());
+                }
+            }
+        }
+        String[] outras = { "", " ", "31/02/2018", "02/31/2018", "29/02/2016", "29/02/2018", "2018-366", "2016-366", "1 mai. 2018", "1 May 2018",
+            "1 may 2018", "May 1, 2018", "Tue, 1 May 2018 10:00", "Wed, 1 May 2018 10:00", "12:30 PM 01/05/2018", "13:30 PM 01/05/2018",
+            "01 de maio de 2018", "Tuesday, 01-May-18", "01-May-18", "2018-05-01 10:00 -03:00", "2018-05-01 10:00 America/Sao_Paulo", "20180501",
+            "201805011", "2018-05-01 10:00:00.1", "2018-05-01 10:00:00.123", "017/03/1912", "2018-05-01 10:00 -03:70",
+            "terça-feira, 1 de maio de 2018", "segunda-feira, 1 de maio de 2018", "terça-feira 01/05/2018", "terça - feira 01/05/2018",
+            "terça feira 01/05/2018", "terça-feira- 01/05/2018", "sábado 05/05/2018" };
+        for (String outra : outras) {
+            entradas.add(outra);
+        }
+
+        int encontradas = 0;
+        for (String s : entradas) {
+            LocalDate esperado = primeiroQueFunciona(formatos, s);
+            assertEquals(s, esperado, despachante.parse(s));
+            if (esperado != null) {
+                encontradas++;
+            }
+        }
+        // a maioria das entradas válidas é encontrada
+        assertEquals(true, encontradas > 300 * FORMATOS.length);
+    }
+
+    @Test
+    public void patternCompativel() {
+        DespachanteFormatos<LocalDate> despachante = new DespachanteFormatos<>(LocalDate::from);
+        despachante.registrar("dd/MM/uuuu", Locale.ENGLISH).registrar("MM/dd/uuuu", Locale.ENGLISH).registrar("uuuu-MM-dd HH:mm XXX", Locale.ENGLISH);
+        // mesma assinatura: o primeiro registrado é o compatível, mas o parsing testa o segundo se o primeiro falhar
+        assertEquals("dd/MM/uuuu", despachante.patternCompativel("12/31/2018"));
+        assertEquals(LocalDate.of(2018, 12, 31), despachante.parse("12/31/2018"));
+        assertEquals(LocalDate.of(2018, 12, 1), despachante.parse("01/12/2018"));
+        // sem assinatura, mas o parsing ainda é feito
+        assertNull(despachante.patternCompativel("2018-05-01 10:00 -03:00"));
+        assertEquals(LocalDate.of(2018, 5, 1), despachante.parse("2018-05-01 10:00 -03:00"));
+        assertNull(despachante.parse("2018/05/01"));
+    }
+
+    @Test
+    public void camposDeTextoComVariasPalavras() {
+        DespachanteFormatos<LocalDate> despachante = new DespachanteFormatos<>(LocalDate::from);
+        despachante.registrar("EEEE, dd/MM/uuuu", PT_BR).registrar("EEEE dd-MMM-uuuu", Locale.ENGLISH);
+        // "segunda-feira" é um único grupo de letras, assim como "Monday"
+        assertEquals("EEEE, dd/MM/uuuu", despachante.patternCompativel("segunda-feira, 30/04/2018"));
+        assertEquals(LocalDate.of(2018, 4, 30), despachante.parse("segunda-feira, 30/04/2018"));
+        assertEquals(LocalDate.of(2018, 5, 5), despachante.parse("sábado, 05/05/2018"));
+        assertEquals(LocalDate.of(2018, 4, 30), despachante.parse("Monday 30-Apr-2018"));
+        assertNull(despachante.parse("terça-feira, 30/04/2018"));
+    }
+}
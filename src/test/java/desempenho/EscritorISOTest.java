@@ -0,0 +1,85 @@
+package desempenho;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class EscritorISOTest {
+
+    private static String instant(Instant instant) {
+        byte[] buf = new byte[EscritorISO.TAMANHO_MAXIMO];
+        return new String(buf, 0, EscritorISO.escreverInstant(instant, buf, 0), StandardCharsets.US_ASCII);
+    }
+
+    private static String offsetDateTime(OffsetDateTime dataHora) {
+        byte[] buf = new byte[EscritorISO.TAMANHO_MAXIMO];
+        return new String(buf, 0, EscritorISO.escreverOffsetDateTime(dataHora, buf, 0), StandardCharsets.US_ASCII);
+    }
+
+    private static String localDateTime(LocalDateTime dataHora) {
+        byte[] buf = new byte[EscritorISO.TAMANHO_MAXIMO];
+        return new String(buf, 0, EscritorISO.escreverLocalDateTime(dataHora, buf, 0), StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void mesmoResultadoQueFormatters() {
+        int[] nanos = { 0, 1, 100, 1000, 500000, 120000000, 123000000, 123456000, 123456789, 999999999 };
+        int[] offsets = { 0, -3 * 3600, 5 * 3600 + 1800, 18 * 3600, -18 * 3600, 3600 + 61 };
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            // de 1677 a 2262, com alguns valores em todo o intervalo de Instant
+            long segundos = i % 10 == 0 ? Instant.MIN.getEpochSecond() + (long) (random.nextDouble() * (Instant.MAX.getEpochSecond() * 2.0))
+                    : random.nextLong() % 9223372036L;
+            int nano = random.nextBoolean() ? nanos[random.nextInt(nanos.length)] : random.nextInt(1000000000);
+            Instant instant = Instant.ofEpochSecond(segundos, nano);
+            assertEquals(DateTimeFormatter.ISO_INSTANT.format(instant), instant(instant));
+            if (i % 10 != 0) {
+                OffsetDateTime odt = instant.atOffset(ZoneOffset.ofTotalSeconds(offsets[random.nextInt(offsets.length)]));
+                assertEquals(DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(odt), offsetDateTime(odt));
+                assertEquals(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(odt.toLocalDateTime()), localDateTime(odt.toLocalDateTime()));
+            }
+        }
+    }
+
+    @Test
+    public void limites() {
+        assertEquals("-1000000000-01-01T00:00:00Z", instant(Instant.MIN));
+        assertEquals("+1000000000-12-31T23:59:59.999999999Z", instant(Instant.MAX));
+        assertEquals("+999999999-12-31T23:59:59.999999999-18:00", offsetDateTime(OffsetDateTime.MAX));
+        assertEquals("-999999999-01-01T00:00:00+18:00", offsetDateTime(OffsetDateTime.MIN));
+        assertEquals("-0001-12-31T23:59:59", localDateTime(LocalDateTime.of(-1, 12, 31, 23, 59, 59)));
+    }
+
+    @Test
+    public void bufferEAppendable() throws IOException {
+        EscritorISO escritor = new EscritorISO();
+        OffsetDateTime odt = OffsetDateTime.of(2018, 5, 4, 17, 0, 0, 120000000, ZoneOffset.ofHours(-3));
+        String esperado = "2018-05-04T17:00:00.12-03:00";
+
+        // buffer direto, e buffer com array (com e sem espaço para TAMANHO_MAXIMO bytes)
+        for (ByteBuffer buf : new ByteBuffer[] { ByteBuffer.allocateDirect(64), ByteBuffer.allocate(64), ByteBuffer.allocate(esperado.length() + 2) }) {
+            buf.position(2);
+            escritor.escreverOffsetDateTime(odt, buf);
+            assertEquals(esperado.length() + 2, buf.position());
+            byte[] bytes = new byte[esperado.length()];
+            buf.position(2);
+            buf.get(bytes);
+            assertEquals(esperado, new String(bytes, StandardCharsets.US_ASCII));
+        }
+
+        StringBuilder sb = new StringBuilder("[");
+        escritor.escreverInstant(odt.toInstant(), sb);
+        escritor.escreverLocalDateTime(odt.toLocalDateTime(), sb.append(']'));
+        assertEquals("[2018-05-04T20:00:00.120Z]2018-05-04T17:00:00.12", sb.toString());
+    }
+}
@@ -0,0 +1,173 @@
+package desempenho;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParsePosition;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ExtratorTimestampsLogTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @Rule
+    public TemporaryFolder pasta = new TemporaryFolder();
+
+    @AfterClass
+    public static void fecharPool() {
+        POOL.shutdown();
+    }
+
+    private Path arquivo(List<String> linhas, boolean quebraNoFinal) throws IOException {
+        Path arquivo = pasta.newFile().toPath();
+        String conteudo = String.join("\n", linhas) + (quebraNoFinal ? "\n" : "");
+        Files.write(arquivo, conteudo.getBytes(StandardCharsets.UTF_8));
+        return arquivo;
+    }
+
+    // o que seria obtido usando somente o DateTimeFormatter, linha a linha
+    private static long[] esperado(String pattern, ZoneId zona, List<String> linhas) {
+        DateTimeFormatter fmt = DateTimeFormatter.ofPattern(pattern, Locale.ENGLISH).withZone(zona);
+        List<Long> result = new ArrayList<>();
+        for (String linha : linhas) {
+            ParsePosition pos = new ParsePosition(0);
+            Instant instant = (Instant) fmt.toFormat(Instant::from).parseObject(linha, pos);
+            if (instant != null) {
+                BigInteger nanos = BigInteger.valueOf(instant.getEpochSecond()).multiply(BigInteger.valueOf(1_000_000_000L)).add(
+                    BigInteger.valueOf(instant.getNano()));
+                // Long.MIN_VALUE indica "sem timestamp"
+                if (nanos.compareTo(BigInteger.valueOf(Long.MIN_VALUE)) > 0 && nanos.compareTo(BigInteger.valueOf(Long.MAX_VALUE)) <= 0) {
+                    result.add(nanos.longValue());
+                }
+            }
+        }
+        return result.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    @Test
+    public void overlapMesmoResultadoNosDoisCaminhos() throws IOException {
+        ZoneId sp = ZoneId.of("America/Sao_Paulo");
+        // 17 de fevereiro de 2018, 23:30 acontece duas vezes em São Paulo: o DateTimeFormatter usa a primeira ocorrência (offset -02:00)
+        Path arquivo = arquivo(Arrays.asList("2018-02-17 23:30:00.000 primeira linha", "2018-10-15 00:30:00.000 gap"), true);
+        ExtratorTimestampsLog numerico = new ExtratorTimestampsLog("uuuu-MM-dd HH:mm:ss.SSS", Locale.ENGLISH, sp);
+        // com a seção opcional, o pattern não pode ser lido diretamente dos bytes e o DateTimeFormatter é usado
+        ExtratorTimestampsLog formatter = new ExtratorTimestampsLog("uuuu-MM-dd HH:mm:ss.SSS[ ]", Locale.ENGLISH, sp);
+        assertTrue(numerico.isPatternNumerico());
+        assertFalse(formatter.isPatternNumerico());
+
+        long[] esperado = { ZonedDateTime.of(LocalDateTime.of(2018, 2, 17, 23, 30), sp).toInstant().toEpochMilli() * 1_000_000L,
+            ZonedDateTime.of(LocalDateTime.of(2018, 10, 15, 0, 30), sp).toInstant().toEpochMilli() * 1_000_000L };
+        assertEquals(Instant.parse("2018-02-18T01:30:00Z").toEpochMilli() * 1_000_000L, esperado[0]);
+        assertArrayEquals(esperado, numerico.extrair(arquivo).getEpochNanos());
+        assertArrayEquals(esperado, formatter.extrair(arquivo).getEpochNanos());
+    }
+
+    @Test
+    public void limitesDosBlocos() throws IOException {
+        ZoneId sp = ZoneId.of("America/Sao_Paulo");
+        String pattern = "yyyy-MM-dd HH:mm:ss.SSS";
+        DateTimeFormatter fmt = DateTimeFormatter.ofPattern(pattern, Locale.ENGLISH);
+        Random random = new Random(1);
+        List<String> linhas = new ArrayList<>();
+        // horários próximos às transições de horário de verão, datas inválidas, ano zero, 24:00 e linhas sem timestamp
+        LocalDateTime base = LocalDateTime.of(2017, 10, 14, 22, 0);
+        for (int i = 0; i < 3000; i++) {
+            int tipo = random.nextInt(10);
+            if (tipo < 6) {
+                LocalDateTime dt = (random.nextBoolean() ? base : base.plusDays(126)).plusSeconds(random.nextInt(4 * 3600)).withNano(
+                    random.nextInt(1000) * 1_000_000);
+                linhas.add(fmt.format(dt) + " INFO mensagem " + i);
+            } else if (tipo == 6) {
+                linhas.add("\tat desempenho.Classe.metodo(Classe.java:" + i + ")");
+            } else if (tipo == 7) {
+                linhas.add("");
+            } else if (tipo == 8) {
+                String[] invalidas = { "2018-02-30 10:00:00.000", "0000-01-01 00:00:00.000", "2018-03-10 24:00:00.000", "2018-13-01 00:00:00.000",
+                    "2018-03-10 10:00", "2018-03-1x 10:00:00.000" };
+                linhas.add(invalidas[random.nextInt(invalidas.length)] + " WARN");
+            } else {
+                linhas.add(fmt.format(LocalDateTime.of(1900 + random.nextInt(300), 1 + random.nextInt(12), 1 + random.nextInt(28), random.nextInt(24),
+                    random.nextInt(60), random.nextInt(60), random.nextInt(1000) * 1_000_000)));
+            }
+        }
+        long[] esperado = esperado(pattern, sp, linhas);
+        for (boolean quebraNoFinal : new boolean[] { true, false }) {
+            Path arquivo = arquivo(linhas, quebraNoFinal);
+            // blocos menores que uma linha, de algumas linhas, e um único bloco
+            for (int tamanhoBloco : new int[] { 1, 100, 4096, ExtratorTimestampsLog.TAMANHO_BLOCO_PADRAO }) {
+                ExtratorTimestampsLog extrator = new ExtratorTimestampsLog(pattern, Locale.ENGLISH, sp, tamanhoBloco, POOL);
+                ExtratorTimestampsLog.Resultado resultado = extrator.extrair(arquivo);
+                assertArrayEquals("bloco " + tamanhoBloco, esperado, resultado.getEpochNanos());
+                assertEquals(linhas.size(), resultado.getLinhas());
+                assertEquals(linhas.size() - esperado.length, resultado.getLinhasSemTimestamp());
+                assertEquals(Files.size(arquivo), resultado.getBytes());
+                // cada posição é o início de uma linha
+                byte[] bytes = Files.readAllBytes(arquivo);
+                for (long posicao : resultado.getPosicoes()) {
+                    assertTrue(posicao == 0 || bytes[(int) posicao - 1] == '\n');
+                }
+            }
+        }
+    }
+
+    @Test
+    public void intervaloDeNanossegundos() throws IOException {
+        // um long de nanossegundos vai de 1677-09-21T00:12:43.145224192Z até 2262-04-11T23:47:16.854775807Z
+        List<String> linhas = Arrays.asList("1600-01-01 00:00:00.000000000 fora", "1677-09-21 00:12:43.145224192 fora",
+            "1677-09-21 00:12:43.145224193 dentro", "1677-09-21 00:12:44.000000000 dentro", "2262-04-11 23:47:16.854775807 dentro",
+            "2262-04-11 23:47:16.854775808 fora", "2300-01-01 00:00:00.000000000 fora");
+        Path arquivo = arquivo(linhas, true);
+        for (String pattern : new String[] { "uuuu-MM-dd HH:mm:ss.SSSSSSSSS", "uuuu-MM-dd HH:mm:ss.SSSSSSSSS[ ]" }) {
+            ExtratorTimestampsLog.Resultado resultado = new ExtratorTimestampsLog(pattern, Locale.ENGLISH, ZoneOffset.UTC).extrair(arquivo);
+            assertArrayEquals(pattern, new long[] { Long.MIN_VALUE + 1, Instant.parse("1677-09-21T00:12:44Z").getEpochSecond() * 1_000_000_000L,
+                Long.MAX_VALUE }, resultado.getEpochNanos());
+            assertEquals(4, resultado.getLinhasSemTimestamp());
+            assertArrayEquals(esperado(pattern, ZoneOffset.UTC, linhas), resultado.getEpochNanos());
+        }
+    }
+
+    @Test
+    public void formatterComTextoNaoAscii() throws IOException {
+        // o pattern tem campos de texto, então todas as linhas usam o DateTimeFormatter (e os bytes UTF-8 são decodificados)
+        String pattern = "d 'de' MMMM 'de' uuuu HH:mm";
+        Locale ptBr = new Locale("pt", "BR");
+        List<String> linhas = Arrays.asList("1 de março de 2018 10:00 início", "32 de fevereiro de 2018 10:00 inválida", "ação sem data",
+            "15 de outubro de 2017 00:30 gap", "\u00e7\u00e3o", "", "31 de dezembro de 2018 23:59");
+        Path arquivo = arquivo(linhas, false);
+        ZoneId sp = ZoneId.of("America/Sao_Paulo");
+        ExtratorTimestampsLog extrator = new ExtratorTimestampsLog(pattern, ptBr, sp);
+        assertFalse(extrator.isPatternNumerico());
+        DateTimeFormatter fmt = DateTimeFormatter.ofPattern(pattern, ptBr).withZone(sp);
+        long[] esperado = { 0, 0, 0 };
+        String[] validas = { "1 de março de 2018 10:00", "15 de outubro de 2017 00:30", "31 de dezembro de 2018 23:59" };
+        for (int i = 0; i < validas.length; i++) {
+            esperado[i] = Instant.from(fmt.parse(validas[i])).getEpochSecond() * 1_000_000_000L;
+        }
+        ExtratorTimestampsLog.Resultado resultado = extrator.extrair(arquivo);
+        assertArrayEquals(esperado, resultado.getEpochNanos());
+        assertEquals(4, resultado.getLinhasSemTimestamp());
+    }
+}
@@ -0,0 +1,116 @@
+package desempenho;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class FormatadorCacheSegundoTest {
+
+    private static final String[] PATTERNS = { "dd/MM/yyyy HH:mm:ss.SSS", "uuuu-MM-dd'T'HH:mm:ss.SSSSSSXXX", "HH:mm:ss,S '['VV']'", "SSSSSSSSS",
+        "EEE, d MMM yyyy HH:mm:ss.SS zzzz", "yyyy-MM-dd HH:mm:ss", "'S='SSS' ''S''' a h:mm:ss", "HHmmssSSS[ O]", "[uuuu-MM-dd ]HH:mm:ss.SSS xxxxx" };
+
+    private static final ZoneId[] ZONAS = { ZoneId.of("America/Sao_Paulo"), ZoneId.of("Europe/London"), ZoneId.of("Australia/Lord_Howe"),
+        ZoneId.of("America/Caracas"), ZoneOffset.ofHoursMinutesSeconds(-3, -6, -28), ZoneOffset.UTC };
+
+    private static final Locale[] LOCALES = { Locale.ENGLISH, new Locale("pt", "BR"), Locale.JAPAN };
+
+    // instantes aleatórios, vários no mesmo segundo, e em volta das transições de horário de verão
+    private static List<Instant> instantes(Random random) {
+        List<Instant> instantes = new ArrayList<>();
+        long inicio = Instant.parse("1800-01-01T00:00:00Z").getEpochSecond(), fim = Instant.parse("2200-01-01T00:00:00Z").getEpochSecond();
+        for (int i = 0; i < 500; i++) {
+            long segundo = inicio + (long) (random.nextDouble() * (fim - inicio));
+            for (int j = random.nextInt(4); j >= 0; j--) {
+                instantes.add(Instant.ofEpochSecond(segundo, random.nextInt(1_000_000_000)));
+            }
+        }
+        for (String transicao : new String[] { "2018-02-18T01:59:59Z", "2017-10-15T02:59:58Z", "2018-10-28T00:59:59Z", "1969-12-31T23:59:59Z" }) {
+            Instant base = Instant.parse(transicao);
+            for (int i = 0; i < 5; i++) {
+                instantes.add(base.plusSeconds(i).plusNanos(random.nextInt(1_000_000_000)));
+                instantes.add(base.plusSeconds(i));
+            }
+        }
+        return instantes;
+    }
+
+    @Test
+    public void mesmoResultadoQueDateTimeFormatter() {
+        Random random = new Random(1);
+        List<Instant> instantes = instantes(random);
+        for (String pattern : PATTERNS) {
+            for (Locale locale : LOCALES) {
+                for (ZoneId zona : ZONAS) {
+                    DateTimeFormatter formatter = DateTimeFormatter.ofPattern(pattern, locale).withZone(zona);
+                    FormatadorCacheSegundo formatador = new FormatadorCacheSegundo(pattern, locale, zona);
+                    StringBuilder sb = new StringBuilder();
+                    for (Instant instante : instantes) {
+                        String msg = pattern + " " + locale + " " + zona + " " + instante;
+                        String esperado = formatter.format(instante);
+                        assertEquals(msg, esperado, formatador.formatar(instante));
+                        sb.setLength(0);
+                        formatador.formatar(instante.getEpochSecond(), instante.getNano(), sb);
+                        assertEquals(msg, esperado, sb.toString());
+                        // em milissegundos, as frações além dos milissegundos são zero
+                        Instant milli = Instant.ofEpochMilli(instante.toEpochMilli());
+                        assertEquals(msg, formatter.format(milli), formatador.formatar(instante.toEpochMilli()));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void variasThreads() throws Exception {
+        String pattern = "dd/MM/yyyy HH:mm:ss.SSS";
+        ZoneId zona = ZoneId.of("America/Sao_Paulo");
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(pattern, Locale.ENGLISH).withZone(zona);
+        FormatadorCacheSegundo formatador = new FormatadorCacheSegundo(pattern, Locale.ENGLISH, zona);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> tarefas = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Random random = new Random(t);
+                tarefas.add(executor.submit(() -> {
+                    // poucos segundos diferentes, para que as threads troquem o cache entre si
+                    long base = Instant.parse("2018-02-18T01:59:58Z").toEpochMilli();
+                    for (int i = 0; i < 100_000; i++) {
+                        long milli = base + random.nextInt(4000);
+                        assertEquals(formatter.format(Instant.ofEpochMilli(milli)), formatador.formatar(milli));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void patternsNaoSuportados() {
+        for (String pattern : new String[] { "HH:mm:ss.SSS SSS", "HH:mm:ss[.SSS]", "HH:mm:ss.nnn", "HH:mm:ss N", "A", "ss.SSSSSSSSSS" }) {
+            try {
+                new FormatadorCacheSegundo(pattern, Locale.ENGLISH, ZoneOffset.UTC);
+                fail(pattern);
+            } catch (IllegalArgumentException e) {
+                // esperado
+            }
+        }
+    }
+}
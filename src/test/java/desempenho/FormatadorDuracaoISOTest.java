@@ -0,0 +1,185 @@
+package desempenho;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class FormatadorDuracaoISOTest {
+
+    private static final ZoneId[] ZONAS = { ZoneId.of("America/Sao_Paulo"), ZoneId.of("Australia/Lord_Howe"), ZoneId.of("Pacific/Apia"),
+        ZoneId.of("Europe/London"), ZoneId.of("Asia/Kolkata"), ZoneOffset.ofHours(-3) };
+
+    // meses, dias e o restante, calculados com LocalDateTime.until
+    private static String esperado(LocalDateTime inicio, LocalDateTime fim, Duration resto) {
+        long meses = inicio.until(fim, ChronoUnit.MONTHS);
+        long dias = inicio.plusMonths(meses).until(fim, ChronoUnit.DAYS);
+        StringBuilder sb = new StringBuilder("P");
+        if (meses / 12 != 0) {
+            sb.append(meses / 12).append('Y');
+        }
+        if (meses % 12 != 0) {
+            sb.append(meses % 12).append('M');
+        }
+        if (dias != 0) {
+            sb.append(dias).append('D');
+        }
+        if (!resto.isZero() || sb.length() == 1) {
+            // Duration.toString sem o "P"
+            sb.append(resto.toString().substring(1));
+        }
+        return sb.toString();
+    }
+
+    private static String esperado(LocalDateTime inicio, Duration duracao) {
+        LocalDateTime fim = inicio.plus(duracao);
+        long meses = inicio.until(fim, ChronoUnit.MONTHS);
+        LocalDateTime meio = inicio.plusMonths(meses);
+        meio = meio.plusDays(meio.until(fim, ChronoUnit.DAYS));
+        return esperado(inicio, fim, Duration.between(meio, fim));
+    }
+
+    private static String esperado(ZonedDateTime inicio, Duration duracao) {
+        ZonedDateTime fim = inicio.plus(duracao);
+        LocalDateTime localInicio = inicio.toLocalDateTime(), localFim = fim.toLocalDateTime();
+        long meses = localInicio.until(localFim, ChronoUnit.MONTHS);
+        LocalDateTime meio = localInicio.plusMonths(meses);
+        meio = meio.plusDays(meio.until(localFim, ChronoUnit.DAYS));
+        // a data e hora local do meio é resolvida uma única vez, com o offset do início
+        return esperado(localInicio, localFim, Duration.between(ZonedDateTime.ofLocal(meio, inicio.getZone(), inicio.getOffset()), fim));
+    }
+
+    // o Period e a Duration do texto somados ao início
+    private static ZonedDateTime somar(ZonedDateTime inicio, String texto) {
+        int t = texto.indexOf('T');
+        Period periodo = t == 1 ? Period.ZERO : Period.parse(t < 0 ? texto : texto.substring(0, t));
+        Duration duracao = t < 0 ? Duration.ZERO : Duration.parse("P" + texto.substring(t));
+        return inicio.plus(periodo).plus(duracao);
+    }
+
+    private static List<Duration> duracoes(Random random) {
+        List<Duration> duracoes = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            long segundos;
+            switch (i % 4) {
+                case 0:
+                    // até 200 anos
+                    segundos = (long) (random.nextDouble() * 200 * 366 * 86400);
+                    break;
+                case 1:
+                    // alguns dias
+                    segundos = random.nextInt(10 * 86400);
+                    break;
+                case 2:
+                    // dias exatos
+                    segundos = random.nextInt(3000) * 86400L;
+                    break;
+                default:
+                    segundos = random.nextInt(7200);
+            }
+            int nano = random.nextBoolean() ? 0 : random.nextInt(1_000_000_000);
+            duracoes.add(Duration.ofSeconds(segundos, nano));
+            duracoes.add(Duration.ofSeconds(segundos, nano).negated());
+        }
+        duracoes.add(Duration.ZERO);
+        duracoes.add(Duration.ofNanos(1));
+        duracoes.add(Duration.ofNanos(-1));
+        return duracoes;
+    }
+
+    private static List<LocalDateTime> inicios(Random random) {
+        List<LocalDateTime> inicios = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            inicios.add(LocalDateTime.of(1900 + random.nextInt(200), 1 + random.nextInt(12), 1 + random.nextInt(28), random.nextInt(24), random.nextInt(60),
+                random.nextInt(60), random.nextBoolean() ? 0 : random.nextInt(1_000_000_000)));
+        }
+        // fim de mês, 29 de fevereiro, e perto das transições de horário de verão e do dia que não existe em Apia
+        String[] especiais = { "2018-01-31T10:00", "2016-02-29T23:59:59.999", "2018-02-17T23:30", "2017-10-14T00:30", "2011-12-29T12:00",
+            "2018-03-31T01:30", "2018-04-01T01:45" };
+        for (String especial : especiais) {
+            inicios.add(LocalDateTime.parse(especial));
+        }
+        return inicios;
+    }
+
+    @Test
+    public void mesmoResultadoQueLocalDateTimeUntil() {
+        Random random = new Random(1);
+        List<Duration> duracoes = duracoes(random);
+        for (LocalDateTime inicio : inicios(random)) {
+            FormatadorDuracaoISO formatador = new FormatadorDuracaoISO(inicio);
+            for (Duration duracao : duracoes) {
+                String msg = inicio + " " + duracao;
+                String texto = formatador.formatar(duracao);
+                assertEquals(msg, esperado(inicio, duracao), texto);
+                assertEquals(msg, inicio.plus(duracao), somar(inicio.atOffset(ZoneOffset.UTC).toZonedDateTime(), texto).toLocalDateTime());
+                Duration millis = Duration.ofMillis(duracao.toMillis());
+                assertEquals(msg, esperado(inicio, millis), formatador.formatar(duracao.toMillis()));
+            }
+        }
+    }
+
+    @Test
+    public void mesmoResultadoQueZonedDateTime() {
+        Random random = new Random(2);
+        List<Duration> duracoes = duracoes(random);
+        for (ZoneId zona : ZONAS) {
+            for (LocalDateTime local : inicios(random)) {
+                ZonedDateTime inicio = local.atZone(zona);
+                FormatadorDuracaoISO formatador = new FormatadorDuracaoISO(inicio);
+                for (Duration duracao : duracoes) {
+                    String msg = inicio + " " + duracao;
+                    String texto = formatador.formatar(duracao);
+                    assertEquals(msg, esperado(inicio, duracao), texto);
+                    assertEquals(msg, inicio.plus(duracao).toInstant(), somar(inicio, texto).toInstant());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void loteELimites() {
+        Random random = new Random(3);
+        FormatadorDuracaoISO formatador = new FormatadorDuracaoISO(ZonedDateTime.of(2018, 2, 17, 23, 30, 0, 0, ZoneId.of("America/Sao_Paulo")));
+        long[] millis = new long[100];
+        for (int i = 0; i < millis.length; i++) {
+            millis[i] = random.nextLong() % (100L * 365 * 86400 * 1000);
+        }
+        byte[] buf = new byte[millis.length * FormatadorDuracaoISO.TAMANHO_MAXIMO];
+        int[] fins = new int[millis.length - 10];
+        int fim = formatador.escrever(millis, 10, millis.length, buf, 0, fins);
+        assertEquals(fins[fins.length - 1], fim);
+        int pos = 0;
+        for (int i = 10; i < millis.length; i++) {
+            assertEquals(formatador.formatar(millis[i]), new String(buf, pos, fins[i - 10] - pos, StandardCharsets.US_ASCII));
+            pos = fins[i - 10];
+        }
+
+        // o maior texto possível cabe em TAMANHO_MAXIMO, e o final não pode passar dos limites de LocalDateTime
+        FormatadorDuracaoISO maximo = new FormatadorDuracaoISO(LocalDateTime.MAX);
+        Duration duracao = Duration.between(LocalDateTime.MIN.plusDays(1), LocalDateTime.MAX).negated();
+        String texto = maximo.formatar(duracao);
+        assertEquals(esperado(LocalDateTime.MAX, duracao), texto);
+        assertTrue(texto, texto.length() <= FormatadorDuracaoISO.TAMANHO_MAXIMO);
+        try {
+            maximo.formatar(Duration.ofNanos(1));
+            fail();
+        } catch (DateTimeException e) {
+            // esperado
+        }
+    }
+}
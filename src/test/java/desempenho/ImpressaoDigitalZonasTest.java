@@ -0,0 +1,82 @@
+package desempenho;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+public class ImpressaoDigitalZonasTest {
+
+    @Test
+    public void mesmoResultadoQueZoneRulesEquals() {
+        ImpressaoDigitalZonas indice = ImpressaoDigitalZonas.global();
+        assertSame(indice, ImpressaoDigitalZonas.global());
+        List<ZoneId> zonas = new ArrayList<>();
+        for (String id : ZoneId.getAvailableZoneIds()) {
+            zonas.add(ZoneId.of(id));
+        }
+        ZoneRules[] regras = new ZoneRules[zonas.size()];
+        for (int i = 0; i < regras.length; i++) {
+            regras[i] = zonas.get(i).getRules();
+        }
+        // todos os pares de timezones
+        for (int i = 0; i < regras.length; i++) {
+            for (int j = 0; j < regras.length; j++) {
+                String msg = zonas.get(i) + " " + zonas.get(j);
+                assertEquals(msg, regras[i].equals(regras[j]), indice.equivalentes(zonas.get(i), zonas.get(j)));
+            }
+            assertEquals(regras[i], indice.canonica(zonas.get(i)).getRegras());
+        }
+        assertEquals(zonas.size(), indice.getMapa().size());
+        // a busca percorrendo as regras de todos os timezones encontra o mesmo grupo
+        for (ZoneId zona : zonas) {
+            List<ZoneId> esperado = new ArrayList<>();
+            for (int i = 0; i < regras.length; i++) {
+                if (regras[i].equals(zona.getRules())) {
+                    esperado.add(zonas.get(i));
+                }
+            }
+            assertEquals(zona.toString(), new HashSet<>(esperado), new HashSet<>(indice.canonica(zona).getSinonimos()));
+        }
+    }
+
+    @Test
+    public void zonasForaDoIndice() {
+        ImpressaoDigitalZonas indice = ImpressaoDigitalZonas.global();
+        assertEquals(ZoneId.of("Etc/GMT"), indice.canonico(ZoneOffset.UTC));
+        assertEquals(ZoneId.of("Etc/GMT+3"), indice.canonico(ZoneOffset.ofHours(-3)));
+        ZoneOffset offset = ZoneOffset.ofHoursMinutes(3, 17);
+        assertEquals(offset, indice.canonico(offset));
+        assertFalse(indice.equivalentes(offset, ZoneId.of("Etc/GMT-3")));
+        // o grupo é calculado uma única vez, e as chamadas seguintes retornam a mesma instância
+        assertSame(indice.canonica(offset), indice.canonica(ZoneOffset.ofHoursMinutes(3, 17)));
+        assertSame(indice.canonica(ZoneId.of("Etc/GMT+3")), indice.canonica(ZoneOffset.ofHours(-3)));
+    }
+
+    @Test
+    public void canonicosSaoOsIdsPrincipaisDoTzdb() {
+        Assume.assumeFalse("links do TZDB não disponíveis nesta JVM", Tzdb.links().isEmpty());
+        ImpressaoDigitalZonas indice = ImpressaoDigitalZonas.global();
+        String[][] esperados = { { "Atlantic/Jan_Mayen", "Europe/Berlin" }, { "Arctic/Longyearbyen", "Europe/Berlin" }, { "Europe/Belfast", "Europe/London" },
+            { "Asia/Calcutta", "Asia/Kolkata" }, { "America/Montreal", "America/Toronto" }, { "Brazil/East", "America/Sao_Paulo" },
+            { "Australia/ACT", "Australia/Sydney" }, { "Atlantic/Faeroe", "Atlantic/Faroe" } };
+        for (String[] esperado : esperados) {
+            assertEquals(esperado[0], ZoneId.of(esperado[1]), indice.canonico(ZoneId.of(esperado[0])));
+        }
+        // nenhum canônico é um link, a não ser que todo o grupo seja formado por links
+        for (ImpressaoDigitalZonas.ZonaCanonica canonica : indice.canonicas()) {
+            boolean todosLinks = canonica.getSinonimos().stream().allMatch(z -> Tzdb.links().containsKey(z.getId()));
+            assertEquals(canonica.toString(), todosLinks, Tzdb.links().containsKey(canonica.getId().getId()));
+            assertSame(canonica, indice.canonica(canonica.getId()));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package desempenho;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class IndiceAbreviacoesLocalesTest {
+
+    // o índice de todos os locales leva vários segundos para ser criado, então o teste usa somente alguns
+    private static final Locale[] LOCALES = { Locale.US, Locale.UK, new Locale("pt", "BR"), Locale.GERMANY, Locale.FRANCE, Locale.JAPAN,
+        new Locale("es", "MX"), new Locale("en", "AU") };
+
+    @Test
+    public void mesmoResultadoQueFormatarEmTodosOsTimezones() {
+        IndiceAbreviacoesLocales indice = IndiceAbreviacoesLocales.of(LOCALES);
+        List<String> ids = new ArrayList<>(ZoneId.getAvailableZoneIds());
+        Collections.sort(ids);
+        DateTimeFormatter[] formatters = new DateTimeFormatter[LOCALES.length];
+        for (int l = 0; l < LOCALES.length; l++) {
+            formatters[l] = DateTimeFormatter.ofPattern("z", LOCALES[l]);
+        }
+
+        // instantes aleatórios entre 1900 e 2100, e alguns instantes perto de transições
+        List<Instant> instantes = new ArrayList<>();
+        Random random = new Random(1);
+        long inicio = Instant.parse("1900-01-01T00:00:00Z").getEpochSecond(), fim = Instant.parse("2100-01-01T00:00:00Z").getEpochSecond();
+        for (int i = 0; i < 40; i++) {
+            instantes.add(Instant.ofEpochSecond(inicio + (long) (random.nextDouble() * (fim - inicio))));
+        }
+        instantes.add(Instant.parse("2018-11-04T02:59:59Z"));
+        instantes.add(Instant.parse("2018-11-04T03:00:00Z"));
+        instantes.add(Instant.parse("2021-03-28T01:00:00Z"));
+
+        for (Instant instante : instantes) {
+            // busca formatando o instante em todos os timezones e locales, como nos exemplos do livro: nome -> timezones, em cada locale e em todos
+            List<Map<String, List<String>>> esperadoPorLocale = new ArrayList<>();
+            Map<String, List<String>> esperado = new TreeMap<>();
+            for (DateTimeFormatter formatter : formatters) {
+                Map<String, List<String>> porNome = new TreeMap<>();
+                for (String id : ids) {
+                    String nome = formatter.format(instante.atZone(ZoneId.of(id)));
+                    porNome.computeIfAbsent(nome, k -> new ArrayList<>()).add(id);
+                    List<String> todos = esperado.computeIfAbsent(nome, k -> new ArrayList<>());
+                    if (!todos.contains(id)) {
+                        todos.add(id);
+                    }
+                }
+                esperadoPorLocale.add(porNome);
+            }
+            for (Map.Entry<String, List<String>> e : esperado.entrySet()) {
+                Collections.sort(e.getValue());
+                assertEquals(instante + " " + e.getKey(), e.getValue(), indice.zonas(e.getKey(), instante));
+                assertTrue(indice.abreviacoes().contains(e.getKey()));
+            }
+            for (int l = 0; l < LOCALES.length; l++) {
+                for (Map.Entry<String, List<String>> e : esperadoPorLocale.get(l).entrySet()) {
+                    assertEquals(instante + " " + LOCALES[l] + " " + e.getKey(), e.getValue(), indice.zonas(e.getKey(), LOCALES[l], instante));
+                }
+            }
+        }
+        assertEquals(Collections.emptyList(), indice.zonas("XYZ", Instant.now()));
+        assertEquals(Collections.emptyList(), indice.zonas("EST", new Locale("xx"), Instant.now()));
+    }
+}
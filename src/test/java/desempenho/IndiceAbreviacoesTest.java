@@ -0,0 +1,132 @@
+package desempenho;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.text.ParsePosition;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.TextStyle;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQueries;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+public class IndiceAbreviacoesTest {
+
+    private static final Locale[] LOCALES = { Locale.ENGLISH, Locale.US, Locale.UK, new Locale("pt", "BR"), Locale.GERMANY, Locale.FRANCE, Locale.JAPAN,
+        new Locale("en", "AU"), new Locale("en", "IN") };
+
+    // timezone escolhido pelo DateTimeFormatter ao fazer o parsing da abreviação inteira (null se não conseguir)
+    private static ZoneId parseJdk(DateTimeFormatter formatter, String abreviacao) {
+        ParsePosition pos = new ParsePosition(0);
+        TemporalAccessor parsed = formatter.parseUnresolved(abreviacao, pos);
+        return parsed == null || pos.getIndex() != abreviacao.length() ? null : parsed.query(TemporalQueries.zoneId());
+    }
+
+    @Test
+    public void mesmoResultadoQueDateTimeFormatter() {
+        for (Locale locale : LOCALES) {
+            IndiceAbreviacoes indice = IndiceAbreviacoes.of(locale);
+            assertSame(indice, IndiceAbreviacoes.of(locale));
+
+            // busca percorrendo os nomes curtos de todos os timezones
+            Map<String, Set<String>> esperado = new TreeMap<>();
+            for (String id : ZoneId.getAvailableZoneIds()) {
+                TimeZone tz = TimeZone.getTimeZone(id);
+                for (boolean verao : new boolean[] { false, true }) {
+                    String nome = tz.getDisplayName(verao, TimeZone.SHORT, locale);
+                    if (!((nome.startsWith("GMT") || nome.startsWith("UTC")) && nome.length() > 3)) {
+                        esperado.computeIfAbsent(nome, k -> new TreeSet<>()).add(id);
+                    }
+                }
+            }
+            assertEquals(locale.toString(), esperado.keySet(), indice.abreviacoes());
+
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("z", locale);
+            IndiceAbreviacoes.Resolvedor padrao = indice.resolvedor(IndiceAbreviacoes.PoliticaPreferencia.padrao());
+            for (Map.Entry<String, Set<String>> e : esperado.entrySet()) {
+                String abreviacao = e.getKey();
+                String msg = locale + " " + abreviacao;
+                List<String> candidatos = new ArrayList<>();
+                indice.candidatos(abreviacao).forEach(z -> candidatos.add(z.getId()));
+                assertEquals(msg, e.getValue(), new HashSet<>(candidatos));
+                assertEquals(msg, e.getValue().size(), candidatos.size());
+
+                // a política padrão escolhe o mesmo timezone que o DateTimeFormatter, se ele for um dos candidatos
+                ZoneId jdk = parseJdk(formatter, abreviacao);
+                ZoneId escolhido = padrao.resolver(abreviacao);
+                if (jdk != null && e.getValue().contains(jdk.getId())) {
+                    assertEquals(msg, jdk, escolhido);
+                } else {
+                    assertEquals(msg, e.getValue().iterator().next(), escolhido.getId());
+                }
+
+                // a busca na trie encontra a mesma abreviação, no meio de uma String
+                String texto = "10:00 " + abreviacao + " 2018";
+                long resultado = padrao.buscar(texto, 6);
+                assertEquals(msg, 6 + abreviacao.length(), TrieTextos.posicao(resultado));
+                assertEquals(msg, escolhido, padrao.zona(resultado));
+            }
+            assertEquals(0, indice.candidatos("XYZ").size());
+        }
+    }
+
+    @Test
+    public void preferidosIgualAppendZoneText() {
+        Set<ZoneId> preferidos = new HashSet<>(Arrays.asList(ZoneId.of("Asia/Kolkata"), ZoneId.of("America/Chicago"), ZoneId.of("Europe/Dublin"),
+            ZoneId.of("America/Havana"), ZoneId.of("Australia/Sydney"), ZoneId.of("America/Sao_Paulo")));
+        for (Locale locale : LOCALES) {
+            IndiceAbreviacoes indice = IndiceAbreviacoes.of(locale);
+            DateTimeFormatter formatter = new DateTimeFormatterBuilder().appendZoneText(TextStyle.SHORT, preferidos).toFormatter(locale);
+            IndiceAbreviacoes.Resolvedor resolvedor = indice.resolvedor(IndiceAbreviacoes.PoliticaPreferencia.preferidos(preferidos));
+            Set<ZoneId> escolhidas = resolvedor.zonasEscolhidas();
+            // o mesmo formatter, usando os timezones escolhidos pelo resolvedor como preferidos
+            DateTimeFormatter formatterEscolhidas = new DateTimeFormatterBuilder().appendZoneText(TextStyle.SHORT, escolhidas).toFormatter(locale);
+            for (String abreviacao : indice.abreviacoes()) {
+                String msg = locale + " " + abreviacao;
+                ZoneId jdk = parseJdk(formatter, abreviacao);
+                ZoneId escolhido = resolvedor.resolver(abreviacao);
+                if (jdk != null && indice.candidatos(abreviacao).contains(jdk)) {
+                    assertEquals(msg, jdk, escolhido);
+                }
+                // o formatter faz a mesma escolha, se nenhum outro timezone escolhido usar a abreviação (as genéricas, como "ACT" em Australia/Adelaide,
+                // não estão entre os candidatos)
+                ZoneId jdkEscolhidas = parseJdk(formatterEscolhidas, abreviacao);
+                if (escolhido != null && indice.candidatos(abreviacao).contains(jdkEscolhidas)
+                    && indice.candidatos(abreviacao).stream().filter(escolhidas::contains).count() == 1) {
+                    assertEquals(msg, escolhido, jdkEscolhidas);
+                }
+                assertEquals(msg, escolhido == null ? null : escolhido.getId(), resolvedor.mapaIds().get(abreviacao));
+            }
+        }
+    }
+
+    @Test
+    public void somenteSemAmbiguidade() {
+        IndiceAbreviacoes indice = IndiceAbreviacoes.of(Locale.ENGLISH);
+        IndiceAbreviacoes.Resolvedor resolvedor = indice.resolvedor(IndiceAbreviacoes.PoliticaPreferencia.somenteSemAmbiguidade());
+        assertTrue(indice.candidatos("IST").size() > 1);
+        assertNull(resolvedor.resolver("IST"));
+        assertEquals(TrieTextos.NAO_ENCONTRADO, resolvedor.buscar("IST", 0));
+        for (String abreviacao : indice.abreviacoes()) {
+            List<ZoneId> candidatos = indice.candidatos(abreviacao);
+            assertEquals(abreviacao, candidatos.size() == 1 ? candidatos.get(0) : null, resolvedor.resolver(abreviacao));
+        }
+        // ZoneId.SHORT_IDS: "IST" é Asia/Kolkata
+        assertEquals(ZoneId.of("Asia/Kolkata"), indice.resolvedor(IndiceAbreviacoes.PoliticaPreferencia.shortIds()).resolver("IST"));
+    }
+}
@@ -0,0 +1,66 @@
+package desempenho;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class IndiceOffsetsTest {
+
+    @Test
+    public void mesmoResultadoQuePercorrerTodosOsTimezones() {
+        IndiceOffsets indice = IndiceOffsets.global();
+        assertSame(indice, IndiceOffsets.global());
+        List<String> ids = new ArrayList<>(ZoneId.getAvailableZoneIds());
+        Collections.sort(ids);
+        List<ZoneRules> regras = new ArrayList<>();
+        for (String id : ids) {
+            regras.add(ZoneId.of(id).getRules());
+        }
+
+        // instantes aleatórios entre 1800 e 2200, as transições de alguns timezones (e 1 segundo antes) e instantes fora do intervalo dos dados do TZDB
+        List<Instant> instantes = new ArrayList<>();
+        Random random = new Random(1);
+        long inicio = Instant.parse("1800-01-01T00:00:00Z").getEpochSecond(), fim = Instant.parse("2200-01-01T00:00:00Z").getEpochSecond();
+        for (int i = 0; i < 1000; i++) {
+            instantes.add(Instant.ofEpochSecond(inicio + (long) (random.nextDouble() * (fim - inicio))));
+        }
+        for (String id : new String[] { "America/Sao_Paulo", "Australia/Lord_Howe", "Europe/London", "Pacific/Apia", "Asia/Kolkata" }) {
+            for (ZoneOffsetTransition transicao : ZoneId.of(id).getRules().getTransitions()) {
+                instantes.add(transicao.getInstant());
+                instantes.add(transicao.getInstant().minusSeconds(1));
+            }
+        }
+        instantes.add(Instant.parse("-1000-01-01T00:00:00Z"));
+        instantes.add(Instant.parse("2100-12-31T23:59:59Z"));
+        instantes.add(Instant.parse("2101-01-01T00:00:00Z"));
+        instantes.add(Instant.parse("9999-01-01T00:00:00Z"));
+
+        for (Instant instante : instantes) {
+            // busca percorrendo todos os timezones, como nos exemplos do livro
+            Map<ZoneOffset, List<String>> esperado = new TreeMap<>();
+            for (int i = 0; i < ids.size(); i++) {
+                esperado.computeIfAbsent(regras.get(i).getOffset(instante), k -> new ArrayList<>()).add(ids.get(i));
+            }
+            for (Map.Entry<ZoneOffset, List<String>> e : esperado.entrySet()) {
+                assertEquals(instante + " " + e.getKey(), e.getValue(), indice.zonas(e.getKey(), instante));
+                assertTrue(instante.getEpochSecond() >= Instant.parse("2101-01-01T00:00:00Z").getEpochSecond() || indice.offsets().contains(e.getKey()));
+            }
+            // offset que nenhum timezone usa
+            assertEquals(Collections.emptyList(), indice.zonas(ZoneOffset.ofHoursMinutes(17, 17), instante));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package desempenho;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAccessor;
+
+import org.junit.Test;
+
+public class ParserISO8601Test {
+
+    // mesmo parser de Cap18Parsing.parseBest, usado como referência
+    private static final DateTimeFormatter PARSER = new DateTimeFormatterBuilder()
+        .append(DateTimeFormatter.ISO_LOCAL_DATE)
+        .optionalStart()
+        .appendLiteral('T')
+        .append(DateTimeFormatter.ISO_LOCAL_TIME)
+        .optionalStart()
+        .appendPattern("[XXX][XX][X]")
+        .optionalEnd()
+        .optionalEnd()
+        .toFormatter();
+
+    // resultado de parseBest, ou null se o DateTimeFormatter não conseguir fazer o parsing
+    private static TemporalAccessor parseBest(String s) {
+        try {
+            return PARSER.parseBest(s, OffsetDateTime::from, LocalDateTime::from, LocalDate::from);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    @Test
+    public void mesmoResultadoQueParseBest() {
+        String[] entradas = { "2018-02-10T10:30:45.143923Z", "2018-02-10T10:30:45.561-0100", "2018-02-10T10:30:45+05:30", "2018-02-10T10:30:45",
+                "2018-02-10", "2018-02-10T10:30", "2018-02-10T10:30:45.1", "2018-02-10T10:30:45.123456789-03", "2016-02-29T23:59:59Z",
+                "2018-12-31T00:00-18:00" };
+        for (String s : entradas) {
+            TemporalAccessor esperado = parseBest(s);
+            TemporalAccessor obtido = ParserISO8601.parse(s);
+            // além do valor, o tipo retornado deve ser o mesmo
+            assertEquals(s, esperado.getClass(), obtido.getClass());
+            assertEquals(s, esperado, obtido);
+        }
+    }
+
+    @Test
+    public void ajustesDoModoSmart() {
+        // dias maiores que o último dia do mês são ajustados, 24:00 é a meia-noite do dia seguinte (parseBest usa ResolverStyle.SMART), e a fração
+        // de segundo pode ter somente o ponto
+        String[] entradas = { "2018-02-30", "2017-02-29", "2016-02-31", "2018-04-31T10:00", "2018-06-31T10:00:00Z", "2018-02-10T24:00",
+            "2018-12-31T24:00:00", "2018-02-28T24:00:00.000000000+05:30", "2018-02-31T24:00Z", "9999-12-31T24:00", "2018-02-10T24:00:01",
+            "2018-02-10T24:01", "2018-02-10T24:00:00.1", "2018-02-10T25:00", "2018-02-32", "2018-02-00", "2018-02-10T10:30:45.", "2018-02-10T10:30:45.Z" };
+        for (String s : entradas) {
+            TemporalAccessor esperado = parseBest(s);
+            TemporalAccessor obtido = ParserISO8601.parse(s);
+            assertEquals(s, esperado, obtido);
+            if (esperado != null) {
+                assertEquals(s, esperado.getClass(), obtido.getClass());
+            }
+        }
+    }
+
+    @Test
+    public void valoresInvalidosRetornamNull() {
+        String[] entradas = { "", "2018-02", "2018-13-01", "2018-02-32", "2018-02-10T24:30", "2018-02-10T10:60", "2018-02-10T10:30.5",
+                "2018-02-10T10:30:45.1234567890", "2018-02-10T10:30+19:00", "2018-02-10T10:30-03:0", "2018-02-10T10:30Zx", "2018/02/10",
+                "2018-02-10 10:30" };
+        for (String s : entradas) {
+            assertNull(s, ParserISO8601.parse(s));
+            assertNull(s, parseBest(s));
+        }
+    }
+}
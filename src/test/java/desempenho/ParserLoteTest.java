@@ -0,0 +1,150 @@
+package desempenho;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.ToLongFunction;
+
+import org.junit.Test;
+
+public class ParserLoteTest {
+
+    @Test
+    public void errosDeFormatoResolucaoEConversao() {
+        ParserLote lote = new ParserLote(DateTimeFormatter.ofPattern("dd/MM/uuuu").withResolverStyle(ResolverStyle.STRICT), ParserLote.EPOCH_DAY);
+        ParserLote.Resultado resultado = lote.parse(new String[] { "04/05/2018", "33/01/2018", "2018-02-01", "31/04/2018", "04/05/2018 10:00", null,
+            "29/02/2016", "29/02/2018" });
+        assertEquals(17655, resultado.getValores()[0]);
+        assertEquals(16860, resultado.getValores()[6]);
+        assertEquals(6, resultado.getQtdErros());
+        int[] linhas = { 1, 2, 3, 4, 5 };
+        // dia 33 e 31 de abril: erros de resolução; "2018-02-01": erro de formato na posição 2; caracteres que sobraram a partir da posição 10
+        int[] posicoes = { ParserLote.ERRO_RESOLUCAO, 2, ParserLote.ERRO_RESOLUCAO, 10, ParserLote.VALOR_NULO };
+        for (int i = 0; i < linhas.length; i++) {
+            assertEquals(linhas[i], resultado.linhaErro(i));
+            assertEquals(posicoes[i], resultado.posicaoErro(i));
+            assertTrue(resultado.temErro(linhas[i]));
+        }
+        assertEquals(7, resultado.linhaErro(resultado.getQtdErros() - 1));
+        assertFalse(resultado.temErro(0));
+
+        // com yyyy, o ano da era começa em 1 (o ano zero é rejeitado pelo DateTimeFormatter, mesmo no modo SMART)
+        lote = new ParserLote(DateTimeFormatter.ofPattern("dd/MM/yyyy"), ParserLote.EPOCH_DAY);
+        resultado = lote.parse(new String[] { "01/01/0000" });
+        assertEquals(1, resultado.getQtdErros());
+        assertEquals(ParserLote.ERRO_RESOLUCAO, resultado.posicaoErro(0));
+
+        // sem timezone, não é possível obter o Instant
+        lote = new ParserLote(DateTimeFormatter.ofPattern("dd/MM/uuuu HH:mm"), ParserLote.EPOCH_MILLI);
+        resultado = lote.parse(new String[] { "04/05/2018 10:00" });
+        assertEquals(ParserLote.ERRO_CONVERSAO, resultado.posicaoErro(0));
+    }
+
+    @Test
+    public void mesmoResultadoQueDateTimeFormatter() {
+        List<String> valores = new ArrayList<>();
+        for (int ano : new int[] { 1900, 2000, 2016, 2018 }) {
+            for (int mes = 0; mes <= 13; mes++) {
+                for (int dia = 0; dia <= 33; dia++) {
+                    valores.add(String.format("%02d/%02d/%04d", dia, mes, ano));
+                }
+            }
+        }
+        for (int hora = 0; hora <= 25; hora++) {
+            for (int minuto : new int[] { 0, 30, 59, 60 }) {
+                for (int segundo : new int[] { 0, 59, 60 }) {
+                    valores.add(String.format("31/%02d/2018 %02d:%02d:%02d", 1 + hora % 12, hora, minuto, segundo));
+                }
+            }
+        }
+        String[] outros = { "", "1/02/2018", "01/02/2018x", "2018-02-01", "01/02/18", "Fri 04/05/2018", "Sat 04/05/2018", "Fri 31/04/2018", "AD 31/04/2018",
+            "BC 29/02/0004", "BC 29/02/0005", "01/01/0000", "29/02/0000", "AD 01/01/0000" };
+        for (String outro : outros) {
+            valores.add(outro);
+        }
+        String[] array = valores.toArray(new String[0]);
+        String[] patterns = { "dd/MM/uuuu", "dd/MM/yyyy", "dd/MM/uuuu[ HH:mm:ss]", "[EEE ]dd/MM/uuuu", "[G ]dd/MM/yyyy" };
+        for (String pattern : patterns) {
+            for (ResolverStyle estilo : ResolverStyle.values()) {
+                DateTimeFormatter fmt = DateTimeFormatter.ofPattern(pattern, Locale.ENGLISH).withResolverStyle(estilo);
+                comparar(fmt, ParserLote.EPOCH_DAY, array);
+                comparar(fmt.withZone(ZoneId.of("America/Sao_Paulo")), ParserLote.EPOCH_MILLI, array);
+            }
+        }
+    }
+
+    @Test
+    public void dataHoraComTimezone() {
+        List<String> valores = new ArrayList<>();
+        Random random = new Random(1);
+        DateTimeFormatter saida = DateTimeFormatter.ofPattern("uuuu-MM-dd HH:mm:ss.SSS");
+        // em volta do início e do fim do horário de verão (gap e overlap), e datas aleatórias
+        LocalDateTime[] bases = { LocalDateTime.of(2017, 10, 14, 22, 0), LocalDateTime.of(2018, 2, 17, 21, 0), LocalDateTime.of(1900, 1, 1, 0, 0) };
+        for (int i = 0; i < 3000; i++) {
+            LocalDateTime base = bases[i % bases.length];
+            long segundos = i % 3 == 2 ? random.nextInt(Integer.MAX_VALUE) * 3L : random.nextInt(4 * 3600);
+            valores.add(saida.format(base.plusSeconds(segundos).withNano(random.nextInt(1000) * 1_000_000)));
+        }
+        valores.add("2018-02-17 24:00:00.000");
+        valores.add("2018-02-17 24:00:01.000");
+        valores.add("2018-02-30 10:00:00.000");
+        String[] array = valores.toArray(new String[0]);
+        String[] patterns = { "uuuu-MM-dd HH:mm:ss.SSS", "uuuu-MM-dd HH[:mm[:ss]]['.'SSS]", "uuuu-MM-dd['T'][' 'HH:mm:ss.SSS]", "yyyy-MM-dd HH:mm:ss.SSS" };
+        for (String pattern : patterns) {
+            for (ResolverStyle estilo : ResolverStyle.values()) {
+                for (String zona : new String[] { "America/Sao_Paulo", "Australia/Lord_Howe", "UTC" }) {
+                    DateTimeFormatter fmt = DateTimeFormatter.ofPattern(pattern, Locale.ENGLISH).withResolverStyle(estilo).withZone(ZoneId.of(zona));
+                    comparar(fmt, ParserLote.EPOCH_MILLI, array);
+                    comparar(fmt, ParserLote.EPOCH_DAY, array);
+                }
+            }
+        }
+    }
+
+    private static void comparar(DateTimeFormatter fmt, ToLongFunction<TemporalAccessor> conversor, String[] valores) {
+        ParserLote.Resultado resultado = new ParserLote(fmt, conversor).parse(valores);
+        int erro = 0;
+        for (int i = 0; i < valores.length; i++) {
+            String msg = fmt + " " + fmt.getResolverStyle() + " " + valores[i];
+            // resultado esperado, usando o DateTimeFormatter e capturando as exceções
+            long esperado;
+            int posicao;
+            try {
+                TemporalAccessor parsed = fmt.parse(valores[i]);
+                try {
+                    esperado = conversor.applyAsLong(parsed);
+                    posicao = esperado == ParserLote.INVALIDO ? ParserLote.ERRO_CONVERSAO : 0;
+                } catch (DateTimeException e) {
+                    esperado = ParserLote.INVALIDO;
+                    posicao = ParserLote.ERRO_CONVERSAO;
+                }
+            } catch (DateTimeParseException e) {
+                esperado = ParserLote.INVALIDO;
+                // erros de resolução têm a causa, e a posição é sempre zero
+                posicao = e.getCause() != null ? ParserLote.ERRO_RESOLUCAO : e.getErrorIndex();
+            }
+            if (esperado == ParserLote.INVALIDO) {
+                assertTrue(msg, resultado.temErro(i));
+                assertEquals(msg, i, resultado.linhaErro(erro));
+                assertEquals(msg, posicao, resultado.posicaoErro(erro));
+                erro++;
+            } else {
+                assertFalse(msg, resultado.temErro(i));
+                assertEquals(msg, esperado, resultado.getValores()[i]);
+            }
+        }
+        assertEquals(erro, resultado.getQtdErros());
+    }
+}
@@ -0,0 +1,144 @@
+package desempenho;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.time.zone.ZoneOffsetTransition;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+public class ParserTimestampTest {
+
+    private static long esperado(LocalDateTime dt, ZoneId zona, boolean offsetPosteriorNoOverlap) {
+        ZonedDateTime zdt = ZonedDateTime.ofLocal(dt, zona, null);
+        return (offsetPosteriorNoOverlap ? zdt.withLaterOffsetAtOverlap() : zdt).toEpochSecond();
+    }
+
+    // horários em volta das transições (de 15 em 15 minutos, na ordem e fora de ordem) e aleatórios, para usar e invalidar o intervalo guardado
+    private static List<LocalDateTime> horarios(ZoneId zona, Random random) {
+        List<LocalDateTime> horarios = new ArrayList<>();
+        List<ZoneOffsetTransition> transicoes = new ArrayList<>(zona.getRules().getTransitions());
+        ZoneOffsetTransition t = zona.getRules().nextTransition(Instant.parse("2030-01-01T00:00:00Z"));
+        for (int i = 0; i < 4 && t != null; i++) {
+            transicoes.add(t);
+            t = zona.getRules().nextTransition(t.getInstant());
+        }
+        for (ZoneOffsetTransition transicao : transicoes) {
+            for (int min = -150; min <= 150; min += 15) {
+                horarios.add(transicao.getDateTimeBefore().plusMinutes(min));
+            }
+            horarios.add(transicao.getDateTimeBefore().plusMinutes(random.nextInt(300) - 150));
+        }
+        for (int i = 0; i < 200; i++) {
+            horarios.add(LocalDateTime.of(1800 + random.nextInt(400), 1, 1, 0, 0).plusSeconds(random.nextInt(366 * 86400)));
+        }
+        return horarios;
+    }
+
+    @Test
+    public void cacheOffsetMesmoResultadoQueZonedDateTime() {
+        Random random = new Random(1);
+        for (String id : ZoneId.getAvailableZoneIds()) {
+            ZoneId zona = ZoneId.of(id);
+            List<LocalDateTime> horarios = horarios(zona, random);
+            for (boolean posterior : new boolean[] { false, true }) {
+                CacheOffset cache = new CacheOffset(zona, posterior);
+                for (LocalDateTime dt : horarios) {
+                    assertEquals(id + " " + dt + " " + posterior, esperado(dt, zona, posterior), cache.epochSecond(dt.toEpochSecond(ZoneOffset.UTC)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void mesmoResultadoQueJavaTime() {
+        Random random = new Random(2);
+        DateTimeFormatter iso = DateTimeFormatter.ofPattern("uuuu-MM-dd HH:mm:ss");
+        DateTimeFormatter br = DateTimeFormatter.ofPattern("dd/MM/uuuu HH:mm:ss");
+        for (String id : new String[] { "America/Sao_Paulo", "Europe/London", "Australia/Lord_Howe", "America/St_Johns", "Asia/Kolkata", "UTC" }) {
+            ZoneId zona = ZoneId.of(id);
+            ParserTimestamp parser = new ParserTimestamp(zona);
+            Timestamp ts = new Timestamp(0);
+            for (LocalDateTime dt : horarios(zona, random)) {
+                if (dt.getYear() > 9999) {
+                    continue;
+                }
+                // frações de segundo com 0 a 9 dígitos
+                int digitos = random.nextInt(10);
+                int fracao = digitos == 0 ? 0 : random.nextInt(Datas.POTENCIAS_10[digitos]);
+                String sufixo = digitos == 0 ? "" : "." + String.format("%0" + digitos + "d", fracao);
+                long nano = digitos == 0 ? 0 : fracao * Datas.POTENCIAS_10[9 - digitos];
+                Instant esperado = Instant.ofEpochSecond(esperado(dt, zona, true), nano);
+                for (DateTimeFormatter fmt : new DateTimeFormatter[] { iso, br }) {
+                    String s = fmt.format(dt) + sufixo;
+                    assertEquals(s, esperado, parser.parseInstant(s));
+                    assertEquals(s, Timestamp.from(esperado), parser.parse(s));
+                    String linha = "x;" + s + ";y";
+                    assertTrue(s, parser.parse(linha, 2, linha.length() - 2, ts));
+                    assertEquals(s, Timestamp.from(esperado), ts);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void mesmoResultadoQueTimestampValueOf() {
+        // Timestamp.valueOf usa o timezone default, e nos overlaps usa o offset posterior, como o ParserTimestamp
+        TimeZone padrao = TimeZone.getDefault();
+        try {
+            for (String id : new String[] { "America/Sao_Paulo", "Europe/Berlin", "America/New_York" }) {
+                TimeZone.setDefault(TimeZone.getTimeZone(id));
+                ParserTimestamp parser = new ParserTimestamp();
+                Random random = new Random(3);
+                for (LocalDateTime dt : horarios(ZoneId.of(id), random)) {
+                    if (dt.getYear() < 1990 || dt.getYear() > 2100) {
+                        continue;
+                    }
+                    String s = DateTimeFormatter.ofPattern("uuuu-MM-dd HH:mm:ss.SSSSSSSSS").format(dt.withNano(random.nextInt(1_000_000_000)));
+                    assertEquals(s, Timestamp.valueOf(s), parser.parse(s));
+                }
+            }
+        } finally {
+            TimeZone.setDefault(padrao);
+        }
+    }
+
+    @Test
+    public void valoresInvalidos() {
+        ParserTimestamp parser = new ParserTimestamp(ZoneOffset.UTC);
+        DateTimeFormatter strict = DateTimeFormatter.ofPattern("uuuu-MM-dd HH:mm:ss[.SSSSSSSSS][.SSSSSSSS][.SSSSSSS][.SSSSSS][.SSSSS][.SSSS][.SSS][.SS][.S]")
+            .withResolverStyle(ResolverStyle.STRICT);
+        String[] valores = { "2018-04-31 10:00:00", "2018-02-29 10:00:00", "2016-02-29 10:00:00", "2018-13-01 10:00:00", "2018-00-01 10:00:00",
+            "2018-01-01 24:00:00", "2018-01-01 23:60:00", "2018-01-01 23:59:60", "2018-01-01 23:59:59.", "2018-01-01 23:59:59.1234567890",
+            "2018-01-01 23:59:59.12a", "2018-01-01T23:59:59", "2018/01/01 23:59:59", "2018-01-01 23:59", "2018-1-01 23:59:59", "2018-01-01 23:59:59 " };
+        for (String valor : valores) {
+            boolean valido;
+            try {
+                strict.parse(valor);
+                valido = true;
+            } catch (DateTimeParseException e) {
+                valido = false;
+            }
+            assertEquals(valor, valido, parser.parseInstant(valor) != null);
+        }
+        assertNull(parser.parse("31/04/2018 10:00:00"));
+        Timestamp ts = new Timestamp(123);
+        assertFalse(parser.parse("30/04/2018 10:00:0x", 0, 19, ts));
+        assertEquals(new Timestamp(123), ts);
+    }
+}
@@ -0,0 +1,100 @@
+package desempenho;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoField;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class RegistroFormattersTest {
+
+    @Test
+    public void mesmaChaveRetornaMesmaInstancia() {
+        RegistroFormatters registro = new RegistroFormatters(10);
+        DateTimeFormatter fmt = registro.ofPattern("dd/MM/uuuu", Locale.ENGLISH);
+        assertSame(fmt, registro.ofPattern("dd/MM/uuuu", Locale.ENGLISH));
+        assertEquals(1, registro.getFalhas());
+        assertEquals(1, registro.getAcertos());
+
+        // qualquer diferença na chave gera outro formatter
+        RegistroFormatters.Chave chave = RegistroFormatters.Chave.of("dd/MM/uuuu").comLocale(Locale.ENGLISH);
+        assertSame(fmt, registro.get(chave));
+        assertEquals(chave, RegistroFormatters.Chave.of("dd/MM/uuuu", Locale.ENGLISH));
+        assertEquals(chave.hashCode(), RegistroFormatters.Chave.of("dd/MM/uuuu", Locale.ENGLISH).hashCode());
+        assertEquals(chave.comValorPadrao(ChronoField.HOUR_OF_DAY, 0).hashCode(), chave.comValorPadrao(ChronoField.HOUR_OF_DAY, 0).hashCode());
+        assertNotSame(fmt, registro.get(chave.comResolverStyle(ResolverStyle.STRICT)));
+        assertNotSame(fmt, registro.get(chave.comZona(ZoneId.of("America/Sao_Paulo"))));
+        assertNotSame(fmt, registro.get(chave.comValorPadrao(ChronoField.HOUR_OF_DAY, 0)));
+        assertEquals(ResolverStyle.STRICT, registro.get(chave.comResolverStyle(ResolverStyle.STRICT)).getResolverStyle());
+    }
+
+    @Test
+    public void removeOUsadoHaMaisTempo() {
+        RegistroFormatters registro = new RegistroFormatters(2);
+        DateTimeFormatter a = registro.ofPattern("uuuu", Locale.ENGLISH);
+        registro.ofPattern("MM", Locale.ENGLISH);
+        // acessar "uuuu" faz com que "MM" passe a ser o usado há mais tempo
+        registro.ofPattern("uuuu", Locale.ENGLISH);
+        registro.ofPattern("dd", Locale.ENGLISH);
+
+        assertEquals(2, registro.tamanho());
+        assertEquals(1, registro.getRemocoes());
+        assertSame(a, registro.ofPattern("uuuu", Locale.ENGLISH));
+        long falhas = registro.getFalhas();
+        registro.ofPattern("MM", Locale.ENGLISH);
+        assertEquals(falhas + 1, registro.getFalhas());
+    }
+
+    @Test
+    public void variasThreads() throws Exception {
+        RegistroFormatters registro = new RegistroFormatters(20);
+        String[] patterns = new String[60];
+        for (int i = 0; i < patterns.length; i++) {
+            patterns[i] = "uuuu-MM-dd '" + i + "'";
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] tarefas = new Future<?>[4];
+            for (int t = 0; t < tarefas.length; t++) {
+                long semente = t;
+                tarefas[t] = pool.submit(() -> {
+                    Random random = new Random(semente);
+                    for (int i = 0; i < 20_000; i++) {
+                        // metade dos acessos vai para os 5 primeiros patterns
+                        String pattern = patterns[random.nextBoolean() ? random.nextInt(5) : random.nextInt(patterns.length)];
+                        assertEquals(DateTimeFormatter.ofPattern(pattern, Locale.ENGLISH).toString(), registro.ofPattern(pattern, Locale.ENGLISH).toString());
+                    }
+                    return null;
+                });
+            }
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get();
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        assertTrue(registro.toString(), registro.tamanho() <= registro.getCapacidade());
+        assertEquals(80_000, registro.getAcertos() + registro.getFalhas());
+        // quando duas threads criam o mesmo formatter ao mesmo tempo, só um entra no cache (e não há remoção)
+        assertTrue(registro.toString(), registro.getRemocoes() <= registro.getFalhas() - registro.tamanho());
+        // os mais usados continuam no cache
+        long falhas = registro.getFalhas();
+        for (int i = 0; i < 5; i++) {
+            registro.ofPattern(patterns[i], Locale.ENGLISH);
+        }
+        assertEquals(falhas, registro.getFalhas());
+    }
+}
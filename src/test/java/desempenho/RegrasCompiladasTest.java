@@ -0,0 +1,83 @@
+package desempenho;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RegrasCompiladasTest {
+
+    private static final String[] ZONAS = { "America/Sao_Paulo", "Europe/London", "America/Indiana/Knox", "Europe/Istanbul", "Australia/Lord_Howe",
+        "Pacific/Apia", "Asia/Kolkata", "UTC" };
+
+    @Test
+    public void mesmoOffsetQueZoneRules() {
+        Random random = new Random(1);
+        for (String id : ZONAS) {
+            ZoneRules regras = ZoneId.of(id).getRules();
+            RegrasCompiladas compiladas = RegrasCompiladas.of(ZoneId.of(id));
+            // em volta de cada transição explícita
+            for (ZoneOffsetTransition t : regras.getTransitions()) {
+                for (long s = t.toEpochSecond() - 1; s <= t.toEpochSecond() + 1; s++) {
+                    assertEquals(id, regras.getOffset(Instant.ofEpochSecond(s)), compiladas.getOffset(s));
+                }
+            }
+            // instantes aleatórios, inclusive depois do ano limite (que usam as regras do JDK)
+            for (int i = 0; i < 20000; i++) {
+                Instant instante = Instant.ofEpochSecond((long) (random.nextDouble() * 12_000_000_000L) - 4_000_000_000L);
+                assertEquals(id + " " + instante, regras.getOffset(instante), compiladas.getOffset(instante));
+                assertEquals(regras.getOffset(instante).getTotalSeconds(), compiladas.offsetSegundos(instante.getEpochSecond()));
+            }
+        }
+    }
+
+    @Test
+    public void instantesProximosUsamOUltimoIntervalo() {
+        RegrasCompiladas sp = RegrasCompiladas.of(ZoneId.of("America/Sao_Paulo"));
+        // 2018-11-04T03:00Z: início do horário de verão
+        long transicao = Instant.parse("2018-11-04T03:00:00Z").getEpochSecond();
+        for (long s = transicao - 7200; s < transicao + 7200; s++) {
+            assertEquals(s < transicao ? -10800 : -7200, sp.offsetSegundos(s));
+        }
+        assertSame(sp, RegrasCompiladas.of(ZoneId.of("America/Sao_Paulo")));
+    }
+
+    @Test
+    public void zonaCompiladaComZonedDateTime() {
+        for (String id : ZONAS) {
+            RegrasCompiladas compiladas = RegrasCompiladas.of(ZoneId.of(id));
+            ZoneId zona = compiladas.getZonaCompilada();
+            assertEquals(RegrasCompiladas.PREFIXO + id, zona.getId());
+            assertSame(compiladas, RegrasCompiladas.of(zona));
+            // criado uma única vez
+            assertSame(zona, compiladas.getZonaCompilada());
+            assertSame(zona, compiladas.atZone(Instant.EPOCH).getZone());
+            ZoneRules regras = ZoneId.of(id).getRules();
+            ZoneRules regrasCompiladas = zona.getRules();
+            for (long s = -2_000_000_000L; s < 5_000_000_000L; s += 86400 * 7 + 3601) {
+                Instant instante = Instant.ofEpochSecond(s);
+                ZonedDateTime esperado = instante.atZone(ZoneId.of(id));
+                ZonedDateTime obtido = ZonedDateTime.ofInstant(instante, zona);
+                assertEquals(esperado.toLocalDateTime(), obtido.toLocalDateTime());
+                assertEquals(esperado.getOffset(), obtido.getOffset());
+                assertEquals(esperado.toOffsetDateTime(), compiladas.atOffset(instante));
+                assertEquals(regras.getStandardOffset(instante), regrasCompiladas.getStandardOffset(instante));
+                assertEquals(regras.isDaylightSavings(instante), regrasCompiladas.isDaylightSavings(instante));
+                LocalDateTime local = LocalDateTime.ofEpochSecond(s, 0, ZoneOffset.UTC);
+                assertEquals(regras.getValidOffsets(local), regrasCompiladas.getValidOffsets(local));
+            }
+        }
+        // gap do início do horário de verão: ajustado da mesma forma que o ZoneId original
+        ZoneId sp = RegrasCompiladas.of(ZoneId.of("America/Sao_Paulo")).getZonaCompilada();
+        assertEquals(LocalDateTime.parse("2018-11-04T01:00"), ZonedDateTime.of(LocalDateTime.parse("2018-11-04T00:00"), sp).toLocalDateTime());
+    }
+}
@@ -0,0 +1,83 @@
+package desempenho;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ResolvedorAnoTest {
+
+    // testa um ano de cada vez, como em Cap18Parsing.encontrarAnoParaDiaMesDiaDaSemana()
+    private static int buscar(int anoReferencia, MonthDay diaMes, DayOfWeek diaDaSemana, int passo) {
+        int ano = anoReferencia;
+        while (!diaMes.isValidYear(ano) || diaMes.atYear(ano).getDayOfWeek() != diaDaSemana) {
+            ano += passo;
+        }
+        return ano;
+    }
+
+    @Test
+    public void mesmoResultadoQueTestarCadaAno() {
+        Random random = new Random(1);
+        int[] anos = new int[60];
+        for (int i = 0; i < anos.length; i++) {
+            // anos de um ciclo inteiro de 400 anos, negativos e distantes
+            anos[i] = i < 20 ? 1990 + i : i < 40 ? random.nextInt(400) - 400 * random.nextInt(3) : random.nextInt(2_000_000) - 1_000_000;
+        }
+        for (int mes = 1; mes <= 12; mes++) {
+            for (int dia = 1; dia <= Datas.diasNoMes(2000, mes); dia++) {
+                MonthDay diaMes = MonthDay.of(mes, dia);
+                for (DayOfWeek diaDaSemana : DayOfWeek.values()) {
+                    for (int ano : anos) {
+                        String msg = ano + " " + diaMes + " " + diaDaSemana;
+                        int posterior = buscar(ano, diaMes, diaDaSemana, 1);
+                        int anterior = buscar(ano, diaMes, diaDaSemana, -1);
+                        assertEquals(msg, posterior, ResolvedorAno.anoPosterior(ano, mes, dia, diaDaSemana));
+                        assertEquals(msg, anterior, ResolvedorAno.anoAnterior(ano, mes, dia, diaDaSemana));
+                        // em caso de empate, o anterior
+                        assertEquals(msg, ano - anterior <= posterior - ano ? anterior : posterior, ResolvedorAno.anoMaisProximo(ano, mes, dia,
+                            diaDaSemana));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void queries() {
+        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("EEE, MMM d HH:mm", Locale.ENGLISH);
+        String s = "Tue, Feb 7 03:30";
+        MonthDay diaMes = MonthDay.of(2, 7);
+        assertEquals(LocalDate.of(buscar(2018, diaMes, DayOfWeek.TUESDAY, 1), 2, 7), fmt.parse(s, ResolvedorAno.dataPosterior(2018)));
+        assertEquals(LocalDate.of(buscar(2018, diaMes, DayOfWeek.TUESDAY, -1), 2, 7), fmt.parse(s, ResolvedorAno.dataAnterior(2018)));
+        assertEquals(LocalDate.of(2017, 2, 7), fmt.parse(s, ResolvedorAno.dataMaisProxima(2018)));
+        assertEquals(LocalDate.of(2012, 2, 29), fmt.parse("Wed, Feb 29 10:00", ResolvedorAno.dataMaisProxima(2018)));
+    }
+
+    @Test
+    public void diaMesInvalido() {
+        int[][] invalidos = { { 2, 30 }, { 4, 31 }, { 13, 1 }, { 0, 1 }, { 1, 0 }, { 1, 32 } };
+        for (int[] invalido : invalidos) {
+            try {
+                ResolvedorAno.anoPosterior(2018, invalido[0], invalido[1], DayOfWeek.MONDAY);
+                fail(invalido[0] + "/" + invalido[1]);
+            } catch (DateTimeException e) {
+                // assim como MonthDay.of
+                try {
+                    MonthDay.of(invalido[0], invalido[1]);
+                    fail(invalido[0] + "/" + invalido[1]);
+                } catch (DateTimeException e2) {
+                    // ok
+                }
+            }
+        }
+    }
+}
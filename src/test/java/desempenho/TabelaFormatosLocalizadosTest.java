@@ -0,0 +1,108 @@
+package desempenho;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.chrono.ChronoLocalDate;
+import java.time.chrono.HijrahDate;
+import java.time.chrono.JapaneseDate;
+import java.time.chrono.MinguoDate;
+import java.time.chrono.ThaiBuddhistDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class TabelaFormatosLocalizadosTest {
+
+    private static final ZonedDateTime[] DATAS = { ZonedDateTime.of(2018, 5, 4, 17, 30, 10, 123_000_000, ZoneId.of("America/Sao_Paulo")),
+        ZonedDateTime.of(1999, 12, 31, 9, 5, 0, 0, ZoneId.of("Asia/Kolkata")), ZonedDateTime.of(-50, 1, 1, 0, 0, 0, 0, ZoneId.of("UTC")) };
+
+    // todos os locales levariam quase um minuto: usa um a cada 20 (em ordem) e alguns com outros calendários e números
+    private static List<Locale> locales() {
+        List<Locale> todos = new ArrayList<>(Arrays.asList(Locale.getAvailableLocales()));
+        todos.sort(Comparator.comparing(Locale::toLanguageTag));
+        Set<Locale> locales = new LinkedHashSet<>();
+        for (int i = 0; i < todos.size(); i += 20) {
+            locales.add(todos.get(i));
+        }
+        for (String tag : new String[] { "en-US", "pt-BR", "th-TH", "ja-JP-u-ca-japanese", "ar-SA", "hi-IN", "fa-IR", "zh-TW" }) {
+            locales.add(Locale.forLanguageTag(tag));
+        }
+        return new ArrayList<>(locales);
+    }
+
+    // formatter do JDK, sem o pattern
+    private static DateTimeFormatter localizado(Locale locale, FormatStyle estilo, TabelaFormatosLocalizados.Tipo tipo) {
+        switch (tipo) {
+            case DATA:
+                return DateTimeFormatter.ofLocalizedDate(estilo).withLocale(locale);
+            case HORA:
+                return DateTimeFormatter.ofLocalizedTime(estilo).withLocale(locale);
+            default:
+                return DateTimeFormatter.ofLocalizedDateTime(estilo).withLocale(locale);
+        }
+    }
+
+    // a mesma data em outras cronologias: os formatters de ofLocalizedXXX convertem para ISO
+    private static final ChronoLocalDate[] DATAS_OUTRAS_CRONOLOGIAS = { JapaneseDate.of(2018, 5, 4), HijrahDate.from(LocalDate.of(2018, 5, 4)),
+        ThaiBuddhistDate.from(LocalDate.of(2018, 5, 4)), MinguoDate.from(LocalDate.of(2018, 5, 4)) };
+
+    // resultado do parsing, ou a classe da exceção
+    private static String parse(DateTimeFormatter formatter, String texto) {
+        try {
+            TemporalAccessor parsed = formatter.parse(texto);
+            return parsed.toString();
+        } catch (DateTimeException e) {
+            return e.getClass().getName();
+        }
+    }
+
+    @Test
+    public void mesmoResultadoQueOfLocalized() {
+        TabelaFormatosLocalizados tabela = new TabelaFormatosLocalizados();
+        List<Locale> locales = locales();
+        for (Locale locale : locales) {
+            for (FormatStyle estilo : FormatStyle.values()) {
+                for (TabelaFormatosLocalizados.Tipo tipo : TabelaFormatosLocalizados.Tipo.values()) {
+                    DateTimeFormatter esperado = localizado(locale, estilo, tipo);
+                    DateTimeFormatter formatter = tabela.get(locale, estilo, tipo);
+                    String msg = locale + " " + estilo + " " + tipo + " " + formatter;
+                    assertSame(msg, formatter, tabela.get(locale, estilo, tipo));
+                    assertEquals(msg, esperado.getLocale(), formatter.getLocale());
+                    assertEquals(msg, esperado.getChronology(), formatter.getChronology());
+                    for (ZonedDateTime data : DATAS) {
+                        String texto = esperado.format(data);
+                        assertEquals(msg, texto, formatter.format(data));
+                        assertEquals(msg + " " + texto, parse(esperado, texto), parse(formatter, texto));
+                    }
+                    if (tipo == TabelaFormatosLocalizados.Tipo.DATA) {
+                        for (ChronoLocalDate data : DATAS_OUTRAS_CRONOLOGIAS) {
+                            assertEquals(msg + " " + data, esperado.format(data), formatter.format(data));
+                        }
+                    }
+                }
+            }
+        }
+        int qtd = locales.size() * 12;
+        assertEquals(qtd, tabela.getQtdFormatters());
+        assertEquals(qtd, tabela.getFalhas());
+        assertEquals(qtd, tabela.getAcertos());
+        assertEquals(0, tabela.aquecer(locales.toArray(new Locale[0])));
+        assertEquals(qtd / 12, tabela.getQtdLocales());
+        tabela.limpar();
+        assertEquals(12, tabela.aquecer(Locale.ENGLISH));
+    }
+}
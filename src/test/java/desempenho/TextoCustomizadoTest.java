@@ -0,0 +1,127 @@
+package desempenho;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.text.ParsePosition;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TextoCustomizadoTest {
+
+    private static final Locale PT_BR = new Locale("pt", "BR");
+
+    private static Map<Long, String> textos(String... textos) {
+        Map<Long, String> mapa = new HashMap<>();
+        for (int i = 0; i < textos.length; i++) {
+            mapa.put(i + 1L, textos[i]);
+        }
+        return mapa;
+    }
+
+    private static final Map<Long, String> DIAS = textos("segundona", "terça", "quarta", "quinta", "sextou", "sábado", "domingo");
+
+    private static final Map<Long, String> MESES = textos("Jan", "Fev", "Mar", "Abr", "Mai", "Jun", "Jul", "Ago", "Set", "Out", "Nov", "Dez");
+
+    @Test
+    public void formatacao() {
+        TextoCustomizado.Formatador formatador = new TextoCustomizado.Construtor().appendText(ChronoField.DAY_OF_WEEK, DIAS).appendPattern(", dd/MM/uuuu")
+            .toFormatter(PT_BR);
+        LocalDateTime dataHora = LocalDateTime.of(2018, 5, 4, 17, 0);
+        assertEquals("sextou, 04/05/2018", formatador.format(dataHora));
+        assertEquals(formatador.getFormatter().format(dataHora), formatador.format(dataHora));
+        assertEquals(5, TextoCustomizado.of(ChronoField.DAY_OF_WEEK, DIAS).parse("SEXTOU", new ParsePosition(0)));
+    }
+
+    @Test
+    public void mesmoParsingQueDateTimeFormatter() {
+        Map<Long, String> periodos = new HashMap<>();
+        periodos.put(0L, "manhã");
+        periodos.put(1L, "tarde");
+        // textos que só diferem em maiúsculas e minúsculas, e um texto que é prefixo de outro
+        Map<Long, String> parecidos = textos("Mai", "maio", "MAIO DE");
+        List<TextoCustomizado.Formatador> formatadores = Arrays.asList(
+            new TextoCustomizado.Construtor().appendText(ChronoField.DAY_OF_WEEK, DIAS).appendPattern(", hh:mm 'da' ")
+                .appendText(ChronoField.AMPM_OF_DAY, periodos).toFormatter(PT_BR, 0),
+            // o mês aparece duas vezes: os valores devem ser iguais
+            new TextoCustomizado.Construtor().appendPattern("dd/MM/uuuu HH:mm ").appendText(ChronoField.MONTH_OF_YEAR, MESES).toFormatter(PT_BR, 0),
+            new TextoCustomizado.Construtor().appendText(ChronoField.DAY_OF_WEEK, DIAS).appendPattern(" YYYY 'semana' ww").toFormatter(PT_BR, 0),
+            new TextoCustomizado.Construtor().appendPattern("dd ").appendText(ChronoField.MONTH_OF_YEAR, MESES).appendPattern(" yy[ HH:mm[:ss]] XXX")
+                .toFormatter(Locale.US, 0),
+            new TextoCustomizado.Construtor().appendText(ChronoField.MONTH_OF_YEAR, parecidos).appendPattern("[ 'DE'] uuuu").toFormatter(PT_BR, 0));
+        List<String> textos = new ArrayList<>();
+        Random random = new Random(1);
+        for (TextoCustomizado.Formatador formatador : formatadores) {
+            assertTrue(formatador.toString(), formatador.isParsingEmPartes());
+            for (int i = 0; i < 300; i++) {
+                LocalDateTime dataHora = LocalDateTime.of(1950 + random.nextInt(100), 1, 1, 0, 0).plusMinutes(random.nextInt(60 * 24 * 366))
+                    .withSecond(random.nextInt(60));
+                textos.add(formatador.format(dataHora.atOffset(ZoneOffset.ofHours(random.nextInt(25) - 12))));
+            }
+        }
+        textos.addAll(Arrays.asList("", "SEXTOU, 05:00 da tarde", "sextou, 13:00 da tarde", "sextou, 05:00 da noite", "sextou, 05:00 da tarde e algo mais",
+            "sextou, 00:00 da manhã", "04/05/2018 10:00 Mai", "04/05/2018 10:00 Jun", "31/02/2018 10:00 Fev", "04/05/2018 24:00 Mai",
+            "sextou 2018 semana 18", "sextou 2018 semana 53", "segundona 2018 semana 01", "04 Mai 18 10:00 Z", "04 Mai 18 10:00:59 +05:30", "04 Mai 18 -03:00",
+            "04 Mai 18 25:00 Z", "Mai 2018", "maio 2018", "MAIO DE 2018", "Maio 2018", "MAIO 2018", "maio DE 2018", "Mai DE 2018"));
+        for (TextoCustomizado.Formatador formatador : formatadores) {
+            for (String texto : textos) {
+                assertEquals(formatador + " " + texto, parse(formatador.getFormatter()::parse, texto), parse(formatador::parse, texto));
+            }
+        }
+    }
+
+    @Test
+    public void timezoneUsaOFormatterEquivalente() {
+        TextoCustomizado.Formatador formatador = new TextoCustomizado.Construtor().appendText(ChronoField.DAY_OF_WEEK, DIAS)
+            .appendPattern(" dd/MM/uuuu HH:mm VV").toFormatter(PT_BR, 0);
+        assertFalse(formatador.isParsingEmPartes());
+        String texto = "sextou 04/05/2018 17:00 America/Sao_Paulo";
+        assertEquals(parse(formatador.getFormatter()::parse, texto), parse(formatador::parse, texto));
+    }
+
+    @Test
+    public void poucosTextosUsamOFormatterEquivalente() {
+        TextoCustomizado.Construtor construtor = new TextoCustomizado.Construtor().appendText(ChronoField.DAY_OF_WEEK, DIAS).appendPattern(" uuuu");
+        assertFalse(construtor.toFormatter(PT_BR).isParsingEmPartes());
+        Map<Long, String> dias = new HashMap<>();
+        for (long i = 1; i <= 366; i++) {
+            dias.put(i, "dia " + i);
+        }
+        TextoCustomizado.Formatador formatador = new TextoCustomizado.Construtor().appendText(ChronoField.DAY_OF_YEAR, dias).appendPattern(" uuuu")
+            .toFormatter(PT_BR);
+        assertTrue(formatador.isParsingEmPartes());
+        for (String texto : new String[] { "dia 1 2018", "dia 36 2018", "dia 366 2016", "dia 366 2018", "dia 367 2018" }) {
+            assertEquals(texto, parse(formatador.getFormatter()::parse, texto), parse(formatador::parse, texto));
+        }
+    }
+
+    private interface Parser {
+        Object parse(String texto);
+    }
+
+    // resultado do parsing (o toString() mostra os campos, o timezone e a data/hora resolvidas) ou a posição do erro
+    private static String parse(Parser parser, String texto) {
+        try {
+            // os campos que não foram resolvidos estão em um HashMap, cuja ordem pode mudar de acordo com a ordem de inserção
+            String resultado = parser.parse(texto).toString();
+            int fim = resultado.indexOf('}');
+            String[] campos = resultado.substring(1, fim).split(", ");
+            Arrays.sort(campos);
+            return Arrays.toString(campos) + resultado.substring(fim + 1);
+        } catch (DateTimeParseException e) {
+            return "erro na posição " + e.getErrorIndex();
+        }
+    }
+}
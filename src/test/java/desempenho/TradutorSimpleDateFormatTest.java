@@ -0,0 +1,104 @@
+package desempenho;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.text.Format;
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+public class TradutorSimpleDateFormatTest {
+
+    @Test
+    public void offsetSemCamposDeHorario() throws ParseException {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd Z");
+        sdf.setTimeZone(TimeZone.getTimeZone("America/Sao_Paulo"));
+        TradutorSimpleDateFormat.FormatLegado format = TradutorSimpleDateFormat.of(sdf, Locale.getDefault()).toFormat();
+        assertEquals(1514746800000L, sdf.parse("2018-01-01 +0500").getTime());
+        assertEquals(1514746800000L, format.parse("2018-01-01 +0500").getTime());
+    }
+
+    @Test
+    public void mesmoResultadoQueSimpleDateFormat() {
+        String[] patterns = { "dd/MM/yyyy", "dd/MM/yyyy HH:mm:ss", "yyyy-MM-dd'T'HH:mm:ss.SSSXXX", "yyyyMMddHHmmss", "EEE, dd MMM yyyy HH:mm:ss Z",
+            "EEEE, d 'de' MMMM 'de' yyyy", "hh:mm a", "dd/MM/yy", "yyyy-MM-dd Z", "yyyy-MM-dd X", "MMM d, yyyy h:mm:ss a z", "D yyyy", "G yyyy-MM-dd",
+            "yyyy-MM-dd HH:mm:ss.SSS", "K:mm a", "kk:mm", "u EEE", "''yyyy''", "w Y", "LLLL yyyy" };
+        Locale[] locales = { Locale.US, new Locale("pt", "BR"), Locale.FRANCE, Locale.JAPAN };
+        String[] zonas = { "America/Sao_Paulo", "UTC", "Asia/Kolkata", "Australia/Lord_Howe" };
+        Random random = new Random(1);
+        for (String pattern : patterns) {
+            for (Locale locale : locales) {
+                for (String zona : zonas) {
+                    for (boolean leniente : new boolean[] { true, false }) {
+                        SimpleDateFormat sdf = new SimpleDateFormat(pattern, locale);
+                        sdf.setTimeZone(TimeZone.getTimeZone(zona));
+                        sdf.setLenient(leniente);
+                        // o SimpleDateFormat compara também o dia e mês com o início do século, por isso usamos 1 de janeiro
+                        sdf.set2DigitYearStart(Date.from(LocalDate.of(1950, 1, 1).atStartOfDay(ZoneId.of(zona)).toInstant()));
+                        TradutorSimpleDateFormat.FormatLegado format = TradutorSimpleDateFormat.of(sdf, locale).toFormat();
+                        for (int i = 0; i < 50; i++) {
+                            // a partir de 1990: antes disso, o SimpleDateFormat usa o horário de verão atual nas abreviações (como "LHDT")
+                            long millis = 631152000000L + (long) (random.nextDouble() * 1_262_304_000_000L);
+                            if (i % 10 == 0) {
+                                // em volta do overlap de São Paulo (17/02/2018)
+                                millis = 1518922800000L + random.nextInt(7200000);
+                            }
+                            comparar(sdf, format, new Date(millis), pattern + " " + locale + " " + zona + " " + leniente);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void patternsIncompletos() {
+        // campos que o DateTimeFormatter não resolve, com valores fora dos limites: somados no modo leniente, erros no modo estrito
+        String[][] casos = { { "MM/yyyy", "13/2018", "00/2018", "02/2018", "99/2018" }, { "dd/MM", "31/02", "00/01", "29/02", "45/13" },
+            { "hh:mm", "10:75", "13:00", "00:00", "12:59", "99:99" }, { "HH:mm", "23:59", "24:00", "10:75" }, { "yyyy", "2018" },
+            { "dd/MM/yyyy", "31/02/2018", "00/13/2018" }, { "EEE", "Mon" }, { "w Y", "60 2018", "1 2018" } };
+        for (String[] caso : casos) {
+            for (String zona : new String[] { "UTC", "America/Sao_Paulo" }) {
+                for (boolean leniente : new boolean[] { true, false }) {
+                    SimpleDateFormat sdf = new SimpleDateFormat(caso[0], Locale.US);
+                    sdf.setTimeZone(TimeZone.getTimeZone(zona));
+                    sdf.setLenient(leniente);
+                    TradutorSimpleDateFormat.FormatLegado format = TradutorSimpleDateFormat.of(sdf, Locale.US).toFormat();
+                    for (int i = 1; i < caso.length; i++) {
+                        String msg = caso[0] + " " + caso[i] + " " + zona + " " + leniente;
+                        assertEquals(msg, parse(sdf, caso[i]), parse(format, caso[i]));
+                        // nos erros, a posição não muda e há uma posição de erro (nem sempre a mesma do SimpleDateFormat)
+                        ParsePosition pos = new ParsePosition(0);
+                        if (format.parseObject(caso[i], pos) == null) {
+                            assertEquals(msg, 0, pos.getIndex());
+                            assertTrue(msg, pos.getErrorIndex() >= 0);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void comparar(SimpleDateFormat sdf, TradutorSimpleDateFormat.FormatLegado format, Date data, String msg) {
+        String texto = sdf.format(data);
+        assertEquals(msg, texto, format.format(data));
+        assertEquals(msg + " " + texto, parse(sdf, texto), parse(format, texto));
+    }
+
+    private static Long parse(Format format, String texto) {
+        try {
+            return ((Date) format.parseObject(texto)).getTime();
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package desempenho;
+
+import static org.junit.Assert.assertEquals;
+
+import java.text.ParsePosition;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.TextStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class TrieTextosTest {
+
+    private static final ChronoField[] CAMPOS = { ChronoField.MONTH_OF_YEAR, ChronoField.DAY_OF_WEEK, ChronoField.AMPM_OF_DAY, ChronoField.ERA };
+
+    private static final TextStyle[] ESTILOS = { TextStyle.FULL, TextStyle.SHORT, TextStyle.NARROW, TextStyle.SHORT_STANDALONE };
+
+    // o mesmo que a trie, usando o parsing de textos do DateTimeFormatter
+    private static long esperado(DateTimeFormatter formatter, ChronoField campo, String s, int pos) {
+        ParsePosition posicao = new ParsePosition(pos);
+        TemporalAccessor parsed = formatter.parseUnresolved(s, posicao);
+        return parsed == null ? TrieTextos.NAO_ENCONTRADO : ((long) posicao.getIndex() << 32) | parsed.getLong(campo);
+    }
+
+    private static void comparar(TrieTextos trie, ChronoField campo, Locale locale) {
+        DateTimeFormatter formatter = new DateTimeFormatterBuilder().parseCaseInsensitive().appendText(campo, trie.getTextos()).toFormatter(locale);
+        List<String> entradas = new ArrayList<>();
+        for (String texto : trie.getTextos().values()) {
+            entradas.add(texto);
+            entradas.add(texto.toUpperCase(Locale.ROOT));
+            entradas.add(texto.toLowerCase(Locale.ROOT));
+            entradas.add(texto + "x 2018");
+            entradas.add(texto.substring(0, texto.length() - 1));
+            entradas.add(texto.substring(1));
+        }
+        entradas.add("");
+        entradas.add("123");
+        for (String entrada : entradas) {
+            String msg = locale + " " + trie + " [" + entrada + "]";
+            assertEquals(msg, esperado(formatter, campo, entrada, 0), trie.buscar(entrada, 0));
+            // a partir de uma posição no meio da String
+            String comPrefixo = "10 " + entrada;
+            assertEquals(msg, esperado(formatter, campo, comPrefixo, 3), trie.buscar(comPrefixo, 3));
+        }
+    }
+
+    @Test
+    public void mesmoResultadoQueDateTimeFormatterEmTodosOsLocales() {
+        for (Locale locale : Locale.getAvailableLocales()) {
+            for (TextStyle estilo : ESTILOS) {
+                for (ChronoField campo : CAMPOS) {
+                    comparar(TrieTextos.of(locale, estilo, campo), campo, locale);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void textosRepetidosEPrefixos() {
+        // prefixos uns dos outros, e o mesmo texto para valores diferentes (prevalece o último)
+        Map<Long, String> textos = new HashMap<>();
+        textos.put(1L, "mai");
+        textos.put(2L, "mai.");
+        textos.put(3L, "maio");
+        textos.put(4L, "J");
+        textos.put(5L, "J");
+        textos.put(6L, "Ja");
+        TrieTextos trie = TrieTextos.of(textos);
+        comparar(trie, ChronoField.MONTH_OF_YEAR, Locale.ENGLISH);
+        for (String s : new String[] { "maio de 2018", "mai. 2018", "MAIS", "ma", "jan", "JJ" }) {
+            DateTimeFormatter formatter = new DateTimeFormatterBuilder().parseCaseInsensitive().appendText(ChronoField.MONTH_OF_YEAR, textos).toFormatter();
+            assertEquals(s, esperado(formatter, ChronoField.MONTH_OF_YEAR, s, 0), trie.buscar(s, 0));
+        }
+        // textos que só diferem em maiúsculas e minúsculas: prevalece o último (no JDK, depende da ordem do HashMap)
+        textos.put(7L, "ja");
+        trie = TrieTextos.of(textos);
+        assertEquals(7, TrieTextos.valor(trie.buscar("JA", 0)));
+        assertEquals(2, TrieTextos.posicao(trie.buscar("JA", 0)));
+    }
+}
@@ -0,0 +1,74 @@
+package desempenho;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.text.Format;
+import java.text.ParsePosition;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ValidadorStrictTest {
+
+    private static final String[] PATTERNS = { "uuuu-MM-dd", "dd/MM/uuuu", "uuuuMMdd", "MM.dd.uuuu", "dd 'de' MM 'de' uuuu" };
+
+    @Test
+    public void mesmoResultadoQueStrict() {
+        for (String pattern : PATTERNS) {
+            ValidadorStrict validador = ValidadorStrict.of(pattern);
+            Format format = validador.getFormatter().toFormat();
+            List<String> valores = new ArrayList<>();
+            // todos os dias de um ano bissexto e de um não bissexto, com valores fora dos limites (dia 0 a 32, mês 0 a 13)
+            for (int ano : new int[] { 2016, 2018, 1900, 2000, 0, 9999 }) {
+                for (int mes = 0; mes <= 13; mes++) {
+                    for (int dia = 0; dia <= 32; dia++) {
+                        valores.add(texto(pattern, String.format("%04d", ano), String.format("%02d", mes), String.format("%02d", dia)));
+                    }
+                }
+            }
+            // dígitos inválidos, tamanhos diferentes e anos com sinal
+            valores.addAll(Arrays.asList(texto(pattern, "2018", "1a", "01"), texto(pattern, "20x8", "01", "01"), texto(pattern, "2018", "-1", "01"),
+                texto(pattern, "2018", "01", "+1"), texto(pattern, "218", "01", "01"), texto(pattern, "+12345", "01", "01"),
+                texto(pattern, "-0001", "02", "29"), texto(pattern, "+2018", "01", "01"), texto(pattern, "2018", "1", "01"), "",
+                texto(pattern, "2018", "01", "01") + " "));
+            for (String valor : valores) {
+                ParsePosition pos = new ParsePosition(0);
+                TemporalAccessor parsed = (TemporalAccessor) format.parseObject(valor, pos);
+                boolean valido = parsed != null && pos.getIndex() == valor.length();
+                long esperado = valido ? LocalDate.from(parsed).toEpochDay() : ValidadorStrict.INVALIDO;
+                assertEquals(pattern + " " + valor, esperado, validador.epochDay(valor));
+                assertEquals(valido, validador.valido(valor));
+                try {
+                    assertEquals(esperado, validador.parse(valor).toEpochDay());
+                    assertTrue(valido);
+                } catch (DateTimeParseException e) {
+                    assertFalse(valido);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void patternsNaoSuportados() {
+        for (String pattern : new String[] { "yyyy-MM-dd", "uuuu-MM", "uuuu-MM-dd HH:mm", "dd/MMM/uuuu", "uuuu-MM-dd[ ]", "d/M/uuuu", "uuuu-MM-dd-dd" }) {
+            try {
+                ValidadorStrict.of(pattern);
+                fail(pattern);
+            } catch (IllegalArgumentException e) {
+                // esperado
+            }
+        }
+    }
+
+    private static String texto(String pattern, String ano, String mes, String dia) {
+        return pattern.replace("'", "").replace("uuuu", ano).replace("MM", mes).replace("dd", dia);
+    }
+}